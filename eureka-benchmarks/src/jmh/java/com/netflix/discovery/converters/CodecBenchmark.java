@@ -0,0 +1,58 @@
+package com.netflix.discovery.converters;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encodes and decodes a full registry with each of the {@link CodecWrappers} codecs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CodecBenchmark {
+
+    private static final int INSTANCES_PER_APP = 20;
+
+    @Param({"LegacyJacksonJson", "JacksonJson", "JacksonJsonMini", "JacksonXml", "JacksonXmlMini", "XStreamJson", "XStreamXml"})
+    public String codecName;
+
+    @Param({"1000", "10000", "100000"})
+    public int instances;
+
+    private CodecWrapper codec;
+    private Applications applications;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = CodecWrappers.getCodec(codecName);
+        applications = InstanceInfoGenerator.newBuilder(instances, Math.max(1, instances / INSTANCES_PER_APP))
+                .withMetaData(true).build().toApplications();
+        encoded = codec.encode(applications).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String encode() throws IOException {
+        return codec.encode(applications);
+    }
+
+    @Benchmark
+    public Applications decode() throws IOException {
+        return codec.decode(new ByteArrayInputStream(encoded), Applications.class);
+    }
+}
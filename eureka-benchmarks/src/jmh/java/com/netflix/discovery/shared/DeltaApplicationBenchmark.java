@@ -0,0 +1,73 @@
+package com.netflix.discovery.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Applies a delta to the registry a client holds, the way {@code DiscoveryClient} does with
+ * {@link Applications#copyWithChanges}. Each delta changes the status of randomly chosen instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeltaApplicationBenchmark {
+
+    private static final int INSTANCES_PER_APP = 20;
+    private static final int DELTAS = 64;
+
+    @Param({"1000", "10000", "100000"})
+    public int instances;
+
+    @Param({"10", "100", "1000"})
+    public int changesPerDelta;
+
+    private Applications applications;
+    private List<List<InstanceInfo>> deltas;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        applications = InstanceInfoGenerator.newBuilder(instances, Math.max(1, instances / INSTANCES_PER_APP))
+                .build().toApplications();
+        applications.shuffleInstances(true);
+
+        List<InstanceInfo> all = new ArrayList<>();
+        for (Application application : applications.getRegisteredApplications()) {
+            all.addAll(application.getInstances());
+        }
+        Random random = new Random(0);
+        deltas = new ArrayList<>(DELTAS);
+        for (int d = 0; d < DELTAS; d++) {
+            List<InstanceInfo> changes = new ArrayList<>(changesPerDelta);
+            for (int i = 0; i < changesPerDelta; i++) {
+                InstanceInfo changed = new InstanceInfo(all.get(random.nextInt(all.size())));
+                changed.setStatusWithoutDirty(InstanceStatus.OUT_OF_SERVICE);
+                changed.setActionType(ActionType.MODIFIED);
+                changes.add(changed);
+            }
+            deltas.add(changes);
+        }
+    }
+
+    @Benchmark
+    public Applications copyWithChanges() {
+        List<InstanceInfo> changes = deltas.get(next);
+        next = (next + 1) % DELTAS;
+        return applications.copyWithChanges(changes, true);
+    }
+}
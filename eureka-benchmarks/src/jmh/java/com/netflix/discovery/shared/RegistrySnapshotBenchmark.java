@@ -0,0 +1,105 @@
+package com.netflix.discovery.shared;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the VIP lookup throughput of reader threads while a writer keeps applying deltas to the registry,
+ * comparing deltas applied in place, followed by a reshuffle of the whole registry or by
+ * {@link Applications#applyChanges}, with deltas applied by {@link Applications#copyWithChanges} and published as a
+ * new registry. Each delta changes the status of randomly chosen instances.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegistrySnapshotBenchmark {
+
+    private static final int INSTANCES_PER_APP = 50;
+
+    @Param({"50000"})
+    public int instances;
+
+    @Param({"100"})
+    public int changesPerDelta;
+
+    /**
+     * reshuffle: the delta processing of {@code DiscoveryClient} before the VIP indexes were updated incrementally,
+     * in-place: without registry snapshots, snapshots: the current one.
+     */
+    @Param({"reshuffle", "in-place", "snapshots"})
+    public String variant;
+
+    private final AtomicReference<Applications> registry = new AtomicReference<>();
+    private final Random random = new Random(-1);
+    private List<InstanceInfo> instanceList;
+    private List<String> vips;
+
+    @Setup
+    public void setUp() {
+        InstanceInfoGenerator generator = InstanceInfoGenerator
+                .newBuilder(instances, Math.max(1, instances / INSTANCES_PER_APP)).build();
+        instanceList = generator.toInstanceList();
+        vips = new ArrayList<>();
+        for (Application app : generator.toApplications().getRegisteredApplications()) {
+            vips.add(app.getInstances().get(0).getVIPAddress());
+        }
+        registry.set(generator.toApplications());
+    }
+
+    @Benchmark
+    @Group("lookupWhileApplyingDeltas")
+    @GroupThreads(2)
+    public int lookup() {
+        String vip = vips.get(ThreadLocalRandom.current().nextInt(vips.size()));
+        return registry.get().getInstancesByVirtualHostName(vip).size();
+    }
+
+    @Benchmark
+    @Group("lookupWhileApplyingDeltas")
+    @GroupThreads(1)
+    public void applyDelta() {
+        List<InstanceInfo> changes = new ArrayList<>(changesPerDelta);
+        for (int i = 0; i < changesPerDelta; i++) {
+            int idx = random.nextInt(instanceList.size());
+            InstanceInfo changed = new InstanceInfo(instanceList.get(idx));
+            changed.setStatusWithoutDirty(
+                    changed.getStatus() == InstanceStatus.UP ? InstanceStatus.OUT_OF_SERVICE : InstanceStatus.UP);
+            changed.setActionType(ActionType.MODIFIED);
+            instanceList.set(idx, changed);
+            changes.add(changed);
+        }
+        Applications applications = registry.get();
+        switch (variant) {
+            case "reshuffle":
+                for (InstanceInfo instance : changes) {
+                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
+                }
+                applications.shuffleInstances(true);
+                break;
+            case "in-place":
+                applications.applyChanges(changes, true);
+                break;
+            default:
+                registry.set(applications.copyWithChanges(changes, true));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.netflix.discovery.shared.chooser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Measures the throughput of threads choosing instances of a few VIP addresses at the same time, comparing the
+ * shared counter per VIP address of {@code DiscoveryClient#getNextServerFromEureka} with the
+ * {@link InstanceChooser} strategies.
+ */
+@State(Scope.Benchmark)
+@Threads(64)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InstanceChooserBenchmark {
+
+    private static final int INSTANCES = 5000;
+    private static final int APPS = 100;
+    private static final int VIPS = 4;
+    private static final String ZONE = "us-east-1c";
+
+    @Param({"shared-counter", "round-robin", "zone-affine", "power-of-two-choices"})
+    public String chooser;
+
+    private InstanceChooser instanceChooser;
+    private String[] vips;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            next = threadParams.getThreadIndex();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Applications applications = InstanceInfoGenerator.newBuilder(INSTANCES, APPS)
+                .withZone(ZONE).build().toApplications();
+        applications.shuffleInstances(true);
+        List<String> vipList = new ArrayList<>();
+        for (Application app : applications.getRegisteredApplications()) {
+            if (vipList.size() < VIPS) {
+                vipList.add(app.getInstances().get(0).getVIPAddress());
+            }
+        }
+        vips = vipList.toArray(new String[vipList.size()]);
+
+        switch (chooser) {
+            case "shared-counter":
+                instanceChooser = new SharedCounterChooser(applications);
+                break;
+            case "round-robin":
+                instanceChooser = refreshed(new RoundRobinInstanceChooser(), applications);
+                break;
+            case "zone-affine":
+                instanceChooser = refreshed(new ZoneAffineInstanceChooser(ZONE), applications);
+                break;
+            default:
+                instanceChooser = refreshed(new PowerOfTwoChoicesInstanceChooser(InstanceInfo::getPort), applications);
+        }
+    }
+
+    @Benchmark
+    public InstanceInfo choose(Cursor cursor) {
+        return instanceChooser.choose(vips[cursor.next++ % vips.length], false);
+    }
+
+    private static InstanceChooser refreshed(AbstractInstanceChooser chooser, Applications applications) {
+        chooser.refresh(applications);
+        return chooser;
+    }
+
+    /**
+     * The choice made by {@code DiscoveryClient#getNextServerFromEureka}.
+     */
+    private static class SharedCounterChooser implements InstanceChooser {
+        private final Applications applications;
+
+        SharedCounterChooser(Applications applications) {
+            this.applications = applications;
+        }
+
+        @Override
+        public InstanceInfo choose(String vipAddress, boolean secure) {
+            List<InstanceInfo> instances = applications.getInstancesByVirtualHostName(vipAddress);
+            int index = (int) (applications.getNextIndex(vipAddress, secure).incrementAndGet() % instances.size());
+            return instances.get(index);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.netflix.eureka.registry;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.MyDataCenterInstanceConfig;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaClientConfig;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.aws.AwsAsgUtil;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.resources.ServerCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the register, renew and cancel throughput of a registry holding the given number of instances, without
+ * peers to replicate to, and the cost of an eviction run finding no expired lease. The renew throughput is measured on
+ * AWS as well, where the status of the ASG of each instance is one of the status override rules. Each thread walks
+ * through the instances in its own order.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InstanceRegistryBenchmark {
+
+    private static final int INSTANCES_PER_APP = 20;
+
+    @State(Scope.Benchmark)
+    public static class Registry {
+
+        @Param({"1000", "10000", "100000"})
+        public int instances;
+
+        PeerAwareInstanceRegistryImpl registry;
+        List<InstanceInfo> registered;
+
+        @Setup
+        public void setUp() throws Exception {
+            registered = InstanceInfoGenerator.newBuilder(instances, Math.max(1, instances / INSTANCES_PER_APP))
+                    .build().toInstanceList();
+            // In the AWS account of the registered instances
+            ApplicationInfoManager applicationInfoManager =
+                    new ApplicationInfoManager(new MyDataCenterInstanceConfig(), registered.get(0));
+            EurekaServerConfig serverConfig = new DefaultEurekaServerConfig() {
+                // Lets the eviction runs proceed, as the renewal rate is not tracked
+                @Override
+                public boolean shouldEnableSelfPreservation() {
+                    return false;
+                }
+
+                // Keeps the ASG statuses set on setup, instead of querying AWS for them
+                @Override
+                public boolean shouldUseAwsAsgApi() {
+                    return false;
+                }
+            };
+            EurekaClientConfig clientConfig = new DefaultEurekaClientConfig();
+            ServerCodecs serverCodecs = new DefaultServerCodecs(serverConfig);
+            registry = newRegistry(serverConfig, clientConfig, serverCodecs);
+            // Not started, so without peers. A mock would dominate the cost of the operations replicated to them
+            registry.init(new PeerEurekaNodes(registry, serverConfig, clientConfig, serverCodecs,
+                    applicationInfoManager) {
+                @Override
+                public void shutdown() {
+                    // Nothing to shut down
+                }
+            });
+
+            beforeRegistration();
+            for (InstanceInfo instance : registered) {
+                registry.register(instance, false);
+            }
+        }
+
+        PeerAwareInstanceRegistryImpl newRegistry(EurekaServerConfig serverConfig, EurekaClientConfig clientConfig,
+                                                  ServerCodecs serverCodecs) {
+            return new PeerAwareInstanceRegistryImpl(serverConfig, clientConfig, serverCodecs,
+                    mock(EurekaClient.class));
+        }
+
+        void beforeRegistration() {
+        }
+
+        @TearDown
+        public void tearDown() {
+            registry.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AwsRegistry extends Registry {
+
+        @Override
+        PeerAwareInstanceRegistryImpl newRegistry(EurekaServerConfig serverConfig, EurekaClientConfig clientConfig,
+                                                  ServerCodecs serverCodecs) {
+            return new AwsInstanceRegistry(serverConfig, clientConfig, serverCodecs, mock(EurekaClient.class));
+        }
+
+        // While the registry is empty, as setting a status looks up the AWS account of the ASG in the registry
+        @Override
+        void beforeRegistration() {
+            AwsAsgUtil awsAsgUtil = ((AwsInstanceRegistry) registry).getAwsAsgUtil();
+            Set<String> asgNames = new HashSet<>();
+            for (InstanceInfo instance : registered) {
+                if (asgNames.add(instance.getASGName())) {
+                    awsAsgUtil.setStatus(instance.getASGName(), true);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private static int nextThread;
+
+        private int next;
+
+        @Setup
+        public void setUp() {
+            synchronized (Cursor.class) {
+                // Spreads the threads over the instances, as the renewals of distinct instances arrive together
+                next = nextThread++ * 7919;
+            }
+        }
+
+        InstanceInfo next(Registry registry) {
+            if (next >= registry.registered.size()) {
+                next %= registry.registered.size();
+            }
+            InstanceInfo instance = registry.registered.get(next);
+            next = next + 1 == registry.registered.size() ? 0 : next + 1;
+            return instance;
+        }
+    }
+
+    @Benchmark
+    public boolean renew(Registry registry, Cursor cursor) {
+        InstanceInfo instance = cursor.next(registry);
+        return registry.registry.renew(instance.getAppName(), instance.getId(), false);
+    }
+
+    @Benchmark
+    public boolean renewOnAws(AwsRegistry registry, Cursor cursor) {
+        InstanceInfo instance = cursor.next(registry);
+        return registry.registry.renew(instance.getAppName(), instance.getId(), false);
+    }
+
+    @Benchmark
+    public void register(Registry registry, Cursor cursor) {
+        registry.registry.register(cursor.next(registry), false);
+    }
+
+    @Benchmark
+    public boolean cancelAndRegister(Registry registry, Cursor cursor) {
+        InstanceInfo instance = cursor.next(registry);
+        boolean cancelled = registry.registry.cancel(instance.getAppName(), instance.getId(), false);
+        registry.registry.register(instance, false);
+        return cancelled;
+    }
+
+    @Benchmark
+    public void evict(Registry registry) {
+        registry.registry.evict();
+    }
+}
@@ -0,0 +1,119 @@
+package com.netflix.eureka.registry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.MyDataCenterInstanceConfig;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.Version;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the generation of the payloads {@link ResponseCacheImpl} serves to the clients fetching the registry: the
+ * full registry, unchanged or after one application changed, and a delta holding the given number of changes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResponseCacheBenchmark {
+
+    private static final int INSTANCES_PER_APP = 20;
+
+    @State(Scope.Benchmark)
+    public static class Registry {
+
+        @Param({"1000", "10000", "100000"})
+        public int instances;
+
+        PeerAwareInstanceRegistryImpl registry;
+        ResponseCacheImpl responseCache;
+        List<InstanceInfo> registered;
+        Key fullKey;
+        int next;
+
+        @Setup
+        public void setUp() throws Exception {
+            new ApplicationInfoManager(new MyDataCenterInstanceConfig());
+            EurekaServerConfig serverConfig = new DefaultEurekaServerConfig();
+            registry = new PeerAwareInstanceRegistryImpl(serverConfig, new DefaultEurekaClientConfig(),
+                    new DefaultServerCodecs(serverConfig), mock(EurekaClient.class));
+            registry.init(mock(PeerEurekaNodes.class));
+            responseCache = (ResponseCacheImpl) registry.getResponseCache();
+
+            registered = InstanceInfoGenerator.newBuilder(instances, Math.max(1, instances / INSTANCES_PER_APP))
+                    .withMetaData(true).build().toInstanceList();
+            for (InstanceInfo instance : registered) {
+                registry.register(instance, false);
+            }
+            fullKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+                    Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+        }
+
+        @TearDown
+        public void tearDown() {
+            registry.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Delta {
+
+        @Param({"10", "1000"})
+        public int changesPerDelta;
+
+        Key deltaKey;
+
+        @Setup
+        public void setUp(Registry registry) {
+            // The delta a client gets when it fetched the registry just before the given number of status changes
+            long sinceSequence = registry.registry.getPublishedRegistrySequence();
+            int step = Math.max(1, registry.registered.size() / changesPerDelta);
+            for (int i = 0; i < changesPerDelta && i * step < registry.registered.size(); i++) {
+                InstanceInfo instance = registry.registered.get(i * step);
+                registry.registry.statusUpdate(instance.getAppName(), instance.getId(), InstanceStatus.OUT_OF_SERVICE,
+                        String.valueOf(System.currentTimeMillis()), false);
+            }
+            deltaKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                    Key.KeyType.JSON, Version.V2, EurekaAccept.full, null, sinceSequence);
+        }
+    }
+
+    @Benchmark
+    public String fullPayload(Registry registry) {
+        registry.responseCache.invalidate(registry.fullKey);
+        return registry.responseCache.get(registry.fullKey, false);
+    }
+
+    @Benchmark
+    public String fullPayloadAfterChange(Registry registry) {
+        InstanceInfo changed = registry.registered.get(registry.next);
+        registry.next = (registry.next + INSTANCES_PER_APP) % registry.registered.size();
+        registry.responseCache.invalidate(changed.getAppName(), changed.getVIPAddress(), changed.getSecureVipAddress());
+        return registry.responseCache.get(registry.fullKey, false);
+    }
+
+    @Benchmark
+    public String deltaPayload(Registry registry, Delta delta) {
+        registry.responseCache.invalidate(delta.deltaKey);
+        return registry.responseCache.get(delta.deltaKey, false);
+    }
+}
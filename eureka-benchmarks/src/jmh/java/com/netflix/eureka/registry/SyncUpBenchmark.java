@@ -0,0 +1,104 @@
+package com.netflix.eureka.registry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.MyDataCenterInstanceConfig;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaClientConfig;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.resources.ServerCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the time to load the registry got from a peer into an empty registry on startup, registering each instance
+ * as a replicated registration, or loading them all at once with
+ * {@link AbstractInstanceRegistry#bulkLoad(Applications, Predicate, int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SyncUpBenchmark {
+
+    private static final int INSTANCES_PER_APP = 20;
+
+    private static final Predicate<InstanceInfo> ALL_INSTANCES = new Predicate<InstanceInfo>() {
+        @Override
+        public boolean test(InstanceInfo instance) {
+            return true;
+        }
+    };
+
+    @Param({"10000", "60000"})
+    public int instances;
+
+    private PeerAwareInstanceRegistryImpl registry;
+    private Applications applications;
+
+    @Setup
+    public void setUp() throws Exception {
+        applications = InstanceInfoGenerator.newBuilder(instances, Math.max(1, instances / INSTANCES_PER_APP))
+                .build().toApplications();
+        ApplicationInfoManager applicationInfoManager = new ApplicationInfoManager(new MyDataCenterInstanceConfig(),
+                applications.getRegisteredApplications().get(0).getInstances().get(0));
+        EurekaServerConfig serverConfig = new DefaultEurekaServerConfig();
+        EurekaClientConfig clientConfig = new DefaultEurekaClientConfig();
+        ServerCodecs serverCodecs = new DefaultServerCodecs(serverConfig);
+        registry = new PeerAwareInstanceRegistryImpl(serverConfig, clientConfig, serverCodecs,
+                mock(EurekaClient.class));
+        // Not started, so without peers
+        registry.init(new PeerEurekaNodes(registry, serverConfig, clientConfig, serverCodecs, applicationInfoManager) {
+            @Override
+            public void shutdown() {
+                // Nothing to shut down
+            }
+        });
+    }
+
+    @Setup(Level.Invocation)
+    public void clearRegistry() {
+        registry.clearRegistry();
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Benchmark
+    public int registerEach() {
+        int count = 0;
+        for (Application app : applications.getRegisteredApplications()) {
+            for (InstanceInfo instance : app.getInstances()) {
+                registry.register(instance, instance.getLeaseInfo().getDurationInSecs(), true);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int bulkLoad() throws InterruptedException {
+        return registry.bulkLoad(applications, ALL_INSTANCES, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,135 @@
+package com.netflix.eureka.resources;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.MyDataCenterInstanceConfig;
+import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.DefaultEurekaServerConfig;
+import com.netflix.eureka.EurekaServerConfig;
+import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays recorded 250 item heartbeat batches against a registry, comparing the per item dispatch through
+ * {@link ApplicationResource} and {@link InstanceResource} that the batch replication endpoint used before with
+ * {@link PeerAwareInstanceRegistryImpl#applyReplicationBatch(ReplicationList)}.
+ *
+ * <p>
+ * The batches are recorded once, in the order in which a peer emits the heartbeats of its instances, and the same
+ * batches are replayed by both benchmarks.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PeerReplicationBenchmark {
+
+    private static final int BATCH_SIZE = 250;
+    private static final String REPLICATION = "true";
+
+    @Param({"500"})
+    public int apps;
+
+    @Param({"20"})
+    public int instancesPerApp;
+
+    private EurekaServerConfig serverConfig;
+    private PeerAwareInstanceRegistryImpl registry;
+    private List<ReplicationList> batches;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        new ApplicationInfoManager(new MyDataCenterInstanceConfig());
+        serverConfig = new DefaultEurekaServerConfig();
+        registry = new PeerAwareInstanceRegistryImpl(serverConfig, new DefaultEurekaClientConfig(),
+                new DefaultServerCodecs(serverConfig), mock(EurekaClient.class));
+        registry.init(mock(PeerEurekaNodes.class));
+        batches = recordHeartbeatBatches();
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    /**
+     * The dispatch the batch replication endpoint did before the batch was applied by the registry.
+     */
+    @Benchmark
+    public ReplicationListResponse resourceDispatch() {
+        ReplicationListResponse batchResponse = new ReplicationListResponse();
+        for (ReplicationInstance event : nextBatch().getReplicationList()) {
+            ApplicationResource applicationResource = new ApplicationResource(event.getAppName(), serverConfig, registry);
+            InstanceResource resource = new InstanceResource(applicationResource, event.getId(), serverConfig, registry);
+            Response response = resource.renewLease(REPLICATION, event.getOverriddenStatus(), event.getStatus(),
+                    event.getLastDirtyTimestamp().toString());
+            ReplicationInstanceResponse.Builder builder = new ReplicationInstanceResponse.Builder()
+                    .setStatusCode(response.getStatus());
+            if (!"false".equals(serverConfig.getExperimental("bugfix.934")) && response.getEntity() != null) {
+                builder.setResponseEntity((InstanceInfo) response.getEntity());
+            }
+            batchResponse.addResponse(builder.build());
+        }
+        return batchResponse;
+    }
+
+    @Benchmark
+    public ReplicationListResponse registryBatch() {
+        return registry.applyReplicationBatch(nextBatch());
+    }
+
+    private ReplicationList nextBatch() {
+        ReplicationList batch = batches.get(next);
+        next = (next + 1) % batches.size();
+        return batch;
+    }
+
+    private List<ReplicationList> recordHeartbeatBatches() {
+        List<ReplicationInstance> heartbeats = new ArrayList<>();
+        InstanceInfoGenerator generator = InstanceInfoGenerator.newBuilder(apps * instancesPerApp, apps).build();
+        for (Application application : generator.toApplications().getRegisteredApplications()) {
+            for (InstanceInfo instance : application.getInstances()) {
+                registry.register(instance, true);
+                heartbeats.add(new ReplicationInstance(instance.getAppName(), instance.getId(),
+                        instance.getLastDirtyTimestamp(), instance.getOverriddenStatus().name(),
+                        instance.getStatus().name(), null, Action.Heartbeat));
+            }
+        }
+        // Instances renew independently of each other, so a batch mixes the heartbeats of many applications
+        Collections.shuffle(heartbeats, new Random(0));
+
+        List<ReplicationList> recorded = new ArrayList<>();
+        for (int i = 0; i + BATCH_SIZE <= heartbeats.size(); i += BATCH_SIZE) {
+            recorded.add(new ReplicationList(new ArrayList<>(heartbeats.subList(i, i + BATCH_SIZE))));
+        }
+        return recorded;
+    }
+}
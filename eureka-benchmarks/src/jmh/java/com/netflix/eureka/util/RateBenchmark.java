@@ -0,0 +1,52 @@
+package com.netflix.eureka.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the throughput of threads counting renewals together, as the request threads of a server do, with the
+ * single counter of {@link MeasuredRate} and the striped buckets of {@link SlidingWindowRate}.
+ */
+@State(Scope.Benchmark)
+@Threads(8)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings("deprecation")
+public class RateBenchmark {
+
+    private MeasuredRate measuredRate;
+    private SlidingWindowRate slidingWindowRate;
+
+    @Setup
+    public void setUp() {
+        measuredRate = new MeasuredRate(60 * 1000);
+        measuredRate.start();
+        slidingWindowRate = new SlidingWindowRate(60 * 1000, 120);
+        slidingWindowRate.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        measuredRate.stop();
+        slidingWindowRate.stop();
+    }
+
+    @Benchmark
+    public void measuredRate() {
+        measuredRate.increment();
+    }
+
+    @Benchmark
+    public void slidingWindowRate() {
+        slidingWindowRate.increment();
+    }
+}
@@ -0,0 +1,130 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures batching task dispatchers configured like the peer replication ones, with a single acceptor thread and
+ * with a sharded acceptor: the throughput of threads submitting tasks for a fixed set of ids (one per instance), and
+ * the time taken to dispatch a full batch of new tasks to workers processing them at no cost.
+ */
+public class TaskDispatcherBenchmark {
+
+    private static final int MAX_BUFFER_SIZE = 10000;
+    private static final int WORK_LOAD_SIZE = 250;
+    private static final int WORKERS = 20;
+    private static final long MAX_BATCHING_DELAY_MS = 500;
+    private static final long SERVER_UNAVAILABLE_SLEEP_TIME_MS = 1000;
+    private static final long RETRY_SLEEP_TIME_MS = 100;
+    private static final int SUBMITTED_IDS = 5000;
+    private static final long TASK_EXPIRY_MS = 30 * 1000;
+
+    @State(Scope.Benchmark)
+    public static class Dispatcher {
+
+        @Param({"1", "4"})
+        public int acceptors;
+
+        final CountingProcessor processor = new CountingProcessor();
+        TaskDispatcher<Long, Long> dispatcher;
+
+        @Setup
+        public void setUp() {
+            dispatcher = TaskDispatchers.createBatchingTaskDispatcher("BENCHMARK", MAX_BUFFER_SIZE, WORK_LOAD_SIZE,
+                    WORKERS, acceptors, batchingDelayMs(), SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS,
+                    processor);
+        }
+
+        long batchingDelayMs() {
+            return MAX_BATCHING_DELAY_MS;
+        }
+
+        @TearDown
+        public void tearDown() {
+            dispatcher.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UndelayedDispatcher extends Dispatcher {
+
+        long nextId;
+
+        // Without a batching delay, so that the time to dispatch is not the time spent waiting for more tasks
+        @Override
+        long batchingDelayMs() {
+            return 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Submitter {
+
+        private static long nextThread;
+
+        long next;
+
+        @Setup
+        public void setUp() {
+            synchronized (Submitter.class) {
+                next = (nextThread++ * SUBMITTED_IDS / 8) % SUBMITTED_IDS;
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void submit(Dispatcher dispatcher, Submitter submitter) {
+        long id = submitter.next;
+        submitter.next = id + 1 == SUBMITTED_IDS ? 0 : id + 1;
+        dispatcher.dispatcher.process(id, id, System.currentTimeMillis() + TASK_EXPIRY_MS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long dispatchBatch(UndelayedDispatcher dispatcher) {
+        long expected = dispatcher.processor.processed.get() + WORK_LOAD_SIZE;
+        long expiryTime = System.currentTimeMillis() + TASK_EXPIRY_MS;
+        for (int i = 0; i < WORK_LOAD_SIZE; i++) {
+            long id = dispatcher.nextId++;
+            dispatcher.dispatcher.process(id, id, expiryTime);
+        }
+        long processed;
+        while ((processed = dispatcher.processor.processed.get()) < expected) {
+            Thread.yield();
+        }
+        return processed;
+    }
+
+    static class CountingProcessor implements TaskProcessor<Long> {
+
+        final AtomicLong processed = new AtomicLong();
+
+        @Override
+        public ProcessingResult process(Long task) {
+            processed.incrementAndGet();
+            return ProcessingResult.Success;
+        }
+
+        @Override
+        public ProcessingResult process(List<Long> tasks) {
+            processed.addAndGet(tasks.size());
+            return ProcessingResult.Success;
+        }
+    }
+}
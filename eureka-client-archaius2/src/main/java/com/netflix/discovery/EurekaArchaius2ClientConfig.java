@@ -181,6 +181,34 @@ public class EurekaArchaius2ClientConfig implements EurekaClientConfig {
         return prefixedConfig.getBoolean(SHOULD_ENFORCE_FETCH_REGISTRY_AT_INIT_KEY, false);
     }
 
+    public boolean shouldUseRegistrySnapshots() {
+        return prefixedConfig.getBoolean(SHOULD_USE_REGISTRY_SNAPSHOTS_KEY, false);
+    }
+
+    public String getRegistrySnapshotFile() {
+        return prefixedConfig.getString(REGISTRY_SNAPSHOT_FILE_KEY, null);
+    }
+
+    public int getRegistrySnapshotIntervalSeconds() {
+        return prefixedConfig.getInteger(REGISTRY_SNAPSHOT_INTERVAL_KEY, 300);
+    }
+
+    public boolean shouldUseRegistryWatch() {
+        return prefixedConfig.getBoolean(SHOULD_USE_REGISTRY_WATCH_KEY, false);
+    }
+
+    public int getRegistryWatchTimeoutSeconds() {
+        return prefixedConfig.getInteger(REGISTRY_WATCH_TIMEOUT_KEY, 30);
+    }
+
+    public String getRegistryRefreshVipAddresses() {
+        return prefixedConfig.getString(REGISTRY_REFRESH_VIP_ADDRESSES_KEY, null);
+    }
+
+    public String getRegistryRefreshApplications() {
+        return prefixedConfig.getString(REGISTRY_REFRESH_APPLICATIONS_KEY, null);
+    }
+
     public String getRegistryRefreshSingleVipAddress() {
         return prefixedConfig.getString(FETCH_SINGLE_VIP_ONLY_KEY, null);
     }
@@ -37,10 +37,12 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse.EurekaHttpResponseBuilder;
 import com.netflix.discovery.util.StringUtil;
+import org.glassfish.jersey.client.ClientProperties;
 import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +56,11 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractJersey2EurekaHttpClient.class);
 
+    /**
+     * Added to the time a registry watch may be held by the server, to get the read timeout of that request.
+     */
+    private static final int WATCH_READ_TIMEOUT_MARGIN_MS = 10 * 1000;
+
     protected final Client jerseyClient;
     protected final String serviceUrl;
     private final String userName;
@@ -214,6 +221,57 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
         return getApplicationsInternal("apps/delta", regions);
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaSince(String cursor, String... regions) {
+        return getApplicationsInternal("apps/delta", regions, cursor, null);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsOfInterest(RegistryInterest interest, String... regions) {
+        return getApplicationsInternal("apps/", regions, null, interest);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaOfInterest(String cursor, RegistryInterest interest,
+                                                               String... regions) {
+        return getApplicationsInternal("apps/delta", regions, cursor, interest);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> watchDelta(String generation, int timeoutSeconds, String... regions) {
+        String urlPath = "apps/delta/watch";
+        Response response = null;
+        try {
+            WebTarget webTarget = jerseyClient.target(serviceUrl).path(urlPath)
+                    .queryParam("timeout", timeoutSeconds);
+            if (generation != null) {
+                webTarget = webTarget.queryParam("generation", generation);
+            }
+            if (regions != null && regions.length > 0) {
+                webTarget = webTarget.queryParam("regions", StringUtil.join(regions));
+            }
+            Builder requestBuilder = webTarget.request();
+            addExtraProperties(requestBuilder);
+            addExtraHeaders(requestBuilder);
+            requestBuilder.property(ClientProperties.READ_TIMEOUT, timeoutSeconds * 1000 + WATCH_READ_TIMEOUT_MARGIN_MS);
+            response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get();
+
+            Applications applications = null;
+            if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
+                applications = response.readEntity(Applications.class);
+            }
+            return anEurekaHttpResponse(response.getStatus(), applications).headers(headersOf(response)).build();
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Jersey2 HTTP GET {}/{}?generation={}; statusCode={}", serviceUrl, urlPath, generation,
+                        response == null ? "N/A" : response.getStatus());
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions) {
         return getApplicationsInternal("vips/" + vipAddress, regions);
@@ -250,12 +308,26 @@ public abstract class AbstractJersey2EurekaHttpClient implements EurekaHttpClien
     }
 
     private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
+        return getApplicationsInternal(urlPath, regions, null, null);
+    }
+
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions, String cursor,
+                                                                     RegistryInterest interest) {
         Response response = null;
         try {
             WebTarget webTarget = jerseyClient.target(serviceUrl).path(urlPath);
             if (regions != null && regions.length > 0) {
                 webTarget = webTarget.queryParam("regions", StringUtil.join(regions));
             }
+            if (cursor != null) {
+                webTarget = webTarget.queryParam("since", cursor);
+            }
+            if (interest != null && interest.getVipAddresses() != null) {
+                webTarget = webTarget.queryParam(RegistryInterest.VIPS_PARAM, interest.getVipAddresses());
+            }
+            if (interest != null && interest.getAppNames() != null) {
+                webTarget = webTarget.queryParam(RegistryInterest.APPS_PARAM, interest.getAppNames());
+            }
             Builder requestBuilder = webTarget.request();
             addExtraProperties(requestBuilder);
             addExtraHeaders(requestBuilder);
@@ -15,9 +15,11 @@
  */
 package com.netflix.appinfo;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -130,6 +132,10 @@ public class InstanceInfo {
     private String secureVipAddressUnresolved;
     @XStreamOmitField
     private String healthCheckExplicitUrl;
+    @XStreamOmitField
+    private volatile VipAddressTokens vipAddressTokens;
+    @XStreamOmitField
+    private volatile VipAddressTokens secureVipAddressTokens;
     @Deprecated
     private volatile int countryId = DEFAULT_COUNTRY_ID; // Defaults to US
     private volatile boolean isSecurePortEnabled = false;
@@ -283,6 +289,8 @@ public class InstanceInfo {
         this.secureVipAddressUnresolved = ii.secureVipAddressUnresolved;
 
         this.healthCheckExplicitUrl = ii.healthCheckExplicitUrl;
+        this.vipAddressTokens = ii.vipAddressTokens;
+        this.secureVipAddressTokens = ii.secureVipAddressTokens;
 
         this.countryId = ii.countryId;
         this.isSecurePortEnabled = ii.isSecurePortEnabled;
@@ -1141,6 +1149,32 @@ public class InstanceInfo {
         return secureVipAddress;
     }
 
+    /**
+     * Gets the trimmed, upper cased addresses listed in the comma separated {@link #getVIPAddress()}. They are
+     * parsed once and cached until the VIP address changes.
+     *
+     * @return the VIP addresses, empty if the instance has no VIP address
+     */
+    @JsonIgnore
+    public List<String> getVIPAddressTokens() {
+        VipAddressTokens tokens = VipAddressTokens.of(vipAddressTokens, vipAddress);
+        vipAddressTokens = tokens;
+        return tokens.tokens;
+    }
+
+    /**
+     * Gets the trimmed, upper cased addresses listed in the comma separated {@link #getSecureVipAddress()}. They
+     * are parsed once and cached until the secure VIP address changes.
+     *
+     * @return the secure VIP addresses, empty if the instance has no secure VIP address
+     */
+    @JsonIgnore
+    public List<String> getSecureVipAddressTokens() {
+        VipAddressTokens tokens = VipAddressTokens.of(secureVipAddressTokens, secureVipAddress);
+        secureVipAddressTokens = tokens;
+        return tokens.tokens;
+    }
+
     /**
      * Gets the last time stamp when this instance was touched.
      *
@@ -1384,4 +1418,34 @@ public class InstanceInfo {
         }
         return instanceZone;
     }
+
+    /**
+     * The parsed form of a comma separated list of VIP addresses, kept with the string it was parsed from.
+     */
+    private static final class VipAddressTokens {
+        private static final VipAddressTokens NONE = new VipAddressTokens(null, Collections.<String>emptyList());
+
+        private final String addresses;
+        private final List<String> tokens;
+
+        private VipAddressTokens(String addresses, List<String> tokens) {
+            this.addresses = addresses;
+            this.tokens = tokens;
+        }
+
+        private static VipAddressTokens of(VipAddressTokens cached, String addresses) {
+            if (cached != null && (cached.addresses == addresses
+                    || (addresses != null && addresses.equals(cached.addresses)))) {
+                return cached;
+            }
+            if (addresses == null) {
+                return NONE;
+            }
+            String[] tokens = addresses.toUpperCase(Locale.ROOT).split(",");
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = tokens[i].trim();
+            }
+            return new VipAddressTokens(addresses, Collections.unmodifiableList(Arrays.asList(tokens)));
+        }
+    }
 }
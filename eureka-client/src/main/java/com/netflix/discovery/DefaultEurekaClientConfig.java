@@ -431,6 +431,48 @@ public class DefaultEurekaClientConfig implements EurekaClientConfig {
                 namespace + SHOULD_ENFORCE_FETCH_REGISTRY_AT_INIT_KEY, false).get();
     }
 
+    @Override
+    public boolean shouldUseRegistrySnapshots() {
+        return configInstance.getBooleanProperty(
+                namespace + SHOULD_USE_REGISTRY_SNAPSHOTS_KEY, false).get();
+    }
+
+    @Override
+    public String getRegistrySnapshotFile() {
+        return configInstance.getStringProperty(
+                namespace + REGISTRY_SNAPSHOT_FILE_KEY, null).get();
+    }
+
+    @Override
+    public int getRegistrySnapshotIntervalSeconds() {
+        return configInstance.getIntProperty(
+                namespace + REGISTRY_SNAPSHOT_INTERVAL_KEY, 300).get();
+    }
+
+    @Override
+    public boolean shouldUseRegistryWatch() {
+        return configInstance.getBooleanProperty(
+                namespace + SHOULD_USE_REGISTRY_WATCH_KEY, false).get();
+    }
+
+    @Override
+    public int getRegistryWatchTimeoutSeconds() {
+        return configInstance.getIntProperty(
+                namespace + REGISTRY_WATCH_TIMEOUT_KEY, 30).get();
+    }
+
+    @Override
+    public String getRegistryRefreshVipAddresses() {
+        return configInstance.getStringProperty(
+                namespace + REGISTRY_REFRESH_VIP_ADDRESSES_KEY, null).get();
+    }
+
+    @Override
+    public String getRegistryRefreshApplications() {
+        return configInstance.getStringProperty(
+                namespace + REGISTRY_REFRESH_APPLICATIONS_KEY, null).get();
+    }
+
     /*
      * (non-Javadoc)
      *
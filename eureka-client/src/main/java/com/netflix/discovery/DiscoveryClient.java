@@ -19,17 +19,21 @@ package com.netflix.discovery;
 import static com.netflix.discovery.EurekaClientNames.METRIC_REGISTRATION_PREFIX;
 import static com.netflix.discovery.EurekaClientNames.METRIC_REGISTRY_PREFIX;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.SynchronousQueue;
@@ -65,11 +69,11 @@ import com.netflix.appinfo.HealthCheckCallback;
 import com.netflix.appinfo.HealthCheckCallbackToHandlerBridge;
 import com.netflix.appinfo.HealthCheckHandler;
 import com.netflix.appinfo.InstanceInfo;
-import com.netflix.appinfo.InstanceInfo.ActionType;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.endpoint.EndpointUtils;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.resolver.ClosableResolver;
 import com.netflix.discovery.shared.resolver.aws.ApplicationsResolver;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
@@ -119,9 +123,6 @@ public class DiscoveryClient implements EurekaClient {
     // Constants
     public static final String HTTP_X_DISCOVERY_ALLOW_REDIRECT = "X-Discovery-AllowRedirect";
 
-    private static final String VALUE_DELIMITER = ",";
-    private static final String COMMA_STRING = VALUE_DELIMITER;
-
     /**
      * @deprecated here for legacy support as the client config has moved to be an instance variable
      */
@@ -149,6 +150,7 @@ public class DiscoveryClient implements EurekaClient {
 
     private TimedSupervisorTask cacheRefreshTask;
     private TimedSupervisorTask heartbeatTask;
+    private ExecutorService registryWatchExecutor;
 
     private final Provider<HealthCheckHandler> healthCheckHandlerProvider;
     private final Provider<HealthCheckCallback> healthCheckCallbackProvider;
@@ -161,11 +163,14 @@ public class DiscoveryClient implements EurekaClient {
     private final InstanceInfo instanceInfo;
     private final AtomicReference<String> remoteRegionsToFetch;
     private final AtomicReference<String[]> remoteRegionsRef;
+    private final AtomicReference<RegistryInterest> registryInterestRef = new AtomicReference<>();
     private final InstanceRegionChecker instanceRegionChecker;
 
     private final EndpointUtils.ServiceUrlRandomizer urlRandomizer;
     private final EndpointRandomizer endpointRandomizer;
     private final Provider<BackupRegistry> backupRegistryProvider;
+    @Nullable
+    private final MappedFileBackupRegistry registrySnapshot;
     private final EurekaTransport eurekaTransport;
 
     private final AtomicReference<HealthCheckHandler> healthCheckHandlerRef = new AtomicReference<>();
@@ -181,6 +186,11 @@ public class DiscoveryClient implements EurekaClient {
     private volatile int registrySize = 0;
     private volatile long lastSuccessfulRegistryFetchTimestamp = -1;
     private volatile long lastSuccessfulHeartbeatTimestamp = -1;
+    private volatile long lastRegistrySnapshotVersion = -1;
+    private volatile long lastRegistrySnapshotTimestamp = -1;
+    private volatile long lastRegistryWatchTimestamp = -1;
+    private volatile String registryWatchGeneration;
+    private volatile String registryCursor;
     private final ThresholdLevelsMetric heartbeatStalenessMonitor;
     private final ThresholdLevelsMetric registryStalenessMonitor;
 
@@ -359,6 +369,9 @@ public class DiscoveryClient implements EurekaClient {
         }
         //保存备用注册表提供者
         this.backupRegistryProvider = backupRegistryProvider;
+        String registrySnapshotFile = config.getRegistrySnapshotFile();
+        this.registrySnapshot = Strings.isNullOrEmpty(registrySnapshotFile)
+                ? null : new MappedFileBackupRegistry(new File(registrySnapshotFile));
         this.endpointRandomizer = endpointRandomizer;
         this.urlRandomizer = new EndpointUtils.InstanceInfoBasedUrlRandomizer(instanceInfo);
         localRegionApps.set(new Applications());
@@ -367,6 +380,8 @@ public class DiscoveryClient implements EurekaClient {
         //看不懂就过
         remoteRegionsToFetch = new AtomicReference<String>(clientConfig.fetchRegistryForRemoteRegions());
         remoteRegionsRef = new AtomicReference<>(remoteRegionsToFetch.get() == null ? null : remoteRegionsToFetch.get().split(","));
+        registryInterestRef.set(RegistryInterest.of(
+                clientConfig.getRegistryRefreshVipAddresses(), clientConfig.getRegistryRefreshApplications()));
         //此客户端是否应该从eureka-server获取eureka注册表信息
         if (config.shouldFetchRegistry()) {
             //看起来像注册监控相关
@@ -458,13 +473,16 @@ public class DiscoveryClient implements EurekaClient {
                  * primaryFetchRegistryResult的primary和日志注释中的 Initial registry fetch 都可以看出，
                  * 这个是首次抓取，应该还存在某个地方调用这个方法是走续约抓取还是其它方式的抓取
                  */
+                // A registry restored from the local snapshot is brought up to date with a delta
+                boolean snapshotFetchRegistryResult = registrySnapshot != null
+                        && fetchRegistryFromBackup(registrySnapshot);
                 boolean primaryFetchRegistryResult = fetchRegistry(false);
                 if (!primaryFetchRegistryResult) {
                     logger.info("Initial registry fetch from primary servers failed");
                 }
                 boolean backupFetchRegistryResult = true;
                 //首次抓取失败，抓取备份注册表
-                if (!primaryFetchRegistryResult && !fetchRegistryFromBackup()) {
+                if (!primaryFetchRegistryResult && !snapshotFetchRegistryResult && !fetchRegistryFromBackup()) {
                     backupFetchRegistryResult = false;
                     logger.info("Initial registry fetch from backup servers failed");
                 }
@@ -813,34 +831,7 @@ public class DiscoveryClient implements EurekaClient {
             return result;
         }
 
-        String instanceVipAddress;
-        for (Application app : getApplications().getRegisteredApplications()) {
-            for (InstanceInfo instance : app.getInstances()) {
-                if (secure) {
-                    instanceVipAddress = instance.getSecureVipAddress();
-                } else {
-                    instanceVipAddress = instance.getVIPAddress();
-                }
-                if (instanceVipAddress == null) {
-                    continue;
-                }
-                String[] instanceVipAddresses = instanceVipAddress
-                        .split(COMMA_STRING);
-
-                // If the VIP Address is delimited by a comma, then consider to
-                // be a list of VIP Addresses.
-                // Try to match at least one in the list, if it matches then
-                // return the instance info for the same
-                for (String vipAddressFromList : instanceVipAddresses) {
-                    if (vipAddress.equalsIgnoreCase(vipAddressFromList.trim())
-                            && appName.equalsIgnoreCase(instance.getAppName())) {
-                        result.add(instance);
-                        break;
-                    }
-                }
-            }
-        }
-        return result;
+        return getApplications().getInstancesByVirtualHostNameAndAppName(vipAddress, appName, secure);
     }
 
     /*
@@ -1039,6 +1030,8 @@ public class DiscoveryClient implements EurekaClient {
                 getAndStoreFullRegistry();
             } else {
                 getAndUpdateDelta(applications);
+                // A delta applied on snapshots replaces the registry
+                applications = getApplications();
             }
             applications.setAppsHashCode(applications.getReconcileHashCode());
             logTotalInstances();
@@ -1052,6 +1045,8 @@ public class DiscoveryClient implements EurekaClient {
             }
         }
 
+        storeRegistrySnapshot();
+
         // Notify about cache refresh before updating the instance remote status
         onCacheRefreshed();
 
@@ -1122,9 +1117,7 @@ public class DiscoveryClient implements EurekaClient {
         logger.info("Getting all instance registry info from the eureka server");
 
         Applications apps = null;
-        EurekaHttpResponse<Applications> httpResponse = clientConfig.getRegistryRefreshSingleVipAddress() == null
-                ? eurekaTransport.queryClient.getApplications(remoteRegionsRef.get())
-                : eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress(), remoteRegionsRef.get());
+        EurekaHttpResponse<Applications> httpResponse = getFullRegistry();
         if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
             apps = httpResponse.getEntity();
         }
@@ -1134,12 +1127,28 @@ public class DiscoveryClient implements EurekaClient {
             logger.error("The application is null for some reason. Not storing this information");
         } else if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
             localRegionApps.set(this.filterAndShuffle(apps));
+            registryCursor = getHeader(httpResponse, EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR);
             logger.debug("Got full registry with apps hashcode {}", apps.getAppsHashCode());
         } else {
             logger.warn("Not updating applications as another thread is updating it already");
         }
     }
 
+    /**
+     * Gets the registry of the single VIP address, or of the declared interest, or else the whole registry, from
+     * the eureka server.
+     */
+    private EurekaHttpResponse<Applications> getFullRegistry() {
+        String singleVipAddress = clientConfig.getRegistryRefreshSingleVipAddress();
+        if (singleVipAddress != null) {
+            return eurekaTransport.queryClient.getVip(singleVipAddress, remoteRegionsRef.get());
+        }
+        RegistryInterest interest = registryInterestRef.get();
+        return interest == null
+                ? eurekaTransport.queryClient.getApplications(remoteRegionsRef.get())
+                : eurekaTransport.queryClient.getApplicationsOfInterest(interest, remoteRegionsRef.get());
+    }
+
     /**
      * Get the delta registry information from the eureka server and update it locally.
      * When applying the delta, the following flow is observed:
@@ -1157,7 +1166,16 @@ public class DiscoveryClient implements EurekaClient {
         long currentUpdateGeneration = fetchRegistryGeneration.get();
 
         Applications delta = null;
-        EurekaHttpResponse<Applications> httpResponse = eurekaTransport.queryClient.getDelta(remoteRegionsRef.get());
+        String cursor = registryCursor;
+        RegistryInterest interest = registryInterestRef.get();
+        EurekaHttpResponse<Applications> httpResponse;
+        if (interest != null) {
+            httpResponse = eurekaTransport.queryClient.getDeltaOfInterest(cursor, interest, remoteRegionsRef.get());
+        } else if (cursor != null) {
+            httpResponse = eurekaTransport.queryClient.getDeltaSince(cursor, remoteRegionsRef.get());
+        } else {
+            httpResponse = eurekaTransport.queryClient.getDelta(remoteRegionsRef.get());
+        }
         if (httpResponse.getStatusCode() == Status.OK.getStatusCode()) {
             delta = httpResponse.getEntity();
         }
@@ -1166,13 +1184,26 @@ public class DiscoveryClient implements EurekaClient {
             logger.warn("The server does not allow the delta revision to be applied because it is not safe. "
                     + "Hence got the full registry.");
             getAndStoreFullRegistry();
-        } else if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
+        } else {
+            applyDelta(delta, getHeader(httpResponse, EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR),
+                    currentUpdateGeneration);
+        }
+    }
+
+    /**
+     * Applies a delta fetched while the registry was at the given update generation, unless another thread updated
+     * the registry since, and reconciles the registry with the server if the hash codes then differ. The registry
+     * cursor of the delta, if any, is where the next delta starts from.
+     */
+    private void applyDelta(Applications delta, @Nullable String cursor, long currentUpdateGeneration) throws Throwable {
+        if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
             logger.debug("Got delta update with apps hashcode {}", delta.getAppsHashCode());
             String reconcileHashCode = "";
             if (fetchRegistryUpdateLock.tryLock()) {
                 try {
                     updateDelta(delta);
-                    reconcileHashCode = getReconcileHashCode(applications);
+                    registryCursor = cursor;
+                    reconcileHashCode = getReconcileHashCode(getApplications());
                 } finally {
                     fetchRegistryUpdateLock.unlock();
                 }
@@ -1181,6 +1212,8 @@ public class DiscoveryClient implements EurekaClient {
             }
             // There is a diff in number of instances for some reason
             if (!reconcileHashCode.equals(delta.getAppsHashCode()) || clientConfig.shouldLogDeltaDiff()) {
+                // The registry is not at the cursor if it differs from the server, until the full fetch below
+                registryCursor = null;
                 reconcileAndLogDifference(delta, reconcileHashCode);  // this makes a remoteCall
             }
         } else {
@@ -1229,9 +1262,7 @@ public class DiscoveryClient implements EurekaClient {
 
         long currentUpdateGeneration = fetchRegistryGeneration.get();
 
-        EurekaHttpResponse<Applications> httpResponse = clientConfig.getRegistryRefreshSingleVipAddress() == null
-                ? eurekaTransport.queryClient.getApplications(remoteRegionsRef.get())
-                : eurekaTransport.queryClient.getVip(clientConfig.getRegistryRefreshSingleVipAddress(), remoteRegionsRef.get());
+        EurekaHttpResponse<Applications> httpResponse = getFullRegistry();
         Applications serverApps = httpResponse.getEntity();
 
         if (serverApps == null) {
@@ -1241,6 +1272,7 @@ public class DiscoveryClient implements EurekaClient {
 
         if (fetchRegistryGeneration.compareAndSet(currentUpdateGeneration, currentUpdateGeneration + 1)) {
             localRegionApps.set(this.filterAndShuffle(serverApps));
+            registryCursor = getHeader(httpResponse, EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR);
             getApplications().setVersion(delta.getVersion());
             logger.debug(
                     "The Reconcile hashcodes after complete sync up, client : {}, server : {}.",
@@ -1255,66 +1287,59 @@ public class DiscoveryClient implements EurekaClient {
      * Updates the delta information fetches from the eureka server into the
      * local cache.
      *
+     * <p>
+     * Only the applications and VIP addresses of the changed instances are
+     * shuffled again. With {@link EurekaClientConfig#shouldUseRegistrySnapshots()},
+     * the delta is applied to copies of the local and remote region registries,
+     * which then replace the registries read by the application threads. The
+     * copies share the applications without a change with the registries they
+     * replace.
+     * </p>
+     *
      * @param delta
      *            the delta information received from eureka server in the last
      *            poll cycle.
      */
     private void updateDelta(Applications delta) {
         int deltaCount = 0;
+        List<InstanceInfo> localChanges = new ArrayList<>();
+        Map<String, List<InstanceInfo>> remoteChanges = new HashMap<>();
         for (Application app : delta.getRegisteredApplications()) {
             for (InstanceInfo instance : app.getInstances()) {
-                Applications applications = getApplications();
                 String instanceRegion = instanceRegionChecker.getInstanceRegion(instance);
-                if (!instanceRegionChecker.isLocalRegion(instanceRegion)) {
-                    Applications remoteApps = remoteRegionVsApps.get(instanceRegion);
-                    if (null == remoteApps) {
-                        remoteApps = new Applications();
-                        remoteRegionVsApps.put(instanceRegion, remoteApps);
-                    }
-                    applications = remoteApps;
+                if (instanceRegionChecker.isLocalRegion(instanceRegion)) {
+                    localChanges.add(instance);
+                } else {
+                    remoteChanges.computeIfAbsent(instanceRegion, k -> new ArrayList<>()).add(instance);
                 }
-
                 ++deltaCount;
-                if (ActionType.ADDED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp == null) {
-                        applications.addApplication(app);
-                    }
-                    logger.debug("Added instance {} to the existing apps in region {}", instance.getId(), instanceRegion);
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
-                } else if (ActionType.MODIFIED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp == null) {
-                        applications.addApplication(app);
-                    }
-                    logger.debug("Modified instance {} to the existing apps ", instance.getId());
-
-                    applications.getRegisteredApplications(instance.getAppName()).addInstance(instance);
-
-                } else if (ActionType.DELETED.equals(instance.getActionType())) {
-                    Application existingApp = applications.getRegisteredApplications(instance.getAppName());
-                    if (existingApp != null) {
-                        logger.debug("Deleted instance {} to the existing apps ", instance.getId());
-                        existingApp.removeInstance(instance);
-                        /*
-                         * We find all instance list from application(The status of instance status is not only the status is UP but also other status)
-                         * if instance list is empty, we remove the application.
-                         */
-                        if (existingApp.getInstancesAsIsFromEureka().isEmpty()) {
-                            applications.removeApplication(existingApp);
-                        }
-                    }
-                }
             }
         }
         logger.debug("The total number of instances fetched by the delta processor : {}", deltaCount);
 
-        getApplications().setVersion(delta.getVersion());
-        getApplications().shuffleInstances(clientConfig.shouldFilterOnlyUpInstances());
-
-        for (Applications applications : remoteRegionVsApps.values()) {
+        boolean filterUpInstances = clientConfig.shouldFilterOnlyUpInstances();
+        boolean useSnapshots = clientConfig.shouldUseRegistrySnapshots();
+        for (String region : remoteChanges.keySet()) {
+            remoteRegionVsApps.putIfAbsent(region, new Applications());
+        }
+        if (useSnapshots) {
+            Applications applications = getApplications().copyWithChanges(localChanges, filterUpInstances);
             applications.setVersion(delta.getVersion());
-            applications.shuffleInstances(clientConfig.shouldFilterOnlyUpInstances());
+            localRegionApps.set(applications);
+        } else {
+            getApplications().applyChanges(localChanges, filterUpInstances);
+            getApplications().setVersion(delta.getVersion());
+        }
+        for (Map.Entry<String, Applications> entry : remoteRegionVsApps.entrySet()) {
+            List<InstanceInfo> changes = remoteChanges.getOrDefault(entry.getKey(), Collections.emptyList());
+            if (useSnapshots) {
+                Applications remoteApps = entry.getValue().copyWithChanges(changes, filterUpInstances);
+                remoteApps.setVersion(delta.getVersion());
+                remoteRegionVsApps.put(entry.getKey(), remoteApps);
+            } else {
+                entry.getValue().applyChanges(changes, filterUpInstances);
+                entry.getValue().setVersion(delta.getVersion());
+            }
         }
     }
 
@@ -1344,6 +1369,17 @@ public class DiscoveryClient implements EurekaClient {
             scheduler.schedule(
                     cacheRefreshTask,
                     registryFetchIntervalSeconds, TimeUnit.SECONDS);
+
+            if (clientConfig.shouldUseRegistryWatch()
+                    && !clientConfig.shouldDisableDelta()
+                    && Strings.isNullOrEmpty(clientConfig.getRegistryRefreshSingleVipAddress())) {
+                registryWatchExecutor = Executors.newSingleThreadExecutor(
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("DiscoveryClient-RegistryWatch-%d")
+                                .setDaemon(true)
+                                .build());
+                registryWatchExecutor.execute(new RegistryWatchThread());
+            }
         }
         /**
          * 如果应该向eureka注册，配置续约时间间隔，超时时间，根据这创建定时任务，执行
@@ -1419,6 +1455,9 @@ public class DiscoveryClient implements EurekaClient {
         if (cacheRefreshExecutor != null) {
             cacheRefreshExecutor.shutdownNow();
         }
+        if (registryWatchExecutor != null) {
+            registryWatchExecutor.shutdownNow();
+        }
         if (scheduler != null) {
             scheduler.shutdownNow();
         }
@@ -1544,6 +1583,33 @@ public class DiscoveryClient implements EurekaClient {
         }
     }
 
+    /**
+     * The task that keeps watching the registry for changes, pausing for a registry fetch interval whenever the
+     * watch is not served, while {@link CacheRefreshThread} polls in its place.
+     */
+    class RegistryWatchThread implements Runnable {
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean watched;
+                try {
+                    watched = watchRegistry();
+                } catch (Throwable e) {
+                    logger.warn("Cannot watch the registry; polling the registry instead", e);
+                    registryWatchGeneration = null;
+                    lastRegistryWatchTimestamp = -1;
+                    watched = false;
+                }
+                if (!watched) {
+                    try {
+                        TimeUnit.SECONDS.sleep(clientConfig.getRegistryFetchIntervalSeconds());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
     @VisibleForTesting
     void refreshRegistry() {
         try {
@@ -1573,7 +1639,21 @@ public class DiscoveryClient implements EurekaClient {
                 }
             }
 
-            boolean success = fetchRegistry(remoteRegionsModified);
+            // A dynamic change to the registry interest is honored as well, with a full fetch
+            RegistryInterest latestInterest = RegistryInterest.of(
+                    clientConfig.getRegistryRefreshVipAddresses(), clientConfig.getRegistryRefreshApplications());
+            RegistryInterest currentInterest = registryInterestRef.getAndSet(latestInterest);
+            boolean interestModified = !Objects.equals(latestInterest, currentInterest);
+            if (interestModified) {
+                logger.info("Registry interest modified from {} to {}", currentInterest, latestInterest);
+            }
+
+            if (!remoteRegionsModified && !interestModified && isRegistryWatchHealthy()) {
+                logger.debug("Registry kept up to date by the registry watch, skipping the registry fetch");
+                return;
+            }
+
+            boolean success = fetchRegistry(remoteRegionsModified || interestModified);
             if (success) {
                 registrySize = localRegionApps.get().size();
                 lastSuccessfulRegistryFetchTimestamp = System.currentTimeMillis();
@@ -1599,6 +1679,83 @@ public class DiscoveryClient implements EurekaClient {
         }
     }
 
+    /**
+     * Tells whether a registry watch completed recently enough for the periodic delta fetch to be skipped. A watch
+     * completes at the latest after {@link EurekaClientConfig#getRegistryWatchTimeoutSeconds()}.
+     */
+    private boolean isRegistryWatchHealthy() {
+        long lastWatch = lastRegistryWatchTimestamp;
+        return lastWatch > 0 && System.currentTimeMillis() - lastWatch
+                < (clientConfig.getRegistryWatchTimeoutSeconds() + clientConfig.getRegistryFetchIntervalSeconds()) * 1000L;
+    }
+
+    /**
+     * Waits for the next registry change through a registry watch, and applies it like a fetched delta.
+     *
+     * @return true if the watch completed, whether the registry changed or not, false if the registry should be
+     * polled instead
+     */
+    @VisibleForTesting
+    boolean watchRegistry() throws Throwable {
+        if (registryInterestRef.get() != null) {
+            // The watch serves the changes of the whole registry
+            lastRegistryWatchTimestamp = -1;
+            return false;
+        }
+        Applications applications = getApplications();
+        if (applications == null
+                || applications.getRegisteredApplications().isEmpty()
+                || applications.getVersion() == -1) {
+            // Only a full fetch brings such a registry up to date
+            return false;
+        }
+        long currentUpdateGeneration = fetchRegistryGeneration.get();
+        EurekaHttpResponse<Applications> httpResponse = eurekaTransport.queryClient.watchDelta(
+                registryWatchGeneration, clientConfig.getRegistryWatchTimeoutSeconds(), remoteRegionsRef.get());
+        if (httpResponse.getStatusCode() == Status.NOT_MODIFIED.getStatusCode()) {
+            lastRegistryWatchTimestamp = System.currentTimeMillis();
+            return true;
+        }
+        Applications delta = httpResponse.getStatusCode() == Status.OK.getStatusCode() ? httpResponse.getEntity() : null;
+        if (delta == null) {
+            logger.info("Registry watch not served (status {}); polling the registry instead", httpResponse.getStatusCode());
+            registryWatchGeneration = null;
+            lastRegistryWatchTimestamp = -1;
+            return false;
+        }
+        registryWatchGeneration = getHeader(httpResponse, EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION);
+
+        Stopwatch tracer = FETCH_REGISTRY_TIMER.start();
+        try {
+            applyDelta(delta, getHeader(httpResponse, EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR),
+                    currentUpdateGeneration);
+            applications = getApplications();
+            applications.setAppsHashCode(applications.getReconcileHashCode());
+            logTotalInstances();
+        } finally {
+            tracer.stop();
+        }
+        storeRegistrySnapshot();
+        onCacheRefreshed();
+        updateInstanceRemoteStatus();
+
+        registrySize = localRegionApps.get().size();
+        long now = System.currentTimeMillis();
+        lastSuccessfulRegistryFetchTimestamp = now;
+        lastRegistryWatchTimestamp = now;
+        return true;
+    }
+
+    private static String getHeader(EurekaHttpResponse<?> httpResponse, String name) {
+        // Some servers do not preserve the case of header names
+        for (Map.Entry<String, String> header : httpResponse.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
     /**
      * Fetch the registry information from back up registry if all eureka server
      * urls are unreachable.
@@ -1612,7 +1769,15 @@ public class DiscoveryClient implements EurekaClient {
             if (null == backupRegistryInstance) { // backward compatibility with the old protected method, in case it is being used.
                 backupRegistryInstance = backupRegistryProvider.get();
             }
+            return fetchRegistryFromBackup(backupRegistryInstance);
+        } catch (Throwable e) {
+            logger.warn("Cannot fetch applications from apps although backup registry was specified", e);
+        }
+        return false;
+    }
 
+    private boolean fetchRegistryFromBackup(BackupRegistry backupRegistryInstance) {
+        try {
             if (null != backupRegistryInstance) {
                 Applications apps = null;
                 if (isFetchingRemoteRegionRegistries()) {
@@ -1627,6 +1792,7 @@ public class DiscoveryClient implements EurekaClient {
                     final Applications applications = this.filterAndShuffle(apps);
                     applications.setAppsHashCode(applications.getReconcileHashCode());
                     localRegionApps.set(applications);
+                    registryCursor = null;
                     logTotalInstances();
                     logger.info("Fetched registry successfully from the backup");
                     return true;
@@ -1640,6 +1806,30 @@ public class DiscoveryClient implements EurekaClient {
         return false;
     }
 
+    /**
+     * Replaces the local registry snapshot with the current registry, if it changed since the snapshot was last
+     * stored and the snapshot interval has elapsed.
+     */
+    private void storeRegistrySnapshot() {
+        if (registrySnapshot == null) {
+            return;
+        }
+        Applications applications = localRegionApps.get();
+        Long version = applications.getVersion();
+        long now = System.currentTimeMillis();
+        if (version == null || version == lastRegistrySnapshotVersion
+                || now - lastRegistrySnapshotTimestamp < clientConfig.getRegistrySnapshotIntervalSeconds() * 1000L) {
+            return;
+        }
+        try {
+            registrySnapshot.store(applications, remoteRegionVsApps.values());
+            lastRegistrySnapshotVersion = version;
+            lastRegistrySnapshotTimestamp = now;
+        } catch (Throwable e) {
+            logger.warn("Cannot store the registry snapshot", e);
+        }
+    }
+
     /**
      * @deprecated Use injection to provide {@link BackupRegistry} implementation.
      */
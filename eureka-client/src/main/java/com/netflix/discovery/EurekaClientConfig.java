@@ -468,6 +468,91 @@ public interface EurekaClientConfig {
         return false;
     }
 
+    /**
+     * Indicates whether registry deltas are applied to a copy of the local registry, which then replaces it, rather
+     * than to the registry being read by the application threads. With this enabled, lookups never observe a
+     * partially applied delta, and only the applications changed by a delta are shuffled again.
+     *
+     * @return true if each delta should produce a new registry snapshot, false otherwise.
+     */
+    default boolean shouldUseRegistrySnapshots() {
+        return false;
+    }
+
+    /**
+     * Gets the local file the client keeps a copy of the last fetched registry in. At startup, the registry is read
+     * from that file before contacting the eureka servers, which then only need to send the changes made since it
+     * was stored. See {@link MappedFileBackupRegistry}.
+     *
+     * @return the path of the registry snapshot file, or null if the registry should not be stored locally.
+     */
+    @Nullable
+    default String getRegistrySnapshotFile() {
+        return null;
+    }
+
+    /**
+     * Indicates how often (in seconds) the registry snapshot file is replaced with the latest registry, when
+     * {@link #getRegistrySnapshotFile()} is set. The file is only written when the registry has changed.
+     *
+     * @return the minimum interval in seconds between two writes of the registry snapshot file.
+     */
+    default int getRegistrySnapshotIntervalSeconds() {
+        return 300;
+    }
+
+    /**
+     * Indicates whether the client should watch the registry for changes, rather than only poll for them every
+     * {@link #getRegistryFetchIntervalSeconds()}. A watch is a request the eureka server holds until the registry
+     * changes, so changes reach the client as soon as the server sees them. The client falls back to polling while
+     * the server does not support or refuses the watch.
+     *
+     * @return true if the registry should be watched, false otherwise.
+     */
+    default boolean shouldUseRegistryWatch() {
+        return false;
+    }
+
+    /**
+     * Indicates how long (in seconds) the eureka server may hold a registry watch, when
+     * {@link #shouldUseRegistryWatch()} is enabled. The server may hold it for less.
+     *
+     * @return the maximum wait of a registry watch in seconds.
+     */
+    default int getRegistryWatchTimeoutSeconds() {
+        return 30;
+    }
+
+    /**
+     * Indicates the comma separated VIP addresses the client is interested in. When this or
+     * {@link #getRegistryRefreshApplications()} is set, the client only fetches the instances with one of these
+     * VIP or secure VIP addresses, and the instances of these applications, instead of the whole registry. Deltas
+     * are fetched for these instances only as well.
+     *
+     * <p>
+     * The changes are effective at runtime at the next registry fetch cycle, which then fetches the registry
+     * again. The registry is polled while an interest is declared, even if {@link #shouldUseRegistryWatch()} is
+     * enabled. {@link #getRegistryRefreshSingleVipAddress()} takes precedence over the interest.
+     * </p>
+     *
+     * @return the comma separated VIP addresses of interest, or null for the whole registry.
+     */
+    @Nullable
+    default String getRegistryRefreshVipAddresses() {
+        return null;
+    }
+
+    /**
+     * Indicates the comma separated names of the applications the client is interested in, see
+     * {@link #getRegistryRefreshVipAddresses()}.
+     *
+     * @return the comma separated application names of interest, or null for the whole registry.
+     */
+    @Nullable
+    default String getRegistryRefreshApplications() {
+        return null;
+    }
+
     /**
      * Indicates whether the client is only interested in the registry information for a single VIP.
      *
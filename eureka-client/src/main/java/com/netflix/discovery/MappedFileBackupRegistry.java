@@ -0,0 +1,219 @@
+package com.netflix.discovery;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BackupRegistry} serving the last registry stored to a local file, which {@link DiscoveryClient} keeps up
+ * to date when {@link EurekaClientConfig#getRegistrySnapshotFile()} is set.
+ *
+ * <p>
+ * The file holds a header with the registry version and hash code, followed by the instances of each application,
+ * each one in its regular JSON form, and ends with a CRC32 of all that precedes it. It is written to a temporary
+ * file that then replaces the previous one, so a reader never sees a partially written snapshot, and it is memory
+ * mapped when read.
+ * </p>
+ *
+ * <p>
+ * The file holds the instances of all regions, like a full registry fetch including the remote regions does, so
+ * {@link #fetchRegistry()} and {@link #fetchRegistry(String[])} return the same registry.
+ * </p>
+ */
+public class MappedFileBackupRegistry implements BackupRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileBackupRegistry.class);
+
+    private static final int MAGIC = 0x45555253; // EURS
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_FIELD_LENGTH = 16 * 1024 * 1024;
+
+    private final File file;
+    private final CodecWrapper instanceInfoCodec;
+
+    public MappedFileBackupRegistry(File file) {
+        this(file, CodecWrappers.getCodec(CodecWrappers.JacksonJson.class));
+    }
+
+    public MappedFileBackupRegistry(File file, CodecWrapper instanceInfoCodec) {
+        this.file = file;
+        this.instanceInfoCodec = instanceInfoCodec;
+    }
+
+    @Override
+    public Applications fetchRegistry() {
+        if (!file.exists()) {
+            logger.info("No registry snapshot in {}", file);
+            return null;
+        }
+        try {
+            Applications applications = read();
+            logger.info("Read registry snapshot of {} instances from {}", applications.size(), file);
+            return applications;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Cannot read the registry snapshot in {}", file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public Applications fetchRegistry(String[] includeRemoteRegions) {
+        return fetchRegistry();
+    }
+
+    /**
+     * Replaces the stored snapshot with the given registries.
+     *
+     * @param localRegionApps the registry of the local region, whose version and hash code are stored
+     * @param remoteRegionApps the registries of the remote regions
+     */
+    public void store(Applications localRegionApps, Iterable<Applications> remoteRegionApps) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        File tempFile = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            CRC32 crc = new CRC32();
+            try (FileOutputStream fileOut = new FileOutputStream(tempFile)) {
+                DataOutputStream out = new DataOutputStream(
+                        new CheckedOutputStream(new BufferedOutputStream(fileOut), crc));
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT_VERSION);
+                Long version = localRegionApps.getVersion();
+                out.writeLong(version == null ? -1L : version);
+                writeString(out, localRegionApps.getAppsHashCode());
+                writeApplications(out, localRegionApps);
+                for (Applications applications : remoteRegionApps) {
+                    writeApplications(out, applications);
+                }
+                out.writeInt(-1);
+                out.flush();
+                // The checksum is not part of the checked content
+                new DataOutputStream(fileOut).writeInt((int) crc.getValue());
+                fileOut.getFD().sync();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private void writeApplications(DataOutputStream out, Applications applications) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        for (Application application : applications.getRegisteredApplications()) {
+            for (InstanceInfo instanceInfo : application.getInstancesAsIsFromEureka()) {
+                encoded.reset();
+                instanceInfoCodec.encode(instanceInfo, encoded);
+                out.writeInt(encoded.size());
+                encoded.writeTo(out);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private Applications read() throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.limit() < 4) {
+                throw new IOException("Truncated registry snapshot");
+            }
+            ByteBuffer content = buffer.duplicate();
+            content.limit(buffer.limit() - 4);
+            CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+                throw new IOException("Registry snapshot checksum mismatch");
+            }
+
+            if (content.getInt() != MAGIC) {
+                throw new IOException("Not a registry snapshot");
+            }
+            int formatVersion = content.get();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported registry snapshot format version " + formatVersion);
+            }
+            long version = content.getLong();
+            String appsHashCode = readString(content);
+
+            Map<String, Application> applicationsByName = new HashMap<>();
+            Applications applications = new Applications();
+            byte[] bytes = new byte[0];
+            for (int length = content.getInt(); length != -1; length = content.getInt()) {
+                checkLength(length);
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                }
+                content.get(bytes, 0, length);
+                InstanceInfo instanceInfo = instanceInfoCodec.decode(new ByteArrayInputStream(bytes, 0, length),
+                        InstanceInfo.class);
+                Application application = applicationsByName.get(instanceInfo.getAppName());
+                if (application == null) {
+                    application = new Application(instanceInfo.getAppName());
+                    applicationsByName.put(instanceInfo.getAppName(), application);
+                    applications.addApplication(application);
+                }
+                application.addInstance(instanceInfo);
+            }
+            applications.setVersion(version);
+            applications.setAppsHashCode(appsHashCode);
+            return applications;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated registry snapshot", e);
+        }
+    }
+
+    private static String readString(ByteBuffer content) throws IOException {
+        int length = content.getInt();
+        if (length == -1) {
+            return null;
+        }
+        checkLength(length);
+        byte[] bytes = new byte[length];
+        content.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FIELD_LENGTH) {
+            throw new IOException("Invalid field length " + length);
+        }
+    }
+}
@@ -14,6 +14,13 @@ final class PropertyBasedClientConfigConstants {
     static final String REGISTRATION_ENABLED_KEY = "registration.enabled";
     static final String FETCH_REGISTRY_ENABLED_KEY = "shouldFetchRegistry";
     static final String SHOULD_ENFORCE_FETCH_REGISTRY_AT_INIT_KEY = "shouldEnforceFetchRegistryAtInit";
+    static final String SHOULD_USE_REGISTRY_SNAPSHOTS_KEY = "shouldUseRegistrySnapshots";
+    static final String REGISTRY_SNAPSHOT_FILE_KEY = "registrySnapshotFile";
+    static final String REGISTRY_SNAPSHOT_INTERVAL_KEY = "registrySnapshotIntervalSeconds";
+    static final String SHOULD_USE_REGISTRY_WATCH_KEY = "shouldUseRegistryWatch";
+    static final String REGISTRY_WATCH_TIMEOUT_KEY = "registryWatchTimeoutSeconds";
+    static final String REGISTRY_REFRESH_VIP_ADDRESSES_KEY = "registryRefreshVipAddresses";
+    static final String REGISTRY_REFRESH_APPLICATIONS_KEY = "registryRefreshApplications";
 
     static final String REGISTRY_REFRESH_INTERVAL_KEY = "client.refresh.interval";
     static final String REGISTRATION_REPLICATION_INTERVAL_KEY = "appinfo.replicate.interval";
@@ -27,6 +27,7 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -57,6 +58,8 @@ public class Application {
     
     private static Random shuffleRandom = new Random();
 
+    private static final InstanceStatus[] STATUSES = InstanceStatus.values();
+
     @Override
     public String toString() {
         return "Application [name=" + name + ", isDirty=" + isDirty
@@ -76,6 +79,10 @@ public class Application {
 
     private final Map<String, InstanceInfo> instancesMap;
 
+    // Counts of the registry holding this application, updated under instances as instances are added and removed
+    @XStreamOmitField
+    private InstanceStatusCounts registryCounts;
+
     public Application() {
         instances = new LinkedHashSet<InstanceInfo>();
         instancesMap = new ConcurrentHashMap<String, InstanceInfo>();
@@ -104,8 +111,14 @@ public class Application {
      *            the instance info object to be added.
      */
     public void addInstance(InstanceInfo i) {
-        instancesMap.put(i.getId(), i);
         synchronized (instances) {
+            InstanceInfo previous = instancesMap.put(i.getId(), i);
+            if (registryCounts != null) {
+                if (previous != null) {
+                    registryCounts.remove(previous);
+                }
+                registryCounts.add(i);
+            }
             instances.remove(i);
             instances.add(i);
             isDirty = true;
@@ -190,6 +203,85 @@ public class Application {
         return instances.size();
     }
 
+    /**
+     * Adds the number of instances of this application per status to the given map, in the format expected by
+     * {@link Applications#getReconcileHashCode(Map)}. The instances are counted under their current status, as the
+     * status of an instance already held may be changed in place, without copying the list of instances.
+     *
+     * @param instanceCountMap map of status name to instance count to add this application's counts to
+     */
+    public void populateInstanceCountMap(Map<String, AtomicInteger> instanceCountMap) {
+        int[] instanceCountsByStatus = new int[STATUSES.length];
+        synchronized (instances) {
+            for (InstanceInfo instance : instances) {
+                InstanceStatus status = instance.getStatus();
+                if (status != null) {
+                    instanceCountsByStatus[status.ordinal()]++;
+                }
+            }
+        }
+        for (InstanceStatus status : STATUSES) {
+            int count = instanceCountsByStatus[status.ordinal()];
+            if (count > 0) {
+                AtomicInteger instanceCount = instanceCountMap.computeIfAbsent(status.name(),
+                        k -> new AtomicInteger(0));
+                instanceCount.addAndGet(count);
+            }
+        }
+    }
+
+    /**
+     * Adds the instances of this application to the counts of a registry, and keeps these counts up to date as
+     * instances are added and removed unless another registry already does. An instance is counted under the status
+     * it has when it is added, status changes being applied by adding an updated {@link InstanceInfo} with the same
+     * id.
+     */
+    void countInstances(InstanceStatusCounts counts) {
+        synchronized (instances) {
+            addInstanceCounts(counts);
+            if (registryCounts == null) {
+                registryCounts = counts;
+            }
+        }
+    }
+
+    /**
+     * Adds the instances of this application to the given counts, without keeping them up to date.
+     */
+    void addInstanceCounts(InstanceStatusCounts counts) {
+        synchronized (instances) {
+            for (InstanceInfo instance : instances) {
+                counts.add(instance);
+            }
+        }
+    }
+
+    /**
+     * Removes the instances of this application from the counts of a registry, which stops keeping them up to date.
+     */
+    void uncountInstances(InstanceStatusCounts counts) {
+        synchronized (instances) {
+            for (InstanceInfo instance : instances) {
+                counts.remove(instance);
+            }
+            if (registryCounts == counts) {
+                registryCounts = null;
+            }
+        }
+    }
+
+    /**
+     * Makes the given counts, which already include the instances of this application, follow its changes instead
+     * of the counts of the registry that held it so far.
+     */
+    void moveCounts(@Nullable InstanceStatusCounts from, InstanceStatusCounts to) {
+        synchronized (instances) {
+            if (registryCounts == from) {
+                registryCounts = to;
+            }
+        }
+    }
+
     /**
      * Shuffles the list of instances in the application and stores it for
      * future retrievals.
@@ -253,8 +345,11 @@ public class Application {
     }
 
     private void removeInstance(InstanceInfo i, boolean markAsDirty) {
-        instancesMap.remove(i.getId());
         synchronized (instances) {
+            InstanceInfo removed = instancesMap.remove(i.getId());
+            if (removed != null && registryCounts != null) {
+                registryCounts.remove(removed);
+            }
             instances.remove(i);
             if (markAsDirty) {
                 isDirty = true;
@@ -19,6 +19,7 @@ package com.netflix.discovery.shared;
 import javax.annotation.Nullable;
 import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -39,6 +40,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonRootName;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.EurekaClientConfig;
 import com.netflix.discovery.InstanceRegionChecker;
@@ -65,9 +67,13 @@ import com.thoughtworks.xstream.annotations.XStreamImplicit;
 @JsonRootName("applications")
 public class Applications {
     private static class VipIndexSupport {
-        final AbstractQueue<InstanceInfo> instances = new ConcurrentLinkedQueue<>();
+        // Instances with the VIP address by instance key, updated by the writer only
+        final Map<String, InstanceInfo> instances = new ConcurrentHashMap<>();
         final AtomicLong roundRobinIndex = new AtomicLong(0);
         final AtomicReference<List<InstanceInfo>> vipList = new AtomicReference<List<InstanceInfo>>(Collections.emptyList());
+        // The instances of vipList by upper cased application name, in the same order
+        final AtomicReference<Map<String, List<InstanceInfo>>> appLists =
+                new AtomicReference<Map<String, List<InstanceInfo>>>(Collections.emptyMap());
 
         public AtomicLong getRoundRobinIndex() {
             return roundRobinIndex;
@@ -76,6 +82,115 @@ public class Applications {
         public AtomicReference<List<InstanceInfo>> getVipList() {
             return vipList;
         }
+
+        /**
+         * Instance ids are only unique within an application, and instances of several applications may share a VIP
+         * address, so the instances are indexed by application name and id.
+         */
+        static String instanceKey(InstanceInfo info) {
+            return info.getAppName() + '/' + info.getId();
+        }
+
+        VipIndexSupport copy() {
+            VipIndexSupport copy = new VipIndexSupport();
+            copy.instances.putAll(instances);
+            return copy;
+        }
+
+        /**
+         * Shuffle the instances and filter for only {@link InstanceStatus#UP} if
+         * required.
+         */
+        void shuffleAndFilterInstances(boolean filterUpInstances, Random shuffleRandom) {
+            Collection<InstanceInfo> vipInstances = instances.values();
+            final List<InstanceInfo> filteredInstances;
+            if (filterUpInstances) {
+                filteredInstances = vipInstances.stream().filter(ii -> ii.getStatus() == InstanceStatus.UP)
+                        .collect(Collectors.toCollection(() -> new ArrayList<>(instances.size())));
+            } else {
+                filteredInstances = new ArrayList<InstanceInfo>(vipInstances);
+            }
+            Collections.shuffle(filteredInstances, shuffleRandom);
+            vipList.set(filteredInstances);
+            appLists.set(toAppLists(filteredInstances));
+            roundRobinIndex.set(0);
+        }
+
+        private static Map<String, List<InstanceInfo>> toAppLists(List<InstanceInfo> vipInstances) {
+            Map<String, List<InstanceInfo>> appLists = new HashMap<>();
+            for (InstanceInfo info : vipInstances) {
+                if (info.getAppName() != null) {
+                    appLists.computeIfAbsent(info.getAppName().toUpperCase(Locale.ROOT), k -> new ArrayList<>())
+                            .add(info);
+                }
+            }
+            // Most VIP addresses belong to a single application
+            if (appLists.size() == 1) {
+                Map.Entry<String, List<InstanceInfo>> entry = appLists.entrySet().iterator().next();
+                return Collections.singletonMap(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+            appLists.replaceAll((appName, instances) -> Collections.unmodifiableList(instances));
+            return appLists;
+        }
+    }
+
+    /**
+     * The changes made to a VIP index by a delta. The affected VIP addresses are updated, or copied first if the
+     * index is shared with another registry, and their lists are shuffled again once the whole delta is applied.
+     */
+    private static class VipIndexUpdate {
+        private final Map<String, VipIndexSupport> vipMap;
+        private final boolean copyOnWrite;
+        private final Map<String, VipIndexSupport> updated = new HashMap<>();
+
+        VipIndexUpdate(Map<String, VipIndexSupport> vipMap, boolean copyOnWrite) {
+            this.vipMap = vipMap;
+            this.copyOnWrite = copyOnWrite;
+        }
+
+        void remove(List<String> vipAddresses, InstanceInfo info) {
+            for (String vipAddress : vipAddresses) {
+                VipIndexSupport vis = update(vipAddress, false);
+                if (vis != null) {
+                    vis.instances.remove(VipIndexSupport.instanceKey(info));
+                }
+            }
+        }
+
+        void add(List<String> vipAddresses, InstanceInfo info) {
+            for (String vipAddress : vipAddresses) {
+                update(vipAddress, true).instances.put(VipIndexSupport.instanceKey(info), info);
+            }
+        }
+
+        private VipIndexSupport update(String vipAddress, boolean create) {
+            VipIndexSupport vis = updated.get(vipAddress);
+            if (vis == null) {
+                VipIndexSupport current = vipMap.get(vipAddress);
+                if (current == null) {
+                    if (!create) {
+                        return null;
+                    }
+                    vis = new VipIndexSupport();
+                } else {
+                    vis = copyOnWrite ? current.copy() : current;
+                }
+                updated.put(vipAddress, vis);
+            }
+            return vis;
+        }
+
+        void publish(boolean filterUpInstances, Random shuffleRandom) {
+            for (Map.Entry<String, VipIndexSupport> entry : updated.entrySet()) {
+                VipIndexSupport vis = entry.getValue();
+                if (vis.instances.isEmpty()) {
+                    vipMap.remove(entry.getKey());
+                } else {
+                    vis.shuffleAndFilterInstances(filterUpInstances, shuffleRandom);
+                    vipMap.put(entry.getKey(), vis);
+                }
+            }
+        }
     }
 
     private static final String STATUS_DELIMITER = "_";
@@ -87,6 +202,7 @@ public class Applications {
     private final Map<String, Application> appNameApplicationMap;
     private final Map<String, VipIndexSupport> virtualHostNameAppMap;
     private final Map<String, VipIndexSupport> secureVirtualHostNameAppMap;
+    private final InstanceStatusCounts instanceCounts;
 
     /**
      * Create a new, empty Eureka application list.
@@ -107,6 +223,7 @@ public class Applications {
         this.appNameApplicationMap = new ConcurrentHashMap<String, Application>();
         this.virtualHostNameAppMap = new ConcurrentHashMap<String, VipIndexSupport>();
         this.secureVirtualHostNameAppMap = new ConcurrentHashMap<String, VipIndexSupport>();
+        this.instanceCounts = new InstanceStatusCounts();
         this.appsHashCode = appsHashCode;
         this.versionDelta = versionDelta;
 
@@ -124,6 +241,7 @@ public class Applications {
     public void addApplication(Application app) {
         appNameApplicationMap.put(app.getName().toUpperCase(Locale.ROOT), app);
         addInstancesToVIPMaps(app, this.virtualHostNameAppMap, this.secureVirtualHostNameAppMap);
+        app.countInstances(instanceCounts);
         applications.add(app);
     }
 
@@ -181,6 +299,33 @@ public class Applications {
                 .orElseGet(Collections::emptyList);        
     }
 
+    /**
+     * Gets the list of <em>instances</em> of an application associated to a
+     * virtual host name, or secure virtual host name. The list is kept with
+     * the virtual host name index, so the lookup does not go through the
+     * registry.
+     *
+     * @param virtualHostName
+     *            the virtual hostname for which the instances need to be
+     *            returned.
+     * @param appName
+     *            the application name of the instances.
+     * @param secure
+     *            true to look up a secure virtual host name.
+     * @return an unmodifiable list of <em>instances</em>, shared by all the
+     *         callers until the virtual host name changes.
+     */
+    public List<InstanceInfo> getInstancesByVirtualHostNameAndAppName(String virtualHostName, String appName,
+                                                                      boolean secure) {
+        Map<String, VipIndexSupport> index = secure ? secureVirtualHostNameAppMap : virtualHostNameAppMap;
+        VipIndexSupport vis = index.get(virtualHostName.toUpperCase(Locale.ROOT));
+        if (vis == null) {
+            return Collections.emptyList();
+        }
+        List<InstanceInfo> instances = vis.appLists.get().get(appName.toUpperCase(Locale.ROOT));
+        return instances == null ? Collections.<InstanceInfo>emptyList() : instances;
+    }
+
     /**
      * @return a weakly consistent size of the number of instances in all the
      *         applications
@@ -239,18 +384,17 @@ public class Applications {
     /**
      * Populates the provided instance count map. The instance count map is used
      * as part of the general app list synchronization mechanism.
+     * <p>
+     * The counts are maintained as instances are added to and removed from the
+     * applications of this registry, so the cost only depends on the number of
+     * statuses. An instance is counted under the status it had when it was
+     * added.
      * 
      * @param instanceCountMap
      *            the map to populate
      */
     public void populateInstanceCountMap(Map<String, AtomicInteger> instanceCountMap) {
-        for (Application app : this.getRegisteredApplications()) {
-            for (InstanceInfo info : app.getInstancesAsIsFromEureka()) {
-                AtomicInteger instanceCount = instanceCountMap.computeIfAbsent(info.getStatus().name(),
-                        k -> new AtomicInteger(0));
-                instanceCount.incrementAndGet();
-            }
-        }
+        instanceCounts.populateInstanceCountMap(instanceCountMap);
     }
 
     /**
@@ -307,6 +451,9 @@ public class Applications {
             @Nullable InstanceRegionChecker instanceRegionChecker) {
         Map<String, VipIndexSupport> secureVirtualHostNameAppMap = new HashMap<>();
         Map<String, VipIndexSupport> virtualHostNameAppMap = new HashMap<>();
+        // Every instance is visited anyway, so the counts are rebuilt as well, in case an application held by
+        // another registry too was changed through that one
+        InstanceStatusCounts recounted = new InstanceStatusCounts();
         for (Application application : appNameApplicationMap.values()) {
             if (indexByRemoteRegions) {
                 application.shuffleAndStoreInstances(remoteRegionsRegistry, clientConfig, instanceRegionChecker);
@@ -314,7 +461,9 @@ public class Applications {
                 application.shuffleAndStoreInstances(filterUpInstances);
             }
             this.addInstancesToVIPMaps(application, virtualHostNameAppMap, secureVirtualHostNameAppMap);
+            application.addInstanceCounts(recounted);
         }
+        instanceCounts.setAll(recounted);
         shuffleAndFilterInstances(virtualHostNameAppMap, filterUpInstances);
         shuffleAndFilterInstances(secureVirtualHostNameAppMap, filterUpInstances);
 
@@ -342,27 +491,10 @@ public class Applications {
                 .orElse(null);
     }
 
-    /**
-     * Shuffle the instances and filter for only {@link InstanceStatus#UP} if
-     * required.
-     *
-     */
     private void shuffleAndFilterInstances(Map<String, VipIndexSupport> srcMap, boolean filterUpInstances) {
-
         Random shuffleRandom = new Random();
-        for (Map.Entry<String, VipIndexSupport> entries : srcMap.entrySet()) {
-            VipIndexSupport vipIndexSupport = entries.getValue();
-            AbstractQueue<InstanceInfo> vipInstances = vipIndexSupport.instances;
-            final List<InstanceInfo> filteredInstances;
-            if (filterUpInstances) {
-                filteredInstances = vipInstances.stream().filter(ii -> ii.getStatus() == InstanceStatus.UP)
-                        .collect(Collectors.toCollection(() -> new ArrayList<>(vipInstances.size())));
-            } else {
-                filteredInstances = new ArrayList<InstanceInfo>(vipInstances);
-            }
-            Collections.shuffle(filteredInstances, shuffleRandom);
-            vipIndexSupport.vipList.set(filteredInstances);
-            vipIndexSupport.roundRobinIndex.set(0);
+        for (VipIndexSupport vipIndexSupport : srcMap.values()) {
+            vipIndexSupport.shuffleAndFilterInstances(filterUpInstances, shuffleRandom);
         }
     }
 
@@ -372,13 +504,10 @@ public class Applications {
      * addresses.
      *
      */
-    private void addInstanceToMap(InstanceInfo info, String vipAddresses, Map<String, VipIndexSupport> vipMap) {
-        if (vipAddresses != null) {
-            String[] vipAddressArray = vipAddresses.toUpperCase(Locale.ROOT).split(",");
-            for (String vipAddress : vipAddressArray) {
-                VipIndexSupport vis = vipMap.computeIfAbsent(vipAddress, k -> new VipIndexSupport());
-                vis.instances.add(info);
-            }
+    private void addInstanceToMap(InstanceInfo info, List<String> vipAddresses, Map<String, VipIndexSupport> vipMap) {
+        for (String vipAddress : vipAddresses) {
+            VipIndexSupport vis = vipMap.computeIfAbsent(vipAddress, k -> new VipIndexSupport());
+            vis.instances.put(VipIndexSupport.instanceKey(info), info);
         }
     }
 
@@ -393,16 +522,137 @@ public class Applications {
         // Check and add the instances to the their respective virtual host name
         // mappings
         for (InstanceInfo info : app.getInstances()) {
-            String vipAddresses = info.getVIPAddress();
-            if (vipAddresses != null) {
-                addInstanceToMap(info, vipAddresses, virtualHostNameAppMap);
+            addInstanceToMap(info, info.getVIPAddressTokens(), virtualHostNameAppMap);
+            addInstanceToMap(info, info.getSecureVipAddressTokens(), secureVirtualHostNameAppMap);
+        }
+    }
+
+    /**
+     * Applies the given instance changes to this registry. Only the changed applications and the VIP addresses of
+     * the changed instances are shuffled again.
+     *
+     * @param changes instances with an {@link ActionType} of {@code ADDED}, {@code MODIFIED} or {@code DELETED};
+     *                instances with any other action type are ignored
+     * @param filterUpInstances whether the lookups return only UP instances
+     */
+    public void applyChanges(Collection<InstanceInfo> changes, boolean filterUpInstances) {
+        applyChanges(changes, filterUpInstances, false);
+    }
+
+    /**
+     * Creates a copy of this registry with the given instance changes applied, leaving this registry untouched so
+     * that it can keep serving readers while the copy is built.
+     *
+     * <p>
+     * The copy shares every {@link Application} and VIP address without a change with this registry, so those must
+     * not be modified afterwards by either side. Changed applications and VIP addresses are copied before the
+     * changes are applied, and only they are shuffled again.
+     * </p>
+     *
+     * @param changes instances with an {@link ActionType} of {@code ADDED}, {@code MODIFIED} or {@code DELETED};
+     *                instances with any other action type are ignored
+     * @param filterUpInstances whether the lookups of the copy return only UP instances
+     * @return the new registry, with the hash code and version of this one
+     */
+    public Applications copyWithChanges(Collection<InstanceInfo> changes, boolean filterUpInstances) {
+        Applications copy = new Applications();
+        copy.appsHashCode = appsHashCode;
+        copy.versionDelta = versionDelta;
+        copy.appNameApplicationMap.putAll(appNameApplicationMap);
+        copy.virtualHostNameAppMap.putAll(virtualHostNameAppMap);
+        copy.secureVirtualHostNameAppMap.putAll(secureVirtualHostNameAppMap);
+        copy.instanceCounts.addAll(instanceCounts);
+        Map<String, Application> changedApps = copy.applyChanges(changes, filterUpInstances, true);
+
+        // Keep the order of the applications, new ones go last and emptied ones are dropped
+        for (Application app : applications) {
+            Application changedApp = changedApps.remove(app.getName().toUpperCase(Locale.ROOT));
+            if (changedApp == null) {
+                // The copy replaces this registry, so it follows the changes of the applications they share
+                app.moveCounts(instanceCounts, copy.instanceCounts);
+                copy.applications.add(app);
+            } else if (changedApp.size() > 0) {
+                copy.applications.add(changedApp);
+            }
+        }
+        for (Application changedApp : changedApps.values()) {
+            if (changedApp.size() > 0) {
+                copy.applications.add(changedApp);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @param copyOnWrite whether the applications and VIP addresses are shared with another registry, in which case
+     *                    they are copied before being changed, and the list of applications is left to the caller
+     * @return the changed applications by upper cased name, including the emptied ones
+     */
+    private Map<String, Application> applyChanges(Collection<InstanceInfo> changes, boolean filterUpInstances,
+                                                  boolean copyOnWrite) {
+        Map<String, Application> changedApps = new HashMap<>();
+        VipIndexUpdate vipUpdate = new VipIndexUpdate(virtualHostNameAppMap, copyOnWrite);
+        VipIndexUpdate secureVipUpdate = new VipIndexUpdate(secureVirtualHostNameAppMap, copyOnWrite);
+        for (InstanceInfo instance : changes) {
+            ActionType actionType = instance.getActionType();
+            if (actionType != ActionType.ADDED && actionType != ActionType.MODIFIED && actionType != ActionType.DELETED) {
+                continue;
+            }
+            String appKey = instance.getAppName().toUpperCase(Locale.ROOT);
+            Application changedApp = changedApps.get(appKey);
+            if (changedApp == null) {
+                Application existingApp = appNameApplicationMap.get(appKey);
+                if (existingApp == null) {
+                    changedApp = new Application(instance.getAppName());
+                } else if (copyOnWrite) {
+                    changedApp = new Application(existingApp.getName(), existingApp.getInstancesAsIsFromEureka());
+                } else {
+                    changedApp = existingApp;
+                }
+                // The instances of a copied application are already counted, those of a new one are added below
+                changedApp.moveCounts(null, instanceCounts);
+                changedApps.put(appKey, changedApp);
             }
 
-            String secureVipAddresses = info.getSecureVipAddress();
-            if (secureVipAddresses != null) {
-                addInstanceToMap(info, secureVipAddresses, secureVirtualHostNameAppMap);
+            InstanceInfo previous = changedApp.getByInstanceId(instance.getId());
+            if (previous != null) {
+                vipUpdate.remove(previous.getVIPAddressTokens(), previous);
+                secureVipUpdate.remove(previous.getSecureVipAddressTokens(), previous);
+            }
+            if (actionType == ActionType.DELETED) {
+                changedApp.removeInstance(instance);
+            } else {
+                changedApp.addInstance(instance);
+                vipUpdate.add(instance.getVIPAddressTokens(), instance);
+                secureVipUpdate.add(instance.getSecureVipAddressTokens(), instance);
             }
         }
+
+        for (Map.Entry<String, Application> entry : changedApps.entrySet()) {
+            Application changedApp = entry.getValue();
+            Application existingApp = appNameApplicationMap.get(entry.getKey());
+            if (changedApp.size() == 0) {
+                if (existingApp != null) {
+                    appNameApplicationMap.remove(entry.getKey());
+                    if (!copyOnWrite) {
+                        applications.remove(existingApp);
+                    }
+                }
+                continue;
+            }
+            changedApp.shuffleAndStoreInstances(filterUpInstances);
+            if (existingApp != changedApp) {
+                appNameApplicationMap.put(entry.getKey(), changedApp);
+                if (!copyOnWrite) {
+                    applications.add(changedApp);
+                }
+            }
+        }
+
+        Random shuffleRandom = new Random();
+        vipUpdate.publish(filterUpInstances, shuffleRandom);
+        secureVipUpdate.publish(filterUpInstances, shuffleRandom);
+        return changedApps;
     }
 
     /**
@@ -412,6 +662,8 @@ public class Applications {
      */
     public void removeApplication(Application app) {
         this.appNameApplicationMap.remove(app.getName().toUpperCase(Locale.ROOT));
-        this.applications.remove(app);
+        if (this.applications.remove(app)) {
+            app.uncountInstances(instanceCounts);
+        }
     }
 }
@@ -0,0 +1,59 @@
+package com.netflix.discovery.shared;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+/**
+ * Number of instances per status of an {@link Applications} registry, updated as instances are added to and removed
+ * from its applications, so that the reconcile hash code does not iterate over the instances.
+ */
+final class InstanceStatusCounts {
+
+    private static final InstanceStatus[] STATUSES = InstanceStatus.values();
+
+    // Indexed by status ordinal
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(STATUSES.length);
+
+    void add(InstanceInfo instance) {
+        change(instance, 1);
+    }
+
+    void remove(InstanceInfo instance) {
+        change(instance, -1);
+    }
+
+    void addAll(InstanceStatusCounts other) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            counts.addAndGet(i, other.counts.get(i));
+        }
+    }
+
+    void setAll(InstanceStatusCounts other) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            counts.set(i, other.counts.get(i));
+        }
+    }
+
+    /**
+     * Adds the counts to the given map, in the format expected by {@link Applications#getReconcileHashCode(Map)}.
+     */
+    void populateInstanceCountMap(Map<String, AtomicInteger> instanceCountMap) {
+        for (InstanceStatus status : STATUSES) {
+            int count = counts.get(status.ordinal());
+            if (count > 0) {
+                instanceCountMap.computeIfAbsent(status.name(), k -> new AtomicInteger(0)).addAndGet(count);
+            }
+        }
+    }
+
+    private void change(InstanceInfo instance, int delta) {
+        InstanceStatus status = instance.getStatus();
+        if (status != null) {
+            counts.addAndGet(status.ordinal(), delta);
+        }
+    }
+}
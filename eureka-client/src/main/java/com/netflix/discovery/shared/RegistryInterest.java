@@ -0,0 +1,150 @@
+package com.netflix.discovery.shared;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClientConfig;
+
+/**
+ * The part of the registry a client is interested in: the instances of the given applications, and the instances
+ * with one of the given VIP or secure VIP addresses. A client declaring an interest, see
+ * {@link EurekaClientConfig#getRegistryRefreshVipAddresses()} and
+ * {@link EurekaClientConfig#getRegistryRefreshApplications()}, only holds these instances, and the server only
+ * sends it the full registry and the deltas of these instances.
+ *
+ * <p>
+ * Application names and VIP addresses are matched regardless of their case. An interest travels as the
+ * {@link #VIPS_PARAM} and {@link #APPS_PARAM} query parameters of the full registry and delta requests.
+ * </p>
+ */
+public final class RegistryInterest {
+
+    public static final String VIPS_PARAM = "vips";
+    public static final String APPS_PARAM = "apps";
+
+    private final SortedSet<String> vipAddresses;
+    private final SortedSet<String> appNames;
+
+    private RegistryInterest(SortedSet<String> vipAddresses, SortedSet<String> appNames) {
+        this.vipAddresses = Collections.unmodifiableSortedSet(vipAddresses);
+        this.appNames = Collections.unmodifiableSortedSet(appNames);
+    }
+
+    /**
+     * @param vipAddresses comma separated VIP addresses
+     * @param appNames comma separated application names
+     * @return the interest in the given VIP addresses and applications, or null if both are empty, which stands for
+     * the whole registry
+     */
+    @Nullable
+    public static RegistryInterest of(@Nullable String vipAddresses, @Nullable String appNames) {
+        SortedSet<String> vips = parse(vipAddresses);
+        SortedSet<String> apps = parse(appNames);
+        if (vips.isEmpty() && apps.isEmpty()) {
+            return null;
+        }
+        return new RegistryInterest(vips, apps);
+    }
+
+    private static SortedSet<String> parse(@Nullable String values) {
+        SortedSet<String> result = new TreeSet<>();
+        if (values != null) {
+            for (String value : values.split(",")) {
+                String trimmed = value.trim();
+                if (!trimmed.isEmpty()) {
+                    result.add(trimmed.toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the comma separated VIP addresses, or null if there are none
+     */
+    @Nullable
+    public String getVipAddresses() {
+        return vipAddresses.isEmpty() ? null : String.join(",", vipAddresses);
+    }
+
+    /**
+     * @return the comma separated application names, or null if there are none
+     */
+    @Nullable
+    public String getAppNames() {
+        return appNames.isEmpty() ? null : String.join(",", appNames);
+    }
+
+    public boolean matches(InstanceInfo instanceInfo) {
+        if (instanceInfo.getAppName() != null && appNames.contains(instanceInfo.getAppName().toUpperCase(Locale.ROOT))) {
+            return true;
+        }
+        return matchesVip(instanceInfo.getVIPAddressTokens()) || matchesVip(instanceInfo.getSecureVipAddressTokens());
+    }
+
+    private boolean matchesVip(List<String> vipAddressTokens) {
+        if (vipAddresses.isEmpty()) {
+            return false;
+        }
+        // An instance can have several VIP addresses
+        for (String address : vipAddressTokens) {
+            if (vipAddresses.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Selects the instances this interest matches. The instances keep their action type, so that a delta can be
+     * filtered as well.
+     *
+     * @return the matching instances, with the version of the given applications and the reconcile hash code of
+     * the matching instances
+     */
+    public Applications filter(Applications applications) {
+        Applications filtered = new Applications();
+        for (Application application : applications.getRegisteredApplications()) {
+            Application filteredApp = null;
+            for (InstanceInfo instanceInfo : application.getInstancesAsIsFromEureka()) {
+                if (matches(instanceInfo)) {
+                    if (filteredApp == null) {
+                        filteredApp = new Application(application.getName());
+                        filtered.addApplication(filteredApp);
+                    }
+                    filteredApp.addInstance(instanceInfo);
+                }
+            }
+        }
+        filtered.setVersion(applications.getVersion());
+        filtered.setAppsHashCode(filtered.getReconcileHashCode());
+        return filtered;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RegistryInterest)) {
+            return false;
+        }
+        RegistryInterest that = (RegistryInterest) o;
+        return vipAddresses.equals(that.vipAddresses) && appNames.equals(that.appNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * vipAddresses.hashCode() + appNames.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "vips=" + vipAddresses + ", apps=" + appNames;
+    }
+}
@@ -0,0 +1,131 @@
+package com.netflix.discovery.shared.chooser;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEventListener;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+
+/**
+ * An {@link InstanceChooser} over the instances of each VIP address of a registry, precomputed as arrays whenever
+ * the registry is refreshed, see {@link #refresh(Applications)} and {@link #attachTo(EurekaClient)}. Only the
+ * instances that are up are chosen.
+ *
+ * <p>
+ * VIP addresses match regardless of their case, like in {@link Applications#getInstancesByVirtualHostName(String)},
+ * but one given with the case it is registered with is looked up without being upper cased. A chooser with a
+ * zone only chooses among the instances in that zone, as given by
+ * {@link InstanceInfo#getZone(String[], InstanceInfo)}, as long as one of them is up.
+ * </p>
+ */
+public abstract class AbstractInstanceChooser implements InstanceChooser {
+
+    private final String zone;
+
+    private volatile Map<String, VipInstances> vipIndex = Collections.emptyMap();
+    private volatile Map<String, VipInstances> secureVipIndex = Collections.emptyMap();
+
+    protected AbstractInstanceChooser(@Nullable String zone) {
+        this.zone = zone;
+    }
+
+    @Override
+    public InstanceInfo choose(String vipAddress, boolean secure) {
+        Map<String, VipInstances> index = secure ? secureVipIndex : vipIndex;
+        VipInstances instances = index.get(vipAddress);
+        if (instances == null) {
+            instances = index.get(vipAddress.toUpperCase(Locale.ROOT));
+            if (instances == null) {
+                return null;
+            }
+        }
+        return choose(instances);
+    }
+
+    /**
+     * @param instances the instances to choose from, never empty
+     */
+    protected abstract InstanceInfo choose(VipInstances instances);
+
+    /**
+     * Rebuilds the instances to choose from with the given registry.
+     */
+    public void refresh(@Nullable Applications applications) {
+        vipIndex = buildIndex(applications, false);
+        secureVipIndex = buildIndex(applications, true);
+    }
+
+    /**
+     * Chooses among the instances of the registry of the given client, and rebuilds them whenever the client
+     * refreshes its registry.
+     *
+     * @return the listener registered with the client, which stops the refreshes once unregistered
+     */
+    public EurekaEventListener attachTo(EurekaClient eurekaClient) {
+        EurekaEventListener listener = event -> {
+            if (event instanceof CacheRefreshedEvent) {
+                refresh(eurekaClient.getApplications());
+            }
+        };
+        eurekaClient.registerEventListener(listener);
+        refresh(eurekaClient.getApplications());
+        return listener;
+    }
+
+    private Map<String, VipInstances> buildIndex(@Nullable Applications applications, boolean secure) {
+        if (applications == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<InstanceInfo>> instancesByVip = new HashMap<>();
+        Map<String, String> registeredVips = new HashMap<>();
+        for (Application application : applications.getRegisteredApplications()) {
+            for (InstanceInfo instance : application.getInstancesAsIsFromEureka()) {
+                String vipAddresses = secure ? instance.getSecureVipAddress() : instance.getVIPAddress();
+                if (vipAddresses == null || instance.getStatus() != InstanceStatus.UP) {
+                    continue;
+                }
+                for (String vipAddress : vipAddresses.split(",")) {
+                    String key = vipAddress.toUpperCase(Locale.ROOT);
+                    instancesByVip.computeIfAbsent(key, k -> new ArrayList<>()).add(instance);
+                    registeredVips.put(vipAddress, key);
+                }
+            }
+        }
+
+        Map<String, VipInstances> index = new HashMap<>();
+        for (Map.Entry<String, List<InstanceInfo>> entry : instancesByVip.entrySet()) {
+            List<InstanceInfo> instances = entry.getValue();
+            if (zone != null) {
+                List<InstanceInfo> zoneInstances = new ArrayList<>();
+                for (InstanceInfo instance : instances) {
+                    if (zone.equalsIgnoreCase(InstanceInfo.getZone(null, instance))) {
+                        zoneInstances.add(instance);
+                    }
+                }
+                if (!zoneInstances.isEmpty()) {
+                    instances = zoneInstances;
+                }
+            }
+            // Clients start from different instances
+            Collections.shuffle(instances);
+            index.put(entry.getKey(), new VipInstances(instances.toArray(new InstanceInfo[instances.size()])));
+        }
+        // The VIP addresses as registered are looked up without upper casing them
+        for (Map.Entry<String, String> entry : registeredVips.entrySet()) {
+            if (!entry.getKey().equals(entry.getValue())) {
+                index.put(entry.getKey(), index.get(entry.getValue()));
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,23 @@
+package com.netflix.discovery.shared.chooser;
+
+import javax.annotation.Nullable;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * Chooses the instance to send the next request to among the instances of a VIP address. Implementations are
+ * called on the request path of their users, from any number of threads, so they must be thread safe and should
+ * neither block nor allocate.
+ *
+ * @see AbstractInstanceChooser
+ */
+public interface InstanceChooser {
+
+    /**
+     * @param vipAddress the VIP address, or secure VIP address, of the instances to choose from
+     * @param secure true to choose among the instances with the given secure VIP address
+     * @return the chosen instance, or null if no instance with the given VIP address is up
+     */
+    @Nullable
+    InstanceInfo choose(String vipAddress, boolean secure);
+}
@@ -0,0 +1,47 @@
+package com.netflix.discovery.shared.chooser;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * Picks two instances of a VIP address at random, and chooses the less loaded one. The registry knows nothing of
+ * the load of the instances, so it is given by the caller, typically as the number of its outstanding requests to
+ * each instance.
+ */
+public class PowerOfTwoChoicesInstanceChooser extends AbstractInstanceChooser {
+
+    private final ToIntFunction<InstanceInfo> load;
+
+    public PowerOfTwoChoicesInstanceChooser(ToIntFunction<InstanceInfo> load) {
+        this(load, null);
+    }
+
+    /**
+     * @param zone the zone to choose the instances in, as long as one of them is up
+     */
+    public PowerOfTwoChoicesInstanceChooser(ToIntFunction<InstanceInfo> load, @Nullable String zone) {
+        super(zone);
+        this.load = load;
+    }
+
+    @Override
+    protected InstanceInfo choose(VipInstances instances) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstIndex = random.nextInt(size);
+        // Skips the first instance, so the two are distinct
+        int secondIndex = random.nextInt(size - 1);
+        if (secondIndex >= firstIndex) {
+            secondIndex++;
+        }
+        InstanceInfo first = instances.get(firstIndex);
+        InstanceInfo second = instances.get(secondIndex);
+        return load.applyAsInt(second) < load.applyAsInt(first) ? second : first;
+    }
+}
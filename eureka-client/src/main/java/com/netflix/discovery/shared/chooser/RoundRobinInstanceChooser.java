@@ -0,0 +1,27 @@
+package com.netflix.discovery.shared.chooser;
+
+import javax.annotation.Nullable;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.DiscoveryClient;
+
+/**
+ * Chooses the instances of a VIP address in turn. Unlike {@link DiscoveryClient#getNextServerFromEureka}, which
+ * moves a single counter per VIP address shared by all the threads, the turn is kept by a cursor striped across
+ * threads.
+ */
+public class RoundRobinInstanceChooser extends AbstractInstanceChooser {
+
+    public RoundRobinInstanceChooser() {
+        this(null);
+    }
+
+    protected RoundRobinInstanceChooser(@Nullable String zone) {
+        super(zone);
+    }
+
+    @Override
+    protected InstanceInfo choose(VipInstances instances) {
+        return instances.get(instances.nextIndex());
+    }
+}
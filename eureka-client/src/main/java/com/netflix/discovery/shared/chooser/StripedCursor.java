@@ -0,0 +1,44 @@
+package com.netflix.discovery.shared.chooser;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A round-robin cursor split in stripes, each one on its own cache line, so that threads moving the cursor at the
+ * same time seldom update the same counter. A thread always moves the stripe picked by its id, each stripe starting
+ * at a random position, so the positions handed out are spread evenly, although not in a strict sequence.
+ */
+final class StripedCursor {
+
+    // Counters one cache line apart, and clear of the array header and of what follows the array
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+    private static final int MASK = STRIPES - 1;
+
+    private final AtomicLongArray counters = new AtomicLongArray((STRIPES + 2) * PADDING);
+
+    StripedCursor() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            counters.lazySet(offset(stripe), random.nextInt() & Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @return the next position of the cursor, between 0 inclusive and the given bound exclusive
+     */
+    int next(int bound) {
+        int stripe = (int) Thread.currentThread().getId() & MASK;
+        long position = counters.getAndIncrement(offset(stripe));
+        return (int) Long.remainderUnsigned(position, bound);
+    }
+
+    private static int offset(int stripe) {
+        return (stripe + 1) * PADDING;
+    }
+
+    // The number of processors, rounded up to a power of two, and at most 64
+    private static int stripes(int processors) {
+        return Integer.highestOneBit(Math.max(1, Math.min(processors, 64)) * 2 - 1);
+    }
+}
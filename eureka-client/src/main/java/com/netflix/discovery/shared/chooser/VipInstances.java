@@ -0,0 +1,46 @@
+package com.netflix.discovery.shared.chooser;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * The instances an {@link AbstractInstanceChooser} chooses from for a VIP address, computed when the registry is
+ * refreshed. They are the instances that are up in the zone of the chooser, or all the instances that are up if
+ * the chooser has no zone or none is up in its zone.
+ */
+public final class VipInstances {
+
+    private final InstanceInfo[] instances;
+    // Created on first use, as only the round-robin choosers need it
+    private volatile StripedCursor cursor;
+
+    VipInstances(InstanceInfo[] instances) {
+        this.instances = instances;
+    }
+
+    /**
+     * @return the number of instances, at least one
+     */
+    public int size() {
+        return instances.length;
+    }
+
+    public InstanceInfo get(int index) {
+        return instances[index];
+    }
+
+    /**
+     * @return the index of the next instance in a round-robin over the instances, shared by all the threads
+     */
+    public int nextIndex() {
+        if (instances.length == 1) {
+            return 0;
+        }
+        StripedCursor current = cursor;
+        if (current == null) {
+            // Racing threads may each create one, only a few positions of the losing cursors are lost
+            current = new StripedCursor();
+            cursor = current;
+        }
+        return current.next(instances.length);
+    }
+}
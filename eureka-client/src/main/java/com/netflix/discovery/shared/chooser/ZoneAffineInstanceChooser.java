@@ -0,0 +1,16 @@
+package com.netflix.discovery.shared.chooser;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.DiscoveryClient;
+
+/**
+ * Chooses the instances of a VIP address in the given zone in turn, and falls back to all the instances of the VIP
+ * address when none in the zone is up. The zone of the local instance is given by
+ * {@link InstanceInfo#getZone(String[], InstanceInfo)}, or {@link DiscoveryClient#getZone(InstanceInfo)}.
+ */
+public class ZoneAffineInstanceChooser extends RoundRobinInstanceChooser {
+
+    public ZoneAffineInstanceChooser(String zone) {
+        super(zone);
+    }
+}
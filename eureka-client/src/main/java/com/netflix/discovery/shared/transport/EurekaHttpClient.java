@@ -4,6 +4,7 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 
 /**
  * Low level Eureka HTTP client API.
@@ -12,6 +13,16 @@ import com.netflix.discovery.shared.Applications;
  */
 public interface EurekaHttpClient {
 
+    /**
+     * Response header carrying the token to pass to the next {@link #watchDelta(String, int, String...)} call.
+     */
+    String HTTP_X_EUREKA_REGISTRY_GENERATION = "X-Eureka-Registry-Generation";
+
+    /**
+     * Response header carrying the cursor to pass to the next {@link #getDeltaSince(String, String...)} call.
+     */
+    String HTTP_X_EUREKA_REGISTRY_CURSOR = "X-Eureka-Registry-Cursor";
+
     EurekaHttpResponse<Void> register(InstanceInfo info);
 
     EurekaHttpResponse<Void> cancel(String appName, String id);
@@ -26,6 +37,48 @@ public interface EurekaHttpClient {
 
     EurekaHttpResponse<Applications> getDelta(String... regions);
 
+    /**
+     * Gets the changes made to the registry after the given cursor, which was returned with the last full registry
+     * or delta applied by the caller. The response has a 404 status if the server no longer has these changes.
+     * Servers ignore cursors they did not issue, and then return the same delta as {@link #getDelta(String...)}.
+     *
+     * @param cursor the {@link #HTTP_X_EUREKA_REGISTRY_CURSOR} header of the last full registry or delta applied.
+     */
+    default EurekaHttpResponse<Applications> getDeltaSince(String cursor, String... regions) {
+        return getDelta(regions);
+    }
+
+    /**
+     * Gets the instances of the registry the given interest matches. Servers that do not support interests return
+     * the whole registry, as {@link #getApplications(String...)} does.
+     */
+    default EurekaHttpResponse<Applications> getApplicationsOfInterest(RegistryInterest interest, String... regions) {
+        return getApplications(regions);
+    }
+
+    /**
+     * Gets the changes of the instances the given interest matches, see {@link #getDeltaSince(String, String...)}.
+     * The reconcile hash code of the delta is the one of the instances the interest matches.
+     *
+     * @param cursor the cursor of the last full registry or delta applied, or null for the regular delta.
+     */
+    default EurekaHttpResponse<Applications> getDeltaOfInterest(String cursor, RegistryInterest interest,
+                                                                String... regions) {
+        return cursor == null ? getDelta(regions) : getDeltaSince(cursor, regions);
+    }
+
+    /**
+     * Waits for the registry to change after the given generation, and then gets the delta. The response carries
+     * the generation to wait for next in the {@link #HTTP_X_EUREKA_REGISTRY_GENERATION} header, and has no entity
+     * and a 304 status if nothing changed before the timeout.
+     *
+     * @param generation the token returned by the previous watch, or null to get the current delta right away.
+     * @param timeoutSeconds how long the server may wait for a change before responding.
+     */
+    default EurekaHttpResponse<Applications> watchDelta(String generation, int timeoutSeconds, String... regions) {
+        return EurekaHttpResponse.anEurekaHttpResponse(404, Applications.class).build();
+    }
+
     EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions);
 
     EurekaHttpResponse<Applications> getSecureVip(String secureVipAddress, String... regions);
@@ -36,6 +36,9 @@ public final class ServerStatusEvaluators {
                 return true;
             } else if (requestType == RequestType.GetDelta && (statusCode == 403 || statusCode == 404)) {
                 return true;
+            } else if (requestType == RequestType.WatchDelta
+                    && (statusCode == 304 || statusCode == 403 || statusCode == 404 || statusCode == 429)) {
+                return true;
             }
             return false;
         }
@@ -4,6 +4,7 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse.EurekaHttpResponseBuilder;
@@ -12,6 +13,7 @@ import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.WebResource.Builder;
+import com.sun.jersey.api.client.config.ClientConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +36,11 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
     private static final Logger logger = LoggerFactory.getLogger(AbstractJerseyEurekaHttpClient.class);
     protected static final String HTML = "html";
 
+    /**
+     * Added to the time a registry watch may be held by the server, to get the read timeout of that request.
+     */
+    static final int WATCH_READ_TIMEOUT_MARGIN_MS = 10 * 1000;
+
     protected final Client jerseyClient;
     protected final String serviceUrl;
 
@@ -172,6 +179,60 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
         return getApplicationsInternal("apps/delta", regions);
     }
 
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaSince(String cursor, String... regions) {
+        return getApplicationsInternal("apps/delta", regions, cursor, null);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getApplicationsOfInterest(RegistryInterest interest, String... regions) {
+        return getApplicationsInternal("apps/", regions, null, interest);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> getDeltaOfInterest(String cursor, RegistryInterest interest,
+                                                               String... regions) {
+        return getApplicationsInternal("apps/delta", regions, cursor, interest);
+    }
+
+    @Override
+    public EurekaHttpResponse<Applications> watchDelta(String generation, int timeoutSeconds, String... regions) {
+        String urlPath = "apps/delta/watch";
+        ClientResponse response = null;
+        try {
+            WebResource webResource = jerseyClient.resource(serviceUrl).path(urlPath)
+                    .queryParam("timeout", Integer.toString(timeoutSeconds));
+            if (generation != null) {
+                webResource = webResource.queryParam("generation", generation);
+            }
+            if (regions != null && regions.length > 0) {
+                webResource = webResource.queryParam("regions", StringUtil.join(regions));
+            }
+            webResource.setProperty(ClientConfig.PROPERTY_READ_TIMEOUT,
+                    timeoutSeconds * 1000 + WATCH_READ_TIMEOUT_MARGIN_MS);
+            Builder requestBuilder = webResource.getRequestBuilder();
+            addExtraHeaders(requestBuilder);
+            response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get(ClientResponse.class);
+
+            Applications applications = null;
+            if (response.getStatus() == Status.OK.getStatusCode() && response.hasEntity()) {
+                applications = response.getEntity(Applications.class);
+            }
+            return anEurekaHttpResponse(response.getStatus(), Applications.class)
+                    .headers(headersOf(response))
+                    .entity(applications)
+                    .build();
+        } finally {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Jersey HTTP GET {}/{}?generation={}; statusCode={}", serviceUrl, urlPath, generation,
+                        response == null ? "N/A" : response.getStatus());
+            }
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public EurekaHttpResponse<Applications> getVip(String vipAddress, String... regions) {
         return getApplicationsInternal("vips/" + vipAddress, regions);
@@ -183,6 +244,11 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
     }
 
     private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions) {
+        return getApplicationsInternal(urlPath, regions, null, null);
+    }
+
+    private EurekaHttpResponse<Applications> getApplicationsInternal(String urlPath, String[] regions, String cursor,
+                                                                     RegistryInterest interest) {
         ClientResponse response = null;
         String regionsParamValue = null;
         try {
@@ -191,6 +257,15 @@ public abstract class AbstractJerseyEurekaHttpClient implements EurekaHttpClient
                 regionsParamValue = StringUtil.join(regions);
                 webResource = webResource.queryParam("regions", regionsParamValue);
             }
+            if (cursor != null) {
+                webResource = webResource.queryParam("since", cursor);
+            }
+            if (interest != null && interest.getVipAddresses() != null) {
+                webResource = webResource.queryParam(RegistryInterest.VIPS_PARAM, interest.getVipAddresses());
+            }
+            if (interest != null && interest.getAppNames() != null) {
+                webResource = webResource.queryParam(RegistryInterest.APPS_PARAM, interest.getAppNames());
+            }
             Builder requestBuilder = webResource.getRequestBuilder();
             addExtraHeaders(requestBuilder);
             response = requestBuilder.accept(MediaType.APPLICATION_JSON_TYPE).get(ClientResponse.class);
@@ -68,7 +68,20 @@ public class RateLimiter {
         }
 
         refillToken(burstSize, averageRate, currentTimeMillis);
-        return consumeToken(burstSize);
+        return consumeTokens(burstSize, 1);
+    }
+
+    /**
+     * Acquires several tokens at once, for requests of different costs sharing the same bucket. A request costing
+     * more than the burst size is admitted only when no token is consumed, and then consumes all of them.
+     */
+    public boolean acquire(int burstSize, long averageRate, int tokens, long currentTimeMillis) {
+        if (burstSize <= 0 || averageRate <= 0) { // Instead of throwing exception, we just let all the traffic go
+            return true;
+        }
+
+        refillToken(burstSize, averageRate, currentTimeMillis);
+        return consumeTokens(burstSize, Math.max(1, Math.min(tokens, burstSize)));
     }
 
     private void refillToken(int burstSize, long averageRate, long currentTimeMillis) {
@@ -93,13 +106,13 @@ public class RateLimiter {
         }
     }
 
-    private boolean consumeToken(int burstSize) {
+    private boolean consumeTokens(int burstSize, int tokens) {
         while (true) {
             int currentLevel = consumedTokens.get();
-            if (currentLevel >= burstSize) {
+            if (currentLevel + tokens > burstSize) {
                 return false;
             }
-            if (consumedTokens.compareAndSet(currentLevel, currentLevel + 1)) {
+            if (consumedTokens.compareAndSet(currentLevel, currentLevel + tokens)) {
                 return true;
             }
         }
@@ -1,5 +1,8 @@
 package com.netflix.appinfo;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import com.netflix.appinfo.InstanceInfo.Builder;
 import com.netflix.appinfo.InstanceInfo.PortType;
 import com.netflix.config.ConcurrentCompositeConfiguration;
@@ -14,6 +17,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertThat;
 
@@ -139,4 +143,31 @@ public class InstanceInfoTest {
         assertThat(instanceInfo2.getInstanceId(), is(not(instanceInfo2.getId())));
         assertThat(dataCenterInfoId, is(instanceInfo2.getId()));
     }
+
+    @Test
+    public void testVipAddressTokensAreCachedUntilTheAddressChanges() {
+        InstanceInfo instanceInfo = InstanceInfoGenerator.takeOne();
+        instanceInfo = new InstanceInfo.Builder(instanceInfo)
+                .setVIPAddressDeser("vip1:8080,vip2:8080")
+                .setSecureVIPAddressDeser(null)
+                .build();
+
+        assertThat(instanceInfo.getVIPAddressTokens(), is(equalTo(Arrays.asList("VIP1:8080", "VIP2:8080"))));
+        assertThat(instanceInfo.getVIPAddressTokens(), is(sameInstance(instanceInfo.getVIPAddressTokens())));
+        assertThat(instanceInfo.getSecureVipAddressTokens().isEmpty(), is(true));
+
+        InstanceInfo updated = new InstanceInfo.Builder(new InstanceInfo(instanceInfo))
+                .setVIPAddressDeser("vip3:8080")
+                .build();
+        assertThat(updated.getVIPAddressTokens(), is(equalTo(Collections.singletonList("VIP3:8080"))));
+    }
+
+    @Test
+    public void testVipAddressTokensAreTrimmed() {
+        InstanceInfo instanceInfo = new InstanceInfo.Builder(InstanceInfoGenerator.takeOne())
+                .setVIPAddressDeser("vip1:8080, vip2:8080 ")
+                .build();
+
+        assertThat(instanceInfo.getVIPAddressTokens(), is(equalTo(Arrays.asList("VIP1:8080", "VIP2:8080"))));
+    }
 }
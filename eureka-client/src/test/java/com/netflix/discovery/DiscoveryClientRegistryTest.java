@@ -1,6 +1,7 @@
 package com.netflix.discovery;
 
 import javax.ws.rs.core.MediaType;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,8 +11,10 @@ import java.util.concurrent.TimeUnit;
 import com.netflix.appinfo.DataCenterInfo;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.discovery.junit.resource.DiscoveryClientResource;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.discovery.shared.transport.SimpleEurekaHttpServer;
@@ -21,6 +24,10 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
 import static com.netflix.discovery.util.EurekaEntityFunctions.copyApplications;
@@ -34,10 +41,14 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -49,6 +60,14 @@ public class DiscoveryClientRegistryTest {
     private static final String TEST_LOCAL_REGION = "us-east-1";
     private static final String TEST_REMOTE_REGION = "us-west-2";
     private static final String TEST_REMOTE_ZONE = "us-west-2c";
+    private static final String SNAPSHOTS_PROPERTY =
+            DiscoveryClientResource.EUREKA_TEST_NAMESPACE + "shouldUseRegistrySnapshots";
+    private static final String SNAPSHOT_FILE_PROPERTY =
+            DiscoveryClientResource.EUREKA_TEST_NAMESPACE + "registrySnapshotFile";
+    private static final String REGISTRY_WATCH_PROPERTY =
+            DiscoveryClientResource.EUREKA_TEST_NAMESPACE + "shouldUseRegistryWatch";
+    private static final String REGISTRY_APPLICATIONS_PROPERTY =
+            DiscoveryClientResource.EUREKA_TEST_NAMESPACE + "registryRefreshApplications";
 
     private static final EurekaHttpClient requestHandler = mock(EurekaHttpClient.class);
     private static SimpleEurekaHttpServer eurekaHttpServer;
@@ -61,6 +80,9 @@ public class DiscoveryClientRegistryTest {
             .connectWith(eurekaHttpServer)
             .build();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * Share server stub by all tests.
      */
@@ -99,6 +121,23 @@ public class DiscoveryClientRegistryTest {
         assertThat(result.get(0).getVIPAddress(), is(equalTo(instance.getVIPAddress())));
     }
 
+    @Test
+    public void testGetByVipAndAppNameInLocalRegion() throws Exception {
+        Applications applications = InstanceInfoGenerator.newBuilder(4, "app1", "app2").build().toApplications();
+        InstanceInfo instance = applications.getRegisteredApplications("app1").getInstances().get(0);
+
+        when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                anEurekaHttpResponse(200, applications).type(MediaType.APPLICATION_JSON_TYPE).build()
+        );
+
+        EurekaClient client = discoveryClientResource.getClient();
+        List<InstanceInfo> result = client.getInstancesByVipAddressAndAppName(instance.getVIPAddress(), "APP1", false);
+        assertThat(result.size(), is(equalTo(2)));
+        assertThat(result.get(0).getAppName(), is(equalTo(instance.getAppName())));
+        assertThat(client.getInstancesByVipAddressAndAppName(instance.getVIPAddress(), "app2", false).isEmpty(), is(true));
+        assertThat(client.getInstancesByVipAddressAndAppName(instance.getSecureVipAddress(), "app1", true).size(), is(equalTo(2)));
+    }
+
     @Test
     public void testGetAllKnownRegions() throws Exception {
         prepareRemoteRegionRegistry();
@@ -297,6 +336,154 @@ public class DiscoveryClientRegistryTest {
         assertThat(countInstances(client.getApplications()), is(equalTo(1)));
     }
 
+    @Test
+    public void testEurekaClientPeriodicCacheRefreshOnSnapshots() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty(SNAPSHOTS_PROPERTY, "true");
+        try {
+            InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(3, 1).build();
+            Applications initialApps = instanceGen.takeDelta(2);
+            Applications deltaForDelete = instanceGen.takeDeltaForDelete(true, 1);
+            when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                    anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+            EurekaClient client = discoveryClientResource.getClient();
+            Applications beforeDelta = client.getApplications();
+            assertThat(countInstances(beforeDelta), is(equalTo(2)));
+
+            when(requestHandler.getDelta(TEST_REMOTE_REGION)).thenReturn(
+                    anEurekaHttpResponse(200, deltaForDelete).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+            assertThat(discoveryClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+
+            // The delta is published as a new registry, the previous one is left as it was
+            assertThat(countInstances(client.getApplications()), is(equalTo(1)));
+            assertThat(countInstances(beforeDelta), is(equalTo(2)));
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(SNAPSHOTS_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testWarmStartFromRegistrySnapshot() throws Exception {
+        File snapshotFile = new File(temporaryFolder.getRoot(), "registry.snapshot");
+        ConfigurationManager.getConfigInstance().setProperty(SNAPSHOT_FILE_PROPERTY, snapshotFile.getAbsolutePath());
+        try {
+            InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(3, 1).build();
+            Applications initialApps = instanceGen.takeDelta(2);
+            initialApps.setVersion(1L);
+            when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                    anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+            discoveryClientResource.getClient();
+            assertThat(snapshotFile.exists(), is(true));
+
+            // A restarted client reads the snapshot and only fetches the changes made since
+            Applications delta = instanceGen.takeDelta(1);
+            delta.setAppsHashCode("UP_3_");
+            when(requestHandler.getDelta(TEST_REMOTE_REGION)).thenReturn(
+                    anEurekaHttpResponse(200, delta).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+            EurekaClient restartedClient = discoveryClientResource.fork().build().getClient();
+
+            assertThat(countInstances(restartedClient.getApplications()), is(equalTo(3)));
+            verify(requestHandler, times(1)).getApplications(TEST_REMOTE_REGION);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(SNAPSHOT_FILE_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testRegistryWatchReplacesDeltaPolling() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty(REGISTRY_WATCH_PROPERTY, "true");
+        try {
+            InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(2, 1).build();
+            Applications initialApps = instanceGen.takeDelta(1);
+            initialApps.setVersion(1L);
+            when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                    anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+
+            Applications delta = instanceGen.takeDelta(1);
+            delta.setAppsHashCode("UP_2_");
+            final EurekaHttpResponse<Applications> notModified = anEurekaHttpResponse(304, Applications.class)
+                    .headers(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION, "epoch-1").build();
+            when(requestHandler.watchDelta(anyString(), anyInt(), Matchers.<String>anyVararg())).thenReturn(
+                    anEurekaHttpResponse(200, delta).type(MediaType.APPLICATION_JSON_TYPE)
+                            .headers(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION, "epoch-1").build()
+            ).thenAnswer(new Answer<EurekaHttpResponse<Applications>>() {
+                @Override
+                public EurekaHttpResponse<Applications> answer(InvocationOnMock invocation) throws Throwable {
+                    // A server holds the watch until the registry changes
+                    Thread.sleep(100);
+                    return notModified;
+                }
+            });
+
+            EurekaClient client = discoveryClientResource.getClient();
+            verify(requestHandler, timeout(5 * 1000).atLeastOnce())
+                    .watchDelta(eq("epoch-1"), anyInt(), Matchers.<String>anyVararg());
+            assertThat(countInstances(client.getApplications()), is(equalTo(2)));
+
+            // Deltas are not polled while the watch is served
+            Thread.sleep(2 * 1000);
+            verify(requestHandler, never()).getDelta(TEST_REMOTE_REGION);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(REGISTRY_WATCH_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testDeltaIsFetchedSinceTheRegistryCursor() throws Exception {
+        InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(2, 1).build();
+        Applications initialApps = instanceGen.takeDelta(1);
+        when(requestHandler.getApplications(TEST_REMOTE_REGION)).thenReturn(
+                anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE)
+                        .headers(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR, "epoch-5").build()
+        );
+        Applications delta = instanceGen.takeDelta(1);
+        delta.setAppsHashCode("UP_2_");
+        when(requestHandler.getDeltaSince(eq("epoch-5"), Matchers.<String>anyVararg())).thenReturn(
+                anEurekaHttpResponse(200, delta).type(MediaType.APPLICATION_JSON_TYPE)
+                        .headers(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR, "epoch-6").build()
+        );
+
+        EurekaClient client = discoveryClientResource.getClient();
+        assertThat(discoveryClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+        assertThat(countInstances(client.getApplications()), is(equalTo(2)));
+
+        // The next delta starts from the cursor of the applied one
+        verify(requestHandler, timeout(5 * 1000).atLeastOnce())
+                .getDeltaSince(eq("epoch-6"), Matchers.<String>anyVararg());
+        verify(requestHandler, never()).getDelta(TEST_REMOTE_REGION);
+    }
+
+    @Test
+    public void testRegistryOfInterestIsFetchedWithDeltas() throws Exception {
+        InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(2, 1).build();
+        Applications initialApps = instanceGen.takeDelta(1);
+        String appName = initialApps.getRegisteredApplications().get(0).getName();
+        RegistryInterest interest = RegistryInterest.of(null, appName);
+        ConfigurationManager.getConfigInstance().setProperty(REGISTRY_APPLICATIONS_PROPERTY, appName);
+        try {
+            when(requestHandler.getApplicationsOfInterest(eq(interest), Matchers.<String>anyVararg())).thenReturn(
+                    anEurekaHttpResponse(200, initialApps).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+            Applications delta = instanceGen.takeDelta(1);
+            delta.setAppsHashCode("UP_2_");
+            when(requestHandler.getDeltaOfInterest(anyString(), eq(interest), Matchers.<String>anyVararg())).thenReturn(
+                    anEurekaHttpResponse(200, delta).type(MediaType.APPLICATION_JSON_TYPE).build()
+            );
+
+            EurekaClient client = discoveryClientResource.getClient();
+            assertThat(discoveryClientResource.awaitCacheUpdate(5, TimeUnit.SECONDS), is(true));
+            assertThat(countInstances(client.getApplications()), is(equalTo(2)));
+            verify(requestHandler, never()).getApplications(TEST_REMOTE_REGION);
+            verify(requestHandler, never()).getDelta(TEST_REMOTE_REGION);
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(REGISTRY_APPLICATIONS_PROPERTY);
+        }
+    }
+
     @Test
     public void testEurekaClientPeriodicCacheRefreshForDeleteAndNoApplication() throws Exception {
         InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(3, 1).build();
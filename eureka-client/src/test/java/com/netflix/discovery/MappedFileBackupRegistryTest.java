@@ -0,0 +1,96 @@
+package com.netflix.discovery;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.netflix.discovery.util.EurekaEntityFunctions.countInstances;
+import static com.netflix.discovery.util.EurekaEntityFunctions.selectAll;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MappedFileBackupRegistryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+    private MappedFileBackupRegistry backupRegistry;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(temporaryFolder.getRoot(), "registry.snapshot");
+        backupRegistry = new MappedFileBackupRegistry(file);
+    }
+
+    @Test
+    public void testStoredRegistryIsReadBack() throws Exception {
+        InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(10, 3).build();
+        Applications localApps = instanceGen.takeDelta(6);
+        localApps.setVersion(42L);
+        localApps.setAppsHashCode("UP_6_");
+        Applications remoteApps = instanceGen.takeDelta(4);
+
+        backupRegistry.store(localApps, Collections.singletonList(remoteApps));
+        Applications restored = backupRegistry.fetchRegistry();
+
+        assertThat(restored, is(notNullValue()));
+        assertThat(restored.getVersion(), is(equalTo(42L)));
+        assertThat(restored.getAppsHashCode(), is(equalTo("UP_6_")));
+        assertThat(countInstances(restored), is(equalTo(10)));
+        for (Applications stored : new Applications[]{localApps, remoteApps}) {
+            for (InstanceInfo instance : selectAll(stored)) {
+                InstanceInfo restoredInstance = restored.getRegisteredApplications(instance.getAppName())
+                        .getByInstanceId(instance.getId());
+                assertThat(restoredInstance, is(equalTo(instance)));
+                assertThat(restoredInstance.getVIPAddress(), is(equalTo(instance.getVIPAddress())));
+                assertThat(restoredInstance.getStatus(), is(equalTo(instance.getStatus())));
+            }
+        }
+        assertThat(countInstances(backupRegistry.fetchRegistry(new String[]{"us-west-2"})), is(equalTo(10)));
+    }
+
+    @Test
+    public void testStoreReplacesThePreviousSnapshot() throws Exception {
+        InstanceInfoGenerator instanceGen = InstanceInfoGenerator.newBuilder(4, 1).build();
+        backupRegistry.store(instanceGen.takeDelta(3), Collections.<Applications>emptyList());
+        backupRegistry.store(instanceGen.takeDelta(1), Collections.<Applications>emptyList());
+
+        assertThat(countInstances(backupRegistry.fetchRegistry()), is(equalTo(1)));
+        assertThat(temporaryFolder.getRoot().list().length, is(equalTo(1)));
+    }
+
+    @Test
+    public void testMissingSnapshotIsIgnored() throws Exception {
+        assertThat(backupRegistry.fetchRegistry(), is(nullValue()));
+    }
+
+    @Test
+    public void testCorruptSnapshotIsIgnored() throws Exception {
+        backupRegistry.store(InstanceInfoGenerator.newBuilder(4, 1).build().toApplications(),
+                Collections.<Applications>emptyList());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() / 2);
+            int value = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(value ^ 0xFF);
+        }
+        assertThat(backupRegistry.fetchRegistry(), is(nullValue()));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        assertThat(backupRegistry.fetchRegistry(), is(nullValue()));
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Constructor;
@@ -363,6 +364,246 @@ public class ApplicationsTest {
         assertEquals("UP_1_", hashCode);
     }
     
+    @Test
+    public void testReconcileHashcodeFollowsInstanceChanges() {
+        Application app1 = new Application("TestApp1");
+        app1.addInstance(newInstance("TestApp1", "host1", InstanceStatus.UP));
+        app1.addInstance(newInstance("TestApp1", "host2", InstanceStatus.STARTING));
+        Application app2 = new Application("TestApp2");
+        app2.addInstance(newInstance("TestApp2", "host3", InstanceStatus.UP));
+
+        Applications applications = new Applications();
+        applications.addApplication(app1);
+        applications.addApplication(app2);
+        assertEquals("STARTING_1_UP_2_", applications.getReconcileHashCode());
+
+        // Replacing an instance with an updated copy moves it to the new status
+        app1.addInstance(newInstance("TestApp1", "host2", InstanceStatus.UP));
+        assertEquals("UP_3_", applications.getReconcileHashCode());
+
+        // Re-adding the same instance does not count it twice
+        app2.addInstance(app2.getByInstanceId("host3"));
+        assertEquals("UP_3_", applications.getReconcileHashCode());
+
+        app1.removeInstance(app1.getByInstanceId("host1"));
+        app2.addInstance(newInstance("TestApp2", "host4", InstanceStatus.OUT_OF_SERVICE));
+        assertEquals("OUT_OF_SERVICE_1_UP_2_", applications.getReconcileHashCode());
+
+        applications.removeApplication(app2);
+        assertEquals("UP_1_", applications.getReconcileHashCode());
+
+        // A removed application is no longer counted when it changes
+        app2.addInstance(newInstance("TestApp2", "host5", InstanceStatus.UP));
+        assertEquals("UP_1_", applications.getReconcileHashCode());
+    }
+
+    @Test
+    public void testShuffleRecountsApplicationsChangedThroughAnotherRegistry() {
+        Application app = new Application("TestApp1");
+        app.addInstance(newInstance("TestApp1", "host1", InstanceStatus.UP));
+        Applications owner = new Applications();
+        owner.addApplication(app);
+        Applications other = new Applications();
+        other.addApplication(app);
+
+        app.addInstance(newInstance("TestApp1", "host2", InstanceStatus.UP));
+        assertEquals("UP_2_", owner.getReconcileHashCode());
+        assertEquals("UP_1_", other.getReconcileHashCode());
+
+        other.shuffleInstances(true);
+        assertEquals("UP_2_", other.getReconcileHashCode());
+    }
+
+    @Test
+    public void testReconcileHashcodeFollowsCopiesWithChanges() {
+        Application app1 = new Application("TestApp1");
+        app1.addInstance(newInstance("TestApp1", "host1", InstanceStatus.UP));
+        Application app2 = new Application("TestApp2");
+        app2.addInstance(newInstance("TestApp2", "host2", InstanceStatus.UP));
+        Applications applications = new Applications(null, 1L, Arrays.asList(app1, app2));
+
+        InstanceInfo added = newInstance("TestApp3", "host3", InstanceStatus.STARTING);
+        added.setActionType(InstanceInfo.ActionType.ADDED);
+        Applications copy = applications.copyWithChanges(Collections.singletonList(added), true);
+        assertEquals("STARTING_1_UP_2_", copy.getReconcileHashCode());
+        assertEquals("UP_2_", applications.getReconcileHashCode());
+
+        // Once the original is no longer used, the copy follows the changes applied in place to the applications
+        // they shared
+        InstanceInfo modified = newInstance("TestApp1", "host1", InstanceStatus.DOWN);
+        modified.setActionType(InstanceInfo.ActionType.MODIFIED);
+        InstanceInfo deleted = newInstance("TestApp2", "host2", InstanceStatus.UP);
+        deleted.setActionType(InstanceInfo.ActionType.DELETED);
+        copy.applyChanges(Arrays.asList(modified, deleted), true);
+        assertSame(app1, copy.getRegisteredApplications("TestApp1"));
+        assertNull(copy.getRegisteredApplications("TestApp2"));
+        assertEquals("DOWN_1_STARTING_1_", copy.getReconcileHashCode());
+
+        copy.getRegisteredApplications("TestApp3").addInstance(newInstance("TestApp3", "host4", InstanceStatus.UP));
+        assertEquals("DOWN_1_STARTING_1_UP_1_", copy.getReconcileHashCode());
+    }
+
+    @Test
+    public void testCopyWithChanges() {
+        Application app1 = new Application("TestApp1");
+        app1.addInstance(newInstance("TestApp1", "host1", InstanceStatus.UP));
+        app1.addInstance(newInstance("TestApp1", "host2", InstanceStatus.UP));
+        Application app2 = new Application("TestApp2");
+        app2.addInstance(newInstance("TestApp2", "host3", InstanceStatus.UP));
+        Applications applications = new Applications("UP_3_", 7L, Arrays.asList(app1, app2));
+        applications.shuffleInstances(true);
+
+        InstanceInfo modified = newInstance("TestApp1", "host2", InstanceStatus.DOWN);
+        modified.setActionType(InstanceInfo.ActionType.MODIFIED);
+        InstanceInfo deleted = newInstance("TestApp2", "host3", InstanceStatus.UP);
+        deleted.setActionType(InstanceInfo.ActionType.DELETED);
+        InstanceInfo added = newInstance("TestApp3", "host4", InstanceStatus.UP);
+        added.setActionType(InstanceInfo.ActionType.ADDED);
+
+        Applications copy = applications.copyWithChanges(Arrays.asList(modified, deleted, added), true);
+
+        assertEquals("UP_3_", copy.getAppsHashCode());
+        assertEquals(7L, (long) copy.getVersion());
+        assertEquals("DOWN_1_UP_2_", copy.getReconcileHashCode());
+        assertNull(copy.getRegisteredApplications("TestApp2"));
+        assertEquals(2, copy.getInstancesByVirtualHostName("test.testname:1").size());
+        assertEquals(1, copy.getRegisteredApplications("TestApp1").getInstances().size());
+
+        // The original registry is left as it was
+        assertEquals("UP_3_", applications.getReconcileHashCode());
+        assertEquals(3, applications.getInstancesByVirtualHostName("test.testname:1").size());
+        assertEquals(InstanceStatus.UP, app1.getByInstanceId("host2").getStatus());
+        assertNotNull(app2.getByInstanceId("host3"));
+
+        // Applications without a change are shared with the copy
+        InstanceInfo addedToApp3 = newInstance("TestApp3", "host5", InstanceStatus.UP);
+        addedToApp3.setActionType(InstanceInfo.ActionType.ADDED);
+        Applications nextCopy = copy.copyWithChanges(Collections.singletonList(addedToApp3), true);
+        assertSame(copy.getRegisteredApplications("TestApp1"), nextCopy.getRegisteredApplications("TestApp1"));
+        assertNotSame(copy.getRegisteredApplications("TestApp3"), nextCopy.getRegisteredApplications("TestApp3"));
+        assertEquals(1, copy.getRegisteredApplications("TestApp3").size());
+        assertEquals(2, nextCopy.getRegisteredApplications("TestApp3").size());
+    }
+
+    @Test
+    public void testApplyChangesUpdatesOnlyChangedVipAddresses() {
+        Application app1 = new Application("TestApp1");
+        app1.addInstance(newInstance("TestApp1", "host1", "vip1:1,shared:1", InstanceStatus.UP));
+        app1.addInstance(newInstance("TestApp1", "host2", "vip1:1", InstanceStatus.UP));
+        Application app2 = new Application("TestApp2");
+        app2.addInstance(newInstance("TestApp2", "host3", "vip2:1,shared:1", InstanceStatus.UP));
+        Applications applications = new Applications();
+        applications.addApplication(app1);
+        applications.addApplication(app2);
+        applications.shuffleInstances(true);
+        List<InstanceInfo> vip2Instances = applications.getInstancesByVirtualHostName("vip2:1");
+
+        InstanceInfo modified = newInstance("TestApp1", "host1", "vip1:1", InstanceStatus.DOWN);
+        modified.setActionType(InstanceInfo.ActionType.MODIFIED);
+        InstanceInfo added = newInstance("TestApp4", "host4", "vip4:1", InstanceStatus.UP);
+        added.setActionType(InstanceInfo.ActionType.ADDED);
+        applications.applyChanges(Arrays.asList(modified, added), true);
+
+        assertSame(vip2Instances, applications.getInstancesByVirtualHostName("vip2:1"));
+        assertEquals(1, applications.getInstancesByVirtualHostName("vip1:1").size());
+        assertEquals("host3", Iterables.getOnlyElement(applications.getInstancesByVirtualHostName("shared:1")).getId());
+        assertEquals("host4", Iterables.getOnlyElement(applications.getInstancesByVirtualHostName("VIP4:1")).getId());
+        assertEquals("DOWN_1_UP_3_", applications.getReconcileHashCode());
+        assertEquals(3, applications.getRegisteredApplications().size());
+
+        InstanceInfo deleted = newInstance("TestApp4", "host4", "vip4:1", InstanceStatus.UP);
+        deleted.setActionType(InstanceInfo.ActionType.DELETED);
+        applications.applyChanges(Collections.singletonList(deleted), true);
+
+        assertNull(applications.getRegisteredApplications("TestApp4"));
+        assertEquals(2, applications.getRegisteredApplications().size());
+        assertTrue(applications.getInstancesByVirtualHostName("vip4:1").isEmpty());
+        assertNull(applications.getNextIndex("vip4:1", false));
+    }
+
+    @Test
+    public void testGetInstancesByVirtualHostNameAndAppName() {
+        Application app1 = new Application("TestApp1");
+        app1.addInstance(newInstance("TestApp1", "host1", "vip1:1,shared:1", InstanceStatus.UP));
+        app1.addInstance(newInstance("TestApp1", "host2", "vip1:1", InstanceStatus.UP));
+        Application app2 = new Application("TestApp2");
+        app2.addInstance(newInstance("TestApp2", "host3", "shared:1", InstanceStatus.UP));
+        Applications applications = new Applications();
+        applications.addApplication(app1);
+        applications.addApplication(app2);
+        applications.shuffleInstances(true);
+
+        List<InstanceInfo> vip1Instances =
+                applications.getInstancesByVirtualHostNameAndAppName("vip1:1", "TestApp1", false);
+        assertEquals(2, vip1Instances.size());
+        assertSame(vip1Instances, applications.getInstancesByVirtualHostNameAndAppName("VIP1:1", "testapp1", false));
+        assertEquals("host1", Iterables.getOnlyElement(
+                applications.getInstancesByVirtualHostNameAndAppName("shared:1", "TestApp1", false)).getId());
+        assertEquals("host3", Iterables.getOnlyElement(
+                applications.getInstancesByVirtualHostNameAndAppName("shared:1", "TestApp2", false)).getId());
+        assertTrue(applications.getInstancesByVirtualHostNameAndAppName("vip1:1", "TestApp2", false).isEmpty());
+        assertTrue(applications.getInstancesByVirtualHostNameAndAppName("vip1:1", "TestApp1", true).isEmpty());
+        try {
+            vip1Instances.clear();
+            Assert.fail("Expected an unmodifiable list");
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        InstanceInfo modified = newInstance("TestApp1", "host1", "vip1:1,shared:1", InstanceStatus.DOWN);
+        modified.setActionType(InstanceInfo.ActionType.MODIFIED);
+        applications.applyChanges(Collections.singletonList(modified), true);
+
+        assertTrue(applications.getInstancesByVirtualHostNameAndAppName("shared:1", "TestApp1", false).isEmpty());
+        assertEquals(1, applications.getInstancesByVirtualHostNameAndAppName("vip1:1", "TestApp1", false).size());
+        assertEquals(1, applications.getInstancesByVirtualHostNameAndAppName("shared:1", "TestApp2", false).size());
+    }
+
+    @Test
+    public void testInstancesOfDifferentApplicationsWithTheSameIdShareAVipAddress() {
+        Application app1 = new Application("TestApp1");
+        app1.addInstance(newInstance("TestApp1", "host1", "shared:1", InstanceStatus.UP));
+        Application app2 = new Application("TestApp2");
+        app2.addInstance(newInstance("TestApp2", "host1", "shared:1", InstanceStatus.UP));
+        Applications applications = new Applications();
+        applications.addApplication(app1);
+        applications.addApplication(app2);
+        applications.shuffleInstances(true);
+        assertEquals(2, applications.getInstancesByVirtualHostName("shared:1").size());
+
+        InstanceInfo added = newInstance("TestApp3", "host1", "shared:1", InstanceStatus.UP);
+        added.setActionType(InstanceInfo.ActionType.ADDED);
+        applications.applyChanges(Collections.singletonList(added), true);
+        assertEquals(3, applications.getInstancesByVirtualHostName("shared:1").size());
+
+        InstanceInfo deleted = newInstance("TestApp1", "host1", "shared:1", InstanceStatus.UP);
+        deleted.setActionType(InstanceInfo.ActionType.DELETED);
+        Applications copy = applications.copyWithChanges(Collections.singletonList(deleted), true);
+        assertEquals(2, copy.getInstancesByVirtualHostName("shared:1").size());
+        assertEquals(1, copy.getInstancesByVirtualHostNameAndAppName("shared:1", "TestApp2", false).size());
+        assertEquals(3, applications.getInstancesByVirtualHostName("shared:1").size());
+    }
+
+    private static InstanceInfo newInstance(String appName, String hostName, String vipAddress,
+                                            InstanceStatus status) {
+        return new InstanceInfo.Builder(newInstance(appName, hostName, status))
+                .setVIPAddressDeser(vipAddress)
+                .build();
+    }
+
+    private static InstanceInfo newInstance(String appName, String hostName, InstanceStatus status) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(appName)
+                .setVIPAddress("test.testname:1")
+                .setDataCenterInfo(new DataCenterInfo() {
+                    public DataCenterInfo.Name getName() {
+                        return DataCenterInfo.Name.MyOwn;
+                    }
+                })
+                .setHostName(hostName)
+                .setStatus(status)
+                .build();
+    }
+
     @Test
     public void testInstanceFiltering() {
         DataCenterInfo myDCI = new DataCenterInfo() {
@@ -0,0 +1,67 @@
+package com.netflix.discovery.shared;
+
+import java.util.List;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import org.junit.Test;
+
+import static com.netflix.discovery.util.EurekaEntityFunctions.countInstances;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RegistryInterestTest {
+
+    @Test
+    public void testEmptyInterestStandsForTheWholeRegistry() throws Exception {
+        assertThat(RegistryInterest.of(null, null), is(nullValue()));
+        assertThat(RegistryInterest.of(" , ", ""), is(nullValue()));
+    }
+
+    @Test
+    public void testInterestsAreNormalized() throws Exception {
+        RegistryInterest interest = RegistryInterest.of("vip2, vip1", "app1");
+        assertThat(interest, is(equalTo(RegistryInterest.of("VIP1,VIP2", " App1 "))));
+        assertThat(interest.getVipAddresses(), is(equalTo("VIP1,VIP2")));
+        assertThat(interest.getAppNames(), is(equalTo("APP1")));
+        assertThat(RegistryInterest.of("vip1", null).getAppNames(), is(nullValue()));
+    }
+
+    @Test
+    public void testFilterKeepsTheInstancesOfInterest() throws Exception {
+        Applications applications = InstanceInfoGenerator.newBuilder(12, 4).build().toApplications();
+        List<Application> registered = applications.getRegisteredApplications();
+        Application byName = registered.get(0);
+        Application byVip = registered.get(1);
+        Application bySecureVip = registered.get(2);
+        String vipAddresses = byVip.getInstances().get(0).getVIPAddress().toLowerCase()
+                + ',' + bySecureVip.getInstances().get(0).getSecureVipAddress();
+
+        Applications filtered = RegistryInterest.of(vipAddresses, byName.getName()).filter(applications);
+
+        assertThat(countInstances(filtered), is(equalTo(9)));
+        for (Application application : new Application[]{byName, byVip, bySecureVip}) {
+            assertThat(filtered.getRegisteredApplications(application.getName()), is(notNullValue()));
+        }
+        assertThat(filtered.getRegisteredApplications(registered.get(3).getName()), is(nullValue()));
+        assertThat(filtered.getAppsHashCode(), is(equalTo("UP_9_")));
+        assertThat(filtered.getVersion(), is(equalTo(applications.getVersion())));
+    }
+
+    @Test
+    public void testFilterKeepsTheActionTypesOfADelta() throws Exception {
+        InstanceInfoGenerator generator = InstanceInfoGenerator.newBuilder(4, 2).build();
+        Applications delta = generator.takeDeltaForDelete(true, 2);
+        InstanceInfo deleted = delta.getRegisteredApplications().get(0).getInstances().get(0);
+
+        Applications filtered = RegistryInterest.of(null, deleted.getAppName()).filter(delta);
+
+        InstanceInfo filteredInstance = filtered.getRegisteredApplications(deleted.getAppName())
+                .getByInstanceId(deleted.getId());
+        assertThat(filteredInstance.getActionType(), is(equalTo(ActionType.DELETED)));
+    }
+}
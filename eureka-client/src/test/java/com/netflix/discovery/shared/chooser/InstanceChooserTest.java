@@ -0,0 +1,153 @@
+package com.netflix.discovery.shared.chooser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.netflix.appinfo.AmazonInfo;
+import com.netflix.appinfo.AmazonInfo.MetaDataKey;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEventListener;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InstanceChooserTest {
+
+    private static final String ZONE_A = "us-east-1a";
+    private static final String ZONE_B = "us-east-1b";
+
+    @Test
+    public void testRoundRobinChoosesTheUpInstancesInTurn() throws Exception {
+        InstanceInfo down = instance("down", "MyVip:8080", ZONE_A, InstanceStatus.DOWN);
+        InstanceChooser chooser = refreshed(new RoundRobinInstanceChooser(), toApplications(
+                instance("up1", "MyVip:8080", ZONE_A, InstanceStatus.UP),
+                instance("up2", "MyVip:8080", ZONE_A, InstanceStatus.UP),
+                instance("up3", "MyVip:8080", ZONE_B, InstanceStatus.UP),
+                down));
+
+        Map<String, Integer> counts = choose(chooser, "MyVip:8080", false, 300);
+
+        assertThat(counts.size(), is(equalTo(3)));
+        for (int count : counts.values()) {
+            assertThat(count, is(equalTo(100)));
+        }
+        assertThat(counts.containsKey(down.getId()), is(false));
+    }
+
+    @Test
+    public void testVipAddressesMatchRegardlessOfCase() throws Exception {
+        InstanceInfo instance = instance("up1", "MyVip:8080,Other:8080", ZONE_A, InstanceStatus.UP);
+        InstanceChooser chooser = refreshed(new RoundRobinInstanceChooser(), toApplications(instance));
+
+        for (String vipAddress : new String[]{"MyVip:8080", "MYVIP:8080", "myvip:8080", "other:8080"}) {
+            assertThat(chooser.choose(vipAddress, false), is(equalTo(instance)));
+        }
+        assertThat(chooser.choose("myvip:8081", true), is(equalTo(instance)));
+        assertThat(chooser.choose("myvip:8081", false), is(nullValue()));
+        assertThat(chooser.choose("unknown:8080", false), is(nullValue()));
+    }
+
+    @Test
+    public void testZoneAffineChooserFallsBackToOtherZones() throws Exception {
+        AbstractInstanceChooser chooser = new ZoneAffineInstanceChooser(ZONE_A);
+        chooser.refresh(toApplications(
+                instance("a1", "MyVip:8080", ZONE_A, InstanceStatus.UP),
+                instance("a2", "MyVip:8080", ZONE_A, InstanceStatus.UP),
+                instance("b1", "MyVip:8080", ZONE_B, InstanceStatus.UP)));
+        Map<String, Integer> counts = choose(chooser, "MyVip:8080", false, 100);
+        assertThat(counts.keySet().toString(), is(equalTo("[a1, a2]")));
+
+        chooser.refresh(toApplications(
+                instance("a1", "MyVip:8080", ZONE_A, InstanceStatus.DOWN),
+                instance("b1", "MyVip:8080", ZONE_B, InstanceStatus.UP)));
+        counts = choose(chooser, "MyVip:8080", false, 100);
+        assertThat(counts.keySet().toString(), is(equalTo("[b1]")));
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesNeverChoosesTheMostLoadedInstance() throws Exception {
+        Map<String, Integer> loads = new HashMap<>();
+        loads.put("idle", 0);
+        loads.put("busy", 5);
+        loads.put("busiest", 10);
+        InstanceChooser chooser = refreshed(new PowerOfTwoChoicesInstanceChooser(i -> loads.get(i.getId())),
+                toApplications(
+                        instance("idle", "MyVip:8080", ZONE_A, InstanceStatus.UP),
+                        instance("busy", "MyVip:8080", ZONE_A, InstanceStatus.UP),
+                        instance("busiest", "MyVip:8080", ZONE_A, InstanceStatus.UP)));
+
+        Map<String, Integer> counts = choose(chooser, "MyVip:8080", false, 1000);
+
+        assertThat(counts.containsKey("busiest"), is(false));
+        assertThat(counts.get("idle"), is(not(nullValue())));
+    }
+
+    @Test
+    public void testAttachedChooserFollowsTheRegistryRefreshes() throws Exception {
+        EurekaClient eurekaClient = mock(EurekaClient.class);
+        InstanceInfo first = instance("first", "MyVip:8080", ZONE_A, InstanceStatus.UP);
+        InstanceInfo second = instance("second", "MyVip:8080", ZONE_A, InstanceStatus.UP);
+        when(eurekaClient.getApplications()).thenReturn(toApplications(first), toApplications(second));
+
+        AbstractInstanceChooser chooser = new RoundRobinInstanceChooser();
+        EurekaEventListener listener = chooser.attachTo(eurekaClient);
+        assertThat(chooser.choose("MyVip:8080", false), is(equalTo(first)));
+
+        ArgumentCaptor<EurekaEventListener> registered = ArgumentCaptor.forClass(EurekaEventListener.class);
+        verify(eurekaClient).registerEventListener(registered.capture());
+        assertThat(registered.getValue(), is(equalTo(listener)));
+        listener.onEvent(new CacheRefreshedEvent());
+        assertThat(chooser.choose("MyVip:8080", false), is(equalTo(second)));
+    }
+
+    private static InstanceChooser refreshed(AbstractInstanceChooser chooser, Applications applications) {
+        chooser.refresh(applications);
+        return chooser;
+    }
+
+    private static Map<String, Integer> choose(InstanceChooser chooser, String vipAddress, boolean secure, int times) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int i = 0; i < times; i++) {
+            counts.merge(chooser.choose(vipAddress, secure).getId(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static Applications toApplications(InstanceInfo... instances) {
+        Application application = new Application("MYAPP");
+        for (InstanceInfo instance : instances) {
+            application.addInstance(instance);
+        }
+        Applications applications = new Applications();
+        applications.addApplication(application);
+        return applications;
+    }
+
+    private static InstanceInfo instance(String id, String vipAddress, String zone, InstanceStatus status) {
+        return InstanceInfo.Builder.newBuilder()
+                .setInstanceId(id)
+                .setAppName("MYAPP")
+                .setHostName(id + ".myapp.com")
+                .setVIPAddress(vipAddress)
+                .setSecureVIPAddress(vipAddress.replace(":8080", ":8081"))
+                .setStatus(status)
+                .setDataCenterInfo(AmazonInfo.Builder.newBuilder()
+                        .addMetadata(MetaDataKey.availabilityZone, zone)
+                        .build())
+                .build();
+    }
+}
@@ -72,4 +72,28 @@ public class RateLimiterTest {
         assertFalse(rateLimiter.acquire(burstSize, averageRate, start + step + step / 2));
         assertTrue(rateLimiter.acquire(burstSize, averageRate, start + 2 * step));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWeightedAcquire() {
+        RateLimiter rateLimiter = new RateLimiter(TimeUnit.SECONDS);
+        int burstSize = 10;
+
+        assertTrue(rateLimiter.acquire(burstSize, AVERAGE_RATE, 6, START));
+        assertFalse(rateLimiter.acquire(burstSize, AVERAGE_RATE, 6, START));
+        assertTrue(rateLimiter.acquire(burstSize, AVERAGE_RATE, 4, START));
+
+        // Half a second later, half of the bucket is refilled
+        assertFalse(rateLimiter.acquire(burstSize, AVERAGE_RATE, 6, START + 500));
+        assertTrue(rateLimiter.acquire(burstSize, AVERAGE_RATE, 5, START + 500));
+    }
+
+    @Test
+    public void testAcquireCostingMoreThanTheBurstSizeEmptiesTheBucket() {
+        RateLimiter rateLimiter = new RateLimiter(TimeUnit.SECONDS);
+
+        assertTrue(rateLimiter.acquire(BURST_SIZE, AVERAGE_RATE, 100, START));
+        assertFalse(rateLimiter.acquire(BURST_SIZE, AVERAGE_RATE, START));
+        assertFalse(rateLimiter.acquire(BURST_SIZE, AVERAGE_RATE, 100, START + 100));
+        assertTrue(rateLimiter.acquire(BURST_SIZE, AVERAGE_RATE, 100, START + 200));
+    }
+}
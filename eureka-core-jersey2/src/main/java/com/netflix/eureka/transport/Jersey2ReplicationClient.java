@@ -2,11 +2,14 @@ package com.netflix.eureka.transport;
 
 import static com.netflix.discovery.shared.transport.EurekaHttpResponse.anEurekaHttpResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
 
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
@@ -29,6 +32,7 @@ import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerIdentity;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
@@ -42,10 +46,26 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
     private static final Logger logger = LoggerFactory.getLogger(Jersey2ReplicationClient.class);
 
     private final EurekaJersey2Client eurekaJersey2Client;
+    private final ReplicationBinaryCodec binaryCodec;
+
+    /**
+     * Cleared when the peer turns out not to support the binary batch format.
+     */
+    private volatile boolean binaryReplication;
 
     public Jersey2ReplicationClient(EurekaJersey2Client eurekaJersey2Client, String serviceUrl) {
+        this(eurekaJersey2Client, serviceUrl, null);
+    }
+
+    /**
+     * @param binaryCodec codec for the batches sent to peers supporting the binary format, or null to always
+     *                    send batches in JSON
+     */
+    public Jersey2ReplicationClient(EurekaJersey2Client eurekaJersey2Client, String serviceUrl, ReplicationBinaryCodec binaryCodec) {
         super(eurekaJersey2Client.getClient(), serviceUrl);
         this.eurekaJersey2Client = eurekaJersey2Client;
+        this.binaryCodec = binaryCodec;
+        this.binaryReplication = binaryCodec != null;
     }
 
     @Override
@@ -108,6 +128,16 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
 
     @Override
     public EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList) {
+        if (binaryReplication) {
+            EurekaHttpResponse<ReplicationListResponse> response = submitBinaryBatchUpdates(replicationList);
+            if (!ReplicationBinaryCodec.isRejectedByPeer(response.getStatusCode())) {
+                return response;
+            }
+            // Remembered for this peer, so that the following batches are only sent once
+            logger.info("Peer {} rejected a binary replication batch with status {}; falling back to JSON",
+                    serviceUrl, response.getStatusCode());
+            binaryReplication = false;
+        }
         Response response = null;
         try {
             response = jerseyClient.target(serviceUrl)
@@ -126,6 +156,27 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         }
     }
 
+    private EurekaHttpResponse<ReplicationListResponse> submitBinaryBatchUpdates(ReplicationList replicationList) {
+        Response response = null;
+        try {
+            response = jerseyClient.target(serviceUrl)
+                    .path(PeerEurekaNode.BATCH_URL_PATH)
+                    .request(ReplicationBinaryCodec.MEDIA_TYPE)
+                    .post(Entity.entity(binaryCodec.encode(replicationList), ReplicationBinaryCodec.MEDIA_TYPE));
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), ReplicationListResponse.class).build();
+            }
+            ReplicationListResponse batchResponse = binaryCodec.decodeReplicationListResponse(response.readEntity(InputStream.class));
+            return anEurekaHttpResponse(response.getStatus(), batchResponse).type(MediaType.valueOf(ReplicationBinaryCodec.MEDIA_TYPE)).build();
+        } catch (IOException e) {
+            throw new ProcessingException("Cannot encode or decode binary replication batch", e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     @Override
     public void shutdown() {
         super.shutdown();
@@ -178,7 +229,10 @@ public class Jersey2ReplicationClient extends AbstractJersey2EurekaHttpClient im
         EurekaServerIdentity identity = new EurekaServerIdentity(ip);
         jerseyApacheClient.register(new EurekaIdentityHeaderFilter(identity));
 
-        return new Jersey2ReplicationClient(jerseyClient, serviceUrl);
+        ReplicationBinaryCodec binaryCodec = config.shouldUseBinaryPeerReplication()
+                ? new ReplicationBinaryCodec(serverCodecs.getFullJsonCodec())
+                : null;
+        return new Jersey2ReplicationClient(jerseyClient, serviceUrl, binaryCodec);
     }
 
     private static boolean isSuccess(int statusCode) {
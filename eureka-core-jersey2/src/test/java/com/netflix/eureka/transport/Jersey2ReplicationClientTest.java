@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.util.zip.GZIPOutputStream;
 
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.config.ConfigurationManager;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 import com.netflix.discovery.converters.EurekaJacksonCodec;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
@@ -14,6 +15,9 @@ import com.netflix.discovery.shared.transport.EurekaHttpResponse;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.DefaultServerCodecs;
 import com.netflix.eureka.resources.ServerCodecs;
@@ -23,6 +27,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockserver.client.server.MockServerClient;
 import org.mockserver.junit.MockServerRule;
+import org.mockserver.verify.VerificationTimes;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -181,6 +186,95 @@ public class Jersey2ReplicationClientTest {
         assertThat(response.getStatusCode(), is(equalTo(204)));
     }
 
+    @Test
+    public void testBinaryBatchReplication() throws Exception {
+        ReplicationBinaryCodec binaryCodec = new ReplicationBinaryCodec(serverCodecs.getFullJsonCodec());
+        ReplicationListResponse expected = new ReplicationListResponse();
+        expected.addResponse(ClusterSampleData.newReplicationInstanceResponse(true));
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response()
+                        .withStatusCode(200)
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE))
+                        .withBody(binaryCodec.encode(expected))
+        );
+
+        Jersey2ReplicationClient binaryReplicationClient = createBinaryReplicationClient();
+        try {
+            EurekaHttpResponse<ReplicationListResponse> response = binaryReplicationClient.submitBatchUpdates(
+                    new ReplicationList(ClusterSampleData.newReplicationInstance()));
+            assertThat(response.getStatusCode(), is(equalTo(200)));
+            assertThat(response.getEntity(), is(equalTo(expected)));
+        } finally {
+            binaryReplicationClient.shutdown();
+        }
+    }
+
+    @Test
+    public void testBinaryBatchReplicationFallsBackToJsonOnUnsupportedMediaType() throws Exception {
+        verifyFallbackToJson(Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode());
+    }
+
+    @Test
+    public void testBinaryBatchReplicationFallsBackToJsonOnNotAcceptable() throws Exception {
+        // What a peer without the binary batch method answers, as its batch method does not produce the binary format
+        verifyFallbackToJson(Status.NOT_ACCEPTABLE.getStatusCode());
+    }
+
+    private void verifyFallbackToJson(int binaryRejectionStatus) throws Exception {
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response().withStatusCode(binaryRejectionStatus)
+        );
+        serverMockClient.when(
+                request()
+                        .withMethod("POST")
+                        .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withPath("/eureka/v2/" + PeerEurekaNode.BATCH_URL_PATH)
+        ).respond(
+                response()
+                        .withStatusCode(200)
+                        .withHeader(header("Content-Type", MediaType.APPLICATION_JSON))
+                        .withBody(EurekaJacksonCodec.getInstance().writeToString(new ReplicationListResponse()))
+        );
+
+        Jersey2ReplicationClient binaryReplicationClient = createBinaryReplicationClient();
+        try {
+            for (int i = 0; i < 2; i++) {
+                EurekaHttpResponse<ReplicationListResponse> response = binaryReplicationClient.submitBatchUpdates(
+                        new ReplicationList(ClusterSampleData.newReplicationInstance()));
+                assertThat(response.getStatusCode(), is(equalTo(200)));
+                assertThat(response.getEntity(), is(equalTo(new ReplicationListResponse())));
+            }
+            // Once rejected, the binary format is not tried anymore
+            serverMockClient.verify(
+                    request().withHeader(header("Content-Type", ReplicationBinaryCodec.MEDIA_TYPE)),
+                    VerificationTimes.exactly(1)
+            );
+        } finally {
+            binaryReplicationClient.shutdown();
+        }
+    }
+
+    private Jersey2ReplicationClient createBinaryReplicationClient() {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.useBinaryPeerReplication", "true");
+        try {
+            return Jersey2ReplicationClient.createReplicationClient(
+                    config, serverCodecs, "http://localhost:" + serverMockRule.getHttpPort() + "/eureka/v2"
+            );
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty("eureka.useBinaryPeerReplication");
+        }
+    }
+
     private static byte[] toGzippedJson(InstanceInfo remoteInfo) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         GZIPOutputStream gos = new GZIPOutputStream(bos);
@@ -86,6 +86,8 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
     private final DynamicIntProperty rateLimiterBurstSize = configInstance.getIntProperty(namespace + "rateLimiter.burstSize", 10);
     private final DynamicIntProperty rateLimiterRegistryFetchAverageRate = configInstance.getIntProperty(namespace + "rateLimiter.registryFetchAverageRate", 500);
     private final DynamicIntProperty rateLimiterFullFetchAverageRate = configInstance.getIntProperty(namespace + "rateLimiter.fullFetchAverageRate", 100);
+    private final DynamicIntProperty rateLimiterClientBurstSize = configInstance.getIntProperty(namespace + "rateLimiter.clientBurstSize", 10240);
+    private final DynamicIntProperty rateLimiterClientAverageRate = configInstance.getIntProperty(namespace + "rateLimiter.clientAverageRate", 100);
 
     private final DynamicStringProperty listAutoScalingGroupsRoleName =
             configInstance.getStringProperty(namespace + "listAutoScalingGroupsRoleName", "ListAutoScalingGroups");
@@ -259,6 +261,12 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "enableReplicatedRequestCompression", false).get();
     }
 
+    @Override
+    public boolean shouldUseBinaryPeerReplication() {
+        return configInstance.getBooleanProperty(
+                namespace + "useBinaryPeerReplication", false).get();
+    }
+
     @Override
     public int getNumberOfReplicationRetries() {
         return configInstance.getIntProperty(
@@ -363,6 +371,30 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "responseCacheUpdateIntervalMs", (30 * 1000)).get();
     }
 
+    @Override
+    public long getResponseCacheCoalescingWindowMs() {
+        return configInstance.getIntProperty(
+                namespace + "responseCacheCoalescingWindowMs", 500).get();
+    }
+
+    @Override
+    public long getRegistryWatchMaxWaitMs() {
+        return configInstance.getIntProperty(
+                namespace + "registryWatchMaxWaitMs", (30 * 1000)).get();
+    }
+
+    @Override
+    public int getMaxConcurrentRegistryWatches() {
+        return configInstance.getIntProperty(
+                namespace + "maxConcurrentRegistryWatches", 100).get();
+    }
+
+    @Override
+    public int getMaxCursorAndInterestResponseCacheSize() {
+        return configInstance.getIntProperty(
+                namespace + "maxCursorAndInterestResponseCacheSize", 1000).get();
+    }
+
     @Override
     public boolean shouldUseReadOnlyResponseCache() {
         return configInstance.getBooleanProperty(
@@ -419,6 +451,12 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "registrySyncRetryWaitMs", 30 * 1000).get();
     }
 
+    @Override
+    public int getRegistrySyncParallelism() {
+        return configInstance.getIntProperty(
+                namespace + "registrySyncParallelism", Runtime.getRuntime().availableProcessors()).get();
+    }
+
     @Override
     public int getMaxElementsInPeerReplicationPool() {
         return configInstance.getIntProperty(
@@ -444,6 +482,18 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
                 namespace + "maxThreadsForPeerReplication", 20).get();
     }
 
+    @Override
+    public int getPeerReplicationAcceptorCount() {
+        return configInstance.getIntProperty(
+                namespace + "peerReplicationAcceptorCount", 1).get();
+    }
+
+    @Override
+    public int getPeerReplicationTargetLatencyMs() {
+        return configInstance.getIntProperty(
+                namespace + "peerReplicationTargetLatencyMs", 0).get();
+    }
+
     @Override
     public int getMaxTimeForReplication() {
         return configInstance.getIntProperty(
@@ -673,6 +723,21 @@ public class DefaultEurekaServerConfig implements EurekaServerConfig {
         return rateLimiterFullFetchAverageRate.get();
     }
 
+    @Override
+    public int getRateLimiterClientBurstSize() {
+        return rateLimiterClientBurstSize.get();
+    }
+
+    @Override
+    public int getRateLimiterClientAverageRate() {
+        return rateLimiterClientAverageRate.get();
+    }
+
+    @Override
+    public int getRateLimiterMaxTrackedClients() {
+        return configInstance.getIntProperty(namespace + "rateLimiter.maxTrackedClients", 10000).get();
+    }
+
     @Override
     public String getListAutoScalingGroupsRoleName() {
         return listAutoScalingGroupsRoleName.get();
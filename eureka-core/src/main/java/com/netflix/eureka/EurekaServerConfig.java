@@ -164,6 +164,12 @@ public interface EurekaServerConfig {
      */
     boolean shouldEnableReplicatedRequestCompression();
 
+    /**
+     * If set to true, replication batches are sent to peers in a compact binary format instead of JSON.
+     * Peers not supporting it are detected on the first batch, and are sent JSON from then on.
+     */
+    boolean shouldUseBinaryPeerReplication();
+
     /**
      * Get the number of times the replication events should be retried with
      * peers.
@@ -311,6 +317,41 @@ public interface EurekaServerConfig {
      */
     long getResponseCacheUpdateIntervalMs();
 
+    /**
+     * Registry changes do not evict the cached full registry and delta payloads, they only mark them as
+     * stale. A stale payload is rebuilt on access, at most once per this window, so that bursts of
+     * registrations and cancellations are coalesced into a single rebuild.
+     *
+     * @return time in milliseconds, 0 to rebuild on every access following a change.
+     */
+    long getResponseCacheCoalescingWindowMs();
+
+    /**
+     * Gets the maximum time a client watching the registry with {@code GET apps/delta/watch} is kept waiting for
+     * a change, before being told that nothing changed.
+     *
+     * @return time in milliseconds.
+     */
+    long getRegistryWatchMaxWaitMs();
+
+    /**
+     * Gets the maximum number of clients waiting for a registry change at the same time. Each one holds a request
+     * thread, so this must stay well below the size of the request thread pool of the container. Clients beyond
+     * this limit are asked to fall back to polling.
+     *
+     * @return the maximum number of concurrent registry watches.
+     */
+    int getMaxConcurrentRegistryWatches();
+
+    /**
+     * Gets the maximum number of cached full registry and delta payloads requested with a cursor or with an interest.
+     * Unlike the other keys of the response cache, the number of those keys is not bounded by the registry content,
+     * so the least recently used ones are evicted beyond this size.
+     *
+     * @return the maximum number of cached cursor and interest payloads.
+     */
+    int getMaxCursorAndInterestResponseCacheSize();
+
     /**
      * The {@link com.netflix.eureka.registry.ResponseCache} currently uses a two level caching
      * strategy to responses. A readWrite cache with an expiration policy, and a readonly cache
@@ -392,6 +433,14 @@ public interface EurekaServerConfig {
      */
     long getRegistrySyncRetryWaitMs();
 
+    /**
+     * Get the number of threads loading the registry information got from the peers during startup, each
+     * application being loaded by a single thread.
+     *
+     * @return the number of threads loading the peer registry
+     */
+    int getRegistrySyncParallelism();
+
     /**
      * Get the maximum number of replication events that can be allowed to back
      * up in the replication pool. This replication pool is responsible for all
@@ -427,6 +476,23 @@ public interface EurekaServerConfig {
      */
     int getMaxThreadsForPeerReplication();
 
+    /**
+     * Get the number of threads accepting the batched replication tasks of a peer. The tasks are partitioned by
+     * id among these threads, which helps when a single thread cannot keep up with heavy replication traffic.
+     *
+     * @return number of acceptor threads per peer, 1 to keep the single threaded acceptor.
+     */
+    int getPeerReplicationAcceptorCount();
+
+    /**
+     * Get the batch replication round-trip time above which the batches sent to a peer are made smaller and
+     * less frequent. When set, the batch size and batching delay adapt to each peer's latency and responses,
+     * growing back while the peer keeps up.
+     *
+     * @return target replication latency in milliseconds, 0 to use fixed batches.
+     */
+    int getPeerReplicationTargetLatencyMs();
+
     /**
      * Get the minimum number of available peer replication instances
      * for this instance to be considered healthy. The design of eureka allows
@@ -640,6 +706,26 @@ public interface EurekaServerConfig {
      */
     int getRateLimiterFullFetchAverageRate();
 
+    /**
+     * Rate limiter, token bucket algorithm property. Specifies the maximum payload size, in kilobytes, each
+     * non-privileged client can fetch as a burst, in addition to the limits shared by all clients. A fetch costs the
+     * size of the payload served for it, so a full registry fetch costs much more than a delta. See also
+     * {@link #getRateLimiterClientAverageRate()}.
+     */
+    int getRateLimiterClientBurstSize();
+
+    /**
+     * Rate limiter, token bucket algorithm property. Specifies the average payload size, in kilobytes per second,
+     * each non-privileged client can fetch. See also {@link #getRateLimiterClientBurstSize()}.
+     */
+    int getRateLimiterClientAverageRate();
+
+    /**
+     * The maximum number of clients the rate limiter keeps a token bucket for, the least recently seen ones being
+     * dropped beyond it.
+     */
+    int getRateLimiterMaxTrackedClients();
+
     /**
      * Name of the Role used to describe auto scaling groups from third AWS accounts.
      */
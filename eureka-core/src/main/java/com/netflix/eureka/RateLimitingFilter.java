@@ -27,15 +27,26 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.cache.CacheBuilder;
 import com.netflix.appinfo.AbstractEurekaIdentity;
+import com.netflix.appinfo.EurekaAccept;
 import com.netflix.appinfo.EurekaClientIdentity;
+import com.netflix.discovery.shared.Pair;
+import com.netflix.eureka.registry.Key;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.netflix.eureka.registry.ResponseCacheImpl;
 import com.netflix.eureka.util.EurekaMonitors;
 import com.netflix.discovery.util.RateLimiter;
 import org.slf4j.Logger;
@@ -51,6 +62,14 @@ import org.slf4j.LoggerFactory;
  * higher priority. This is implemented by two parallel rate limiters, one for overall number of
  * full/delta fetches (higher threshold) and one for full fetches only (low threshold).
  * <p>
+ * So that a single client fetching too often cannot use up these shared limits for all the others, each
+ * non-privileged client also has its own token bucket, checked first. A client is identified by its
+ * {@link AbstractEurekaIdentity#AUTH_NAME_HEADER_KEY} and {@link AbstractEurekaIdentity#AUTH_ID_HEADER_KEY} headers, or
+ * by its address if it does not send an id, and only the most recently seen clients are tracked, see
+ * {@link EurekaServerConfig#getRateLimiterMaxTrackedClients()}. Its bucket is counted in kilobytes: each fetch costs
+ * the size of the full registry or delta payload currently served, so that full fetches are limited much sooner than
+ * deltas. The clients most often limited are given by {@link #getTopRateLimitedClients(int)}.
+ * <p>
  * The client is identified by {@link AbstractEurekaIdentity#AUTH_NAME_HEADER_KEY} HTTP header
  * value. The privileged group by default contains:
  * <ul>
@@ -93,7 +112,10 @@ public class RateLimitingFilter implements Filter {
             Arrays.asList(EurekaClientIdentity.DEFAULT_CLIENT_NAME, EurekaServerIdentity.DEFAULT_SERVER_NAME)
     );
 
-    private static final Pattern TARGET_RE = Pattern.compile("^.*/apps(/[^/]*)?$");
+    private static final Key FULL_FETCH_KEY = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+            Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+    private static final Key DELTA_FETCH_KEY = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+            Key.KeyType.JSON, Version.V2, EurekaAccept.full);
 
     enum Target {FullFetch, DeltaFetch, Application, Other}
 
@@ -107,11 +129,21 @@ public class RateLimitingFilter implements Filter {
      */
     private static final RateLimiter registryFullFetchRateLimiter = new RateLimiter(TimeUnit.SECONDS);
 
+    private EurekaServerContext serverContext;
     private EurekaServerConfig serverConfig;
 
+    private ConcurrentMap<String, ClientBucket> clientBuckets;
+
+    // The cost of the fetches for the client buckets, in kilobytes, updated with the response cache
+    private final AtomicLong fetchCostsUpdateTime = new AtomicLong();
+    private volatile int fullFetchCost = 1;
+    private volatile int deltaFetchCost = 1;
+
     @Inject
     public RateLimitingFilter(EurekaServerContext server) {
+        this.serverContext = server;
         this.serverConfig = server.getServerConfig();
+        this.clientBuckets = newClientBuckets(serverConfig);
     }
 
     // for non-DI use
@@ -123,10 +155,19 @@ public class RateLimitingFilter implements Filter {
         if (serverConfig == null) {
             EurekaServerContext serverContext = (EurekaServerContext) filterConfig.getServletContext()
                     .getAttribute(EurekaServerContext.class.getName());
+            this.serverContext = serverContext;
             serverConfig = serverContext.getServerConfig();
+            clientBuckets = newClientBuckets(serverConfig);
         }
     }
 
+    private static ConcurrentMap<String, ClientBucket> newClientBuckets(EurekaServerConfig serverConfig) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(serverConfig.getRateLimiterMaxTrackedClients())
+                .<String, ClientBucket>build()
+                .asMap();
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
         Target target = getTarget(request);
@@ -138,7 +179,6 @@ public class RateLimitingFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
 
         if (isRateLimited(httpRequest, target)) {
-            incrementStats(target);
             if (serverConfig.isRateLimiterEnabled()) {
                 ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
                 return;
@@ -154,16 +194,7 @@ public class RateLimitingFilter implements Filter {
             String pathInfo = httpRequest.getRequestURI();
 
             if ("GET".equals(httpRequest.getMethod()) && pathInfo != null) {
-                Matcher matcher = TARGET_RE.matcher(pathInfo);
-                if (matcher.matches()) {
-                    if (matcher.groupCount() == 0 || matcher.group(1) == null || "/".equals(matcher.group(1))) {
-                        target = Target.FullFetch;
-                    } else if ("/delta".equals(matcher.group(1))) {
-                        target = Target.DeltaFetch;
-                    } else {
-                        target = Target.Application;
-                    }
-                }
+                target = getTarget(pathInfo);
             }
             if (target == Target.Other) {
                 logger.debug("URL path {} not matched by rate limiting filter", pathInfo);
@@ -172,13 +203,44 @@ public class RateLimitingFilter implements Filter {
         return target;
     }
 
+    /**
+     * Matches the paths ending with {@code /apps}, or with {@code /apps/} followed by a single segment.
+     */
+    static Target getTarget(String path) {
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash < 0) {
+            return Target.Other;
+        }
+        int segmentLength = path.length() - lastSlash - 1;
+        if (segmentLength == 4 && path.startsWith("apps", lastSlash + 1)) {
+            return Target.FullFetch;
+        }
+        if (lastSlash >= 5 && path.startsWith("/apps", lastSlash - 5)) {
+            if (segmentLength == 0) {
+                return Target.FullFetch;
+            }
+            if (segmentLength == 5 && path.startsWith("delta", lastSlash + 1)) {
+                return Target.DeltaFetch;
+            }
+            return Target.Application;
+        }
+        return Target.Other;
+    }
+
     private boolean isRateLimited(HttpServletRequest request, Target target) {
         if (isPrivileged(request)) {
             logger.debug("Privileged {} request", target);
             return false;
         }
+        String clientKey = getClientKey(request);
+        if (isClientOverloaded(clientKey, target)) {
+            logger.debug("Client {} over its limit for {} request; discarding it", clientKey, target);
+            incrementClientStats(target);
+            return true;
+        }
         if (isOverloaded(target)) {
             logger.debug("Overloaded {} request; discarding it", target);
+            incrementStats(target);
             return true;
         }
         logger.debug("{} request admitted", target);
@@ -194,6 +256,64 @@ public class RateLimitingFilter implements Filter {
         return privilegedClients.contains(clientName) || DEFAULT_PRIVILEGED_CLIENTS.contains(clientName);
     }
 
+    private static String getClientKey(HttpServletRequest request) {
+        String clientName = request.getHeader(AbstractEurekaIdentity.AUTH_NAME_HEADER_KEY);
+        String clientId = request.getHeader(AbstractEurekaIdentity.AUTH_ID_HEADER_KEY);
+        return clientName + ':' + (clientId == null ? request.getRemoteAddr() : clientId);
+    }
+
+    private boolean isClientOverloaded(String clientKey, Target target) {
+        ClientBucket bucket = clientBuckets.get(clientKey);
+        if (bucket == null) {
+            ClientBucket newBucket = new ClientBucket();
+            bucket = clientBuckets.putIfAbsent(clientKey, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        int burstSize = serverConfig.getRateLimiterClientBurstSize();
+        int averageRate = serverConfig.getRateLimiterClientAverageRate();
+        if (bucket.rateLimiter.acquire(burstSize, averageRate, getCost(target), System.currentTimeMillis())) {
+            return false;
+        }
+        bucket.rateLimited.incrementAndGet();
+        return true;
+    }
+
+    private int getCost(Target target) {
+        switch (target) {
+            case FullFetch:
+                updateFetchCosts();
+                return fullFetchCost;
+            case DeltaFetch:
+                updateFetchCosts();
+                return deltaFetchCost;
+            default:
+                return 1;
+        }
+    }
+
+    private void updateFetchCosts() {
+        long now = System.currentTimeMillis();
+        long updateTime = fetchCostsUpdateTime.get();
+        if (now - updateTime < serverConfig.getResponseCacheUpdateIntervalMs()
+                || !fetchCostsUpdateTime.compareAndSet(updateTime, now)) {
+            return;
+        }
+        PeerAwareInstanceRegistry registry = serverContext.getRegistry();
+        if (registry != null && registry.getResponseCache() != null) {
+            fullFetchCost = getCost(registry.getResponseCache().getValue(FULL_FETCH_KEY));
+            deltaFetchCost = getCost(registry.getResponseCache().getValue(DELTA_FETCH_KEY));
+        }
+    }
+
+    private static int getCost(ResponseCacheImpl.Value payload) {
+        if (payload == null || payload.isEmpty()) {
+            return 1;
+        }
+        return Math.max(1, payload.getRawPayload().length / 1024);
+    }
+
     private boolean isOverloaded(Target target) {
         int maxInWindow = serverConfig.getRateLimiterBurstSize();
         int fetchWindowSize = serverConfig.getRateLimiterRegistryFetchAverageRate();
@@ -220,10 +340,49 @@ public class RateLimitingFilter implements Filter {
         }
     }
 
+    private void incrementClientStats(Target target) {
+        incrementStats(target);
+        if (serverConfig.isRateLimiterEnabled()) {
+            EurekaMonitors.RATE_LIMITED_BY_CLIENT.increment();
+        } else {
+            EurekaMonitors.RATE_LIMITED_BY_CLIENT_CANDIDATES.increment();
+        }
+    }
+
+    /**
+     * Gets the clients with the most requests over their own limit, whether discarded or not depending on
+     * {@link EurekaServerConfig#isRateLimiterEnabled()}.
+     *
+     * @param count the maximum number of clients to return.
+     * @return the client keys, made of the client name and id, with their number of limited requests, the most
+     * limited first.
+     */
+    public List<Pair<String, Long>> getTopRateLimitedClients(int count) {
+        List<Pair<String, Long>> rateLimitedClients = new ArrayList<Pair<String, Long>>();
+        for (Map.Entry<String, ClientBucket> entry : clientBuckets.entrySet()) {
+            long rateLimited = entry.getValue().rateLimited.get();
+            if (rateLimited > 0) {
+                rateLimitedClients.add(new Pair<String, Long>(entry.getKey(), rateLimited));
+            }
+        }
+        Collections.sort(rateLimitedClients, new Comparator<Pair<String, Long>>() {
+            @Override
+            public int compare(Pair<String, Long> o1, Pair<String, Long> o2) {
+                return o2.second().compareTo(o1.second());
+            }
+        });
+        return rateLimitedClients.size() > count ? rateLimitedClients.subList(0, count) : rateLimitedClients;
+    }
+
     @Override
     public void destroy() {
     }
 
+    private static class ClientBucket {
+        final RateLimiter rateLimiter = new RateLimiter(TimeUnit.SECONDS);
+        final AtomicLong rateLimited = new AtomicLong();
+    }
+
     // For testing purposes
     static void reset() {
         registryFetchRateLimiter.reset();
@@ -30,6 +30,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -53,6 +54,8 @@ import com.google.common.base.Strings;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -111,6 +114,8 @@ public class AwsAsgUtil implements AsgClient {
     private final EurekaClientConfig clientConfig;
     private final InstanceRegistry registry;
     private final LoadingCache<CacheKey, Boolean> asgCache;
+    // Incremented after the cached status of an ASG may have changed
+    private final AtomicLong statusVersion = new AtomicLong();
     private final AmazonAutoScaling awsClient;
 
     @Inject
@@ -123,6 +128,13 @@ public class AwsAsgUtil implements AsgClient {
         this.asgCache = CacheBuilder
                 .newBuilder().initialCapacity(500)
                 .expireAfterAccess(serverConfig.getASGCacheExpiryTimeoutMs(), TimeUnit.MILLISECONDS)
+                .removalListener(new RemovalListener<CacheKey, Boolean>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<CacheKey, Boolean> notification) {
+                        // Notified once the value is replaced or removed
+                        statusVersion.incrementAndGet();
+                    }
+                })
                 .build(new CacheLoader<CacheKey, Boolean>() {
                     @Override
                     public Boolean load(CacheKey key) throws Exception {
@@ -180,6 +192,7 @@ public class AwsAsgUtil implements AsgClient {
             logger.info("Cache value for asg {} does not exist yet, async refreshing.", cacheKey.asgName);
             // Only do an async refresh if it does not yet exist. Do this to refrain from calling aws api too much
             asgCache.refresh(cacheKey);
+            statusVersion.incrementAndGet();
             return true;
         }
     }
@@ -193,6 +206,17 @@ public class AwsAsgUtil implements AsgClient {
     public void setStatus(String asgName, boolean enabled) {
         String asgAccountId = getASGAccount(asgName);
         asgCache.put(new CacheKey(asgAccountId, asgName), enabled);
+        statusVersion.incrementAndGet();
+    }
+
+    /**
+     * Gets the version of the ASG statuses, which changes after the status of an ASG may have changed, so that the
+     * statuses derived from them can be cached until it does.
+     *
+     * @return the version of the ASG statuses.
+     */
+    public long getStatusVersion() {
+        return statusVersion.get();
     }
 
     /**
@@ -384,7 +408,11 @@ public class AwsAsgUtil implements AsgClient {
             public void run() {
                 try {
                     if (!serverConfig.shouldUseAwsAsgApi()) {
-                        // Disabled via the config, no-op.
+                        // Disabled via the config, only keep the statuses set meanwhile from expiring, as the
+                        // registry does not look them up on each renewal
+                        for (CacheKey key : getCacheKeys()) {
+                            asgCache.getIfPresent(key);
+                        }
                         return;
                     }
 
@@ -396,6 +424,8 @@ public class AwsAsgUtil implements AsgClient {
                     for (CacheKey key : cacheKeys) {
                         try {
                             asgCache.refresh(key);
+                            // A key loaded for the first time is not replacing a value
+                            statusVersion.incrementAndGet();
                         } catch (Throwable e) {
                             logger.error("Error updating the ASG cache for {}", key, e);
                         }
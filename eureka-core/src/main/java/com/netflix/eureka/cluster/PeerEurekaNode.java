@@ -106,7 +106,9 @@ public class PeerEurekaNode {
                 config.getMaxElementsInPeerReplicationPool(),
                 batchSize,
                 config.getMaxThreadsForPeerReplication(),
+                config.getPeerReplicationAcceptorCount(),
                 maxBatchingDelayMs,
+                config.getPeerReplicationTargetLatencyMs(),
                 serverUnavailableSleepTimeMs,
                 retrySleepTimeMs,
                 taskProcessor
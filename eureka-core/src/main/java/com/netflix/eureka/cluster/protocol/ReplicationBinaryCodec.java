@@ -0,0 +1,310 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.converters.wrappers.CodecWrappers;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+
+/**
+ * Compact binary encoding of {@link ReplicationList} and {@link ReplicationListResponse}, exchanged by peers
+ * with the {@link #MEDIA_TYPE} content type.
+ *
+ * <p>
+ * Each replication item is written as a flags byte, followed by the fields that are present. Application names,
+ * statuses and actions repeat a lot within a batch, so they are written once and referred to by index afterwards.
+ * A heartbeat therefore costs little more than its instance id, its timestamp and a few bytes of references. The
+ * {@link InstanceInfo}, only present for registrations and in some responses, is embedded in its regular JSON form.
+ * </p>
+ *
+ * <p>
+ * A stream starts with a format version byte, so that the format can evolve; a peer receiving an unknown version
+ * fails the request, and the sender falls back to JSON.
+ * </p>
+ */
+public final class ReplicationBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.eureka.replication+binary";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HAS_APP_NAME = 1;
+    private static final int HAS_ID = 1 << 1;
+    private static final int HAS_LAST_DIRTY_TIMESTAMP = 1 << 2;
+    private static final int HAS_STATUS = 1 << 3;
+    private static final int HAS_OVERRIDDEN_STATUS = 1 << 4;
+    private static final int HAS_INSTANCE_INFO = 1 << 5;
+    private static final int HAS_ACTION = 1 << 6;
+
+    private static final int MAX_PREALLOCATED_ITEMS = 1024;
+    private static final int MAX_FIELD_LENGTH = 16 * 1024 * 1024;
+
+    private final CodecWrapper instanceInfoCodec;
+
+    public ReplicationBinaryCodec() {
+        this(CodecWrappers.getCodec(CodecWrappers.JacksonJson.class));
+    }
+
+    public ReplicationBinaryCodec(CodecWrapper instanceInfoCodec) {
+        this.instanceInfoCodec = instanceInfoCodec;
+    }
+
+    /**
+     * Tells whether the status code a peer answered a binary batch with means that the peer does not take the binary
+     * format, so that the batch must be sent in JSON. A peer without the binary batch method rejects it as not
+     * acceptable (406) or of an unsupported media type (415), a peer not knowing the format version fails it as a
+     * bad request (400), and a peer routing the batches differently may not find a method for it (404, 405).
+     */
+    public static boolean isRejectedByPeer(int statusCode) {
+        switch (statusCode) {
+            case 400:
+            case 404:
+            case 405:
+            case 406:
+            case 415:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public byte[] encode(ReplicationList replicationList) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(replicationList, out);
+        return out.toByteArray();
+    }
+
+    public void encode(ReplicationList replicationList, OutputStream outputStream) throws IOException {
+        Writer writer = new Writer(outputStream);
+        List<ReplicationInstance> items = replicationList.getReplicationList();
+        writer.writeVarInt(items.size());
+        for (ReplicationInstance item : items) {
+            int flags = (item.getAppName() == null ? 0 : HAS_APP_NAME)
+                    | (item.getId() == null ? 0 : HAS_ID)
+                    | (item.getLastDirtyTimestamp() == null ? 0 : HAS_LAST_DIRTY_TIMESTAMP)
+                    | (item.getStatus() == null ? 0 : HAS_STATUS)
+                    | (item.getOverriddenStatus() == null ? 0 : HAS_OVERRIDDEN_STATUS)
+                    | (item.getInstanceInfo() == null ? 0 : HAS_INSTANCE_INFO)
+                    | (item.getAction() == null ? 0 : HAS_ACTION);
+            writer.out.writeByte(flags);
+            if (item.getAction() != null) {
+                writer.writeSymbol(item.getAction().name());
+            }
+            if (item.getAppName() != null) {
+                writer.writeSymbol(item.getAppName());
+            }
+            if (item.getId() != null) {
+                writer.writeString(item.getId());
+            }
+            if (item.getLastDirtyTimestamp() != null) {
+                writer.writeVarLong(item.getLastDirtyTimestamp());
+            }
+            if (item.getStatus() != null) {
+                writer.writeSymbol(item.getStatus());
+            }
+            if (item.getOverriddenStatus() != null) {
+                writer.writeSymbol(item.getOverriddenStatus());
+            }
+            if (item.getInstanceInfo() != null) {
+                writer.writeInstanceInfo(item.getInstanceInfo());
+            }
+        }
+        writer.out.flush();
+    }
+
+    public ReplicationList decodeReplicationList(InputStream inputStream) throws IOException {
+        Reader reader = new Reader(inputStream);
+        int count = reader.readCount();
+        List<ReplicationInstance> items = new ArrayList<>(Math.min(count, MAX_PREALLOCATED_ITEMS));
+        for (int i = 0; i < count; i++) {
+            int flags = reader.in.readUnsignedByte();
+            Action action = (flags & HAS_ACTION) != 0 ? reader.readAction() : null;
+            String appName = (flags & HAS_APP_NAME) != 0 ? reader.readSymbol() : null;
+            String id = (flags & HAS_ID) != 0 ? reader.readString() : null;
+            Long lastDirtyTimestamp = (flags & HAS_LAST_DIRTY_TIMESTAMP) != 0 ? reader.readVarLong() : null;
+            String status = (flags & HAS_STATUS) != 0 ? reader.readSymbol() : null;
+            String overriddenStatus = (flags & HAS_OVERRIDDEN_STATUS) != 0 ? reader.readSymbol() : null;
+            InstanceInfo instanceInfo = (flags & HAS_INSTANCE_INFO) != 0 ? reader.readInstanceInfo() : null;
+            items.add(new ReplicationInstance(appName, id, lastDirtyTimestamp, overriddenStatus, status, instanceInfo, action));
+        }
+        return new ReplicationList(items);
+    }
+
+    public byte[] encode(ReplicationListResponse replicationListResponse) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encode(replicationListResponse, out);
+        return out.toByteArray();
+    }
+
+    public void encode(ReplicationListResponse replicationListResponse, OutputStream outputStream) throws IOException {
+        Writer writer = new Writer(outputStream);
+        List<ReplicationInstanceResponse> responses = replicationListResponse.getResponseList();
+        writer.writeVarInt(responses.size());
+        for (ReplicationInstanceResponse response : responses) {
+            writer.writeVarInt(response.getStatusCode());
+            writer.out.writeBoolean(response.getResponseEntity() != null);
+            if (response.getResponseEntity() != null) {
+                writer.writeInstanceInfo(response.getResponseEntity());
+            }
+        }
+        writer.out.flush();
+    }
+
+    public ReplicationListResponse decodeReplicationListResponse(InputStream inputStream) throws IOException {
+        Reader reader = new Reader(inputStream);
+        int count = reader.readCount();
+        ReplicationListResponse replicationListResponse = new ReplicationListResponse();
+        for (int i = 0; i < count; i++) {
+            int statusCode = reader.readVarInt();
+            InstanceInfo responseEntity = reader.in.readBoolean() ? reader.readInstanceInfo() : null;
+            replicationListResponse.addResponse(new ReplicationInstanceResponse(statusCode, responseEntity));
+        }
+        return replicationListResponse;
+    }
+
+    private final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> symbols = new HashMap<>();
+
+        private Writer(OutputStream outputStream) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(outputStream));
+            out.writeByte(FORMAT_VERSION);
+        }
+
+        /**
+         * Writes the index of an already written symbol, or the next free index followed by the symbol itself.
+         */
+        private void writeSymbol(String symbol) throws IOException {
+            Integer index = symbols.get(symbol);
+            if (index != null) {
+                writeVarInt(index);
+            } else {
+                writeVarInt(symbols.size());
+                symbols.put(symbol, symbols.size());
+                writeString(symbol);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void writeInstanceInfo(InstanceInfo instanceInfo) throws IOException {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            instanceInfoCodec.encode(instanceInfo, encoded);
+            writeBytes(encoded.toByteArray());
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    private final class Reader {
+        private final DataInputStream in;
+        private final List<String> symbols = new ArrayList<>();
+
+        private Reader(InputStream inputStream) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(inputStream));
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported replication format version " + version);
+            }
+        }
+
+        private String readSymbol() throws IOException {
+            int index = readVarInt();
+            if (index < symbols.size()) {
+                return symbols.get(index);
+            }
+            if (index != symbols.size()) {
+                throw new IOException("Invalid symbol reference " + index);
+            }
+            String symbol = readString();
+            symbols.add(symbol);
+            return symbol;
+        }
+
+        private Action readAction() throws IOException {
+            String actionName = readSymbol();
+            try {
+                return Action.valueOf(actionName);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown replication action " + actionName);
+            }
+        }
+
+        private String readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        private InstanceInfo readInstanceInfo() throws IOException {
+            return instanceInfoCodec.decode(new ByteArrayInputStream(readBytes()), InstanceInfo.class);
+        }
+
+        private byte[] readBytes() throws IOException {
+            int length = readCount();
+            if (length > MAX_FIELD_LENGTH) {
+                throw new IOException("Field length " + length + " exceeds " + MAX_FIELD_LENGTH);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        private int readCount() throws IOException {
+            int count = readVarInt();
+            if (count < 0) {
+                throw new IOException("Invalid length " + count);
+            }
+            return count;
+        }
+
+        private int readVarInt() throws IOException {
+            long value = readVarLong();
+            if (value > 0xFFFFFFFFL) {
+                throw new IOException("Variable length integer overflow");
+            }
+            return (int) value;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Variable length integer overflow");
+        }
+    }
+}
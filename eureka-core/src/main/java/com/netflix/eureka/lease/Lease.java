@@ -17,6 +17,7 @@
 package com.netflix.eureka.lease;
 
 import com.netflix.eureka.registry.AbstractInstanceRegistry;
+import com.netflix.eureka.registry.EffectiveStatus;
 
 /**
  * Describes a time-based availability of a {@link T}. Purpose is to avoid
@@ -45,6 +46,8 @@ public class Lease<T> {
     // Make it volatile so that the expiration task would see this quicker
     private volatile long lastUpdateTimestamp;
     private long duration;
+    // The status of the holder last confirmed on renewal, see AbstractInstanceRegistry#renew
+    private volatile EffectiveStatus effectiveStatus;
 
     public Lease(T r, int durationInSecs) {
         holder = r;
@@ -108,7 +111,21 @@ public class Lease<T> {
      * @param additionalLeaseMs any additional lease time to add to the lease evaluation in ms.
      */
     public boolean isExpired(long additionalLeaseMs) {
-        return (evictionTimestamp > 0 || System.currentTimeMillis() > (lastUpdateTimestamp + duration + additionalLeaseMs));
+        return isExpired(additionalLeaseMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Same as {@link #isExpired(long)}, at the given time.
+     */
+    boolean isExpired(long additionalLeaseMs, long now) {
+        return (evictionTimestamp > 0 || now > (getExpiryTimestamp() + additionalLeaseMs));
+    }
+
+    /**
+     * Gets the milliseconds since epoch after which the lease is expired, if it is not renewed before.
+     */
+    long getExpiryTimestamp() {
+        return lastUpdateTimestamp + duration;
     }
 
     /**
@@ -148,6 +165,20 @@ public class Lease<T> {
         return serviceUpTimestamp;
     }
 
+    /**
+     * Gets the status of the holder last confirmed on renewal, or null if it was not evaluated yet.
+     */
+    public EffectiveStatus getEffectiveStatus() {
+        return effectiveStatus;
+    }
+
+    /**
+     * Sets the status of the holder confirmed on renewal.
+     */
+    public void setEffectiveStatus(EffectiveStatus effectiveStatus) {
+        this.effectiveStatus = effectiveStatus;
+    }
+
     /**
      * Returns the holder of the lease.
      */
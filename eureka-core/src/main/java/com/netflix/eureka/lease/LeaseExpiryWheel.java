@@ -0,0 +1,107 @@
+package com.netflix.eureka.lease;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An index of {@link Lease}s by expiry time, in the form of a hashed timing wheel. A lease is kept in the slot of
+ * the tick during which it expires, and {@link #pollExpired(long, long)} only visits the slots of the ticks elapsed
+ * since it was last called, instead of every lease.
+ *
+ * <p>
+ * Renewing a lease does not move it, so that a renewal costs no more than updating the lease. A lease found renewed
+ * when its slot is visited is put back in the slot of its new expiry time instead, which visits a lease renewed on
+ * time about once per lease period. Leases expiring beyond a turn of the wheel are put back the same way, and
+ * cancelled leases are dropped when their slot is visited.
+ * </p>
+ *
+ * <p>
+ * Leases are added concurrently, but are polled by a single thread at a time.
+ * </p>
+ */
+public class LeaseExpiryWheel<T> {
+
+    private final long tickMs;
+    private final int mask;
+    private final Queue<Lease<T>>[] slots;
+    // The leases added after the slot of their expiry time was visited
+    private final Queue<Lease<T>> expiredSlot = new ConcurrentLinkedQueue<>();
+
+    // The first tick whose slot was not visited yet
+    private volatile long nextTick;
+
+    /**
+     * @param tickMs the time span of a slot
+     * @param slotCount the number of slots, a power of two
+     * @param now the time from which the ticks elapse
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public LeaseExpiryWheel(long tickMs, int slotCount, long now) {
+        if (tickMs <= 0 || slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Expected a positive tick and a power of two slot count; got tickMs="
+                    + tickMs + ", slotCount=" + slotCount);
+        }
+        this.tickMs = tickMs;
+        this.mask = slotCount - 1;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.nextTick = now / tickMs;
+    }
+
+    /**
+     * Adds a lease to the index. A lease expired already is returned by the next {@link #pollExpired(long, long)}.
+     */
+    public void add(Lease<T> lease) {
+        long tick = lease.getExpiryTimestamp() / tickMs;
+        if (tick < nextTick) {
+            expiredSlot.add(lease);
+        } else {
+            slots[(int) (tick & mask)].add(lease);
+        }
+    }
+
+    /**
+     * Removes the leases expired at the given time from the index, see {@link Lease#isExpired(long)}. The leases not
+     * evicted by the caller must be added again to be returned by the next call.
+     *
+     * @param now the current time
+     * @param additionalLeaseMs any additional lease time to add to the lease evaluation in ms
+     * @return the expired leases that were not cancelled
+     */
+    public synchronized List<Lease<T>> pollExpired(long now, long additionalLeaseMs) {
+        List<Lease<T>> due = new ArrayList<>();
+        drain(expiredSlot, due);
+        long firstTick = nextTick;
+        long lastTick = (now - additionalLeaseMs) / tickMs;
+        if (lastTick >= firstTick) {
+            // Moved first, so that the leases added meanwhile go to slots not visited by this call
+            nextTick = lastTick + 1;
+            for (long tick = firstTick; tick <= lastTick && tick < firstTick + slots.length; tick++) {
+                drain(slots[(int) (tick & mask)], due);
+            }
+        }
+
+        List<Lease<T>> expired = new ArrayList<>();
+        for (Lease<T> lease : due) {
+            if (lease.getEvictionTimestamp() > 0) {
+                continue;
+            }
+            if (lease.isExpired(additionalLeaseMs, now)) {
+                expired.add(lease);
+            } else {
+                add(lease);
+            }
+        }
+        return expired;
+    }
+
+    private static <T> void drain(Queue<Lease<T>> slot, List<Lease<T>> leases) {
+        for (Lease<T> lease = slot.poll(); lease != null; lease = slot.poll()) {
+            leases.add(lease);
+        }
+    }
+}
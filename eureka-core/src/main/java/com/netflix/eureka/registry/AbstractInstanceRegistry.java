@@ -21,9 +21,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.AbstractQueue;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -31,17 +34,23 @@ import java.util.Random;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.ActionType;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
@@ -52,9 +61,11 @@ import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.Pair;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.lease.LeaseExpiryWheel;
+import com.netflix.eureka.registry.RegistryChangeLog.RecentlyChangedItem;
 import com.netflix.eureka.registry.rule.InstanceStatusOverrideRule;
 import com.netflix.eureka.resources.ServerCodecs;
-import com.netflix.eureka.util.MeasuredRate;
+import com.netflix.eureka.util.SlidingWindowRate;
 import com.netflix.servo.annotations.DataSourceType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +88,15 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     private static final Logger logger = LoggerFactory.getLogger(AbstractInstanceRegistry.class);
 
     private static final String[] EMPTY_STR_ARRAY = new String[0];
+    private static final int MAX_DELTA_SNAPSHOT_ROUNDS = 3;
+    private static final long LEASE_EXPIRY_TICK_MS = 1000;
+    // Over 17 minutes, several times the expiry time of the default lease
+    private static final int LEASE_EXPIRY_SLOTS = 1024;
+    private static final long RENEW_RATE_WINDOW_MS = 60 * 1000;
+    // Sliding by half a second, so that the renew threshold is checked against the renewals of the last minute
+    private static final int RENEW_RATE_BUCKETS = 120;
+    // Coarser, as there is one for each application
+    private static final int APP_RENEW_RATE_BUCKETS = 12;
     private final ConcurrentHashMap<String, Map<String, Lease<InstanceInfo>>> registry
             = new ConcurrentHashMap<String, Map<String, Lease<InstanceInfo>>>();
     protected Map<String, RemoteRegionRegistry> regionNameVSRemoteRegistry = new HashMap<String, RemoteRegionRegistry>();
@@ -84,20 +104,22 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             .newBuilder().initialCapacity(500)
             .expireAfterAccess(1, TimeUnit.HOURS)
             .<String, InstanceStatus>build().asMap();
+    // Incremented on each change of the status overrides, after the change
+    private final AtomicLong statusOverrideVersion = new AtomicLong();
 
     // CircularQueues here for debugging/statistics purposes only
     private final CircularQueue<Pair<Long, String>> recentRegisteredQueue;
     private final CircularQueue<Pair<Long, String>> recentCanceledQueue;
-    private ConcurrentLinkedQueue<RecentlyChangedItem> recentlyChangedQueue = new ConcurrentLinkedQueue<RecentlyChangedItem>();
+    private final RegistryChangeLog recentlyChangedLog = new RegistryChangeLog();
+    private final LeaseExpiryWheel<InstanceInfo> leaseExpiryWheel =
+            new LeaseExpiryWheel<>(LEASE_EXPIRY_TICK_MS, LEASE_EXPIRY_SLOTS, System.currentTimeMillis());
 
-    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
-    private final Lock read = readWriteLock.readLock();
-    private final Lock write = readWriteLock.writeLock();
     protected final Object lock = new Object();
 
     private Timer deltaRetentionTimer = new Timer("Eureka-DeltaRetentionTimer", true);
     private Timer evictionTimer = new Timer("Eureka-EvictionTimer", true);
-    private final MeasuredRate renewsLastMin;
+    private final SlidingWindowRate renewsLastMin;
+    private final ConcurrentHashMap<String, SlidingWindowRate> renewsLastMinByApp = new ConcurrentHashMap<>();
 
     private final AtomicReference<EvictionTask> evictionTaskRef = new AtomicReference<EvictionTask>();
 
@@ -120,7 +142,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         this.recentCanceledQueue = new CircularQueue<Pair<Long, String>>(1000);
         this.recentRegisteredQueue = new CircularQueue<Pair<Long, String>>(1000);
 
-        this.renewsLastMin = new MeasuredRate(1000 * 60 * 1);
+        this.renewsLastMin = new SlidingWindowRate(RENEW_RATE_WINDOW_MS, RENEW_RATE_BUCKETS);
 
         this.deltaRetentionTimer.schedule(getDeltaRetentionTask(),
                 serverConfig.getDeltaRetentionTimerIntervalInMs(),
@@ -145,7 +167,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         clientConfig,
                         serverCodecs,
                         remoteRegionUrlWithName.getKey(),
-                        new URL(remoteRegionUrlWithName.getValue()));
+                        new URL(remoteRegionUrlWithName.getValue()),
+                        this::remoteRegistryChanged);
                 regionNameVSRemoteRegistry.put(remoteRegionUrlWithName.getKey(), remoteRegionRegistry);
                 allKnownRemoteRegions[remoteRegionArrayIndex++] = remoteRegionUrlWithName.getKey();
             }
@@ -159,6 +182,17 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return responseCache;
     }
 
+    /**
+     * The full registry and delta payloads requested with remote regions include the remote registries, so they
+     * are rebuilt, and the registry watchers woken up, when one of those changes.
+     */
+    private void remoteRegistryChanged() {
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            cache.invalidateRegistryPayloads();
+        }
+    }
+
     public long getLocalRegistrySize() {
         long total = 0;
         for (Map<String, Lease<InstanceInfo>> entry : registry.values()) {
@@ -173,9 +207,10 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     @Override
     public void clearRegistry() {
         overriddenInstanceStatusMap.clear();
+        statusOverrideVersion.incrementAndGet();
         recentCanceledQueue.clear();
         recentRegisteredQueue.clear();
-        recentlyChangedQueue.clear();
+        recentlyChangedLog.clear();
         registry.clear();
     }
 
@@ -191,34 +226,113 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * @see com.netflix.eureka.lease.LeaseManager#register(java.lang.Object, int, boolean)
      */
     public void register(InstanceInfo registrant, int leaseDuration, boolean isReplication) {
-        read.lock();
+        REGISTER.increment(isReplication);
+        Lease<InstanceInfo> lease = putLease(registrant, leaseDuration, isReplication, false);
+        registrant = lease.getHolder();
+        logger.info("Registered instance {}/{} with status {} (replication={})",
+                registrant.getAppName(), registrant.getId(), registrant.getStatus(), isReplication);
+    }
+
+    /**
+     * Loads all the instances of a registry snapshot, as got from a peer on startup.
+     *
+     * <p>
+     * Each instance is registered as a replicated registration would, except that the loaded instances are not
+     * recorded as changes to serve as deltas, the clients having to fetch the full registry once it is loaded, and
+     * that the response cache is invalidated once all the instances are loaded rather than for each of them. The
+     * applications are loaded in parallel, each by a single thread.
+     * </p>
+     *
+     * @param applications the registry snapshot to load.
+     * @param filter the instances of the snapshot to load.
+     * @param parallelism the number of threads loading the applications.
+     * @return the number of instances loaded.
+     */
+    public int bulkLoad(Applications applications, final Predicate<InstanceInfo> filter, int parallelism)
+            throws InterruptedException {
+        List<Application> apps = applications.getRegisteredApplications();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, apps.size())),
+                new ThreadFactoryBuilder().setNameFormat("Eureka-RegistryBulkLoader-%d").setDaemon(true).build());
+        int count = 0;
         try {
-            Map<String, Lease<InstanceInfo>> gMap = registry.get(registrant.getAppName());
-            REGISTER.increment(isReplication);
-            if (gMap == null) {
-                final ConcurrentHashMap<String, Lease<InstanceInfo>> gNewMap = new ConcurrentHashMap<String, Lease<InstanceInfo>>();
-                gMap = registry.putIfAbsent(registrant.getAppName(), gNewMap);
-                if (gMap == null) {
-                    gMap = gNewMap;
+            List<Future<Integer>> loads = new ArrayList<>(apps.size());
+            for (final Application app : apps) {
+                loads.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return bulkLoad(app, filter);
+                    }
+                }));
+            }
+            for (Future<Integer> load : loads) {
+                try {
+                    count += load.get();
+                } catch (ExecutionException e) {
+                    logger.error("During DS init copy", e.getCause());
                 }
             }
-            Lease<InstanceInfo> existingLease = gMap.get(registrant.getId());
-            // Retain the last dirty timestamp without overwriting it, if there is already a lease
-            if (existingLease != null && (existingLease.getHolder() != null)) {
-                Long existingLastDirtyTimestamp = existingLease.getHolder().getLastDirtyTimestamp();
-                Long registrationLastDirtyTimestamp = registrant.getLastDirtyTimestamp();
-                logger.debug("Existing lease found (existing={}, provided={}", existingLastDirtyTimestamp, registrationLastDirtyTimestamp);
-
-                // this is a > instead of a >= because if the timestamps are equal, we still take the remote transmitted
-                // InstanceInfo instead of the server local copy.
-                if (existingLastDirtyTimestamp > registrationLastDirtyTimestamp) {
-                    logger.warn("There is an existing lease and the existing lease's dirty timestamp {} is greater" +
-                            " than the one that is being registered {}", existingLastDirtyTimestamp, registrationLastDirtyTimestamp);
-                    logger.warn("Using the existing instanceInfo instead of the new instanceInfo as the registrant");
-                    registrant = existingLease.getHolder();
+        } finally {
+            executor.shutdownNow();
+            // Even if interrupted, the instances loaded so far must be served
+            recentlyChangedLog.bulkLoaded();
+            if (responseCache != null) {
+                responseCache.invalidateAll();
+            }
+        }
+        logger.info("Loaded {} instances of {} applications", count, apps.size());
+        return count;
+    }
+
+    private int bulkLoad(Application app, Predicate<InstanceInfo> filter) {
+        int count = 0;
+        for (InstanceInfo instance : app.getInstances()) {
+            try {
+                if (filter.test(instance)) {
+                    putLease(instance, instance.getLeaseInfo().getDurationInSecs(), true, true);
+                    count++;
                 }
-            } else {
-                // The lease does not exist and hence it is a new registration
+            } catch (Throwable t) {
+                logger.error("During DS init copy", t);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stores a new lease for the given instance, applying its status overrides, and publishes the registration.
+     *
+     * @param isBulkLoad whether the lease is loaded by {@link #bulkLoad(Applications, Predicate, int)}, in which
+     *                   case it is neither recorded as a change to serve as a delta, nor published.
+     * @return the new lease, which holds the instance kept in the registry.
+     */
+    private Lease<InstanceInfo> putLease(InstanceInfo registrant, int leaseDuration, boolean isReplication,
+                                         boolean isBulkLoad) {
+        Map<String, Lease<InstanceInfo>> gMap = registry.get(registrant.getAppName());
+        if (gMap == null) {
+            final ConcurrentHashMap<String, Lease<InstanceInfo>> gNewMap = new ConcurrentHashMap<String, Lease<InstanceInfo>>();
+            gMap = registry.putIfAbsent(registrant.getAppName(), gNewMap);
+            if (gMap == null) {
+                gMap = gNewMap;
+            }
+        }
+        Lease<InstanceInfo> existingLease = gMap.get(registrant.getId());
+        // Retain the last dirty timestamp without overwriting it, if there is already a lease
+        if (existingLease != null && (existingLease.getHolder() != null)) {
+            Long existingLastDirtyTimestamp = existingLease.getHolder().getLastDirtyTimestamp();
+            Long registrationLastDirtyTimestamp = registrant.getLastDirtyTimestamp();
+            logger.debug("Existing lease found (existing={}, provided={}", existingLastDirtyTimestamp, registrationLastDirtyTimestamp);
+
+            // this is a > instead of a >= because if the timestamps are equal, we still take the remote transmitted
+            // InstanceInfo instead of the server local copy.
+            if (existingLastDirtyTimestamp > registrationLastDirtyTimestamp) {
+                logger.warn("There is an existing lease and the existing lease's dirty timestamp {} is greater" +
+                        " than the one that is being registered {}", existingLastDirtyTimestamp, registrationLastDirtyTimestamp);
+                logger.warn("Using the existing instanceInfo instead of the new instanceInfo as the registrant");
+                registrant = existingLease.getHolder();
+            }
+        } else {
+            // The lease does not exist and hence it is a new registration
+            if (this.expectedNumberOfClientsSendingRenews > 0) {
                 synchronized (lock) {
                     if (this.expectedNumberOfClientsSendingRenews > 0) {
                         // Since the client wants to register it, increase the number of clients sending renews
@@ -226,48 +340,55 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                         updateRenewsPerMinThreshold();
                     }
                 }
-                logger.debug("No previous lease information found; it is new registration");
-            }
-            Lease<InstanceInfo> lease = new Lease<InstanceInfo>(registrant, leaseDuration);
-            if (existingLease != null) {
-                lease.setServiceUpTimestamp(existingLease.getServiceUpTimestamp());
             }
-            gMap.put(registrant.getId(), lease);
+            logger.debug("No previous lease information found; it is new registration");
+        }
+        Lease<InstanceInfo> lease = new Lease<InstanceInfo>(registrant, leaseDuration);
+        if (existingLease != null) {
+            lease.setServiceUpTimestamp(existingLease.getServiceUpTimestamp());
+        }
+        Lease<InstanceInfo> replacedLease = gMap.put(registrant.getId(), lease);
+        leaseExpiryWheel.add(lease);
+        if (!isBulkLoad) {
             recentRegisteredQueue.add(new Pair<Long, String>(
                     System.currentTimeMillis(),
                     registrant.getAppName() + "(" + registrant.getId() + ")"));
-            // This is where the initial state transfer of overridden status happens
-            if (!InstanceStatus.UNKNOWN.equals(registrant.getOverriddenStatus())) {
-                logger.debug("Found overridden status {} for instance {}. Checking to see if needs to be add to the "
-                                + "overrides", registrant.getOverriddenStatus(), registrant.getId());
-                if (!overriddenInstanceStatusMap.containsKey(registrant.getId())) {
-                    logger.info("Not found overridden id {} and hence adding it", registrant.getId());
-                    overriddenInstanceStatusMap.put(registrant.getId(), registrant.getOverriddenStatus());
-                }
-            }
-            InstanceStatus overriddenStatusFromMap = overriddenInstanceStatusMap.get(registrant.getId());
-            if (overriddenStatusFromMap != null) {
-                logger.info("Storing overridden status {} from map", overriddenStatusFromMap);
-                registrant.setOverriddenStatus(overriddenStatusFromMap);
+        }
+        // This is where the initial state transfer of overridden status happens
+        if (!InstanceStatus.UNKNOWN.equals(registrant.getOverriddenStatus())) {
+            logger.debug("Found overridden status {} for instance {}. Checking to see if needs to be add to the "
+                            + "overrides", registrant.getOverriddenStatus(), registrant.getId());
+            if (!overriddenInstanceStatusMap.containsKey(registrant.getId())) {
+                logger.info("Not found overridden id {} and hence adding it", registrant.getId());
+                overriddenInstanceStatusMap.put(registrant.getId(), registrant.getOverriddenStatus());
+                statusOverrideVersion.incrementAndGet();
             }
+        }
+        InstanceStatus overriddenStatusFromMap = overriddenInstanceStatusMap.get(registrant.getId());
+        if (overriddenStatusFromMap != null) {
+            logger.info("Storing overridden status {} from map", overriddenStatusFromMap);
+            registrant.setOverriddenStatus(overriddenStatusFromMap);
+        }
 
-            // Set the status based on the overridden status rules
-            InstanceStatus overriddenInstanceStatus = getOverriddenInstanceStatus(registrant, existingLease, isReplication);
-            registrant.setStatusWithoutDirty(overriddenInstanceStatus);
+        // Set the status based on the overridden status rules
+        InstanceStatus overriddenInstanceStatus = getOverriddenInstanceStatus(registrant, existingLease, isReplication);
+        registrant.setStatusWithoutDirty(overriddenInstanceStatus);
 
-            // If the lease is registered with UP status, set lease service up timestamp
-            if (InstanceStatus.UP.equals(registrant.getStatus())) {
-                lease.serviceUp();
-            }
-            registrant.setActionType(ActionType.ADDED);
-            recentlyChangedQueue.add(new RecentlyChangedItem(lease));
+        // If the lease is registered with UP status, set lease service up timestamp
+        if (InstanceStatus.UP.equals(registrant.getStatus())) {
+            lease.serviceUp();
+        }
+        registrant.setActionType(ActionType.ADDED);
+        if (isBulkLoad) {
+            recentlyChangedLog.loaded(gMap, lease, replacedLease);
             registrant.setLastUpdatedTimestamp();
-            invalidateCache(registrant.getAppName(), registrant.getVIPAddress(), registrant.getSecureVipAddress());
-            logger.info("Registered instance {}/{} with status {} (replication={})",
-                    registrant.getAppName(), registrant.getId(), registrant.getStatus(), isReplication);
-        } finally {
-            read.unlock();
+        } else {
+            long sequence = recentlyChangedLog.registered(gMap, lease, replacedLease);
+            registrant.setLastUpdatedTimestamp();
+            publishChange(sequence, registrant.getAppName(), registrant.getVIPAddress(),
+                    registrant.getSecureVipAddress());
         }
+        return lease;
     }
 
     /**
@@ -295,40 +416,45 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * in the remote peers as valid cancellations, so self preservation mode would not kick-in.
      */
     protected boolean internalCancel(String appName, String id, boolean isReplication) {
-        read.lock();
-        try {
-            CANCEL.increment(isReplication);
-            Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
-            Lease<InstanceInfo> leaseToCancel = null;
-            if (gMap != null) {
-                leaseToCancel = gMap.remove(id);
-            }
-            recentCanceledQueue.add(new Pair<Long, String>(System.currentTimeMillis(), appName + "(" + id + ")"));
-            InstanceStatus instanceStatus = overriddenInstanceStatusMap.remove(id);
-            if (instanceStatus != null) {
-                logger.debug("Removed instance id {} from the overridden map which has value {}", id, instanceStatus.name());
+        return internalCancel(registry.get(appName), appName, id, isReplication);
+    }
+
+    /**
+     * Same as {@link #internalCancel(String, String, boolean)}, with the leases of the application already looked
+     * up with {@link #getLocalLeases(String)}.
+     */
+    boolean internalCancel(@Nullable Map<String, Lease<InstanceInfo>> gMap, String appName, String id,
+                           boolean isReplication) {
+        CANCEL.increment(isReplication);
+        Lease<InstanceInfo> leaseToCancel = null;
+        if (gMap != null) {
+            leaseToCancel = gMap.remove(id);
+        }
+        recentCanceledQueue.add(new Pair<Long, String>(System.currentTimeMillis(), appName + "(" + id + ")"));
+        InstanceStatus instanceStatus = overriddenInstanceStatusMap.remove(id);
+        if (instanceStatus != null) {
+            statusOverrideVersion.incrementAndGet();
+            logger.debug("Removed instance id {} from the overridden map which has value {}", id, instanceStatus.name());
+        }
+        if (leaseToCancel == null) {
+            CANCEL_NOT_FOUND.increment(isReplication);
+            logger.warn("DS: Registry: cancel failed because Lease is not registered for: {}/{}", appName, id);
+            return false;
+        } else {
+            leaseToCancel.cancel();
+            if (gMap.isEmpty()) {
+                removeAppRenewsLastMin(appName, gMap);
             }
-            if (leaseToCancel == null) {
-                CANCEL_NOT_FOUND.increment(isReplication);
-                logger.warn("DS: Registry: cancel failed because Lease is not registered for: {}/{}", appName, id);
-                return false;
+            InstanceInfo instanceInfo = leaseToCancel.getHolder();
+            if (instanceInfo != null) {
+                instanceInfo.setActionType(ActionType.DELETED);
+                long sequence = recentlyChangedLog.cancelled(leaseToCancel);
+                instanceInfo.setLastUpdatedTimestamp();
+                publishChange(sequence, appName, instanceInfo.getVIPAddress(), instanceInfo.getSecureVipAddress());
             } else {
-                leaseToCancel.cancel();
-                InstanceInfo instanceInfo = leaseToCancel.getHolder();
-                String vip = null;
-                String svip = null;
-                if (instanceInfo != null) {
-                    instanceInfo.setActionType(ActionType.DELETED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(leaseToCancel));
-                    instanceInfo.setLastUpdatedTimestamp();
-                    vip = instanceInfo.getVIPAddress();
-                    svip = instanceInfo.getSecureVipAddress();
-                }
-                invalidateCache(appName, vip, svip);
-                logger.info("Cancelled instance {}/{} (replication={})", appName, id, isReplication);
+                invalidateCache(appName, null, null);
             }
-        } finally {
-            read.unlock();
+            logger.info("Cancelled instance {}/{} (replication={})", appName, id, isReplication);
         }
 
         synchronized (lock) {
@@ -349,8 +475,15 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * @see com.netflix.eureka.lease.LeaseManager#renew(java.lang.String, java.lang.String, boolean)
      */
     public boolean renew(String appName, String id, boolean isReplication) {
+        return renew(registry.get(appName), appName, id, isReplication);
+    }
+
+    /**
+     * Same as {@link #renew(String, String, boolean)}, with the leases of the application already looked up with
+     * {@link #getLocalLeases(String)}.
+     */
+    boolean renew(@Nullable Map<String, Lease<InstanceInfo>> gMap, String appName, String id, boolean isReplication) {
         RENEW.increment(isReplication);
-        Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
         Lease<InstanceInfo> leaseToRenew = null;
         if (gMap != null) {
             leaseToRenew = gMap.get(id);
@@ -361,7 +494,16 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             return false;
         } else {
             InstanceInfo instanceInfo = leaseToRenew.getHolder();
-            if (instanceInfo != null) {
+            long overrideVersion = getStatusOverrideVersion();
+            EffectiveStatus effectiveStatus = leaseToRenew.getEffectiveStatus();
+            if (instanceInfo != null && effectiveStatus != null
+                    && effectiveStatus.holdsFor(instanceInfo.getStatus(), overrideVersion, isReplication)) {
+                // Nothing the override rules depend on changed since the last renewal, which kept the status
+                if (effectiveStatus.isOverridden()) {
+                    // Keeps the override from expiring, as looking it up in the rules did
+                    overriddenInstanceStatusMap.get(id);
+                }
+            } else if (instanceInfo != null) {
                 // touchASGCache(instanceInfo.getASGName());
                 InstanceStatus overriddenInstanceStatus = this.getOverriddenInstanceStatus(
                         instanceInfo, leaseToRenew, isReplication);
@@ -378,10 +520,16 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                     overriddenInstanceStatus.name(),
                                     instanceInfo.getId());
                     instanceInfo.setStatusWithoutDirty(overriddenInstanceStatus);
-
+                    leaseToRenew.setEffectiveStatus(null);
+                    recentlyChangedLog.statusChanged(leaseToRenew);
+                } else {
+                    // The rules may not keep the status they set, so only a status they kept is confirmed
+                    leaseToRenew.setEffectiveStatus(new EffectiveStatus(overriddenInstanceStatus, overrideVersion,
+                            isReplication, overriddenInstanceStatusMap.containsKey(id)));
                 }
             }
             renewsLastMin.increment();
+            getAppRenewsLastMin(appName).increment();
             leaseToRenew.renew();
             return true;
         }
@@ -409,6 +557,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                     "Adding overridden status for instance id {} and the value is {}",
                     id, overriddenStatus.name());
             overriddenInstanceStatusMap.put(id, overriddenStatus);
+            statusOverrideVersion.incrementAndGet();
             List<InstanceInfo> instanceInfo = this.getInstancesById(id, false);
             if ((instanceInfo != null) && (!instanceInfo.isEmpty())) {
                 instanceInfo.iterator().next().setOverriddenStatus(overriddenStatus);
@@ -438,6 +587,7 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
             logger.info("Adding overridden status for instance id {} and the value is {}",
                     id, overriddenStatus.name());
             overriddenInstanceStatusMap.put(id, overriddenStatus);
+            statusOverrideVersion.incrementAndGet();
             InstanceInfo instanceInfo = this.getInstanceByAppAndId(appName, id, false);
             instanceInfo.setOverriddenStatus(overriddenStatus);
             logger.info("Set the overridden status for instance (appname:{}, id:{}} and the value is {} ",
@@ -462,53 +612,49 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
     public boolean statusUpdate(String appName, String id,
                                 InstanceStatus newStatus, String lastDirtyTimestamp,
                                 boolean isReplication) {
-        read.lock();
-        try {
-            STATUS_UPDATE.increment(isReplication);
-            Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
-            Lease<InstanceInfo> lease = null;
-            if (gMap != null) {
-                lease = gMap.get(id);
+        STATUS_UPDATE.increment(isReplication);
+        Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
+        Lease<InstanceInfo> lease = null;
+        if (gMap != null) {
+            lease = gMap.get(id);
+        }
+        if (lease == null) {
+            return false;
+        } else {
+            lease.renew();
+            InstanceInfo info = lease.getHolder();
+            // Lease is always created with its instance info object.
+            // This log statement is provided as a safeguard, in case this invariant is violated.
+            if (info == null) {
+                logger.error("Found Lease without a holder for instance id {}", id);
             }
-            if (lease == null) {
-                return false;
-            } else {
-                lease.renew();
-                InstanceInfo info = lease.getHolder();
-                // Lease is always created with its instance info object.
-                // This log statement is provided as a safeguard, in case this invariant is violated.
-                if (info == null) {
-                    logger.error("Found Lease without a holder for instance id {}", id);
+            if ((info != null) && !(info.getStatus().equals(newStatus))) {
+                // Mark service as UP if needed
+                if (InstanceStatus.UP.equals(newStatus)) {
+                    lease.serviceUp();
                 }
-                if ((info != null) && !(info.getStatus().equals(newStatus))) {
-                    // Mark service as UP if needed
-                    if (InstanceStatus.UP.equals(newStatus)) {
-                        lease.serviceUp();
-                    }
-                    // This is NAC overridden status
-                    overriddenInstanceStatusMap.put(id, newStatus);
-                    // Set it for transfer of overridden status to replica on
-                    // replica start up
-                    info.setOverriddenStatus(newStatus);
-                    long replicaDirtyTimestamp = 0;
-                    info.setStatusWithoutDirty(newStatus);
-                    if (lastDirtyTimestamp != null) {
-                        replicaDirtyTimestamp = Long.parseLong(lastDirtyTimestamp);
-                    }
-                    // If the replication's dirty timestamp is more than the existing one, just update
-                    // it to the replica's.
-                    if (replicaDirtyTimestamp > info.getLastDirtyTimestamp()) {
-                        info.setLastDirtyTimestamp(replicaDirtyTimestamp);
-                    }
-                    info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
-                    info.setLastUpdatedTimestamp();
-                    invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
+                // This is NAC overridden status
+                overriddenInstanceStatusMap.put(id, newStatus);
+                statusOverrideVersion.incrementAndGet();
+                // Set it for transfer of overridden status to replica on
+                // replica start up
+                info.setOverriddenStatus(newStatus);
+                long replicaDirtyTimestamp = 0;
+                info.setStatusWithoutDirty(newStatus);
+                if (lastDirtyTimestamp != null) {
+                    replicaDirtyTimestamp = Long.parseLong(lastDirtyTimestamp);
+                }
+                // If the replication's dirty timestamp is more than the existing one, just update
+                // it to the replica's.
+                if (replicaDirtyTimestamp > info.getLastDirtyTimestamp()) {
+                    info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                 }
-                return true;
+                info.setActionType(ActionType.MODIFIED);
+                long sequence = recentlyChangedLog.modified(lease);
+                info.setLastUpdatedTimestamp();
+                publishChange(sequence, appName, info.getVIPAddress(), info.getSecureVipAddress());
             }
-        } finally {
-            read.unlock();
+            return true;
         }
     }
 
@@ -528,48 +674,46 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                                         InstanceStatus newStatus,
                                         String lastDirtyTimestamp,
                                         boolean isReplication) {
-        read.lock();
-        try {
-            STATUS_OVERRIDE_DELETE.increment(isReplication);
-            Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
-            Lease<InstanceInfo> lease = null;
-            if (gMap != null) {
-                lease = gMap.get(id);
+        STATUS_OVERRIDE_DELETE.increment(isReplication);
+        Map<String, Lease<InstanceInfo>> gMap = registry.get(appName);
+        Lease<InstanceInfo> lease = null;
+        if (gMap != null) {
+            lease = gMap.get(id);
+        }
+        if (lease == null) {
+            return false;
+        } else {
+            lease.renew();
+            InstanceInfo info = lease.getHolder();
+
+            // Lease is always created with its instance info object.
+            // This log statement is provided as a safeguard, in case this invariant is violated.
+            if (info == null) {
+                logger.error("Found Lease without a holder for instance id {}", id);
             }
-            if (lease == null) {
-                return false;
-            } else {
-                lease.renew();
-                InstanceInfo info = lease.getHolder();
 
-                // Lease is always created with its instance info object.
-                // This log statement is provided as a safeguard, in case this invariant is violated.
-                if (info == null) {
-                    logger.error("Found Lease without a holder for instance id {}", id);
+            InstanceStatus currentOverride = overriddenInstanceStatusMap.remove(id);
+            if (currentOverride != null) {
+                statusOverrideVersion.incrementAndGet();
+            }
+            if (currentOverride != null && info != null) {
+                info.setOverriddenStatus(InstanceStatus.UNKNOWN);
+                info.setStatusWithoutDirty(newStatus);
+                long replicaDirtyTimestamp = 0;
+                if (lastDirtyTimestamp != null) {
+                    replicaDirtyTimestamp = Long.parseLong(lastDirtyTimestamp);
                 }
-
-                InstanceStatus currentOverride = overriddenInstanceStatusMap.remove(id);
-                if (currentOverride != null && info != null) {
-                    info.setOverriddenStatus(InstanceStatus.UNKNOWN);
-                    info.setStatusWithoutDirty(newStatus);
-                    long replicaDirtyTimestamp = 0;
-                    if (lastDirtyTimestamp != null) {
-                        replicaDirtyTimestamp = Long.parseLong(lastDirtyTimestamp);
-                    }
-                    // If the replication's dirty timestamp is more than the existing one, just update
-                    // it to the replica's.
-                    if (replicaDirtyTimestamp > info.getLastDirtyTimestamp()) {
-                        info.setLastDirtyTimestamp(replicaDirtyTimestamp);
-                    }
-                    info.setActionType(ActionType.MODIFIED);
-                    recentlyChangedQueue.add(new RecentlyChangedItem(lease));
-                    info.setLastUpdatedTimestamp();
-                    invalidateCache(appName, info.getVIPAddress(), info.getSecureVipAddress());
+                // If the replication's dirty timestamp is more than the existing one, just update
+                // it to the replica's.
+                if (replicaDirtyTimestamp > info.getLastDirtyTimestamp()) {
+                    info.setLastDirtyTimestamp(replicaDirtyTimestamp);
                 }
-                return true;
+                info.setActionType(ActionType.MODIFIED);
+                long sequence = recentlyChangedLog.modified(lease);
+                info.setLastUpdatedTimestamp();
+                publishChange(sequence, appName, info.getVIPAddress(), info.getSecureVipAddress());
             }
-        } finally {
-            read.unlock();
+            return true;
         }
     }
 
@@ -594,16 +738,12 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         // We collect first all expired items, to evict them in random order. For large eviction sets,
         // if we do not that, we might wipe out whole apps before self preservation kicks in. By randomizing it,
         // the impact should be evenly distributed across all applications.
+        // The expired leases are found in the lease expiry index, which only visits the leases due since the last run.
         List<Lease<InstanceInfo>> expiredLeases = new ArrayList<>();
-        for (Entry<String, Map<String, Lease<InstanceInfo>>> groupEntry : registry.entrySet()) {
-            Map<String, Lease<InstanceInfo>> leaseMap = groupEntry.getValue();
-            if (leaseMap != null) {
-                for (Entry<String, Lease<InstanceInfo>> leaseEntry : leaseMap.entrySet()) {
-                    Lease<InstanceInfo> lease = leaseEntry.getValue();
-                    if (lease.isExpired(additionalLeaseMs) && lease.getHolder() != null) {
-                        expiredLeases.add(lease);
-                    }
-                }
+        for (Lease<InstanceInfo> lease : leaseExpiryWheel.pollExpired(System.currentTimeMillis(), additionalLeaseMs)) {
+            // Leases replaced by a new registration are left in the index until they expire
+            if (lease.getHolder() != null && isRegistered(lease)) {
+                expiredLeases.add(lease);
             }
         }
 
@@ -631,6 +771,16 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 internalCancel(appName, id, false);
             }
         }
+        // The leases kept by self preservation are expired still, to be evicted by a later run
+        for (int i = Math.max(toEvict, 0); i < expiredLeases.size(); i++) {
+            leaseExpiryWheel.add(expiredLeases.get(i));
+        }
+    }
+
+    private boolean isRegistered(Lease<InstanceInfo> lease) {
+        InstanceInfo holder = lease.getHolder();
+        Map<String, Lease<InstanceInfo>> leaseMap = registry.get(holder.getAppName());
+        return leaseMap != null && leaseMap.get(holder.getId()) == lease;
     }
 
 
@@ -795,6 +945,51 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return apps;
     }
 
+    /**
+     * Computes the reconcile hash code of the instances matching the given filter, among the instances that
+     * {@link #getApplications()} would return, or {@link #getApplicationsFromMultipleRegions(String[])} if remote
+     * regions are given. Only the matching instances are looked up, the registry is not copied.
+     */
+    public String getReconcileHashCode(Predicate<InstanceInfo> filter, @Nullable String[] remoteRegions) {
+        if (remoteRegions == null || remoteRegions.length == 0) {
+            remoteRegions = serverConfig.disableTransparentFallbackToOtherRegion()
+                    ? EMPTY_STR_ARRAY
+                    : allKnownRemoteRegions;
+        }
+        // By application and instance id, as an instance from a remote region replaces a local one with the same id
+        Map<String, InstanceStatus> statuses = new HashMap<>();
+        for (Map<String, Lease<InstanceInfo>> leases : registry.values()) {
+            for (Lease<InstanceInfo> lease : leases.values()) {
+                InstanceInfo holder = lease.getHolder();
+                if (holder != null && filter.test(holder)) {
+                    statuses.put(holder.getAppName().toUpperCase(Locale.ROOT) + '/' + holder.getId(),
+                            holder.getStatus());
+                }
+            }
+        }
+        for (String remoteRegion : remoteRegions) {
+            RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+            if (remoteRegistry == null) {
+                continue;
+            }
+            for (Application application : remoteRegistry.getApplications().getRegisteredApplications()) {
+                if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                    for (InstanceInfo instance : application.getInstancesAsIsFromEureka()) {
+                        if (filter.test(instance)) {
+                            statuses.put(application.getName().toUpperCase(Locale.ROOT) + '/' + instance.getId(),
+                                    instance.getStatus());
+                        }
+                    }
+                }
+            }
+        }
+        TreeMap<String, AtomicInteger> instanceCountMap = new TreeMap<>();
+        for (InstanceStatus status : statuses.values()) {
+            instanceCountMap.computeIfAbsent(status.name(), k -> new AtomicInteger(0)).incrementAndGet();
+        }
+        return Applications.getReconcileHashCode(instanceCountMap);
+    }
+
     private boolean shouldFetchFromRemoteRegistry(String appName, String remoteRegion) {
         Set<String> whiteList = serverConfig.getRemoteRegionAppWhitelist(remoteRegion);
         if (null == whiteList) {
@@ -870,54 +1065,38 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      */
     @Deprecated
     public Applications getApplicationDeltas() {
+        return getApplicationDeltas(0);
+    }
+
+    private Applications getApplicationDeltas(long sinceSequence) {
         GET_ALL_CACHE_MISS_DELTA.increment();
         Applications apps = new Applications();
         apps.setVersion(responseCache.getVersionDelta().get());
-        Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        write.lock();
-        try {
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is : {}",
-                    this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
-                InstanceInfo instanceInfo = lease.getHolder();
-                logger.debug(
-                        "The instance id {} is found with status {} and actiontype {}",
-                        instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
-                Application app = applicationInstancesMap.get(instanceInfo
-                        .getAppName());
-                if (app == null) {
-                    app = new Application(instanceInfo.getAppName());
-                    applicationInstancesMap.put(instanceInfo.getAppName(), app);
-                    apps.addApplication(app);
-                }
-                app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
-            }
+        RegistryChangeLog.Snapshot snapshot = addRecentlyChangedInstances(apps, sinceSequence);
+        TreeMap<String, AtomicInteger> instanceCountMap = snapshot.toInstanceCountMap();
 
-            boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
-
-            if (!disableTransparentFallback) {
-                Applications allAppsInLocalRegion = getApplications(false);
+        boolean disableTransparentFallback = serverConfig.disableTransparentFallbackToOtherRegion();
 
-                for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
-                    Applications applications = remoteRegistry.getApplicationDeltas();
-                    for (Application application : applications.getRegisteredApplications()) {
-                        Application appInLocalRegistry =
-                                allAppsInLocalRegion.getRegisteredApplications(application.getName());
-                        if (appInLocalRegistry == null) {
-                            apps.addApplication(application);
-                        }
+        if (!disableTransparentFallback) {
+            // As in getApplications(true), an application is only taken from the first remote region serving it
+            Set<String> countedRemoteApps = new HashSet<>();
+            for (RemoteRegionRegistry remoteRegistry : this.regionNameVSRemoteRegistry.values()) {
+                Applications applications = remoteRegistry.getApplicationDeltas();
+                for (Application application : applications.getRegisteredApplications()) {
+                    if (!hasLocalInstances(application.getName())) {
+                        apps.addApplication(application);
+                    }
+                }
+                for (Application application : remoteRegistry.getApplications().getRegisteredApplications()) {
+                    if (!hasLocalInstances(application.getName()) && countedRemoteApps.add(application.getName())) {
+                        application.populateInstanceCountMap(instanceCountMap);
                     }
                 }
             }
-
-            Applications allApps = getApplications(!disableTransparentFallback);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
-        } finally {
-            write.unlock();
         }
+
+        apps.setAppsHashCode(Applications.getReconcileHashCode(instanceCountMap));
+        return apps;
     }
 
     /**
@@ -939,6 +1118,45 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      * not exist locally or in remote regions.
      */
     public Applications getApplicationDeltasFromMultipleRegions(String[] remoteRegions) {
+        return getApplicationDeltasFromMultipleRegions(remoteRegions, 0);
+    }
+
+    /**
+     * Gets the changes made to the registry since the given sequence number, which was returned by
+     * {@link #getPublishedRegistrySequence()} before a registry payload was built, so that a client holding that
+     * payload gets exactly the changes it misses.
+     *
+     * <p>
+     * Only the changes of the local region are tracked by sequence number. The changes of the requested remote
+     * regions are those of {@link #getApplicationDeltasFromMultipleRegions(String[])}.
+     * </p>
+     *
+     * @param sinceSequence the sequence number of the last change the client has.
+     * @param remoteRegions the remote regions to include, or null to get the same delta as
+     *                      {@link #getApplicationDeltas()}.
+     * @return the delta, or null if the changes made since the given sequence number are no longer retained.
+     */
+    @Nullable
+    public Applications getApplicationDeltasSince(long sinceSequence, @Nullable String[] remoteRegions) {
+        if (!recentlyChangedLog.retainsChangesSince(sinceSequence)) {
+            return null;
+        }
+        Applications apps = remoteRegions == null
+                ? getApplicationDeltas(sinceSequence)
+                : getApplicationDeltasFromMultipleRegions(remoteRegions, sinceSequence);
+        // Changes evicted while the log was walked may have been skipped
+        return recentlyChangedLog.retainsChangesSince(sinceSequence) ? apps : null;
+    }
+
+    /**
+     * @return a sequence number such that the registry reflects all the changes up to it, see
+     * {@link #getApplicationDeltasSince(long, String[])}
+     */
+    long getPublishedRegistrySequence() {
+        return recentlyChangedLog.getPublishedSequence();
+    }
+
+    private Applications getApplicationDeltasFromMultipleRegions(String[] remoteRegions, long sinceSequence) {
         if (null == remoteRegions) {
             remoteRegions = allKnownRemoteRegions; // null means all remote regions.
         }
@@ -953,13 +1171,68 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
 
         Applications apps = new Applications();
         apps.setVersion(responseCache.getVersionDeltaWithRegions().get());
+        RegistryChangeLog.Snapshot snapshot = addRecentlyChangedInstances(apps, sinceSequence);
+        TreeMap<String, AtomicInteger> instanceCountMap = snapshot.toInstanceCountMap();
+
+        if (includeRemoteRegion) {
+            for (String remoteRegion : remoteRegions) {
+                RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
+                if (null != remoteRegistry) {
+                    Applications remoteAppsDelta = remoteRegistry.getApplicationDeltas();
+                    if (null != remoteAppsDelta) {
+                        for (Application application : remoteAppsDelta.getRegisteredApplications()) {
+                            if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                                Application appInstanceTillNow =
+                                        apps.getRegisteredApplications(application.getName());
+                                if (appInstanceTillNow == null) {
+                                    appInstanceTillNow = new Application(application.getName());
+                                    apps.addApplication(appInstanceTillNow);
+                                }
+                                for (InstanceInfo instanceInfo : application.getInstances()) {
+                                    appInstanceTillNow.addInstance(new InstanceInfo(instanceInfo));
+                                }
+                            }
+                        }
+                    }
+                    for (Application application : remoteRegistry.getApplications().getRegisteredApplications()) {
+                        if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
+                            application.populateInstanceCountMap(instanceCountMap);
+                        }
+                    }
+                }
+            }
+        }
+
+        apps.setAppsHashCode(Applications.getReconcileHashCode(instanceCountMap));
+        return apps;
+    }
+
+    /**
+     * Adds copies of the instances from the delta log changed after the given sequence number to the given
+     * applications, and returns the log snapshot the instance counts of which match the state the delta brings a
+     * client to.
+     *
+     * <p>
+     * The log is walked without any lock, so writers are never blocked by a delta build. As the copied instances
+     * are live registry objects, they may already reflect changes appended to the log after the initial snapshot
+     * was taken. Such changes are picked up by re-walking the log until no new entry shows up, or until
+     * {@link #MAX_DELTA_SNAPSHOT_ROUNDS} rounds are done under a sustained write load.
+     * </p>
+     */
+    private RegistryChangeLog.Snapshot addRecentlyChangedInstances(Applications apps, long sinceSequence) {
+        logger.debug("The number of elements in the delta queue is : {}", recentlyChangedLog.size());
         Map<String, Application> applicationInstancesMap = new HashMap<String, Application>();
-        write.lock();
-        try {
-            Iterator<RecentlyChangedItem> iter = this.recentlyChangedQueue.iterator();
-            logger.debug("The number of elements in the delta queue is :{}", this.recentlyChangedQueue.size());
-            while (iter.hasNext()) {
-                Lease<InstanceInfo> lease = iter.next().getLeaseInfo();
+        RegistryChangeLog.Snapshot snapshot = recentlyChangedLog.snapshot();
+        long lastAddedSequence = sinceSequence;
+        for (int round = 1; ; round++) {
+            for (RecentlyChangedItem item : recentlyChangedLog) {
+                if (item.getSequence() <= lastAddedSequence) {
+                    continue;
+                }
+                if (item.getSequence() > snapshot.getSequence()) {
+                    break;
+                }
+                Lease<InstanceInfo> lease = item.getLeaseInfo();
                 InstanceInfo instanceInfo = lease.getHolder();
                 logger.debug("The instance id {} is found with status {} and actiontype {}",
                         instanceInfo.getId(), instanceInfo.getStatus().name(), instanceInfo.getActionType().name());
@@ -971,39 +1244,45 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
                 }
                 app.addInstance(new InstanceInfo(decorateInstanceInfo(lease)));
             }
+            lastAddedSequence = snapshot.getSequence();
 
-            if (includeRemoteRegion) {
-                for (String remoteRegion : remoteRegions) {
-                    RemoteRegionRegistry remoteRegistry = regionNameVSRemoteRegistry.get(remoteRegion);
-                    if (null != remoteRegistry) {
-                        Applications remoteAppsDelta = remoteRegistry.getApplicationDeltas();
-                        if (null != remoteAppsDelta) {
-                            for (Application application : remoteAppsDelta.getRegisteredApplications()) {
-                                if (shouldFetchFromRemoteRegistry(application.getName(), remoteRegion)) {
-                                    Application appInstanceTillNow =
-                                            apps.getRegisteredApplications(application.getName());
-                                    if (appInstanceTillNow == null) {
-                                        appInstanceTillNow = new Application(application.getName());
-                                        apps.addApplication(appInstanceTillNow);
-                                    }
-                                    for (InstanceInfo instanceInfo : application.getInstances()) {
-                                        appInstanceTillNow.addInstance(new InstanceInfo(instanceInfo));
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
+            RegistryChangeLog.Snapshot latest = recentlyChangedLog.snapshot();
+            if (latest.getSequence() == snapshot.getSequence() || round >= MAX_DELTA_SNAPSHOT_ROUNDS) {
+                return snapshot;
             }
-
-            Applications allApps = getApplicationsFromMultipleRegions(remoteRegions);
-            apps.setAppsHashCode(allApps.getReconcileHashCode());
-            return apps;
-        } finally {
-            write.unlock();
+            snapshot = latest;
         }
     }
 
+    /**
+     * @return leases of the locally registered instances of the given application, keyed by instance id, or null
+     * if the application was never registered locally
+     */
+    @Nullable
+    Map<String, Lease<InstanceInfo>> getLocalLeases(String appName) {
+        return registry.get(appName);
+    }
+
+    /**
+     * @return live view of the names of the applications registered in the local region, in the order in which
+     * {@link #getApplicationsFromLocalRegionOnly()} lists them
+     */
+    Collection<String> getLocalApplicationNames() {
+        return registry.keySet();
+    }
+
+    /**
+     * @return true if {@link #getApplications()} only returns the applications of the local region
+     */
+    boolean isLocalRegionOnlyView() {
+        return serverConfig.disableTransparentFallbackToOtherRegion() || allKnownRemoteRegions.length == 0;
+    }
+
+    private boolean hasLocalInstances(String appName) {
+        Map<String, Lease<InstanceInfo>> leaseMap = registry.get(appName);
+        return leaseMap != null && !leaseMap.isEmpty();
+    }
+
     /**
      * Gets the {@link InstanceInfo} information.
      *
@@ -1143,6 +1422,39 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         return renewsLastMin.getCount();
     }
 
+    @Override
+    public long getNumOfRenewsInLastMin(String appName) {
+        SlidingWindowRate appRenewsLastMin = renewsLastMinByApp.get(appName);
+        return appRenewsLastMin == null ? 0 : appRenewsLastMin.getCount();
+    }
+
+    private SlidingWindowRate getAppRenewsLastMin(String appName) {
+        SlidingWindowRate appRenewsLastMin = renewsLastMinByApp.get(appName);
+        if (appRenewsLastMin == null) {
+            appRenewsLastMin = renewsLastMinByApp.computeIfAbsent(appName, name -> {
+                SlidingWindowRate rate = new SlidingWindowRate(RENEW_RATE_WINDOW_MS, APP_RENEW_RATE_BUCKETS);
+                rate.start();
+                return rate;
+            });
+        }
+        return appRenewsLastMin;
+    }
+
+    /**
+     * Stops counting the renewals of an application once its last lease is cancelled or expired. A renewal rate is
+     * created again when one of its instances registers and renews.
+     */
+    private void removeAppRenewsLastMin(String appName, Map<String, Lease<InstanceInfo>> leases) {
+        renewsLastMinByApp.computeIfPresent(appName, (name, rate) -> {
+            // Kept if an instance registered in the meantime
+            if (!leases.isEmpty()) {
+                return rate;
+            }
+            rate.stop();
+            return null;
+        });
+    }
+
 
     /**
      * Gets the threshold for the renewals per minute.
@@ -1185,30 +1497,24 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         responseCache.invalidate(appName, vipAddress, secureVipAddress);
     }
 
+    /**
+     * Invalidates the cache after a change was appended to the delta log, then marks the change as published.
+     */
+    private void publishChange(long sequence, String appName, @Nullable String vipAddress,
+                               @Nullable String secureVipAddress) {
+        try {
+            invalidateCache(appName, vipAddress, secureVipAddress);
+        } finally {
+            recentlyChangedLog.published(sequence);
+        }
+    }
+
     protected void updateRenewsPerMinThreshold() {
         this.numberOfRenewsPerMinThreshold = (int) (this.expectedNumberOfClientsSendingRenews
                 * (60.0 / serverConfig.getExpectedClientRenewalIntervalSeconds())
                 * serverConfig.getRenewalPercentThreshold());
     }
 
-    private static final class RecentlyChangedItem {
-        private long lastUpdateTime;
-        private Lease<InstanceInfo> leaseInfo;
-
-        public RecentlyChangedItem(Lease<InstanceInfo> lease) {
-            this.leaseInfo = lease;
-            lastUpdateTime = System.currentTimeMillis();
-        }
-
-        public long getLastUpdateTime() {
-            return this.lastUpdateTime;
-        }
-
-        public Lease<InstanceInfo> getLeaseInfo() {
-            return this.leaseInfo;
-        }
-    }
-
     protected void postInit() {
         renewsLastMin.start();
         if (evictionTaskRef.get() != null) {
@@ -1228,6 +1534,9 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
         deltaRetentionTimer.cancel();
         evictionTimer.cancel();
         renewsLastMin.stop();
+        for (SlidingWindowRate appRenewsLastMin : renewsLastMinByApp.values()) {
+            appRenewsLastMin.stop();
+        }
         responseCache.stop();
     }
 
@@ -1329,6 +1638,17 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
      */
     protected abstract InstanceStatusOverrideRule getInstanceInfoOverrideRule();
 
+    /**
+     * Gets the version of the state the {@link #getInstanceInfoOverrideRule()} depends on, besides the instance and
+     * its lease. The status an instance kept on renewal is evaluated again on the next renewal only once the version
+     * changed, or the instance status did.
+     *
+     * @return the version of the status overrides, to be extended by the registries whose rule depends on more.
+     */
+    protected long getStatusOverrideVersion() {
+        return statusOverrideVersion.get();
+    }
+
     protected InstanceInfo.InstanceStatus getOverriddenInstanceStatus(InstanceInfo r,
                                                                     Lease<InstanceInfo> existingLease,
                                                                     boolean isReplication) {
@@ -1342,15 +1662,8 @@ public abstract class AbstractInstanceRegistry implements InstanceRegistry {
 
             @Override
             public void run() {
-                Iterator<RecentlyChangedItem> it = recentlyChangedQueue.iterator();
-                while (it.hasNext()) {
-                    if (it.next().getLastUpdateTime() <
-                            System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue()) {
-                        it.remove();
-                    } else {
-                        break;
-                    }
-                }
+                recentlyChangedLog.removeOlderThan(
+                        System.currentTimeMillis() - serverConfig.getRetentionTimeInMSInDeltaQueue());
             }
 
         };
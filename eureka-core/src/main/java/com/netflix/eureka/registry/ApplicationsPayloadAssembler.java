@@ -0,0 +1,319 @@
+package com.netflix.eureka.registry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.resources.ServerCodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Assembles the full local registry payload from encoded per-application fragments, so that a change to one
+ * application only requires that application to be encoded again.
+ *
+ * <p>
+ * The position of the applications within the encoded {@link Applications} envelope is not known to the codecs, so
+ * it is derived once per format by encoding the envelope with zero, one and two applications and comparing the
+ * results. If the resulting layout cannot reproduce the two application payload byte for byte (for example with a
+ * codec that encodes a single element list differently), the format is marked as unsupported and the caller falls
+ * back to encoding the whole registry.
+ * </p>
+ *
+ * <p>
+ * Fragments are dropped on {@link #invalidate(String)}, and in any case once older than the configured expiry, as
+ * they also carry data (lease timestamps) that changes without an invalidation.
+ * </p>
+ */
+class ApplicationsPayloadAssembler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationsPayloadAssembler.class);
+
+    private static final Layout UNSUPPORTED = new Layout(null, null, null);
+    private static final Long ENVELOPE_VERSION = 1L;
+
+    private final ServerCodecs serverCodecs;
+    private final AbstractInstanceRegistry registry;
+    private final long fragmentExpiryMs;
+
+    private final ConcurrentMap<Key, Layout> layouts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AppFragments> fragmentsByApp = new ConcurrentHashMap<>();
+
+    ApplicationsPayloadAssembler(ServerCodecs serverCodecs, AbstractInstanceRegistry registry, long fragmentExpiryMs) {
+        this.serverCodecs = serverCodecs;
+        this.registry = registry;
+        this.fragmentExpiryMs = fragmentExpiryMs;
+    }
+
+    /**
+     * Drops the fragments of the given application. A fragment being encoded concurrently is attached to the
+     * dropped entry, so it can never be served after this call.
+     */
+    void invalidate(String appName) {
+        fragmentsByApp.remove(appName);
+    }
+
+    /**
+     * Drops the fragments of all the applications.
+     */
+    void invalidateAll() {
+        fragmentsByApp.clear();
+    }
+
+    /**
+     * Writes the local registry payload for the format of the given key.
+     *
+     * @return false if the payload cannot be assembled for this format, in which case nothing was written
+     */
+    boolean assemble(Key key, OutputStream out) throws IOException {
+        EncoderWrapper encoder = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
+        Layout layout = getLayout(key, encoder);
+        if (layout == null || layout == UNSUPPORTED) {
+            return false;
+        }
+
+        List<Fragment> fragments = new ArrayList<>();
+        TreeMap<String, AtomicInteger> instanceCountMap = new TreeMap<>();
+        for (String appName : registry.getLocalApplicationNames()) {
+            Fragment fragment = getFragment(key, encoder, layout, appName);
+            if (fragment != null) {
+                fragments.add(fragment);
+                for (Map.Entry<String, Integer> entry : fragment.instanceCounts.entrySet()) {
+                    instanceCountMap.computeIfAbsent(entry.getKey(), k -> new AtomicInteger(0))
+                            .addAndGet(entry.getValue());
+                }
+            }
+        }
+
+        byte[] envelope = encode(encoder, newEnvelope(Applications.getReconcileHashCode(instanceCountMap)));
+        int insertionPoint = layout.insertionPoint(envelope);
+        if (insertionPoint < 0) {
+            return false;
+        }
+        out.write(envelope, 0, insertionPoint);
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                out.write(layout.separator);
+            }
+            out.write(fragments.get(i).bytes);
+        }
+        out.write(envelope, insertionPoint, envelope.length - insertionPoint);
+        return true;
+    }
+
+    private Fragment getFragment(Key key, EncoderWrapper encoder, Layout layout, String appName) throws IOException {
+        AppFragments appFragments = fragmentsByApp.get(appName);
+        if (appFragments == null || appFragments.isExpired()) {
+            if (appFragments != null) {
+                fragmentsByApp.remove(appName, appFragments);
+            }
+            AppFragments newAppFragments = new AppFragments(System.currentTimeMillis() + fragmentExpiryMs);
+            appFragments = fragmentsByApp.putIfAbsent(appName, newAppFragments);
+            if (appFragments == null) {
+                appFragments = newAppFragments;
+            }
+        }
+        Fragment fragment = appFragments.fragments.get(key);
+        if (fragment == null) {
+            // Read the registry only after the holder is attached, so that a concurrent invalidation discards it
+            Application application = registry.getApplication(appName, false);
+            if (application == null) {
+                return null;
+            }
+            fragment = newFragment(encoder, layout, application);
+            appFragments.fragments.put(key, fragment);
+        }
+        return fragment;
+    }
+
+    private Layout getLayout(Key key, EncoderWrapper encoder) throws IOException {
+        Layout layout = layouts.get(key);
+        if (layout != null) {
+            return layout;
+        }
+        List<Application> samples = new ArrayList<>(2);
+        Iterator<String> appNames = registry.getLocalApplicationNames().iterator();
+        while (samples.size() < 2 && appNames.hasNext()) {
+            Application application = registry.getApplication(appNames.next(), false);
+            if (application != null) {
+                samples.add(application);
+            }
+        }
+        if (samples.size() < 2) {
+            // Not enough applications to derive the layout yet, the full encoding is cheap anyway
+            return null;
+        }
+        layout = deriveLayout(encoder, samples.get(0), samples.get(1));
+        if (layout == UNSUPPORTED) {
+            logger.info("Full registry payloads for {} cannot be assembled from application fragments",
+                    key.toStringCompact());
+        }
+        layouts.putIfAbsent(key, layout);
+        return layout;
+    }
+
+    private Layout deriveLayout(EncoderWrapper encoder, Application first, Application second) throws IOException {
+        byte[] none = encode(encoder, newEnvelope(""));
+        byte[] one = encode(encoder, newEnvelope("", first));
+        byte[] two = encode(encoder, newEnvelope("", first, second));
+
+        int prefixLength = commonPrefixLength(none, one);
+        int suffixLength = Math.min(commonSuffixLength(none, one), none.length - prefixLength);
+        if (prefixLength + suffixLength != none.length) {
+            return UNSUPPORTED;
+        }
+        Layout candidate = new Layout(Arrays.copyOfRange(none, 0, prefixLength),
+                Arrays.copyOfRange(none, prefixLength, none.length), null);
+        byte[] firstFragment = candidate.extractFragment(one);
+        byte[] secondFragment = candidate.extractFragment(encode(encoder, newEnvelope("", second)));
+
+        int separatorLength = two.length - none.length - firstFragment.length - secondFragment.length;
+        if (firstFragment.length == 0 || secondFragment.length == 0 || separatorLength < 0) {
+            return UNSUPPORTED;
+        }
+        byte[] separator = Arrays.copyOfRange(two, prefixLength + firstFragment.length,
+                prefixLength + firstFragment.length + separatorLength);
+
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream(two.length);
+        assembled.write(none, 0, prefixLength);
+        assembled.write(firstFragment);
+        assembled.write(separator);
+        assembled.write(secondFragment);
+        assembled.write(none, prefixLength, suffixLength);
+        if (!Arrays.equals(assembled.toByteArray(), two)) {
+            return UNSUPPORTED;
+        }
+        return new Layout(candidate.prefix, candidate.suffix, separator);
+    }
+
+    private Fragment newFragment(EncoderWrapper encoder, Layout layout, Application application) throws IOException {
+        byte[] one = encode(encoder, newEnvelope("", application));
+        Map<String, AtomicInteger> counts = new HashMap<>();
+        application.populateInstanceCountMap(counts);
+        Map<String, Integer> instanceCounts = new HashMap<>();
+        for (Map.Entry<String, AtomicInteger> entry : counts.entrySet()) {
+            instanceCounts.put(entry.getKey(), entry.getValue().get());
+        }
+        return new Fragment(layout.extractFragment(one), instanceCounts);
+    }
+
+    private static Applications newEnvelope(String appsHashCode, Application... applications) {
+        Applications envelope = new Applications();
+        envelope.setVersion(ENVELOPE_VERSION);
+        envelope.setAppsHashCode(appsHashCode);
+        for (Application application : applications) {
+            envelope.addApplication(application);
+        }
+        return envelope;
+    }
+
+    private static byte[] encode(EncoderWrapper encoder, Applications applications) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(applications, out);
+        return out.toByteArray();
+    }
+
+    private static int commonPrefixLength(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < length && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int commonSuffixLength(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < length && a[a.length - 1 - i] == b[b.length - 1 - i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Where the applications go in the encoded envelope. The prefix and suffix are those of an envelope with no
+     * application and an empty hash code. Depending on the codec, the hash code is encoded either before or after
+     * the applications, so only one of them matches the envelope of an actual payload.
+     */
+    private static final class Layout {
+        private final byte[] prefix;
+        private final byte[] suffix;
+        private final byte[] separator;
+
+        private Layout(byte[] prefix, byte[] suffix, byte[] separator) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.separator = separator;
+        }
+
+        /**
+         * @param single envelope with a single application and an empty hash code
+         */
+        private byte[] extractFragment(byte[] single) {
+            return Arrays.copyOfRange(single, prefix.length, single.length - suffix.length);
+        }
+
+        /**
+         * @return position at which the applications are to be inserted in the given envelope with no
+         * application, or -1 if the envelope does not match this layout
+         */
+        private int insertionPoint(byte[] envelope) {
+            if (regionMatches(envelope, 0, prefix)) {
+                return prefix.length;
+            }
+            if (regionMatches(envelope, envelope.length - suffix.length, suffix)) {
+                return envelope.length - suffix.length;
+            }
+            return -1;
+        }
+
+        private static boolean regionMatches(byte[] array, int offset, byte[] region) {
+            if (offset < 0 || offset + region.length > array.length) {
+                return false;
+            }
+            for (int i = 0; i < region.length; i++) {
+                if (array[offset + i] != region[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class AppFragments {
+        private final long expiryTimestamp;
+        private final ConcurrentMap<Key, Fragment> fragments = new ConcurrentHashMap<>();
+
+        private AppFragments(long expiryTimestamp) {
+            this.expiryTimestamp = expiryTimestamp;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiryTimestamp;
+        }
+    }
+
+    private static final class Fragment {
+        private final byte[] bytes;
+        private final Map<String, Integer> instanceCounts;
+
+        private Fragment(byte[] bytes, Map<String, Integer> instanceCounts) {
+            this.bytes = bytes;
+            this.instanceCounts = instanceCounts;
+        }
+    }
+}
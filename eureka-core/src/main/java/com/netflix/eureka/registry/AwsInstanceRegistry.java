@@ -68,6 +68,12 @@ public class AwsInstanceRegistry extends PeerAwareInstanceRegistryImpl {
         return this.instanceStatusOverrideRule;
     }
 
+    @Override
+    protected long getStatusOverrideVersion() {
+        // The ASG status is one of the rules
+        return super.getStatusOverrideVersion() + awsAsgUtil.getStatusVersion();
+    }
+
     public AwsAsgUtil getAwsAsgUtil() {
         return awsAsgUtil;
     }
@@ -0,0 +1,19 @@
+package com.netflix.eureka.registry;
+
+import java.io.IOException;
+
+/**
+ * Compression applied to the cached payloads, as negotiated with the clients through the
+ * <em>Accept-Encoding</em> header.
+ *
+ * @see CompressionCodecs
+ */
+public interface CompressionCodec {
+
+    /**
+     * @return content coding name, as used in the <em>Accept-Encoding</em> and <em>Content-Encoding</em> headers
+     */
+    String getEncoding();
+
+    byte[] compress(byte[] payload) throws IOException;
+}
@@ -0,0 +1,103 @@
+package com.netflix.eureka.registry;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The {@link CompressionCodec}s supported by the server, in order of preference.
+ */
+public final class CompressionCodecs {
+
+    public static final CompressionCodec GZIP = new GzipCodec();
+    public static final CompressionCodec DEFLATE = new DeflateCodec();
+
+    private static final CompressionCodec[] SUPPORTED = {GZIP, DEFLATE};
+
+    private CompressionCodecs() {
+    }
+
+    /**
+     * Selects the preferred codec among the ones accepted by the client.
+     *
+     * @param acceptEncoding value of the <em>Accept-Encoding</em> request header
+     * @return the codec to use, or null if the payload should be sent uncompressed
+     */
+    @Nullable
+    public static CompressionCodec forAcceptEncoding(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        for (CompressionCodec codec : SUPPORTED) {
+            if (isAccepted(acceptEncoding, codec.getEncoding())) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAccepted(String acceptEncoding, String encoding) {
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private abstract static class StreamCodec implements CompressionCodec {
+
+        @Override
+        public byte[] compress(byte[] payload) throws IOException {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(32, payload.length / 4));
+            try (DeflaterOutputStream out = newStream(bos)) {
+                out.write(payload);
+                out.finish();
+            }
+            return bos.toByteArray();
+        }
+
+        protected abstract DeflaterOutputStream newStream(OutputStream out) throws IOException;
+    }
+
+    private static final class GzipCodec extends StreamCodec {
+
+        @Override
+        public String getEncoding() {
+            return "gzip";
+        }
+
+        @Override
+        protected DeflaterOutputStream newStream(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out);
+        }
+    }
+
+    private static final class DeflateCodec extends StreamCodec {
+
+        @Override
+        public String getEncoding() {
+            return "deflate";
+        }
+
+        @Override
+        protected DeflaterOutputStream newStream(OutputStream out) throws IOException {
+            return new DeflaterOutputStream(out);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.netflix.eureka.registry;
+
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+
+/**
+ * The status an instance was found to keep when its lease was last renewed, that is the status the
+ * {@link com.netflix.eureka.registry.rule.InstanceStatusOverrideRule} of the registry left unchanged. It holds for as
+ * long as the instance keeps that status and the status overrides the rule depends on do not change, see
+ * {@link AbstractInstanceRegistry#getStatusOverrideVersion()}.
+ */
+public final class EffectiveStatus {
+
+    private final InstanceStatus status;
+    private final long overrideVersion;
+    private final boolean isReplication;
+    private final boolean overridden;
+
+    EffectiveStatus(InstanceStatus status, long overrideVersion, boolean isReplication, boolean overridden) {
+        this.status = status;
+        this.overrideVersion = overrideVersion;
+        this.isReplication = isReplication;
+        this.overridden = overridden;
+    }
+
+    boolean holdsFor(InstanceStatus status, long overrideVersion, boolean isReplication) {
+        return this.status == status && this.overrideVersion == overrideVersion && this.isReplication == isReplication;
+    }
+
+    /**
+     * Whether the instance had a status override when the status was evaluated.
+     */
+    boolean isOverridden() {
+        return overridden;
+    }
+}
@@ -78,6 +78,14 @@ public interface InstanceRegistry extends LeaseManager<InstanceInfo>, LookupServ
 
     long getNumOfRenewsInLastMin();
 
+    /**
+     * Gets the number of renewals of the instances of the given application in the last minute.
+     *
+     * @param appName the application name of the instances.
+     * @return the number of renewals, 0 if the application was not renewed since the registry started.
+     */
+    long getNumOfRenewsInLastMin(String appName);
+
     int getNumOfRenewsPerMinThreshold();
 
     int isBelowRenewThresold();
@@ -1,6 +1,7 @@
 package com.netflix.eureka.registry;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.Version;
 
 import javax.annotation.Nullable;
@@ -26,20 +27,44 @@ public class Key {
     private final String hashKey;
     private final EntityType entityType;
     private final EurekaAccept eurekaAccept;
+    private final long sinceSequence;
+    private final RegistryInterest interest;
 
     public Key(EntityType entityType, String entityName, KeyType type, Version v, EurekaAccept eurekaAccept) {
         this(entityType, entityName, type, v, eurekaAccept, null);
     }
 
     public Key(EntityType entityType, String entityName, KeyType type, Version v, EurekaAccept eurekaAccept, @Nullable String[] regions) {
+        this(entityType, entityName, type, v, eurekaAccept, regions, -1);
+    }
+
+    /**
+     * @param sinceSequence for a delta, the registry sequence number after which changes are requested, or -1 for
+     *                      the changes retained in the delta queue
+     */
+    public Key(EntityType entityType, String entityName, KeyType type, Version v, EurekaAccept eurekaAccept,
+               @Nullable String[] regions, long sinceSequence) {
+        this(entityType, entityName, type, v, eurekaAccept, regions, sinceSequence, null);
+    }
+
+    /**
+     * @param interest for the full registry or a delta, the instances the payload is restricted to, or null for
+     *                 the whole registry
+     */
+    public Key(EntityType entityType, String entityName, KeyType type, Version v, EurekaAccept eurekaAccept,
+               @Nullable String[] regions, long sinceSequence, @Nullable RegistryInterest interest) {
         this.regions = regions;
         this.entityType = entityType;
         this.entityName = entityName;
         this.requestType = type;
         this.requestVersion = v;
         this.eurekaAccept = eurekaAccept;
+        this.sinceSequence = sinceSequence;
+        this.interest = interest;
         hashKey = this.entityType + this.entityName + (null != this.regions ? Arrays.toString(this.regions) : "")
-                + requestType.name() + requestVersion.name() + this.eurekaAccept.name();
+                + requestType.name() + requestVersion.name() + this.eurekaAccept.name()
+                + (sinceSequence >= 0 ? "@" + sinceSequence : "")
+                + (interest != null ? "{" + interest + "}" : "");
     }
 
     public String getName() {
@@ -74,8 +99,29 @@ public class Key {
         return regions;
     }
 
+    public boolean hasSinceSequence() {
+        return sinceSequence >= 0;
+    }
+
+    public long getSinceSequence() {
+        return sinceSequence;
+    }
+
+    public boolean hasInterest() {
+        return interest != null;
+    }
+
+    @Nullable
+    public RegistryInterest getInterest() {
+        return interest;
+    }
+
     public Key cloneWithoutRegions() {
-        return new Key(entityType, entityName, requestType, requestVersion, eurekaAccept);
+        return new Key(entityType, entityName, requestType, requestVersion, eurekaAccept, null, sinceSequence, interest);
+    }
+
+    public Key cloneWithoutInterest() {
+        return new Key(entityType, entityName, requestType, requestVersion, eurekaAccept, regions, sinceSequence, null);
     }
 
     @Override
@@ -99,6 +145,12 @@ public class Key {
         if(regions != null) {
             sb.append(", regions=").append(Arrays.toString(regions));
         }
+        if (sinceSequence >= 0) {
+            sb.append(", since=").append(sinceSequence);
+        }
+        if (interest != null) {
+            sb.append(", interest={").append(interest).append('}');
+        }
         sb.append('}');
         return sb.toString();
     }
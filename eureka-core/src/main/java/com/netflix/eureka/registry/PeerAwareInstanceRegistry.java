@@ -19,6 +19,8 @@ package com.netflix.eureka.registry;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.shared.Application;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource;
 
 import java.util.List;
@@ -52,4 +54,11 @@ public interface PeerAwareInstanceRegistry extends InstanceRegistry {
      void register(InstanceInfo info, boolean isReplication);
 
      void statusUpdate(final String asgName, final ASGResource.ASGStatus newStatus, final boolean isReplication);
+
+    /**
+     * Applies a batch of replication events received from a peer eureka node.
+     *
+     * @return the response to each event, in the order of the events in the batch
+     */
+     ReplicationListResponse applyReplicationBatch(ReplicationList replicationList);
 }
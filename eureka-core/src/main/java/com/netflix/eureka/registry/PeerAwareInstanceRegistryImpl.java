@@ -18,11 +18,14 @@ package com.netflix.eureka.registry;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.function.Predicate;
 
 import com.netflix.appinfo.AmazonInfo;
 import com.netflix.appinfo.AmazonInfo.MetaDataKey;
@@ -46,10 +49,14 @@ import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.cluster.PeerEurekaNode;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.lease.Lease;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.ServerCodecs;
-import com.netflix.eureka.util.MeasuredRate;
+import com.netflix.eureka.util.SlidingWindowRate;
 import com.netflix.servo.DefaultMonitorRegistry;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.monitor.Monitors;
@@ -59,6 +66,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.ws.rs.core.Response.Status;
 
 import static com.netflix.eureka.Names.METRIC_REGISTRY_PREFIX;
 
@@ -97,7 +105,18 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
     private static final String US_EAST_1 = "us-east-1";
     private static final int PRIME_PEER_NODES_RETRY_MS = 30000;
 
+    private static final ReplicationInstanceResponse REPLICATION_OK =
+            new ReplicationInstanceResponse(Status.OK.getStatusCode(), null);
+    private static final ReplicationInstanceResponse REPLICATION_NOT_FOUND =
+            new ReplicationInstanceResponse(Status.NOT_FOUND.getStatusCode(), null);
+    private static final ReplicationInstanceResponse REPLICATION_ERROR =
+            new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null);
+
     private long startupTime = 0;
+    // Startup phases, see syncUp and openForTraffic
+    private volatile long syncUpFetchTimeMs;
+    private volatile long syncUpLoadTimeMs;
+    private volatile long openForTrafficTimeMs;
     private boolean peerInstancesTransferEmptyOnStartup = true;
 
     public enum Action {
@@ -116,7 +135,7 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         }
     };
 
-    private final MeasuredRate numberOfReplicationsLastMin;
+    private final SlidingWindowRate numberOfReplicationsLastMin;
 
     protected final EurekaClient eurekaClient;
     protected volatile PeerEurekaNodes peerEurekaNodes;
@@ -135,7 +154,7 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
     ) {
         super(serverConfig, clientConfig, serverCodecs);
         this.eurekaClient = eurekaClient;
-        this.numberOfReplicationsLastMin = new MeasuredRate(1000 * 60 * 1);
+        this.numberOfReplicationsLastMin = new SlidingWindowRate(1000 * 60 * 1, 60);
         // We first check if the instance is STARTING or DOWN, then we check explicit overrides,
         // then we check the status of a potentially existing lease.
         this.instanceStatusOverrideRule = new FirstMatchWinsCompositeRule(new DownOrStartingRule(),
@@ -212,35 +231,67 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
     public int syncUp() {
         // Copy entire entry from neighboring DS node
         int count = 0;
+        long syncUpStartTime = System.currentTimeMillis();
+        long loadTimeMs = 0;
 
         for (int i = 0; ((i < serverConfig.getRegistrySyncRetries()) && (count == 0)); i++) {
-            if (i > 0) {
-                try {
+            try {
+                if (i > 0) {
                     Thread.sleep(serverConfig.getRegistrySyncRetryWaitMs());
-                } catch (InterruptedException e) {
-                    logger.warn("Interrupted during registry transfer..");
-                    break;
                 }
-            }
-            Applications apps = eurekaClient.getApplications();
-            for (Application app : apps.getRegisteredApplications()) {
-                for (InstanceInfo instance : app.getInstances()) {
-                    try {
-                        if (isRegisterable(instance)) {
-                            register(instance, instance.getLeaseInfo().getDurationInSecs(), true);
-                            count++;
-                        }
-                    } catch (Throwable t) {
-                        logger.error("During DS init copy", t);
+                Applications apps = eurekaClient.getApplications();
+                long loadStartTime = System.currentTimeMillis();
+                count = bulkLoad(apps, new Predicate<InstanceInfo>() {
+                    @Override
+                    public boolean test(InstanceInfo instance) {
+                        return isRegisterable(instance);
                     }
-                }
+                }, serverConfig.getRegistrySyncParallelism());
+                loadTimeMs += System.currentTimeMillis() - loadStartTime;
+            } catch (InterruptedException e) {
+                logger.warn("Interrupted during registry transfer..");
+                break;
             }
         }
+        this.syncUpLoadTimeMs = loadTimeMs;
+        this.syncUpFetchTimeMs = System.currentTimeMillis() - syncUpStartTime - loadTimeMs;
+        logger.info("Synced up {} instances from neighboring DS node; fetched the registry in {} ms, loaded it in {} ms",
+                count, syncUpFetchTimeMs, syncUpLoadTimeMs);
         return count;
     }
 
+    /**
+     * Gets the time the last {@link #syncUp()} spent getting the registry from the peers, waits between retries
+     * included.
+     */
+    @com.netflix.servo.annotations.Monitor(name = METRIC_REGISTRY_PREFIX + "syncUpFetchTimeMs",
+            description = "Time spent getting the registry from the peers on startup", type = DataSourceType.GAUGE)
+    public long getSyncUpFetchTimeMs() {
+        return syncUpFetchTimeMs;
+    }
+
+    /**
+     * Gets the time the last {@link #syncUp()} spent loading the registry got from the peers.
+     */
+    @com.netflix.servo.annotations.Monitor(name = METRIC_REGISTRY_PREFIX + "syncUpLoadTimeMs",
+            description = "Time spent loading the registry got from the peers on startup", type = DataSourceType.GAUGE)
+    public long getSyncUpLoadTimeMs() {
+        return syncUpLoadTimeMs;
+    }
+
+    /**
+     * Gets the time the last {@link #openForTraffic(ApplicationInfoManager, int)} took, most of which is spent
+     * priming the connections to the peers on AWS.
+     */
+    @com.netflix.servo.annotations.Monitor(name = METRIC_REGISTRY_PREFIX + "openForTrafficTimeMs",
+            description = "Time spent opening the registry for traffic on startup", type = DataSourceType.GAUGE)
+    public long getOpenForTrafficTimeMs() {
+        return openForTrafficTimeMs;
+    }
+
     @Override
     public void openForTraffic(ApplicationInfoManager applicationInfoManager, int count) {
+        long openStartTime = System.currentTimeMillis();
         // Renewals happen every 30 seconds and for a minute it should be a factor of 2.
         this.expectedNumberOfClientsSendingRenews = count;
         updateRenewsPerMinThreshold();
@@ -259,6 +310,7 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         logger.info("Changing status to UP");
         applicationInfoManager.setInstanceStatus(InstanceStatus.UP);
         super.postInit();
+        this.openForTrafficTimeMs = System.currentTimeMillis() - openStartTime;
     }
 
     /**
@@ -459,6 +511,140 @@ public class PeerAwareInstanceRegistryImpl extends AbstractInstanceRegistry impl
         return false;
     }
 
+    /**
+     * Applies the batch directly to the registry, without going through the resources that serve the individual
+     * requests. The events are applied grouped by application, so that the leases of each application are looked
+     * up once per batch for the heartbeats and cancellations, which make up most of the replication traffic. Only
+     * events of the same instance depend on each other, and those keep their relative order within the group.
+     */
+    @Override
+    public ReplicationListResponse applyReplicationBatch(ReplicationList replicationList) {
+        List<ReplicationInstance> events = replicationList.getReplicationList();
+        int size = events.size();
+        boolean syncWhenTimestampDiffers = serverConfig.shouldSyncWhenTimestampDiffers();
+        boolean conflictEntity = !"false".equals(serverConfig.getExperimental("bugfix.934"));
+
+        // Application name hash in the upper half, batch position in the lower half
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            String appName = events.get(i).getAppName();
+            order[i] = ((long) (appName == null ? 0 : appName.hashCode()) << 32) | i;
+        }
+        Arrays.sort(order);
+
+        ReplicationInstanceResponse[] responses = new ReplicationInstanceResponse[size];
+        String appName = null;
+        Map<String, Lease<InstanceInfo>> leases = null;
+        for (long entry : order) {
+            ReplicationInstance event = events.get((int) entry);
+            ReplicationInstanceResponse response;
+            try {
+                if (appName == null || !appName.equals(event.getAppName())) {
+                    leases = getLocalLeases(event.getAppName());
+                    appName = event.getAppName();
+                }
+                switch (event.getAction()) {
+                    case Heartbeat:
+                        response = applyReplicatedHeartbeat(event, leases, syncWhenTimestampDiffers, conflictEntity);
+                        break;
+                    case Cancel:
+                        response = applyReplicatedCancel(event, leases);
+                        break;
+                    case Register:
+                        register(event.getInstanceInfo(), true);
+                        // The registration may have created the application
+                        appName = null;
+                        response = REPLICATION_OK;
+                        break;
+                    case StatusUpdate:
+                        response = applyReplicatedStatusUpdate(event);
+                        break;
+                    case DeleteStatusOverride:
+                        response = applyReplicatedDeleteStatusOverride(event);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unexpected action " + event.getAction());
+                }
+            } catch (Exception e) {
+                response = REPLICATION_ERROR;
+                logger.error("{} request processing failed for batch item {}/{}",
+                        event.getAction(), event.getAppName(), event.getId(), e);
+            }
+            responses[(int) entry] = response;
+        }
+        return new ReplicationListResponse(new ArrayList<ReplicationInstanceResponse>(Arrays.asList(responses)));
+    }
+
+    private ReplicationInstanceResponse applyReplicatedHeartbeat(ReplicationInstance event,
+                                                                 Map<String, Lease<InstanceInfo>> leases,
+                                                                 boolean syncWhenTimestampDiffers,
+                                                                 boolean conflictEntity) {
+        String appName = event.getAppName();
+        String id = event.getId();
+        if (!renew(leases, appName, id, true)) {
+            return REPLICATION_NOT_FOUND;
+        }
+        replicateToPeers(Action.Heartbeat, appName, id, null, null, true);
+
+        Long lastDirtyTimestamp = event.getLastDirtyTimestamp();
+        if (lastDirtyTimestamp == null || !syncWhenTimestampDiffers) {
+            return REPLICATION_OK;
+        }
+        Lease<InstanceInfo> lease = leases.get(id);
+        if (lease == null || lease.getHolder() == null || (isLeaseExpirationEnabled() && lease.isExpired())) {
+            return REPLICATION_OK;
+        }
+        long registryDirtyTimestamp = lease.getHolder().getLastDirtyTimestamp();
+        if (lastDirtyTimestamp > registryDirtyTimestamp) {
+            // The replicating node wins, ask it to register again and keep its status override meanwhile
+            String overriddenStatus = event.getOverriddenStatus();
+            if (overriddenStatus != null && !InstanceStatus.UNKNOWN.name().equals(overriddenStatus)) {
+                storeOverriddenStatusIfRequired(appName, id, InstanceStatus.valueOf(overriddenStatus));
+            }
+            return REPLICATION_NOT_FOUND;
+        }
+        if (lastDirtyTimestamp < registryDirtyTimestamp) {
+            // Send the registry copy back, for the replicating node to sync itself with this one
+            InstanceInfo instanceInfo = conflictEntity ? getInstanceByAppAndId(appName, id, false) : null;
+            return new ReplicationInstanceResponse(Status.CONFLICT.getStatusCode(), instanceInfo);
+        }
+        return REPLICATION_OK;
+    }
+
+    private ReplicationInstanceResponse applyReplicatedCancel(ReplicationInstance event,
+                                                              Map<String, Lease<InstanceInfo>> leases) {
+        if (!internalCancel(leases, event.getAppName(), event.getId(), true)) {
+            return REPLICATION_NOT_FOUND;
+        }
+        replicateToPeers(Action.Cancel, event.getAppName(), event.getId(), null, null, true);
+        return REPLICATION_OK;
+    }
+
+    private ReplicationInstanceResponse applyReplicatedStatusUpdate(ReplicationInstance event) {
+        if (getInstanceByAppAndId(event.getAppName(), event.getId()) == null) {
+            logger.warn("Instance not found: {}/{}", event.getAppName(), event.getId());
+            return REPLICATION_NOT_FOUND;
+        }
+        boolean isSuccess = statusUpdate(event.getAppName(), event.getId(), InstanceStatus.valueOf(event.getStatus()),
+                toString(event.getLastDirtyTimestamp()), true);
+        return isSuccess ? REPLICATION_OK : REPLICATION_ERROR;
+    }
+
+    private ReplicationInstanceResponse applyReplicatedDeleteStatusOverride(ReplicationInstance event) {
+        if (getInstanceByAppAndId(event.getAppName(), event.getId()) == null) {
+            logger.warn("Instance not found: {}/{}", event.getAppName(), event.getId());
+            return REPLICATION_NOT_FOUND;
+        }
+        InstanceStatus newStatus = event.getStatus() == null ? InstanceStatus.UNKNOWN : InstanceStatus.valueOf(event.getStatus());
+        boolean isSuccess = deleteStatusOverride(event.getAppName(), event.getId(), newStatus,
+                toString(event.getLastDirtyTimestamp()), true);
+        return isSuccess ? REPLICATION_OK : REPLICATION_ERROR;
+    }
+
+    private static String toString(Long value) {
+        return value == null ? null : value.toString();
+    }
+
     /**
      * Replicate the <em>ASG status</em> updates to peer eureka nodes. If this
      * event is a replication from other nodes, then it is not replicated to
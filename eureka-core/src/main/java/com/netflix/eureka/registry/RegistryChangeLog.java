@@ -0,0 +1,299 @@
+package com.netflix.eureka.registry;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.eureka.lease.Lease;
+
+/**
+ * Versioned, append-only log of the registry changes that are served as deltas to the clients.
+ *
+ * <p>
+ * Every registry mutation is appended with a monotonically increasing sequence number. Together with the
+ * entry, the log maintains the number of registered instances per {@link InstanceStatus}, which is all that is
+ * needed to compute the reconcile hash code of the registry. Appends are serialized on a constant time critical
+ * section, so a reader can take a consistent {@link Snapshot} of (sequence, instance counts) and then walk the
+ * entries up to that sequence without holding any lock, and without ever blocking the writers.
+ * </p>
+ *
+ * <p>
+ * A change is only <em>published</em> once the caches serving it were invalidated, see {@link #published(long)}. A
+ * registry payload built after reading {@link #getPublishedSequence()} reflects all the changes up to that
+ * sequence, which lets a client that received it ask for the changes made since.
+ * </p>
+ *
+ * <p>
+ * Leases are accounted under the status their holder had when the lease was last recorded in this log. Any
+ * change to the status of a registered instance must therefore be reported here, otherwise the counts and the
+ * reconcile hash code computed from them would drift from the registry content.
+ * </p>
+ */
+class RegistryChangeLog implements Iterable<RegistryChangeLog.RecentlyChangedItem> {
+
+    private static final InstanceStatus[] STATUSES = InstanceStatus.values();
+
+    private final ConcurrentLinkedQueue<RecentlyChangedItem> queue = new ConcurrentLinkedQueue<>();
+
+    // All fields below are guarded by this
+    private final Map<Lease<InstanceInfo>, InstanceStatus> accountedLeases = new IdentityHashMap<>();
+    private final int[] instanceCounts = new int[STATUSES.length];
+    private long sequence;
+    private final TreeSet<Long> unpublishedSequences = new TreeSet<>();
+
+    private volatile long publishedSequence;
+    // Written under this, only ever raised
+    private volatile long evictedSequence;
+
+    /**
+     * Records a new registration. If the registration replaced an existing lease, the replaced lease is no
+     * longer accounted for. The lease is only accounted for if it is still the one registered for its instance, as a
+     * concurrent cancellation or registration may have removed or replaced it since.
+     *
+     * @param leases the leases of the application the lease was registered in
+     * @return sequence number assigned to the change
+     */
+    synchronized long registered(Map<String, Lease<InstanceInfo>> leases, Lease<InstanceInfo> lease,
+                                 Lease<InstanceInfo> replacedLease) {
+        accountRegistered(leases, lease, replacedLease);
+        return append(lease);
+    }
+
+    /**
+     * Accounts for a registration loaded in bulk, without appending it as a change. See {@link #bulkLoaded()}.
+     */
+    synchronized void loaded(Map<String, Lease<InstanceInfo>> leases, Lease<InstanceInfo> lease,
+                             Lease<InstanceInfo> replacedLease) {
+        accountRegistered(leases, lease, replacedLease);
+    }
+
+    /**
+     * Reports the end of a bulk load. The registrations loaded were not appended, so the changes made before are no
+     * longer enough to bring a client up to date, which must fetch the full registry again.
+     */
+    synchronized void bulkLoaded() {
+        evictedSequence = ++sequence;
+        updatePublishedSequence();
+    }
+
+    /**
+     * Records a modification (status update, status override removal) of a registered instance.
+     *
+     * @return sequence number assigned to the change
+     */
+    synchronized long modified(Lease<InstanceInfo> lease) {
+        if (accountedLeases.containsKey(lease)) {
+            account(lease);
+        }
+        return append(lease);
+    }
+
+    /**
+     * Records a cancellation or an expiry of a registered instance.
+     *
+     * @return sequence number assigned to the change
+     */
+    synchronized long cancelled(Lease<InstanceInfo> lease) {
+        unaccount(lease);
+        return append(lease);
+    }
+
+    /**
+     * Updates the instance counts after a status change that is not propagated to the clients as a delta
+     * (for example a status override re-applied during renewal).
+     */
+    synchronized void statusChanged(Lease<InstanceInfo> lease) {
+        if (accountedLeases.containsKey(lease)) {
+            account(lease);
+        }
+    }
+
+    /**
+     * Reports that one of the appended changes got published. Must be called once for each appended change, after
+     * the caches serving the change were invalidated.
+     *
+     * @param itemSequence the sequence number assigned to the change when it was appended
+     */
+    synchronized void published(long itemSequence) {
+        unpublishedSequences.remove(itemSequence);
+        updatePublishedSequence();
+    }
+
+    /**
+     * @return a sequence number up to which all changes are published, just below the oldest change that is not
+     * published yet. It keeps advancing while overlapping changes are appended, as long as each gets published.
+     */
+    long getPublishedSequence() {
+        return publishedSequence;
+    }
+
+    /**
+     * @return true if the log still holds all the changes made after the given sequence number
+     */
+    boolean retainsChangesSince(long sinceSequence) {
+        return sinceSequence >= evictedSequence && sinceSequence <= publishedSequence;
+    }
+
+    /**
+     * Takes a consistent view of the last assigned sequence number and of the instance counts at that point.
+     */
+    synchronized Snapshot snapshot() {
+        return new Snapshot(sequence, instanceCounts.clone());
+    }
+
+    /**
+     * Removes all entries older than the given timestamp. Entries are appended in timestamp order, so the
+     * removal stops at the first entry that is recent enough.
+     */
+    void removeOlderThan(long timestamp) {
+        long lastEvicted = -1;
+        Iterator<RecentlyChangedItem> it = queue.iterator();
+        while (it.hasNext()) {
+            RecentlyChangedItem item = it.next();
+            if (item.getLastUpdateTime() < timestamp) {
+                lastEvicted = item.getSequence();
+                it.remove();
+            } else {
+                break;
+            }
+        }
+        if (lastEvicted >= 0) {
+            synchronized (this) {
+                // Never lowered, a concurrent bulk load or clear may have evicted everything up to a later sequence
+                evictedSequence = Math.max(evictedSequence, lastEvicted);
+            }
+        }
+    }
+
+    synchronized void clear() {
+        queue.clear();
+        unpublishedSequences.clear();
+        publishedSequence = sequence;
+        evictedSequence = sequence;
+        accountedLeases.clear();
+        for (int i = 0; i < instanceCounts.length; i++) {
+            instanceCounts[i] = 0;
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the retained entries, in sequence order. Entries appended after a
+     * {@link Snapshot} was taken have a higher sequence number than {@link Snapshot#getSequence()}.
+     */
+    @Override
+    public Iterator<RecentlyChangedItem> iterator() {
+        return queue.iterator();
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    private long append(Lease<InstanceInfo> lease) {
+        long itemSequence = ++sequence;
+        unpublishedSequences.add(itemSequence);
+        queue.add(new RecentlyChangedItem(itemSequence, lease));
+        return itemSequence;
+    }
+
+    private void updatePublishedSequence() {
+        publishedSequence = unpublishedSequences.isEmpty() ? sequence : unpublishedSequences.first() - 1;
+    }
+
+    private void accountRegistered(Map<String, Lease<InstanceInfo>> leases, Lease<InstanceInfo> lease,
+                                   Lease<InstanceInfo> replacedLease) {
+        if (replacedLease != null && replacedLease != lease) {
+            unaccount(replacedLease);
+        }
+        // Leases are removed from the registry before their cancellation is recorded, so one removed already is
+        // never accounted for again
+        InstanceInfo holder = lease.getHolder();
+        if (holder != null && leases.get(holder.getId()) == lease) {
+            account(lease);
+        }
+    }
+
+    private void account(Lease<InstanceInfo> lease) {
+        InstanceInfo holder = lease.getHolder();
+        if (holder == null) {
+            return;
+        }
+        InstanceStatus status = holder.getStatus();
+        InstanceStatus previous = accountedLeases.put(lease, status);
+        if (previous != status) {
+            if (previous != null) {
+                instanceCounts[previous.ordinal()]--;
+            }
+            instanceCounts[status.ordinal()]++;
+        }
+    }
+
+    private void unaccount(Lease<InstanceInfo> lease) {
+        InstanceStatus previous = accountedLeases.remove(lease);
+        if (previous != null) {
+            instanceCounts[previous.ordinal()]--;
+        }
+    }
+
+    /**
+     * Last sequence number assigned by the log, with the number of registered instances per status at that point.
+     */
+    static final class Snapshot {
+        private final long sequence;
+        private final int[] instanceCounts;
+
+        private Snapshot(long sequence, int[] instanceCounts) {
+            this.sequence = sequence;
+            this.instanceCounts = instanceCounts;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return instance count map in the format expected by
+         * {@link com.netflix.discovery.shared.Applications#getReconcileHashCode(Map)}
+         */
+        TreeMap<String, AtomicInteger> toInstanceCountMap() {
+            TreeMap<String, AtomicInteger> instanceCountMap = new TreeMap<>();
+            for (InstanceStatus status : STATUSES) {
+                int count = instanceCounts[status.ordinal()];
+                if (count > 0) {
+                    instanceCountMap.put(status.name(), new AtomicInteger(count));
+                }
+            }
+            return instanceCountMap;
+        }
+    }
+
+    static final class RecentlyChangedItem {
+        private final long sequence;
+        private final long lastUpdateTime;
+        private final Lease<InstanceInfo> leaseInfo;
+
+        RecentlyChangedItem(long sequence, Lease<InstanceInfo> lease) {
+            this.sequence = sequence;
+            this.leaseInfo = lease;
+            this.lastUpdateTime = System.currentTimeMillis();
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getLastUpdateTime() {
+            return this.lastUpdateTime;
+        }
+
+        public Lease<InstanceInfo> getLeaseInfo() {
+            return this.leaseInfo;
+        }
+    }
+}
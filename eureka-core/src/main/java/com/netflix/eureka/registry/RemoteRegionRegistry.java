@@ -15,6 +15,7 @@
  */
 package com.netflix.eureka.registry;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.ws.rs.core.MediaType;
 import java.net.InetAddress;
@@ -93,6 +94,8 @@ public class RemoteRegionRegistry implements LookupService<String> {
     private final EurekaServerConfig serverConfig;
     private volatile boolean readyForServingData;
     private final EurekaHttpClient eurekaHttpClient;
+    @Nullable
+    private final Runnable registryChangeListener;
     private long timeOfLastSuccessfulRemoteFetch = System.currentTimeMillis();
     private long deltaSuccesses = 0;
     private long deltaMismatches = 0;
@@ -103,7 +106,20 @@ public class RemoteRegionRegistry implements LookupService<String> {
                                 ServerCodecs serverCodecs,
                                 String regionName,
                                 URL remoteRegionURL) {
+        this(serverConfig, clientConfig, serverCodecs, regionName, remoteRegionURL, null);
+    }
+
+    /**
+     * @param registryChangeListener called every time the stored remote registry changes, or null
+     */
+    RemoteRegionRegistry(EurekaServerConfig serverConfig,
+                         EurekaClientConfig clientConfig,
+                         ServerCodecs serverCodecs,
+                         String regionName,
+                         URL remoteRegionURL,
+                         @Nullable Runnable registryChangeListener) {
         this.serverConfig = serverConfig;
+        this.registryChangeListener = registryChangeListener;
         this.remoteRegionURL = remoteRegionURL;
         this.fetchRegistryTimer = Monitors.newTimer(this.remoteRegionURL.toString() + "_FetchRegistry");
 
@@ -282,6 +298,9 @@ public class RemoteRegionRegistry implements LookupService<String> {
             if (fetchRegistryUpdateLock.tryLock()) {
                 try {
                     updateDelta(delta);
+                    if (!delta.getRegisteredApplications().isEmpty()) {
+                        registryChanged();
+                    }
                     reconcileHashCode = getApplications().getReconcileHashCode();
                 } finally {
                     fetchRegistryUpdateLock.unlock();
@@ -356,6 +375,12 @@ public class RemoteRegionRegistry implements LookupService<String> {
 
     }
 
+    private void registryChanged() {
+        if (registryChangeListener != null) {
+            registryChangeListener.run();
+        }
+    }
+
     /**
      * Close HTTP response object and its respective resources.
      *
@@ -386,6 +411,7 @@ public class RemoteRegionRegistry implements LookupService<String> {
         } else if (fetchRegistryGeneration.compareAndSet(currentGeneration, currentGeneration + 1)) {
             applications.set(apps);
             applicationsDelta.set(apps);
+            registryChanged();
             logger.info("Successfully updated registry with the latest content");
             return true;
         } else {
@@ -460,6 +486,7 @@ public class RemoteRegionRegistry implements LookupService<String> {
         if (fetchRegistryGeneration.compareAndSet(currentGeneration, currentGeneration + 1)) {
             applications.set(apps);
             applicationsDelta.set(apps);
+            registryChanged();
             logger.warn("The Reconcile hashcodes after complete sync up, client : {}, server : {}.",
                     getApplications().getReconcileHashCode(),
                     delta.getAppsHashCode());
@@ -1,6 +1,7 @@
 package com.netflix.eureka.registry;
 
 import javax.annotation.Nullable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -10,6 +11,12 @@ public interface ResponseCache {
 
     void invalidate(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress);
 
+    /**
+     * Invalidates all the cached payloads, after the registry changed too much for invalidating them one application
+     * at a time.
+     */
+    void invalidateAll();
+
     AtomicLong getVersionDelta();
 
     AtomicLong getVersionDeltaWithRegions();
@@ -28,6 +35,15 @@ public interface ResponseCache {
      */
      String get(Key key);
 
+    /**
+     * Get the cached information about applications in its encoded form, without converting it to a string.
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @return UTF-8 encoded payload which contains information about the applications. The returned array is
+     * shared with the cache and must not be modified.
+     */
+    byte[] getRaw(Key key);
+
     /**
      * Get the compressed information about the applications.
      *
@@ -36,6 +52,56 @@ public interface ResponseCache {
      */
     byte[] getGZIP(Key key);
 
+    /**
+     * Get the information about the applications, compressed with the given codec.
+     *
+     * @param key the key for which the compressed cached information needs to be obtained.
+     * @param codec the compression to apply, usually negotiated with {@link CompressionCodecs#forAcceptEncoding(String)}.
+     * @return compressed payload which contains information about the applications.
+     */
+    byte[] getCompressed(Key key, CompressionCodec codec);
+
+    /**
+     * Get the cached payload for the given key along with its generation and registry sequence number. Keys
+     * {@link Key#hasSinceSequence() with a since sequence} or {@link Key#hasInterest() with an interest} are never
+     * kept in the read-only cache, but in a read/write cache of their own, bounded by
+     * {@link com.netflix.eureka.EurekaServerConfig#getMaxCursorAndInterestResponseCacheSize()}.
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @return the cached payload, or null if it could not be built.
+     */
+    @Nullable
+    ResponseCacheImpl.Value getValue(Key key);
+
+    /**
+     * Identifies this cache instance in the registry watch tokens and delta cursors, so that a generation or a
+     * sequence number obtained from another server, or before a restart, is not mistaken for one of this cache.
+     */
+    String getGenerationEpoch();
+
+    /**
+     * Marks the full registry and delta payloads as stale, without evicting any other key, and wakes up the callers
+     * of {@link #awaitChange(Key, long, long)}. Used when a remote region registry changed, as those payloads may
+     * include it.
+     */
+    void invalidateRegistryPayloads();
+
+    /**
+     * Waits until the registry changes after the given generation, then gets the full registry or delta payload
+     * for the given key, bypassing the read-only cache. Payloads are still rebuilt at most once per coalescing
+     * window, so all the callers woken up by a change share the same payload.
+     *
+     * @param key a {@link ResponseCacheImpl#ALL_APPS} or {@link ResponseCacheImpl#ALL_APPS_DELTA} key.
+     * @param knownGeneration the {@link ResponseCacheImpl.Value#getGeneration() generation} of the payload the
+     *                        caller already has, or -1 to get the current payload without waiting.
+     * @param timeoutMs the maximum time to wait for a change.
+     * @return a payload built for a newer generation, or null if the registry did not change before the timeout.
+     * @throws RejectedExecutionException if {@link com.netflix.eureka.EurekaServerConfig#getMaxConcurrentRegistryWatches()}
+     * callers are already waiting.
+     */
+    @Nullable
+    ResponseCacheImpl.Value awaitChange(Key key, long knownGeneration, long timeoutMs) throws InterruptedException;
+
     /**
      * Performs a shutdown of this cache by stopping internal threads and unregistering
      * Servo monitors.
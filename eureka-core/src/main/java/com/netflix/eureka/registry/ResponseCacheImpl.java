@@ -19,38 +19,45 @@ package com.netflix.eureka.registry;
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
-import java.util.List;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.zip.GZIPOutputStream;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
 import com.netflix.appinfo.EurekaAccept;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.resources.CurrentRequestVersion;
 import com.netflix.eureka.resources.ServerCodecs;
+import com.netflix.eureka.util.EurekaMonitors;
 import com.netflix.servo.annotations.DataSourceType;
 import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Counter;
 import com.netflix.servo.monitor.Monitors;
 import com.netflix.servo.monitor.Stopwatch;
 import com.netflix.servo.monitor.Timer;
@@ -85,6 +92,10 @@ public class ResponseCacheImpl implements ResponseCache {
     private static final AtomicLong versionDeltaWithRegionsLegacy = new AtomicLong(0);
 
     private static final String EMPTY_PAYLOAD = "";
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static final int PAYLOAD_BUFFER_INITIAL_SIZE = 64 * 1024;
+    private static final int PAYLOAD_BUFFER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
     private final java.util.Timer timer = new java.util.Timer("Eureka-CacheFillTimer", true);
     private final AtomicLong versionDelta = new AtomicLong(0);
     private final AtomicLong versionDeltaWithRegions = new AtomicLong(0);
@@ -96,35 +107,73 @@ public class ResponseCacheImpl implements ResponseCache {
     private final Timer serializeOneApptimer = Monitors.newTimer("serialize-one");
     private final Timer serializeViptimer = Monitors.newTimer("serialize-one-vip");
     private final Timer compressPayloadTimer = Monitors.newTimer("compress-payload");
+    private final Counter rawPayloadHits = Monitors.newCounter("payload-hits-raw");
+    private final Counter compressedPayloadHits = Monitors.newCounter("payload-hits-compressed");
+
+    private final Counter invalidationsReceived = Monitors.newCounter("invalidations-received");
+    private final Counter registryPayloadRebuilds = Monitors.newCounter("registry-payload-rebuilds");
 
     /**
-     * This map holds mapping of keys without regions to a list of keys with region (provided by clients)
-     * Since, during invalidation, triggered by a change in registry for local region, we do not know the regions
-     * requested by clients, we use this mapping to get all the keys with regions to be invalidated.
+     * This map holds all the cached keys (with and without regions) by entity type and name. Since, during
+     * invalidation, triggered by a change in registry for local region, we do not know the variants (type, version,
+     * accept, regions) requested by clients, we use this index to invalidate exactly the keys that are cached.
      * If we do not do this, any cached user requests containing region keys will not be invalidated and will stick
      * around till expiry. Github issue: https://github.com/Netflix/eureka/issues/118
      */
-    private final Multimap<Key, Key> regionSpecificKeys =
-            Multimaps.newListMultimap(new ConcurrentHashMap<Key, Collection<Key>>(), new Supplier<List<Key>>() {
-                @Override
-                public List<Key> get() {
-                    return new CopyOnWriteArrayList<Key>();
-                }
-            });
+    private final Map<Key.EntityType, ConcurrentMap<String, Set<Key>>> cachedKeysByName =
+            new EnumMap<Key.EntityType, ConcurrentMap<String, Set<Key>>>(Key.EntityType.class);
+
+    /**
+     * Incremented on every registry change. The full registry and delta payloads are not evicted on changes,
+     * but considered stale if they were generated for an older generation.
+     */
+    private final AtomicLong registryGeneration = new AtomicLong(0);
+    private final long coalescingWindowMs;
+    private final String generationEpoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    /**
+     * Callers of {@link #awaitChange(Key, long, long)} wait on this monitor. Registry changes only take it when
+     * there is a waiter.
+     */
+    private final Object registryChangeMonitor = new Object();
+    private final AtomicInteger registryChangeWaiters = new AtomicInteger();
+    private final Counter registryWatchesRejected = Monitors.newCounter("registry-watches-rejected");
 
     private final ConcurrentMap<Key, Value> readOnlyCacheMap = new ConcurrentHashMap<Key, Value>();
 
+    /**
+     * Encoding buffers are reused across payload generations, so that serializing a full registry does not
+     * grow a fresh buffer (and copy its content at every step) up to the size of the payload each time.
+     */
+    private final BlockingQueue<ByteArrayOutputStream> payloadBufferPool =
+            new ArrayBlockingQueue<ByteArrayOutputStream>(PAYLOAD_BUFFER_POOL_SIZE);
+
     private final LoadingCache<Key, Value> readWriteCacheMap;
+
+    /**
+     * Holds the payloads of the keys {@link Key#hasSinceSequence() with a since sequence} or
+     * {@link Key#hasInterest() with an interest}, which are as many as the cursors and interests requested by the
+     * clients. These keys are not indexed for invalidation, only the registry wide ones carry a cursor or an
+     * interest, and those are rebuilt on access once stale.
+     */
+    private final LoadingCache<Key, Value> cursorAndInterestCacheMap;
     private final boolean shouldUseReadOnlyResponseCache;
     private final AbstractInstanceRegistry registry;
     private final EurekaServerConfig serverConfig;
     private final ServerCodecs serverCodecs;
+    private final ApplicationsPayloadAssembler payloadAssembler;
 
     ResponseCacheImpl(EurekaServerConfig serverConfig, ServerCodecs serverCodecs, AbstractInstanceRegistry registry) {
         this.serverConfig = serverConfig;
         this.serverCodecs = serverCodecs;
         this.shouldUseReadOnlyResponseCache = serverConfig.shouldUseReadOnlyResponseCache();
         this.registry = registry;
+        this.coalescingWindowMs = serverConfig.getResponseCacheCoalescingWindowMs();
+        this.payloadAssembler = new ApplicationsPayloadAssembler(serverCodecs, registry,
+                TimeUnit.SECONDS.toMillis(serverConfig.getResponseCacheAutoExpirationInSeconds()));
+        for (Key.EntityType entityType : Key.EntityType.values()) {
+            cachedKeysByName.put(entityType, new ConcurrentHashMap<String, Set<Key>>());
+        }
 
         long responseCacheUpdateIntervalMs = serverConfig.getResponseCacheUpdateIntervalMs();
         this.readWriteCacheMap =
@@ -133,24 +182,27 @@ public class ResponseCacheImpl implements ResponseCache {
                         .removalListener(new RemovalListener<Key, Value>() {
                             @Override
                             public void onRemoval(RemovalNotification<Key, Value> notification) {
-                                Key removedKey = notification.getKey();
-                                if (removedKey.hasRegions()) {
-                                    Key cloneWithNoRegions = removedKey.cloneWithoutRegions();
-                                    regionSpecificKeys.remove(cloneWithNoRegions, removedKey);
+                                if (notification.getCause() != RemovalCause.REPLACED) {
+                                    unindexKey(notification.getKey());
                                 }
                             }
                         })
                         .build(new CacheLoader<Key, Value>() {
                             @Override
                             public Value load(Key key) throws Exception {
-                                if (key.hasRegions()) {
-                                    Key cloneWithNoRegions = key.cloneWithoutRegions();
-                                    regionSpecificKeys.put(cloneWithNoRegions, key);
-                                }
                                 Value value = generatePayload(key);
                                 return value;
                             }
                         });
+        this.cursorAndInterestCacheMap =
+                CacheBuilder.newBuilder().maximumSize(serverConfig.getMaxCursorAndInterestResponseCacheSize())
+                        .expireAfterWrite(serverConfig.getResponseCacheAutoExpirationInSeconds(), TimeUnit.SECONDS)
+                        .build(new CacheLoader<Key, Value>() {
+                            @Override
+                            public Value load(Key key) throws Exception {
+                                return generatePayload(key);
+                            }
+                        });
 
         if (shouldUseReadOnlyResponseCache) {
             timer.schedule(getCacheUpdateTask(),
@@ -178,7 +230,7 @@ public class ResponseCacheImpl implements ResponseCache {
                     }
                     try {
                         CurrentRequestVersion.set(key.getVersion());
-                        Value cacheValue = readWriteCacheMap.get(key);
+                        Value cacheValue = getReadWriteValue(key);
                         Value currentCacheValue = readOnlyCacheMap.get(key);
                         if (cacheValue != currentCacheValue) {
                             readOnlyCacheMap.put(key, cacheValue);
@@ -212,13 +264,30 @@ public class ResponseCacheImpl implements ResponseCache {
     @VisibleForTesting
     String get(final Key key, boolean useReadOnlyCache) {
         Value payload = getValue(key, useReadOnlyCache);
-        if (payload == null || payload.getPayload().equals(EMPTY_PAYLOAD)) {
+        if (payload == null || payload.isEmpty()) {
             return null;
         } else {
+            payload.recordRawHit();
             return payload.getPayload();
         }
     }
 
+    /**
+     * Get the cached information about applications in its encoded form.
+     *
+     * @param key the key for which the cached information needs to be obtained.
+     * @return UTF-8 encoded payload which contains information about the applications.
+     */
+    @Override
+    public byte[] getRaw(Key key) {
+        Value payload = getValue(key, shouldUseReadOnlyResponseCache);
+        if (payload == null || payload.isEmpty()) {
+            return null;
+        }
+        payload.recordRawHit();
+        return payload.getRawPayload();
+    }
+
     /**
      * Get the compressed information about the applications.
      *
@@ -229,11 +298,83 @@ public class ResponseCacheImpl implements ResponseCache {
      *         applications.
      */
     public byte[] getGZIP(Key key) {
+        return getCompressed(key, CompressionCodecs.GZIP);
+    }
+
+    /**
+     * Get the information about the applications, compressed with the given codec. The compressed form is
+     * computed on the first request for it, and kept until the cached entry is invalidated.
+     *
+     * @param key the key for which the compressed cached information needs to be obtained.
+     * @param codec the compression to apply.
+     * @return compressed payload which contains information about the applications.
+     */
+    @Override
+    public byte[] getCompressed(Key key, CompressionCodec codec) {
         Value payload = getValue(key, shouldUseReadOnlyResponseCache);
         if (payload == null) {
             return null;
         }
-        return payload.getGzipped();
+        return payload.getCompressed(codec);
+    }
+
+    @Override
+    public Value getValue(Key key) {
+        return getValue(key, shouldUseReadOnlyResponseCache);
+    }
+
+    @Override
+    public String getGenerationEpoch() {
+        return generationEpoch;
+    }
+
+    /**
+     * Waits until the registry changes after the given generation, then gets the full registry or delta payload
+     * for the given key from the read/write cache.
+     *
+     * <p>
+     * A stale payload is rebuilt on access once it is older than the coalescing window, so a caller woken up by a
+     * change that the current payload does not include yet waits for the remainder of that window.
+     * </p>
+     */
+    @Override
+    @Nullable
+    public Value awaitChange(Key key, long knownGeneration, long timeoutMs) throws InterruptedException {
+        if (!isRegistryWide(key)) {
+            throw new IllegalArgumentException("Only the full registry and delta payloads can be awaited: " + key);
+        }
+        if (registryChangeWaiters.incrementAndGet() > serverConfig.getMaxConcurrentRegistryWatches()) {
+            registryChangeWaiters.decrementAndGet();
+            registryWatchesRejected.increment();
+            throw new RejectedExecutionException("Too many concurrent registry watches");
+        }
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            synchronized (registryChangeMonitor) {
+                long remaining;
+                while (registryGeneration.get() <= knownGeneration
+                        && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    registryChangeMonitor.wait(remaining);
+                }
+            }
+            while (true) {
+                Value value = getReadWriteValue(key);
+                if (value.getGeneration() > knownGeneration) {
+                    return value;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (registryGeneration.get() <= knownGeneration || remaining <= 0) {
+                    return null;
+                }
+                long rebuildDelay = value.getTimestamp() + coalescingWindowMs - System.currentTimeMillis();
+                Thread.sleep(Math.max(1, Math.min(rebuildDelay, remaining)));
+            }
+        } catch (ExecutionException e) {
+            logger.error("Cannot get value for key : {}", key, e);
+            return null;
+        } finally {
+            registryChangeWaiters.decrementAndGet();
+        }
     }
 
     @Override
@@ -245,32 +386,55 @@ public class ResponseCacheImpl implements ResponseCache {
     /**
      * Invalidate the cache of a particular application.
      *
+     * <p>
+     * Only the keys that are actually cached for the application and its VIP addresses are evicted. The full
+     * registry and delta payloads are marked as stale instead, and are rebuilt on access at most once per
+     * {@link EurekaServerConfig#getResponseCacheCoalescingWindowMs()}.
+     * </p>
+     *
      * @param appName the application name of the application.
      */
     @Override
     public void invalidate(String appName, @Nullable String vipAddress, @Nullable String secureVipAddress) {
-        for (Key.KeyType type : Key.KeyType.values()) {
-            for (Version v : Version.values()) {
-                invalidate(
-                        new Key(Key.EntityType.Application, appName, type, v, EurekaAccept.full),
-                        new Key(Key.EntityType.Application, appName, type, v, EurekaAccept.compact),
-                        new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.full),
-                        new Key(Key.EntityType.Application, ALL_APPS, type, v, EurekaAccept.compact),
-                        new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.full),
-                        new Key(Key.EntityType.Application, ALL_APPS_DELTA, type, v, EurekaAccept.compact)
-                );
-                if (null != vipAddress) {
-                    invalidate(new Key(Key.EntityType.VIP, vipAddress, type, v, EurekaAccept.full));
-                }
-                if (null != secureVipAddress) {
-                    invalidate(new Key(Key.EntityType.SVIP, secureVipAddress, type, v, EurekaAccept.full));
-                }
+        invalidationsReceived.increment();
+        payloadAssembler.invalidate(appName);
+        registryChanged();
+        invalidateCachedKeys(Key.EntityType.Application, appName);
+        if (null != vipAddress) {
+            invalidateCachedKeys(Key.EntityType.VIP, vipAddress);
+        }
+        if (null != secureVipAddress) {
+            invalidateCachedKeys(Key.EntityType.SVIP, secureVipAddress);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        invalidationsReceived.increment();
+        payloadAssembler.invalidateAll();
+        registryChanged();
+        readWriteCacheMap.invalidateAll();
+        cursorAndInterestCacheMap.invalidateAll();
+    }
+
+    @Override
+    public void invalidateRegistryPayloads() {
+        invalidationsReceived.increment();
+        registryChanged();
+    }
+
+    private void registryChanged() {
+        registryGeneration.incrementAndGet();
+        if (registryChangeWaiters.get() > 0) {
+            synchronized (registryChangeMonitor) {
+                registryChangeMonitor.notifyAll();
             }
         }
     }
 
     /**
-     * Invalidate the cache information given the list of keys.
+     * Invalidate the cache information given the list of keys. Keys without regions also invalidate all their
+     * cached region specific variants.
      *
      * @param keys the list of keys for which the cache information needs to be invalidated.
      */
@@ -279,18 +443,68 @@ public class ResponseCacheImpl implements ResponseCache {
             logger.debug("Invalidating the response cache key : {} {} {} {}, {}",
                     key.getEntityType(), key.getName(), key.getVersion(), key.getType(), key.getEurekaAccept());
 
-            readWriteCacheMap.invalidate(key);
-            Collection<Key> keysWithRegions = regionSpecificKeys.get(key);
-            if (null != keysWithRegions && !keysWithRegions.isEmpty()) {
-                for (Key keysWithRegion : keysWithRegions) {
-                    logger.debug("Invalidating the response cache key : {} {} {} {} {}",
-                            key.getEntityType(), key.getName(), key.getVersion(), key.getType(), key.getEurekaAccept());
-                    readWriteCacheMap.invalidate(keysWithRegion);
+            readWriteCacheFor(key).invalidate(key);
+            if (!key.hasRegions()) {
+                Set<Key> cachedKeys = cachedKeysByName.get(key.getEntityType()).get(key.getName());
+                if (cachedKeys != null) {
+                    for (Key cachedKey : cachedKeys) {
+                        if (cachedKey.hasRegions() && key.equals(cachedKey.cloneWithoutRegions())) {
+                            logger.debug("Invalidating the response cache key : {} {} {} {} {}",
+                                    cachedKey.getEntityType(), cachedKey.getName(), cachedKey.getVersion(),
+                                    cachedKey.getType(), cachedKey.getEurekaAccept());
+                            readWriteCacheMap.invalidate(cachedKey);
+                        }
+                    }
                 }
             }
         }
     }
 
+    private void invalidateCachedKeys(Key.EntityType entityType, String name) {
+        Set<Key> cachedKeys = cachedKeysByName.get(entityType).get(name);
+        if (cachedKeys == null) {
+            return;
+        }
+        for (Key key : cachedKeys) {
+            logger.debug("Invalidating the response cache key : {} {} {} {}, {}",
+                    key.getEntityType(), key.getName(), key.getVersion(), key.getType(), key.getEurekaAccept());
+            readWriteCacheMap.invalidate(key);
+        }
+    }
+
+    /**
+     * Indexes a key once its value is in {@link #readWriteCacheMap}, rather than from the loader, so that
+     * {@link #unindexKey(Key)} racing with a reload of the same key always sees either the new entry or the index
+     * made after it.
+     */
+    private void indexKey(final Key key) {
+        Set<Key> indexedKeys = cachedKeysByName.get(key.getEntityType()).get(key.getName());
+        if (indexedKeys != null && indexedKeys.contains(key)) {
+            return;
+        }
+        cachedKeysByName.get(key.getEntityType()).compute(key.getName(), (name, keys) -> {
+            Set<Key> result = keys == null ? ConcurrentHashMap.<Key>newKeySet() : keys;
+            result.add(key);
+            return result;
+        });
+    }
+
+    private void unindexKey(final Key key) {
+        cachedKeysByName.get(key.getEntityType()).computeIfPresent(key.getName(), (name, keys) -> {
+            keys.remove(key);
+            // The removal listener runs after the entry is gone, by which time the key may have been loaded again
+            if (readWriteCacheMap.asMap().containsKey(key)) {
+                keys.add(key);
+            }
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static boolean isRegistryWide(Key key) {
+        return key.getEntityType() == Key.EntityType.Application
+                && (ALL_APPS.equals(key.getName()) || ALL_APPS_DELTA.equals(key.getName()));
+    }
+
     /**
      * Gets the version number of the cached data.
      *
@@ -342,7 +556,7 @@ public class ResponseCacheImpl implements ResponseCache {
      */
     @Monitor(name = "responseCacheSize", type = DataSourceType.GAUGE)
     public int getCurrentSize() {
-        return readWriteCacheMap.asMap().size();
+        return readWriteCacheMap.asMap().size() + cursorAndInterestCacheMap.asMap().size();
     }
 
     /**
@@ -352,16 +566,16 @@ public class ResponseCacheImpl implements ResponseCache {
     Value getValue(final Key key, boolean useReadOnlyCache) {
         Value payload = null;
         try {
-            if (useReadOnlyCache) {
+            if (useReadOnlyCache && !isCursorOrInterest(key)) {
                 final Value currentPayload = readOnlyCacheMap.get(key);
                 if (currentPayload != null) {
                     payload = currentPayload;
                 } else {
-                    payload = readWriteCacheMap.get(key);
+                    payload = getReadWriteValue(key);
                     readOnlyCacheMap.put(key, payload);
                 }
             } else {
-                payload = readWriteCacheMap.get(key);
+                payload = getReadWriteValue(key);
             }
         } catch (Throwable t) {
             logger.error("Cannot get value for key : {}", key, t);
@@ -369,17 +583,41 @@ public class ResponseCacheImpl implements ResponseCache {
         return payload;
     }
 
+    /**
+     * Gets the value from the read/write cache, rebuilding the full registry and delta payloads if they are stale
+     * and were not rebuilt within the coalescing window. While a payload is being rebuilt, concurrent readers keep
+     * getting the stale one.
+     */
+    private Value getReadWriteValue(Key key) throws ExecutionException {
+        LoadingCache<Key, Value> cache = readWriteCacheFor(key);
+        Value value = cache.get(key);
+        if (cache == readWriteCacheMap) {
+            indexKey(key);
+        }
+        if (isRegistryWide(key) && value.getGeneration() != registryGeneration.get()
+                && System.currentTimeMillis() - value.getTimestamp() >= coalescingWindowMs) {
+            cache.refresh(key);
+            value = cache.get(key);
+        }
+        return value;
+    }
+
+    private LoadingCache<Key, Value> readWriteCacheFor(Key key) {
+        return isCursorOrInterest(key) ? cursorAndInterestCacheMap : readWriteCacheMap;
+    }
+
+    private static boolean isCursorOrInterest(Key key) {
+        return key.hasSinceSequence() || key.hasInterest();
+    }
+
     /**
      * Generate pay load with both JSON and XML formats for all applications.
      */
-    private String getPayLoad(Key key, Applications apps) {
-        EncoderWrapper encoderWrapper = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
-        String result;
-        try {
-            result = encoderWrapper.encode(apps);
-        } catch (Exception e) {
-            logger.error("Failed to encode the payload for all apps", e);
-            return "";
+    private Value getPayLoad(Key key, Applications apps) {
+        Value result = encode(key, apps);
+        if (result == null) {
+            logger.error("Failed to encode the payload for all apps");
+            return new Value(EMPTY_PAYLOAD);
         }
         if(logger.isDebugEnabled()) {
             logger.debug("New application cache entry {} with apps hashcode {}", key.toStringCompact(), apps.getAppsHashCode());
@@ -390,51 +628,133 @@ public class ResponseCacheImpl implements ResponseCache {
     /**
      * Generate pay load with both JSON and XML formats for a given application.
      */
-    private String getPayLoad(Key key, Application app) {
+    private Value getPayLoad(Key key, Application app) {
         if (app == null) {
-            return EMPTY_PAYLOAD;
+            return new Value(EMPTY_PAYLOAD);
+        }
+
+        Value result = encode(key, app);
+        if (result == null) {
+            logger.error("Failed to encode the payload for application {}", app.getName());
+            return new Value(EMPTY_PAYLOAD);
         }
+        return result;
+    }
 
+    /**
+     * Streams the encoded entity into a pooled buffer. The only copy made is the exact size array kept by the
+     * returned {@link Value}.
+     *
+     * @return the encoded value, or null if the entity could not be encoded
+     */
+    private Value encode(Key key, Object entity) {
         EncoderWrapper encoderWrapper = serverCodecs.getEncoder(key.getType(), key.getEurekaAccept());
+        ByteArrayOutputStream buffer = acquirePayloadBuffer();
         try {
-            return encoderWrapper.encode(app);
+            encoderWrapper.encode(entity, buffer);
+            if (buffer.size() == 0) {
+                return new Value(EMPTY_PAYLOAD);
+            }
+            return new Value(buffer.toByteArray());
         } catch (Exception e) {
-            logger.error("Failed to encode the payload for application {}", app.getName(), e);
-            return "";
+            logger.error("Failed to encode the payload for key {}", key.toStringCompact(), e);
+            return null;
+        } finally {
+            releasePayloadBuffer(buffer);
         }
     }
 
+    /**
+     * Assembles the local registry payload from the cached per-application fragments.
+     *
+     * @return the assembled value, or null if the payload has to be encoded from the whole registry
+     */
+    private Value assemblePayload(Key key) {
+        if (!registry.isLocalRegionOnlyView()) {
+            return null;
+        }
+        ByteArrayOutputStream buffer = acquirePayloadBuffer();
+        try {
+            if (!payloadAssembler.assemble(key, buffer)) {
+                return null;
+            }
+            EurekaMonitors.GET_ALL_CACHE_MISS.increment();
+            return new Value(buffer.toByteArray());
+        } catch (Exception e) {
+            logger.error("Failed to assemble the payload for key {}", key.toStringCompact(), e);
+            return null;
+        } finally {
+            releasePayloadBuffer(buffer);
+        }
+    }
+
+    private ByteArrayOutputStream acquirePayloadBuffer() {
+        ByteArrayOutputStream buffer = payloadBufferPool.poll();
+        return buffer == null ? new ByteArrayOutputStream(PAYLOAD_BUFFER_INITIAL_SIZE) : buffer;
+    }
+
+    private void releasePayloadBuffer(ByteArrayOutputStream buffer) {
+        buffer.reset();
+        payloadBufferPool.offer(buffer);
+    }
+
     /*
      * Generate pay load for the given key.
      */
-    private Value generatePayload(Key key) {
+    private Value generatePayload(Key key) throws ExecutionException {
         Stopwatch tracer = null;
+        long generation = registryGeneration.get();
+        long registrySequence = isRegistryWide(key) ? registry.getPublishedRegistrySequence() : -1;
         try {
-            String payload;
+            Value payload;
             switch (key.getEntityType()) {
                 case Application:
                     boolean isRemoteRegionRequested = key.hasRegions();
 
-                    if (ALL_APPS.equals(key.getName())) {
+                    if (isRegistryWide(key)) {
+                        registryPayloadRebuilds.increment();
+                    }
+                    if (ALL_APPS_DELTA.equals(key.getName()) && key.hasInterest()) {
+                        // Carries the generation and registry sequence of the delta it is taken from
+                        return getDeltaOfInterest(key);
+                    } else if (ALL_APPS.equals(key.getName()) && key.hasInterest()) {
+                        tracer = serializeAllAppsTimer.start();
+                        payload = getPayLoad(key, key.getInterest().filter(isRemoteRegionRequested
+                                ? registry.getApplicationsFromMultipleRegions(key.getRegions())
+                                : registry.getApplications()));
+                    } else if (ALL_APPS.equals(key.getName())) {
                         if (isRemoteRegionRequested) {
                             tracer = serializeAllAppsWithRemoteRegionTimer.start();
                             payload = getPayLoad(key, registry.getApplicationsFromMultipleRegions(key.getRegions()));
                         } else {
                             tracer = serializeAllAppsTimer.start();
-                            payload = getPayLoad(key, registry.getApplications());
+                            payload = assemblePayload(key);
+                            if (payload == null) {
+                                payload = getPayLoad(key, registry.getApplications());
+                            }
                         }
+                    } else if (ALL_APPS_DELTA.equals(key.getName()) && key.hasSinceSequence()) {
+                        tracer = isRemoteRegionRequested
+                                ? serializeDeltaAppsWithRemoteRegionTimer.start()
+                                : serializeDeltaAppsTimer.start();
+                        Applications delta = registry.getApplicationDeltasSince(key.getSinceSequence(), key.getRegions());
+                        payload = delta == null ? new Value(EMPTY_PAYLOAD) : getPayLoad(key, delta);
+                        payload.delta = delta;
                     } else if (ALL_APPS_DELTA.equals(key.getName())) {
                         if (isRemoteRegionRequested) {
                             tracer = serializeDeltaAppsWithRemoteRegionTimer.start();
                             versionDeltaWithRegions.incrementAndGet();
                             versionDeltaWithRegionsLegacy.incrementAndGet();
-                            payload = getPayLoad(key,
-                                    registry.getApplicationDeltasFromMultipleRegions(key.getRegions()));
+                            Applications delta = registry.getApplicationDeltasFromMultipleRegions(key.getRegions());
+                            payload = getPayLoad(key, delta);
+                            payload.delta = delta;
                         } else {
                             tracer = serializeDeltaAppsTimer.start();
                             versionDelta.incrementAndGet();
                             versionDeltaLegacy.incrementAndGet();
-                            payload = getPayLoad(key, registry.getApplicationDeltas());
+                            Applications delta = registry.getApplicationDeltas();
+                            payload = getPayLoad(key, delta);
+                            payload.delta = delta;
                         }
                     } else {
                         tracer = serializeOneApptimer.start();
@@ -448,10 +768,12 @@ public class ResponseCacheImpl implements ResponseCache {
                     break;
                 default:
                     logger.error("Unidentified entity type: {} found in the cache key.", key.getEntityType());
-                    payload = "";
+                    payload = new Value(EMPTY_PAYLOAD);
                     break;
             }
-            return new Value(payload);
+            payload.generation = generation;
+            payload.registrySequence = registrySequence;
+            return payload;
         } finally {
             if (tracer != null) {
                 tracer.stop();
@@ -459,6 +781,36 @@ public class ResponseCacheImpl implements ResponseCache {
         }
     }
 
+    /**
+     * Restricts the cached delta the given key is a variant of to the instances of its interest, rather than
+     * computing a delta of its own. The reconcile hash code is the one of the instances of interest in the
+     * registry, which is what the client holds once the delta is applied.
+     *
+     * @return the delta of interest, with the generation and registry sequence of the delta it is taken from, or an
+     * empty value if the changes after the since sequence of the key are gone
+     */
+    private Value getDeltaOfInterest(Key key) throws ExecutionException {
+        Value deltaValue = getReadWriteValue(key.cloneWithoutInterest());
+        Applications delta = deltaValue.getDelta();
+        Value payload;
+        if (delta == null) {
+            payload = new Value(EMPTY_PAYLOAD);
+        } else {
+            RegistryInterest interest = key.getInterest();
+            Stopwatch tracer = serializeDeltaAppsTimer.start();
+            try {
+                Applications deltaOfInterest = interest.filter(delta);
+                deltaOfInterest.setAppsHashCode(registry.getReconcileHashCode(interest::matches, key.getRegions()));
+                payload = getPayLoad(key, deltaOfInterest);
+            } finally {
+                tracer.stop();
+            }
+        }
+        payload.generation = deltaValue.getGeneration();
+        payload.registrySequence = deltaValue.getRegistrySequence();
+        return payload;
+    }
+
     private static Applications getApplicationsForVip(Key key, AbstractInstanceRegistry registry) {
         logger.debug(
                 "Retrieving applications from registry for key : {} {} {} {}",
@@ -502,45 +854,114 @@ public class ResponseCacheImpl implements ResponseCache {
     /**
      * The class that stores payload in both compressed and uncompressed form.
      *
+     * <p>
+     * The uncompressed payload is kept in its UTF-8 encoded form, so that it can be written to the clients as is.
+     * Compressed forms are only computed when first requested, as most keys (single application, VIP, XML) are
+     * almost never fetched compressed. All arrays are shared with the callers and must not be modified.
+     * </p>
      */
     public class Value {
-        private final String payload;
-        private byte[] gzipped;
+        private final byte[] payload;
+        private final ConcurrentMap<String, byte[]> compressed = new ConcurrentHashMap<String, byte[]>(2);
+        private final AtomicLong rawHits = new AtomicLong();
+        private final AtomicLong compressedHits = new AtomicLong();
+        private final long timestamp = System.currentTimeMillis();
+        // Set before the value is published to the cache
+        private long generation;
+        private long registrySequence = -1;
+        // The delta this payload encodes, which the deltas of interest are filtered from
+        private Applications delta;
 
         public Value(String payload) {
+            this(EMPTY_PAYLOAD.equals(payload) ? EMPTY_BYTES : payload.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Value(byte[] payload) {
             this.payload = payload;
-            if (!EMPTY_PAYLOAD.equals(payload)) {
+        }
+
+        public String getPayload() {
+            return payload.length == 0 ? EMPTY_PAYLOAD : new String(payload, StandardCharsets.UTF_8);
+        }
+
+        public byte[] getRawPayload() {
+            return payload;
+        }
+
+        public byte[] getGzipped() {
+            return getCompressed(CompressionCodecs.GZIP);
+        }
+
+        /**
+         * @return the payload compressed with the given codec, computed on the first call, or null if the
+         * payload is empty or cannot be compressed
+         */
+        public byte[] getCompressed(CompressionCodec codec) {
+            if (payload.length == 0) {
+                return null;
+            }
+            compressedHits.incrementAndGet();
+            compressedPayloadHits.increment();
+            byte[] result = compressed.get(codec.getEncoding());
+            if (result == null) {
+                // Concurrent first requests may compress twice, which is cheaper than blocking the readers
                 Stopwatch tracer = compressPayloadTimer.start();
                 try {
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-                    GZIPOutputStream out = new GZIPOutputStream(bos);
-                    byte[] rawBytes = payload.getBytes();
-                    out.write(rawBytes);
-                    // Finish creation of gzip file
-                    out.finish();
-                    out.close();
-                    bos.close();
-                    gzipped = bos.toByteArray();
+                    result = codec.compress(payload);
+                    byte[] existing = compressed.putIfAbsent(codec.getEncoding(), result);
+                    if (existing != null) {
+                        result = existing;
+                    }
                 } catch (IOException e) {
-                    gzipped = null;
+                    logger.error("Failed to compress the payload with {}", codec.getEncoding(), e);
+                    return null;
                 } finally {
-                    if (tracer != null) {
-                        tracer.stop();
-                    }
+                    tracer.stop();
                 }
-            } else {
-                gzipped = null;
             }
+            return result;
         }
 
-        public String getPayload() {
-            return payload;
+        /**
+         * @return the number of registry changes applied when this payload was built
+         */
+        public long getGeneration() {
+            return generation;
         }
 
-        public byte[] getGzipped() {
-            return gzipped;
+        /**
+         * @return for the full registry and delta payloads, a registry sequence number such that the payload
+         * reflects all the changes up to it, or -1 for the other payloads
+         */
+        public long getRegistrySequence() {
+            return registrySequence;
         }
 
+        long getTimestamp() {
+            return timestamp;
+        }
+
+        @Nullable
+        Applications getDelta() {
+            return delta;
+        }
+
+        public long getRawHits() {
+            return rawHits.get();
+        }
+
+        public long getCompressedHits() {
+            return compressedHits.get();
+        }
+
+        public boolean isEmpty() {
+            return payload.length == 0;
+        }
+
+        public void recordRawHit() {
+            rawHits.incrementAndGet();
+            rawPayloadHits.increment();
+        }
     }
 
 }
@@ -18,6 +18,7 @@ package com.netflix.eureka.resources;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
@@ -30,11 +31,16 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
 import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.netflix.appinfo.EurekaAccept;
+import com.netflix.discovery.shared.RegistryInterest;
+import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.registry.AbstractInstanceRegistry;
+import com.netflix.eureka.registry.CompressionCodec;
+import com.netflix.eureka.registry.CompressionCodecs;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.Version;
@@ -58,8 +64,8 @@ public class ApplicationsResource {
     private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
     private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
-    private static final String HEADER_GZIP_VALUE = "gzip";
     private static final String HEADER_JSON_VALUE = "json";
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
 
     private final EurekaServerConfig serverConfig;
     private final PeerAwareInstanceRegistry registry;
@@ -109,9 +115,12 @@ public class ApplicationsResource {
      * @param regionsStr A comma separated list of remote regions from which the instances will also be returned.
      *                   The applications returned from the remote region can be limited to the applications
      *                   returned by {@link EurekaServerConfig#getRemoteRegionAppWhitelist(String)}
+     * @param vipAddresses comma separated VIP addresses, see {@link RegistryInterest}
+     * @param appNames comma separated application names, see {@link RegistryInterest}
      *
      * @return a response containing information about all {@link com.netflix.discovery.shared.Applications}
-     *         from the {@link AbstractInstanceRegistry}.
+     *         from the {@link AbstractInstanceRegistry}, or only about the instances of the given VIP addresses
+     *         and applications if any is given.
      */
     @GET
     public Response getContainers(@PathParam("version") String version,
@@ -119,7 +128,9 @@ public class ApplicationsResource {
                                   @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
                                   @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
                                   @Context UriInfo uriInfo,
-                                  @Nullable @QueryParam("regions") String regionsStr) {
+                                  @Nullable @QueryParam("regions") String regionsStr,
+                                  @Nullable @QueryParam(RegistryInterest.VIPS_PARAM) String vipAddresses,
+                                  @Nullable @QueryParam(RegistryInterest.APPS_PARAM) String appNames) {
 
         boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
         String[] regions = null;
@@ -147,19 +158,12 @@ public class ApplicationsResource {
 
         Key cacheKey = new Key(Key.EntityType.Application,
                 ResponseCacheImpl.ALL_APPS,
-                keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
+                keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions, -1,
+                RegistryInterest.of(vipAddresses, appNames)
         );
 
-        Response response;
-        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
-            response = Response.ok(responseCache.getGZIP(cacheKey))
-                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
-                    .header(HEADER_CONTENT_TYPE, returnMediaType)
-                    .build();
-        } else {
-            response = Response.ok(responseCache.get(cacheKey))
-                    .build();
-        }
+        Response response = payloadResponse(responseCache.getValue(cacheKey),
+                CompressionCodecs.forAcceptEncoding(acceptEncoding), returnMediaType).build();
         CurrentRequestVersion.remove();
         return response;
     }
@@ -184,11 +188,27 @@ public class ApplicationsResource {
      * are expected to handle this duplicate information.
      * <p>
      *
+     * <p>
+     * Full registry and delta responses carry a cursor in the {@link EurekaHttpClient#HTTP_X_EUREKA_REGISTRY_CURSOR}
+     * header. A client passing it back as the {@code since} parameter gets the changes made after it only. If
+     * these changes are no longer retained, the response is a 404 (Not Found) and the client has to fetch the full
+     * registry. A cursor issued by another server is ignored.
+     * </p>
+     *
+     * <p>
+     * A client holding only the instances of some VIP addresses and applications passes them in the
+     * {@code vips} and {@code apps} parameters, and gets the changes of these instances only, with the reconcile
+     * hash code of these instances.
+     * </p>
+     *
      * @param version the version of the request.
      * @param acceptHeader the accept header to indicate whether to serve  JSON or XML data.
      * @param acceptEncoding the accept header to indicate whether to serve compressed or uncompressed data.
      * @param eurekaAccept an eureka accept extension, see {@link com.netflix.appinfo.EurekaAccept}
      * @param uriInfo  the {@link java.net.URI} information of the request made.
+     * @param cursor the cursor of the last full registry or delta the client applied, if any.
+     * @param vipAddresses comma separated VIP addresses, see {@link RegistryInterest}
+     * @param appNames comma separated application names, see {@link RegistryInterest}
      * @return response containing the delta information of the
      *         {@link AbstractInstanceRegistry}.
      */
@@ -199,7 +219,10 @@ public class ApplicationsResource {
             @HeaderParam(HEADER_ACCEPT) String acceptHeader,
             @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
             @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
-            @Context UriInfo uriInfo, @Nullable @QueryParam("regions") String regionsStr) {
+            @Context UriInfo uriInfo, @Nullable @QueryParam("regions") String regionsStr,
+            @Nullable @QueryParam("since") String cursor,
+            @Nullable @QueryParam(RegistryInterest.VIPS_PARAM) String vipAddresses,
+            @Nullable @QueryParam(RegistryInterest.APPS_PARAM) String appNames) {
 
         boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
 
@@ -226,23 +249,147 @@ public class ApplicationsResource {
             returnMediaType = MediaType.APPLICATION_XML;
         }
 
+        long sinceSequence = parseEpochToken(cursor);
         Key cacheKey = new Key(Key.EntityType.Application,
                 ResponseCacheImpl.ALL_APPS_DELTA,
-                keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
+                keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions, sinceSequence,
+                RegistryInterest.of(vipAddresses, appNames)
         );
 
         final Response response;
-
-        if (acceptEncoding != null && acceptEncoding.contains(HEADER_GZIP_VALUE)) {
-             response = Response.ok(responseCache.getGZIP(cacheKey))
-                    .header(HEADER_CONTENT_ENCODING, HEADER_GZIP_VALUE)
-                    .header(HEADER_CONTENT_TYPE, returnMediaType)
-                    .build();
+        ResponseCacheImpl.Value value = responseCache.getValue(cacheKey);
+        if (sinceSequence >= 0 && (value == null || value.isEmpty())) {
+            response = Response.status(Status.NOT_FOUND).build();
         } else {
-            response = Response.ok(responseCache.get(cacheKey)).build();
+            response = payloadResponse(value, CompressionCodecs.forAcceptEncoding(acceptEncoding), returnMediaType)
+                    .build();
         }
 
         CurrentRequestVersion.remove();
         return response;
     }
+
+    /**
+     * Waits for a registry change, and returns the delta once it happened, so that clients learn about changes as
+     * soon as they are applied instead of on their next poll.
+     *
+     * <p>
+     * The response carries a token in the {@link EurekaHttpClient#HTTP_X_EUREKA_REGISTRY_GENERATION} header, which
+     * the client sends back with its next watch. The current delta is returned right away if the token is missing,
+     * or was issued by another server. If nothing changes within the requested timeout, capped by
+     * {@link EurekaServerConfig#getRegistryWatchMaxWaitMs()}, the response is a 304 (Not Modified). Once
+     * {@link EurekaServerConfig#getMaxConcurrentRegistryWatches()} clients are waiting, the others get a 429 (Too Many
+     * Requests) and are expected to fall back to polling {@link #getContainerDifferential}.
+     * </p>
+     *
+     * @param generationToken the token returned by the previous watch, if any.
+     * @param timeoutSeconds the maximum time to wait for a change.
+     * @return response containing the delta information of the {@link AbstractInstanceRegistry}.
+     */
+    @Path("delta/watch")
+    @GET
+    public Response watchContainerDifferential(
+            @PathParam("version") String version,
+            @HeaderParam(HEADER_ACCEPT) String acceptHeader,
+            @HeaderParam(HEADER_ACCEPT_ENCODING) String acceptEncoding,
+            @HeaderParam(EurekaAccept.HTTP_X_EUREKA_ACCEPT) String eurekaAccept,
+            @Context UriInfo uriInfo, @Nullable @QueryParam("regions") String regionsStr,
+            @Nullable @QueryParam("generation") String generationToken,
+            @QueryParam("timeout") @DefaultValue("30") int timeoutSeconds) {
+
+        boolean isRemoteRegionRequested = null != regionsStr && !regionsStr.isEmpty();
+
+        if ((serverConfig.shouldDisableDelta()) || (!registry.shouldAllowAccess(isRemoteRegionRequested))) {
+            return Response.status(Status.FORBIDDEN).build();
+        }
+
+        String[] regions = null;
+        if (!isRemoteRegionRequested) {
+            EurekaMonitors.GET_ALL_DELTA.increment();
+        } else {
+            regions = regionsStr.toLowerCase().split(",");
+            Arrays.sort(regions); // So we don't have different caches for same regions queried in different order.
+            EurekaMonitors.GET_ALL_DELTA_WITH_REMOTE_REGIONS.increment();
+        }
+
+        CurrentRequestVersion.set(Version.toEnum(version));
+        try {
+            KeyType keyType = Key.KeyType.JSON;
+            String returnMediaType = MediaType.APPLICATION_JSON;
+            if (acceptHeader == null || !acceptHeader.contains(HEADER_JSON_VALUE)) {
+                keyType = Key.KeyType.XML;
+                returnMediaType = MediaType.APPLICATION_XML;
+            }
+
+            Key cacheKey = new Key(Key.EntityType.Application,
+                    ResponseCacheImpl.ALL_APPS_DELTA,
+                    keyType, CurrentRequestVersion.get(), EurekaAccept.fromString(eurekaAccept), regions
+            );
+
+            long knownGeneration = parseEpochToken(generationToken);
+            long timeoutMs = Math.min(Math.max(0, timeoutSeconds) * 1000L, serverConfig.getRegistryWatchMaxWaitMs());
+            ResponseCacheImpl.Value value;
+            try {
+                value = responseCache.awaitChange(cacheKey, knownGeneration, timeoutMs);
+            } catch (RejectedExecutionException e) {
+                return Response.status(STATUS_TOO_MANY_REQUESTS).build();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Response.status(Status.SERVICE_UNAVAILABLE).build();
+            }
+
+            if (value == null) {
+                return Response.notModified()
+                        .header(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION, generationToken)
+                        .build();
+            }
+            return payloadResponse(value, CompressionCodecs.forAcceptEncoding(acceptEncoding), returnMediaType)
+                    .header(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION,
+                            responseCache.getGenerationEpoch() + '-' + value.getGeneration())
+                    .build();
+        } finally {
+            CurrentRequestVersion.remove();
+        }
+    }
+
+    /**
+     * Builds the response for a full registry or delta payload, with the cursor from which the client can ask for
+     * the next changes.
+     */
+    private Response.ResponseBuilder payloadResponse(@Nullable ResponseCacheImpl.Value value,
+                                                     @Nullable CompressionCodec compressionCodec,
+                                                     String returnMediaType) {
+        Response.ResponseBuilder builder;
+        if (compressionCodec != null) {
+            builder = Response.ok(value == null ? null : value.getCompressed(compressionCodec))
+                    .header(HEADER_CONTENT_ENCODING, compressionCodec.getEncoding())
+                    .header(HEADER_CONTENT_TYPE, returnMediaType);
+        } else if (value == null || value.isEmpty()) {
+            builder = Response.ok(null);
+        } else {
+            value.recordRawHit();
+            builder = Response.ok(value.getRawPayload());
+        }
+        if (value != null && value.getRegistrySequence() >= 0) {
+            builder.header(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR,
+                    responseCache.getGenerationEpoch() + '-' + value.getRegistrySequence());
+        }
+        return builder;
+    }
+
+    /**
+     * @return the number encoded in a watch token or a delta cursor issued by this server, or -1 if the token is
+     * missing or was issued by another server
+     */
+    private long parseEpochToken(@Nullable String token) {
+        String prefix = responseCache.getGenerationEpoch() + '-';
+        if (token == null || !token.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
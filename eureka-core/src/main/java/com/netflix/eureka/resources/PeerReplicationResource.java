@@ -16,20 +16,20 @@
 
 package com.netflix.eureka.resources;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import javax.inject.Inject;
+import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
-import com.netflix.appinfo.InstanceInfo;
 import com.netflix.eureka.EurekaServerContext;
-import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContextHolder;
-import com.netflix.eureka.cluster.protocol.ReplicationInstance;
-import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
-import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse.Builder;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
@@ -48,15 +48,13 @@ public class PeerReplicationResource {
 
     private static final Logger logger = LoggerFactory.getLogger(PeerReplicationResource.class);
 
-    private static final String REPLICATION = "true";
-
-    private final EurekaServerConfig serverConfig;
     private final PeerAwareInstanceRegistry registry;
+    private final ReplicationBinaryCodec binaryCodec;
 
     @Inject
     PeerReplicationResource(EurekaServerContext server) {
-        this.serverConfig = server.getServerConfig();
         this.registry = server.getRegistry();
+        this.binaryCodec = new ReplicationBinaryCodec(server.getServerCodecs().getFullJsonCodec());
     }
 
     public PeerReplicationResource() {
@@ -67,7 +65,8 @@ public class PeerReplicationResource {
      * Process batched replication events from peer eureka nodes.
      *
      * <p>
-     *  The batched events are delegated to underlying resources to generate a
+     *  The batched events are applied to the registry by
+     *  {@link PeerAwareInstanceRegistry#applyReplicationBatch(ReplicationList)}, which generates a
      *  {@link ReplicationListResponse} containing the individual responses to the batched events
      * </p>
      *
@@ -79,104 +78,40 @@ public class PeerReplicationResource {
     @POST
     public Response batchReplication(ReplicationList replicationList) {
         try {
-            ReplicationListResponse batchResponse = new ReplicationListResponse();
-            for (ReplicationInstance instanceInfo : replicationList.getReplicationList()) {
-                try {
-                    batchResponse.addResponse(dispatch(instanceInfo));
-                } catch (Exception e) {
-                    batchResponse.addResponse(new ReplicationInstanceResponse(Status.INTERNAL_SERVER_ERROR.getStatusCode(), null));
-                    logger.error("{} request processing failed for batch item {}/{}",
-                            instanceInfo.getAction(), instanceInfo.getAppName(), instanceInfo.getId(), e);
-                }
-            }
-            return Response.ok(batchResponse).build();
+            return Response.ok(process(replicationList)).build();
         } catch (Throwable e) {
             logger.error("Cannot execute batch Request", e);
             return Response.status(Status.INTERNAL_SERVER_ERROR).build();
         }
     }
 
-    private ReplicationInstanceResponse dispatch(ReplicationInstance instanceInfo) {
-        ApplicationResource applicationResource = createApplicationResource(instanceInfo);
-        InstanceResource resource = createInstanceResource(instanceInfo, applicationResource);
-
-        String lastDirtyTimestamp = toString(instanceInfo.getLastDirtyTimestamp());
-        String overriddenStatus = toString(instanceInfo.getOverriddenStatus());
-        String instanceStatus = toString(instanceInfo.getStatus());
-
-        Builder singleResponseBuilder = new Builder();
-        switch (instanceInfo.getAction()) {
-            case Register:
-                singleResponseBuilder = handleRegister(instanceInfo, applicationResource);
-                break;
-            case Heartbeat:
-                singleResponseBuilder = handleHeartbeat(serverConfig, resource, lastDirtyTimestamp, overriddenStatus, instanceStatus);
-                break;
-            case Cancel:
-                singleResponseBuilder = handleCancel(resource);
-                break;
-            case StatusUpdate:
-                singleResponseBuilder = handleStatusUpdate(instanceInfo, resource);
-                break;
-            case DeleteStatusOverride:
-                singleResponseBuilder = handleDeleteStatusOverride(instanceInfo, resource);
-                break;
+    /**
+     * Same as {@link #batchReplication(ReplicationList)}, for peers that send the batches in the
+     * {@link ReplicationBinaryCodec} format. Older peers do not have this method, and reject the binary batches with
+     * {@link Status#NOT_ACCEPTABLE}, as their batch method does not produce the binary format the sender accepts. The
+     * sender then falls back to JSON, see {@link ReplicationBinaryCodec#isRejectedByPeer(int)}.
+     */
+    @Path("batch")
+    @POST
+    @Consumes(ReplicationBinaryCodec.MEDIA_TYPE)
+    @Produces(ReplicationBinaryCodec.MEDIA_TYPE)
+    public Response batchReplicationBinary(InputStream input) {
+        ReplicationList replicationList;
+        try {
+            replicationList = binaryCodec.decodeReplicationList(input);
+        } catch (IOException e) {
+            logger.warn("Cannot decode binary replication batch", e);
+            return Response.status(Status.BAD_REQUEST).build();
         }
-        return singleResponseBuilder.build();
-    }
-
-    /* Visible for testing */ ApplicationResource createApplicationResource(ReplicationInstance instanceInfo) {
-        return new ApplicationResource(instanceInfo.getAppName(), serverConfig, registry);
-    }
-
-    /* Visible for testing */ InstanceResource createInstanceResource(ReplicationInstance instanceInfo,
-                                                                      ApplicationResource applicationResource) {
-        return new InstanceResource(applicationResource, instanceInfo.getId(), serverConfig, registry);
-    }
-
-    private static Builder handleRegister(ReplicationInstance instanceInfo, ApplicationResource applicationResource) {
-        applicationResource.addInstance(instanceInfo.getInstanceInfo(), REPLICATION);
-        return new Builder().setStatusCode(Status.OK.getStatusCode());
-    }
-
-    private static Builder handleCancel(InstanceResource resource) {
-        Response response = resource.cancelLease(REPLICATION);
-        return new Builder().setStatusCode(response.getStatus());
-    }
-
-    private static Builder handleHeartbeat(EurekaServerConfig config, InstanceResource resource, String lastDirtyTimestamp, String overriddenStatus, String instanceStatus) {
-        Response response = resource.renewLease(REPLICATION, overriddenStatus, instanceStatus, lastDirtyTimestamp);
-        int responseStatus = response.getStatus();
-        Builder responseBuilder = new Builder().setStatusCode(responseStatus);
-
-        if ("false".equals(config.getExperimental("bugfix.934"))) {
-            if (responseStatus == Status.OK.getStatusCode() && response.getEntity() != null) {
-                responseBuilder.setResponseEntity((InstanceInfo) response.getEntity());
-            }
-        } else {
-            if ((responseStatus == Status.OK.getStatusCode() || responseStatus == Status.CONFLICT.getStatusCode())
-                    && response.getEntity() != null) {
-                responseBuilder.setResponseEntity((InstanceInfo) response.getEntity());
-            }
+        try {
+            return Response.ok(binaryCodec.encode(process(replicationList))).build();
+        } catch (Throwable e) {
+            logger.error("Cannot execute batch Request", e);
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
         }
-        return responseBuilder;
-    }
-
-    private static Builder handleStatusUpdate(ReplicationInstance instanceInfo, InstanceResource resource) {
-        Response response = resource.statusUpdate(instanceInfo.getStatus(), REPLICATION, toString(instanceInfo.getLastDirtyTimestamp()));
-        return new Builder().setStatusCode(response.getStatus());
     }
 
-    private static Builder handleDeleteStatusOverride(ReplicationInstance instanceInfo, InstanceResource resource) {
-        Response response = resource.deleteStatusUpdate(REPLICATION, instanceInfo.getStatus(),
-                instanceInfo.getLastDirtyTimestamp().toString());
-        return new Builder().setStatusCode(response.getStatus());
-    }
-
-    private static <T> String toString(T value) {
-        if (value == null) {
-            return null;
-        }
-        return value.toString();
+    private ReplicationListResponse process(ReplicationList replicationList) {
+        return registry.applyReplicationBatch(replicationList);
     }
 }
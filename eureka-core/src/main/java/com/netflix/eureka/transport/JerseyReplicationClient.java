@@ -2,6 +2,7 @@ package com.netflix.eureka.transport;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -19,10 +20,12 @@ import com.netflix.eureka.EurekaServerIdentity;
 import com.netflix.eureka.cluster.DynamicGZIPContentEncodingFilter;
 import com.netflix.eureka.cluster.HttpReplicationClient;
 import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
 import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
 import com.netflix.eureka.resources.ASGResource.ASGStatus;
 import com.netflix.eureka.resources.ServerCodecs;
+import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.WebResource.Builder;
@@ -42,11 +45,27 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
 
     private final EurekaJerseyClient jerseyClient;
     private final ApacheHttpClient4 jerseyApacheClient;
+    private final ReplicationBinaryCodec binaryCodec;
+
+    /**
+     * Cleared when the peer turns out not to support the binary batch format.
+     */
+    private volatile boolean binaryReplication;
 
     public JerseyReplicationClient(EurekaJerseyClient jerseyClient, String serviceUrl) {
+        this(jerseyClient, serviceUrl, null);
+    }
+
+    /**
+     * @param binaryCodec codec for the batches sent to peers supporting the binary format, or null to always
+     *                    send batches in JSON
+     */
+    public JerseyReplicationClient(EurekaJerseyClient jerseyClient, String serviceUrl, ReplicationBinaryCodec binaryCodec) {
         super(jerseyClient.getClient(), serviceUrl);
         this.jerseyClient = jerseyClient;
         this.jerseyApacheClient = jerseyClient.getClient();
+        this.binaryCodec = binaryCodec;
+        this.binaryReplication = binaryCodec != null;
     }
 
     @Override
@@ -108,6 +127,16 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
 
     @Override
     public EurekaHttpResponse<ReplicationListResponse> submitBatchUpdates(ReplicationList replicationList) {
+        if (binaryReplication) {
+            EurekaHttpResponse<ReplicationListResponse> response = submitBinaryBatchUpdates(replicationList);
+            if (!ReplicationBinaryCodec.isRejectedByPeer(response.getStatusCode())) {
+                return response;
+            }
+            // Remembered for this peer, so that the following batches are only sent once
+            logger.info("Peer {} rejected a binary replication batch with status {}; falling back to JSON",
+                    serviceUrl, response.getStatusCode());
+            binaryReplication = false;
+        }
         ClientResponse response = null;
         try {
             response = jerseyApacheClient.resource(serviceUrl)
@@ -127,6 +156,28 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         }
     }
 
+    private EurekaHttpResponse<ReplicationListResponse> submitBinaryBatchUpdates(ReplicationList replicationList) {
+        ClientResponse response = null;
+        try {
+            response = jerseyApacheClient.resource(serviceUrl)
+                    .path(PeerEurekaNode.BATCH_URL_PATH)
+                    .accept(ReplicationBinaryCodec.MEDIA_TYPE)
+                    .type(ReplicationBinaryCodec.MEDIA_TYPE)
+                    .post(ClientResponse.class, binaryCodec.encode(replicationList));
+            if (!isSuccess(response.getStatus())) {
+                return anEurekaHttpResponse(response.getStatus(), ReplicationListResponse.class).build();
+            }
+            ReplicationListResponse batchResponse = binaryCodec.decodeReplicationListResponse(response.getEntityInputStream());
+            return anEurekaHttpResponse(response.getStatus(), batchResponse).type(MediaType.valueOf(ReplicationBinaryCodec.MEDIA_TYPE)).build();
+        } catch (IOException e) {
+            throw new ClientHandlerException("Cannot encode or decode binary replication batch", e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
     public void addReplicationClientFilter(ClientFilter clientFilter) {
         jerseyApacheClient.addFilter(clientFilter);
     }
@@ -183,7 +234,10 @@ public class JerseyReplicationClient extends AbstractJerseyEurekaHttpClient impl
         EurekaServerIdentity identity = new EurekaServerIdentity(ip);
         jerseyApacheClient.addFilter(new EurekaIdentityHeaderFilter(identity));
 
-        return new JerseyReplicationClient(jerseyClient, serviceUrl);
+        ReplicationBinaryCodec binaryCodec = config.shouldUseBinaryPeerReplication()
+                ? new ReplicationBinaryCodec(serverCodecs.getFullJsonCodec())
+                : null;
+        return new JerseyReplicationClient(jerseyClient, serviceUrl, binaryCodec);
     }
 
     private static boolean isSuccess(int statusCode) {
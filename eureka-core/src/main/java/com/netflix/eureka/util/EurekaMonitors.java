@@ -67,7 +67,9 @@ public enum EurekaMonitors {
     RATE_LIMITED("numOfRateLimitedRequests", "Number of requests discarded by the rate limiter"),
     RATE_LIMITED_CANDIDATES("numOfRateLimitedRequestCandidates", "Number of requests that would be discarded if the rate limiter's throttling is activated"),
     RATE_LIMITED_FULL_FETCH("numOfRateLimitedFullFetchRequests", "Number of full registry fetch requests discarded by the rate limiter"),
-    RATE_LIMITED_FULL_FETCH_CANDIDATES("numOfRateLimitedFullFetchRequestCandidates", "Number of full registry fetch requests that would be discarded if the rate limiter's throttling is activated");
+    RATE_LIMITED_FULL_FETCH_CANDIDATES("numOfRateLimitedFullFetchRequestCandidates", "Number of full registry fetch requests that would be discarded if the rate limiter's throttling is activated"),
+    RATE_LIMITED_BY_CLIENT("numOfClientRateLimitedRequests", "Number of requests discarded by the rate limiter as their client exceeded its own limit"),
+    RATE_LIMITED_BY_CLIENT_CANDIDATES("numOfClientRateLimitedRequestCandidates", "Number of requests that would be discarded if the rate limiter's throttling is activated, as their client exceeded its own limit");
 
     private final String name;
 
@@ -26,7 +26,10 @@ import org.slf4j.LoggerFactory;
  * Utility class for getting a count in last X milliseconds.
  *
  * @author Karthik Ranganathan,Greg Kim
+ * @deprecated use {@link SlidingWindowRate} instead, which neither contends on a single counter nor starts a timer
+ * thread for each rate.
  */
+@Deprecated
 public class MeasuredRate {
     private static final Logger logger = LoggerFactory.getLogger(MeasuredRate.class);
     private final AtomicLong lastBucket = new AtomicLong(0);
@@ -0,0 +1,111 @@
+package com.netflix.eureka.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utility class for getting a count in the last X milliseconds, over a window sliding by a fraction of it.
+ *
+ * <p>
+ * The window is split in buckets, each counting with a {@link LongAdder} so that the threads incrementing it
+ * concurrently do not contend on a single value. The bucket being filled is not part of the count, which is the sum
+ * of the buckets filled during the last window, and the buckets are moved on by a scheduler thread shared with the
+ * other rates.
+ * </p>
+ */
+public class SlidingWindowRate {
+    private static final Logger logger = LoggerFactory.getLogger(SlidingWindowRate.class);
+
+    private static final ScheduledExecutorService rotationExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Eureka-SlidingWindowRateTimer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+    );
+
+    private final long bucketMs;
+    // One more than the buckets of the window, for the bucket being filled
+    private final LongAdder[] buckets;
+    private volatile int current;
+
+    private ScheduledFuture<?> rotation;
+
+    /**
+     * @param windowMs in milliseconds
+     * @param bucketCount the number of buckets the window is split in, the count being updated once per bucket
+     */
+    public SlidingWindowRate(long windowMs, int bucketCount) {
+        if (bucketCount <= 0 || windowMs < bucketCount || windowMs % bucketCount != 0) {
+            throw new IllegalArgumentException("Expected a window split in buckets of whole milliseconds; got windowMs="
+                    + windowMs + ", bucketCount=" + bucketCount);
+        }
+        this.bucketMs = windowMs / bucketCount;
+        this.buckets = new LongAdder[bucketCount + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public synchronized void start() {
+        if (rotation == null) {
+            rotation = rotationExecutor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rotate();
+                    } catch (Throwable e) {
+                        logger.error("Cannot move the sliding window rate on", e);
+                    }
+                }
+            }, bucketMs, bucketMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (rotation != null) {
+            rotation.cancel(false);
+            rotation = null;
+        }
+    }
+
+    /**
+     * Returns the count in the last window.
+     */
+    public long getCount() {
+        int filled = current;
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            if (i != filled) {
+                count += buckets[i].sum();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Increments the count in the current bucket.
+     */
+    public void increment() {
+        buckets[current].increment();
+    }
+
+    /**
+     * Ends the bucket being filled, and starts filling the oldest one of the window again.
+     */
+    void rotate() {
+        int next = current + 1 == buckets.length ? 0 : current + 1;
+        buckets[next].reset();
+        current = next;
+    }
+}
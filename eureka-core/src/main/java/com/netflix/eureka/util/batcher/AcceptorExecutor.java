@@ -43,14 +43,13 @@ import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
  *
  * @author Tomasz Bak
  */
-class AcceptorExecutor<ID, T> {
+class AcceptorExecutor<ID, T> implements TaskAcceptor<ID, T> {
 
     private static final Logger logger = LoggerFactory.getLogger(AcceptorExecutor.class);
 
     private final String id;
     private final int maxBufferSize;
-    private final int maxBatchingSize;
-    private final long maxBatchingDelay;
+    private final BatchingWindow batchingWindow;
 
     private final AtomicBoolean isShutdown = new AtomicBoolean(false);
 
@@ -95,10 +94,17 @@ class AcceptorExecutor<ID, T> {
                      long maxBatchingDelay,
                      long congestionRetryDelayMs,
                      long networkFailureRetryMs) {
+        this(id, maxBufferSize, BatchingWindow.fixed(maxBatchingSize, maxBatchingDelay), congestionRetryDelayMs, networkFailureRetryMs);
+    }
+
+    AcceptorExecutor(String id,
+                     int maxBufferSize,
+                     BatchingWindow batchingWindow,
+                     long congestionRetryDelayMs,
+                     long networkFailureRetryMs) {
         this.id = id;
         this.maxBufferSize = maxBufferSize;
-        this.maxBatchingSize = maxBatchingSize;
-        this.maxBatchingDelay = maxBatchingDelay;
+        this.batchingWindow = batchingWindow;
         this.trafficShaper = new TrafficShaper(congestionRetryDelayMs, networkFailureRetryMs);
 
         ThreadGroup threadGroup = new ThreadGroup("eurekaTaskExecutors");
@@ -121,34 +127,45 @@ class AcceptorExecutor<ID, T> {
         }
     }
 
-    void process(ID id, T task, long expiryTime) {
+    @Override
+    public void process(ID id, T task, long expiryTime) {
         acceptorQueue.add(new TaskHolder<ID, T>(id, task, expiryTime));
         acceptedTasks++;
     }
 
-    void reprocess(List<TaskHolder<ID, T>> holders, ProcessingResult processingResult) {
+    @Override
+    public void reprocess(List<TaskHolder<ID, T>> holders, ProcessingResult processingResult) {
         reprocessQueue.addAll(holders);
         replayedTasks += holders.size();
         trafficShaper.registerFailure(processingResult);
     }
 
-    void reprocess(TaskHolder<ID, T> taskHolder, ProcessingResult processingResult) {
+    @Override
+    public void reprocess(TaskHolder<ID, T> taskHolder, ProcessingResult processingResult) {
         reprocessQueue.add(taskHolder);
         replayedTasks++;
         trafficShaper.registerFailure(processingResult);
     }
 
-    BlockingQueue<TaskHolder<ID, T>> requestWorkItem() {
+    @Override
+    public void registerBatchResult(ProcessingResult processingResult, long latencyMs) {
+        batchingWindow.registerResult(processingResult, latencyMs);
+    }
+
+    @Override
+    public BlockingQueue<TaskHolder<ID, T>> requestWorkItem() {
         singleItemWorkRequests.release();
         return singleItemWorkQueue;
     }
 
-    BlockingQueue<List<TaskHolder<ID, T>>> requestWorkItems() {
+    @Override
+    public BlockingQueue<List<TaskHolder<ID, T>>> requestWorkItems() {
         batchWorkRequests.release();
         return batchWorkQueue;
     }
 
-    void shutdown() {
+    @Override
+    public void shutdown() {
         if (isShutdown.compareAndSet(false, true)) {
             Monitors.unregisterObject(id, this);
             acceptorThread.interrupt();
@@ -175,6 +192,16 @@ class AcceptorExecutor<ID, T> {
         return singleItemWorkRequests.availablePermits() + batchWorkRequests.availablePermits();
     }
 
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchingWindowSize", description = "Current maximum number of tasks in a batch", type = DataSourceType.GAUGE)
+    public long getBatchingWindowSize() {
+        return batchingWindow.getBatchSize();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchingDelay", description = "Current maximum time a task waits for a batch to fill up", type = DataSourceType.GAUGE)
+    public long getBatchingDelay() {
+        return batchingWindow.getBatchingDelay();
+    }
+
     @Monitor(name = METRIC_REPLICATION_PREFIX + "availableJobs", description = "Number of jobs ready to be taken by the workers", type = DataSourceType.GAUGE)
     public long workerTaskQueueSize() {
         return singleItemWorkQueue.size() + batchWorkQueue.size();
@@ -296,7 +323,7 @@ class AcceptorExecutor<ID, T> {
             if (hasEnoughTasksForNextBatch()) {
                 if (batchWorkRequests.tryAcquire(1)) {
                     long now = System.currentTimeMillis();
-                    int len = Math.min(maxBatchingSize, processingOrder.size());
+                    int len = Math.min(batchingWindow.getBatchSize(), processingOrder.size());
                     List<TaskHolder<ID, T>> holders = new ArrayList<>(len);
                     while (holders.size() < len && !processingOrder.isEmpty()) {
                         ID id = processingOrder.poll();
@@ -327,7 +354,7 @@ class AcceptorExecutor<ID, T> {
 
             TaskHolder<ID, T> nextHolder = pendingTasks.get(processingOrder.peek());
             long delay = System.currentTimeMillis() - nextHolder.getSubmitTimestamp();
-            return delay >= maxBatchingDelay;
+            return delay >= batchingWindow.getBatchingDelay();
         }
     }
 }
@@ -0,0 +1,106 @@
+package com.netflix.eureka.util.batcher;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+
+/**
+ * Size of the batches handed out to the workers, and how long the first task of a batch may wait for others to
+ * join it.
+ *
+ * <p>
+ * A fixed window keeps the configured values. An adaptive window follows the outcome of each processed batch in an
+ * AIMD manner, like a congestion window: a batch processed successfully within the target latency grows the window
+ * additively, while a slow batch, a congestion or a transient error shrinks it multiplicatively. The batching delay
+ * moves the other way, from a tenth of the configured delay for a full window up to the configured delay for the
+ * smallest window, so a healthy target gets bigger batches more often, and a struggling one is sent less, smaller
+ * batches. Permanent errors say nothing about the target health, and are ignored.
+ * </p>
+ */
+class BatchingWindow {
+
+    private static final int MIN_BATCH_SIZE = 1;
+    private static final int ADDITIVE_INCREASE_STEPS = 20;
+    private static final double SLOW_BATCH_DECREASE = 0.75;
+    private static final double FAILURE_DECREASE = 0.5;
+
+    private final int maxBatchSize;
+    private final long maxBatchingDelay;
+    private final long minBatchingDelay;
+    private final long targetLatencyMs;
+    private final double additiveIncrease;
+
+    // Guarded by this, the derived values are published through volatile fields for the acceptor threads
+    private double window;
+    private volatile int batchSize;
+    private volatile long batchingDelay;
+
+    private BatchingWindow(int maxBatchSize, long maxBatchingDelay, long targetLatencyMs) {
+        this.maxBatchSize = Math.max(MIN_BATCH_SIZE, maxBatchSize);
+        this.maxBatchingDelay = maxBatchingDelay;
+        this.minBatchingDelay = maxBatchingDelay / 10;
+        this.targetLatencyMs = targetLatencyMs;
+        this.additiveIncrease = Math.max(1.0, (double) this.maxBatchSize / ADDITIVE_INCREASE_STEPS);
+        this.window = this.maxBatchSize;
+        this.batchSize = this.maxBatchSize;
+        this.batchingDelay = isAdaptive() ? minBatchingDelay : maxBatchingDelay;
+    }
+
+    static BatchingWindow fixed(int batchSize, long batchingDelay) {
+        return new BatchingWindow(batchSize, batchingDelay, 0);
+    }
+
+    /**
+     * @param targetLatencyMs processing time of a batch above which the target is considered overloaded
+     */
+    static BatchingWindow adaptive(int maxBatchSize, long maxBatchingDelay, long targetLatencyMs) {
+        return new BatchingWindow(maxBatchSize, maxBatchingDelay, Math.max(1, targetLatencyMs));
+    }
+
+    boolean isAdaptive() {
+        return targetLatencyMs > 0;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    long getBatchingDelay() {
+        return batchingDelay;
+    }
+
+    /**
+     * Adapts the window to the outcome of a batch. No-op for a fixed window.
+     *
+     * @param latencyMs time it took to process the batch
+     */
+    synchronized void registerResult(ProcessingResult result, long latencyMs) {
+        if (!isAdaptive()) {
+            return;
+        }
+        switch (result) {
+            case Success:
+                if (latencyMs <= targetLatencyMs) {
+                    update(Math.min(maxBatchSize, window + additiveIncrease));
+                } else {
+                    update(Math.max(MIN_BATCH_SIZE, window * SLOW_BATCH_DECREASE));
+                }
+                break;
+            case Congestion:
+            case TransientError:
+                update(Math.max(MIN_BATCH_SIZE, window * FAILURE_DECREASE));
+                break;
+            case PermanentError:
+                break;
+        }
+    }
+
+    private void update(double newWindow) {
+        window = newWindow;
+        batchSize = (int) Math.round(window);
+        if (maxBatchSize == MIN_BATCH_SIZE) {
+            batchingDelay = minBatchingDelay;
+        } else {
+            double congestion = (maxBatchSize - window) / (maxBatchSize - MIN_BATCH_SIZE);
+            batchingDelay = minBatchingDelay + Math.round((maxBatchingDelay - minBatchingDelay) * congestion);
+        }
+    }
+}
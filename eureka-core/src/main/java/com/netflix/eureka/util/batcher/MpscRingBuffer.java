@@ -0,0 +1,80 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free, multiple producers single consumer queue backed by a ring of slots.
+ *
+ * <p>
+ * Producers claim a slot by advancing the producer index with a CAS, and publish the element into it. The
+ * consumer owns the consumer index, and frees a slot by clearing it before moving past it, so a slot is never
+ * claimed again before its previous element was consumed. No allocation takes place on either side.
+ * </p>
+ */
+class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile long consumerIndex;
+
+    MpscRingBuffer(int requestedCapacity) {
+        int ringSize = Integer.highestOneBit(Math.max(2, requestedCapacity) - 1) << 1;
+        this.capacity = ringSize;
+        this.mask = ringSize - 1;
+        this.slots = new AtomicReferenceArray<>(ringSize);
+    }
+
+    /**
+     * May be called by any thread.
+     *
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long index;
+        do {
+            index = producerIndex.get();
+            if (index - consumerIndex >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        slots.lazySet((int) index & mask, element);
+        return true;
+    }
+
+    /**
+     * Must be called by the consumer thread only.
+     *
+     * @return next element, or null if the buffer is empty or the next element is not published yet
+     */
+    E poll() {
+        long index = consumerIndex;
+        int offset = (int) index & mask;
+        E element = slots.get(offset);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(offset, null);
+        consumerIndex = index + 1;
+        return element;
+    }
+
+    /**
+     * Claimed slots, whose elements may not be published yet, count as non empty.
+     */
+    boolean isEmpty() {
+        return producerIndex.get() == consumerIndex;
+    }
+
+    int size() {
+        long size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
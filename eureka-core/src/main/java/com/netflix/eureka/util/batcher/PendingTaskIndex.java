@@ -0,0 +1,155 @@
+package com.netflix.eureka.util.batcher;
+
+/**
+ * Fixed capacity index of the tasks pending dispatch, keyed by task id and kept in processing order. It plays the
+ * role of the {@code HashMap} and {@code LinkedList} pair of {@link AcceptorExecutor}, but with preallocated arrays:
+ * an open-addressed, linear probing table holding the task holders, and a ring of ids holding the order. Nothing is
+ * allocated per task.
+ *
+ * <p>
+ * Not thread safe, it is owned by a single acceptor thread.
+ * </p>
+ */
+class PendingTaskIndex<ID, T> {
+
+    private final int capacity;
+
+    private final Object[] keys;
+    private final Object[] holders;
+    private final int tableMask;
+
+    private final Object[] order;
+    private final int orderMask;
+    private int head;
+    private int size;
+
+    PendingTaskIndex(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        int tableSize = Integer.highestOneBit(this.capacity) << 2;
+        this.keys = new Object[tableSize];
+        this.holders = new Object[tableSize];
+        this.tableMask = tableSize - 1;
+        int orderSize = Integer.highestOneBit(this.capacity) << 1;
+        this.order = new Object[orderSize];
+        this.orderMask = orderSize - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isFull() {
+        return size >= capacity;
+    }
+
+    boolean contains(ID id) {
+        return keys[slotOf(id)] != null;
+    }
+
+    /**
+     * Appends the task at the end of the processing order, or replaces the pending task with the same id, in
+     * which case its position is kept. The caller must make room first if the index is full.
+     *
+     * @return the replaced task holder, or null if the task is new
+     */
+    @SuppressWarnings("unchecked")
+    TaskHolder<ID, T> put(TaskHolder<ID, T> holder) {
+        int slot = slotOf(holder.getId());
+        TaskHolder<ID, T> previous = (TaskHolder<ID, T>) holders[slot];
+        if (previous == null) {
+            keys[slot] = holder.getId();
+            order[(head + size) & orderMask] = holder.getId();
+            size++;
+        }
+        holders[slot] = holder;
+        return previous;
+    }
+
+    /**
+     * Puts the task at the front of the processing order. The task id must not be pending already, and the index
+     * must not be full.
+     */
+    void putFirst(TaskHolder<ID, T> holder) {
+        int slot = slotOf(holder.getId());
+        keys[slot] = holder.getId();
+        holders[slot] = holder;
+        head = (head - 1) & orderMask;
+        order[head] = holder.getId();
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    TaskHolder<ID, T> peekFirst() {
+        if (size == 0) {
+            return null;
+        }
+        return (TaskHolder<ID, T>) holders[slotOf((ID) order[head])];
+    }
+
+    /**
+     * Removes the first task in the processing order.
+     *
+     * @return removed task holder, or null if the index is empty
+     */
+    @SuppressWarnings("unchecked")
+    TaskHolder<ID, T> pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        ID id = (ID) order[head];
+        order[head] = null;
+        head = (head + 1) & orderMask;
+        size--;
+
+        int slot = slotOf(id);
+        TaskHolder<ID, T> holder = (TaskHolder<ID, T>) holders[slot];
+        removeSlot(slot);
+        return holder;
+    }
+
+    /**
+     * @return the slot holding the given id, or the empty slot where it would be inserted
+     */
+    private int slotOf(Object id) {
+        int slot = spread(id.hashCode()) & tableMask;
+        Object key;
+        while ((key = keys[slot]) != null && !key.equals(id)) {
+            slot = (slot + 1) & tableMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Backward shift deletion, which keeps every remaining key reachable from its home slot without tombstones.
+     */
+    private void removeSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & tableMask;
+        Object key;
+        while ((key = keys[next]) != null) {
+            int home = spread(key.hashCode()) & tableMask;
+            // Move the key into the gap, unless its home slot lies cyclically within (gap, next]
+            if (((next - home) & tableMask) >= ((next - gap) & tableMask)) {
+                keys[gap] = key;
+                holders[gap] = holders[next];
+                gap = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+        keys[gap] = null;
+        holders[gap] = null;
+    }
+
+    /**
+     * Same mixing function as the one used to pick the shard, whose upper bits choose the shard while the lower
+     * bits choose the slot, so ids of one shard still spread over the whole table.
+     */
+    static int spread(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
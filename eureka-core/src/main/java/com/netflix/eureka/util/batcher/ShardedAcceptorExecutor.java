@@ -0,0 +1,449 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.monitor.Monitors;
+import com.netflix.servo.monitor.StatsTimer;
+import com.netflix.servo.monitor.Timer;
+import com.netflix.servo.stats.StatsConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
+
+/**
+ * {@link TaskAcceptor} with the same semantics as {@link AcceptorExecutor}, but with the accepted tasks partitioned
+ * by task id over a number of shards, each with its own acceptor thread. As all copies of a task land in the same
+ * shard, duplicates are still replaced by newer copies, and re-processed tasks still go before the others of their
+ * shard. There is no ordering across shards.
+ *
+ * <p>
+ * Clients hand tasks over through a lock-free {@link MpscRingBuffer} per shard, and each shard keeps its pending
+ * tasks in a preallocated {@link PendingTaskIndex}, so the hot path does not allocate besides the task holder.
+ * The buffer size is split evenly among the shards. When a shard is full its oldest task is dropped, as in
+ * {@link AcceptorExecutor}; in the rare case the ring buffer itself is full, the new task is dropped instead. Both
+ * are reported as queue overflows.
+ * </p>
+ *
+ * <p>
+ * Idle acceptor threads park until signalled by a new task, a work request from a worker, or the expiry of the
+ * batching or traffic shaping delay, instead of polling.
+ * </p>
+ */
+class ShardedAcceptorExecutor<ID, T> implements TaskAcceptor<ID, T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedAcceptorExecutor.class);
+
+    private static final int MIN_RING_BUFFER_SIZE = 1024;
+
+    private final String id;
+    private final BatchingWindow batchingWindow;
+
+    private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+
+    private final List<Shard> shards;
+
+    private final Semaphore singleItemWorkRequests = new Semaphore(0);
+    private final BlockingQueue<TaskHolder<ID, T>> singleItemWorkQueue = new LinkedBlockingQueue<>();
+
+    private final Semaphore batchWorkRequests = new Semaphore(0);
+    private final BlockingQueue<List<TaskHolder<ID, T>>> batchWorkQueue = new LinkedBlockingQueue<>();
+
+    private final TrafficShaper trafficShaper;
+
+    /*
+     * Metrics, updated concurrently by clients, workers and shards
+     */
+    private final AtomicLong acceptedTasks = new AtomicLong();
+    private final AtomicLong replayedTasks = new AtomicLong();
+    private final AtomicLong expiredTasks = new AtomicLong();
+    private final AtomicLong overriddenTasks = new AtomicLong();
+    private final AtomicLong queueOverflows = new AtomicLong();
+
+    private final Timer batchSizeMetric;
+
+    ShardedAcceptorExecutor(String id,
+                            int shardCount,
+                            int maxBufferSize,
+                            int maxBatchingSize,
+                            long maxBatchingDelay,
+                            long congestionRetryDelayMs,
+                            long networkFailureRetryMs) {
+        this(id, shardCount, maxBufferSize, BatchingWindow.fixed(maxBatchingSize, maxBatchingDelay), congestionRetryDelayMs, networkFailureRetryMs);
+    }
+
+    ShardedAcceptorExecutor(String id,
+                            int shardCount,
+                            int maxBufferSize,
+                            BatchingWindow batchingWindow,
+                            long congestionRetryDelayMs,
+                            long networkFailureRetryMs) {
+        this.id = id;
+        this.batchingWindow = batchingWindow;
+        this.trafficShaper = new TrafficShaper(congestionRetryDelayMs, networkFailureRetryMs);
+
+        final double[] percentiles = {50.0, 95.0, 99.0, 99.5};
+        final StatsConfig statsConfig = new StatsConfig.Builder()
+                .withSampleSize(1000)
+                .withPercentiles(percentiles)
+                .withPublishStdDev(true)
+                .build();
+        final MonitorConfig config = MonitorConfig.builder(METRIC_REPLICATION_PREFIX + "batchSize").build();
+        this.batchSizeMetric = new StatsTimer(config, statsConfig);
+
+        shardCount = Math.max(1, shardCount);
+        int shardBufferSize = Math.max(1, (maxBufferSize + shardCount - 1) / shardCount);
+        this.shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new Shard(shardBufferSize));
+        }
+        ThreadGroup threadGroup = new ThreadGroup("eurekaTaskExecutors");
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = shards.get(i);
+            shard.thread = new Thread(threadGroup, shard, "TaskAcceptor-" + id + '-' + i);
+            shard.thread.setDaemon(true);
+            shard.thread.start();
+        }
+
+        try {
+            Monitors.registerObject(id, this);
+        } catch (Throwable e) {
+            logger.warn("Cannot register servo monitor for this object", e);
+        }
+    }
+
+    @Override
+    public void process(ID id, T task, long expiryTime) {
+        Shard shard = shardOf(id);
+        if (shard.acceptorQueue.offer(new TaskHolder<ID, T>(id, task, expiryTime))) {
+            acceptedTasks.incrementAndGet();
+            shard.signal();
+        } else {
+            queueOverflows.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void reprocess(List<TaskHolder<ID, T>> holders, ProcessingResult processingResult) {
+        trafficShaper.registerFailure(processingResult);
+        for (TaskHolder<ID, T> holder : holders) {
+            requeue(holder);
+        }
+    }
+
+    @Override
+    public void reprocess(TaskHolder<ID, T> taskHolder, ProcessingResult processingResult) {
+        trafficShaper.registerFailure(processingResult);
+        requeue(taskHolder);
+    }
+
+    private void requeue(TaskHolder<ID, T> holder) {
+        Shard shard = shardOf(holder.getId());
+        if (shard.reprocessQueue.offer(holder)) {
+            replayedTasks.incrementAndGet();
+            shard.signal();
+        } else {
+            queueOverflows.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void registerBatchResult(ProcessingResult processingResult, long latencyMs) {
+        batchingWindow.registerResult(processingResult, latencyMs);
+    }
+
+    @Override
+    public BlockingQueue<TaskHolder<ID, T>> requestWorkItem() {
+        singleItemWorkRequests.release();
+        signalAll();
+        return singleItemWorkQueue;
+    }
+
+    @Override
+    public BlockingQueue<List<TaskHolder<ID, T>>> requestWorkItems() {
+        batchWorkRequests.release();
+        signalAll();
+        return batchWorkQueue;
+    }
+
+    @Override
+    public void shutdown() {
+        if (isShutdown.compareAndSet(false, true)) {
+            Monitors.unregisterObject(id, this);
+            for (Shard shard : shards) {
+                shard.thread.interrupt();
+            }
+        }
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "acceptedTasks", description = "Number of accepted tasks", type = DataSourceType.COUNTER)
+    public long getAcceptedTasks() {
+        return acceptedTasks.get();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "replayedTasks", description = "Number of replayedTasks tasks", type = DataSourceType.COUNTER)
+    public long getReplayedTasks() {
+        return replayedTasks.get();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "expiredTasks", description = "Number of expired tasks", type = DataSourceType.COUNTER)
+    public long getExpiredTasks() {
+        return expiredTasks.get();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "overriddenTasks", description = "Number of overridden tasks", type = DataSourceType.COUNTER)
+    public long getOverriddenTasks() {
+        return overriddenTasks.get();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "queueOverflows", description = "Number of queue overflows", type = DataSourceType.COUNTER)
+    public long getQueueOverflows() {
+        return queueOverflows.get();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "acceptorQueueSize", description = "Number of tasks waiting in the acceptor queue", type = DataSourceType.GAUGE)
+    public long getAcceptorQueueSize() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.acceptorQueue.size();
+        }
+        return size;
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "reprocessQueueSize", description = "Number of tasks waiting in the reprocess queue", type = DataSourceType.GAUGE)
+    public long getReprocessQueueSize() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.reprocessQueue.size();
+        }
+        return size;
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "queueSize", description = "Task queue size", type = DataSourceType.GAUGE)
+    public long getQueueSize() {
+        long size = 0;
+        for (Shard shard : shards) {
+            size += shard.pendingTaskCount;
+        }
+        return size;
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "pendingJobRequests", description = "Number of worker threads awaiting job assignment", type = DataSourceType.GAUGE)
+    public long getPendingJobRequests() {
+        return singleItemWorkRequests.availablePermits() + batchWorkRequests.availablePermits();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchingWindowSize", description = "Current maximum number of tasks in a batch", type = DataSourceType.GAUGE)
+    public long getBatchingWindowSize() {
+        return batchingWindow.getBatchSize();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "batchingDelay", description = "Current maximum time a task waits for a batch to fill up", type = DataSourceType.GAUGE)
+    public long getBatchingDelay() {
+        return batchingWindow.getBatchingDelay();
+    }
+
+    @Monitor(name = METRIC_REPLICATION_PREFIX + "availableJobs", description = "Number of jobs ready to be taken by the workers", type = DataSourceType.GAUGE)
+    public long workerTaskQueueSize() {
+        return singleItemWorkQueue.size() + batchWorkQueue.size();
+    }
+
+    private Shard shardOf(ID id) {
+        // Upper bits of the spread hash code, the lower ones pick the slot in the shard's pending task index
+        long h = PendingTaskIndex.spread(id.hashCode()) & 0xFFFFFFFFL;
+        return shards.get((int) ((h * shards.size()) >>> 32));
+    }
+
+    private void signalAll() {
+        for (Shard shard : shards) {
+            shard.signal();
+        }
+    }
+
+    private final class Shard implements Runnable {
+
+        private final MpscRingBuffer<TaskHolder<ID, T>> acceptorQueue;
+        private final MpscRingBuffer<TaskHolder<ID, T>> reprocessQueue;
+        private final PendingTaskIndex<ID, T> pendingTasks;
+
+        private volatile Thread thread;
+        private volatile boolean parked;
+        private volatile int pendingTaskCount;
+
+        private Shard(int bufferSize) {
+            int ringBufferSize = Math.max(MIN_RING_BUFFER_SIZE, bufferSize);
+            this.acceptorQueue = new MpscRingBuffer<>(ringBufferSize);
+            this.reprocessQueue = new MpscRingBuffer<>(ringBufferSize);
+            this.pendingTasks = new PendingTaskIndex<>(bufferSize);
+        }
+
+        void signal() {
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            long scheduleTime = 0;
+            while (!isShutdown.get()) {
+                try {
+                    drainReprocessQueue();
+                    drainAcceptorQueue();
+                    pendingTaskCount = pendingTasks.size();
+
+                    long now = System.currentTimeMillis();
+                    if (scheduleTime < now) {
+                        scheduleTime = now + trafficShaper.transmissionDelay();
+                    }
+                    boolean dispatched = false;
+                    if (scheduleTime <= now) {
+                        dispatched = assignBatchWork(now) | assignSingleItemWork(now);
+                    }
+                    if (!dispatched) {
+                        awaitSignal(now, scheduleTime);
+                    }
+                } catch (Throwable e) {
+                    // Safe-guard, so we never exit this loop in an uncontrolled way.
+                    logger.warn("Discovery AcceptorThread error", e);
+                }
+            }
+        }
+
+        /**
+         * Parks until there is new input, a work request that can be served, or the next deadline. The parked flag
+         * is raised before the last check, so a client or a worker acting after the check sees it and unparks us.
+         */
+        private void awaitSignal(long now, long scheduleTime) {
+            long deadline;
+            if (scheduleTime > now) {
+                deadline = scheduleTime;
+            } else if (!pendingTasks.isEmpty() && !isBatchReady(now)) {
+                deadline = pendingTasks.peekFirst().getSubmitTimestamp() + batchingWindow.getBatchingDelay();
+            } else {
+                deadline = Long.MAX_VALUE;
+            }
+            parked = true;
+            try {
+                if (!acceptorQueue.isEmpty() || !reprocessQueue.isEmpty() || isShutdown.get()) {
+                    return;
+                }
+                if (scheduleTime <= now && !pendingTasks.isEmpty() && hasWorkRequests(now)) {
+                    return;
+                }
+                if (deadline == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                } else if (deadline > now) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(deadline - now));
+                }
+            } finally {
+                parked = false;
+            }
+        }
+
+        private boolean hasWorkRequests(long now) {
+            return singleItemWorkRequests.availablePermits() > 0
+                    || batchWorkRequests.availablePermits() > 0 && isBatchReady(now);
+        }
+
+        private void drainReprocessQueue() {
+            long now = System.currentTimeMillis();
+            TaskHolder<ID, T> taskHolder;
+            while (!pendingTasks.isFull() && (taskHolder = reprocessQueue.poll()) != null) {
+                if (taskHolder.getExpiryTime() <= now) {
+                    expiredTasks.incrementAndGet();
+                } else if (pendingTasks.contains(taskHolder.getId())) {
+                    overriddenTasks.incrementAndGet();
+                } else {
+                    pendingTasks.putFirst(taskHolder);
+                }
+            }
+            if (pendingTasks.isFull()) {
+                long dropped = 0;
+                while (reprocessQueue.poll() != null) {
+                    dropped++;
+                }
+                queueOverflows.addAndGet(dropped);
+            }
+        }
+
+        /**
+         * Drains at most one ring buffer worth of tasks, so clients that keep the buffer busy cannot starve the
+         * dispatch to the workers.
+         */
+        private void drainAcceptorQueue() {
+            TaskHolder<ID, T> taskHolder;
+            int remaining = acceptorQueue.capacity();
+            while (remaining-- > 0 && (taskHolder = acceptorQueue.poll()) != null) {
+                if (pendingTasks.isFull() && !pendingTasks.contains(taskHolder.getId())) {
+                    pendingTasks.pollFirst();
+                    queueOverflows.incrementAndGet();
+                }
+                if (pendingTasks.put(taskHolder) != null) {
+                    overriddenTasks.incrementAndGet();
+                }
+            }
+        }
+
+        private boolean assignSingleItemWork(long now) {
+            if (pendingTasks.isEmpty() || !singleItemWorkRequests.tryAcquire(1)) {
+                return false;
+            }
+            TaskHolder<ID, T> holder;
+            while ((holder = pendingTasks.pollFirst()) != null) {
+                if (holder.getExpiryTime() > now) {
+                    singleItemWorkQueue.add(holder);
+                    return true;
+                }
+                expiredTasks.incrementAndGet();
+            }
+            singleItemWorkRequests.release();
+            return false;
+        }
+
+        private boolean assignBatchWork(long now) {
+            if (!isBatchReady(now) || !batchWorkRequests.tryAcquire(1)) {
+                return false;
+            }
+            int len = Math.min(batchingWindow.getBatchSize(), pendingTasks.size());
+            List<TaskHolder<ID, T>> holders = new ArrayList<>(len);
+            TaskHolder<ID, T> holder;
+            while (holders.size() < len && (holder = pendingTasks.pollFirst()) != null) {
+                if (holder.getExpiryTime() > now) {
+                    holders.add(holder);
+                } else {
+                    expiredTasks.incrementAndGet();
+                }
+            }
+            if (holders.isEmpty()) {
+                batchWorkRequests.release();
+                return false;
+            }
+            batchSizeMetric.record(holders.size(), TimeUnit.MILLISECONDS);
+            batchWorkQueue.add(holders);
+            return true;
+        }
+
+        private boolean isBatchReady(long now) {
+            if (pendingTasks.isEmpty()) {
+                return false;
+            }
+            if (pendingTasks.isFull()) {
+                return true;
+            }
+            return now - pendingTasks.peekFirst().getSubmitTimestamp() >= batchingWindow.getBatchingDelay();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+
+/**
+ * Accepts tasks from clients, and hands them out to the {@link TaskExecutors} workers in a pull based manner.
+ * See {@link AcceptorExecutor} for the single threaded implementation, and {@link ShardedAcceptorExecutor} for
+ * the one partitioned by task id.
+ */
+interface TaskAcceptor<ID, T> {
+
+    void process(ID id, T task, long expiryTime);
+
+    void reprocess(List<TaskHolder<ID, T>> holders, ProcessingResult processingResult);
+
+    void reprocess(TaskHolder<ID, T> taskHolder, ProcessingResult processingResult);
+
+    /**
+     * Reports the outcome of a batch processed by a worker, and how long the processing took.
+     */
+    void registerBatchResult(ProcessingResult processingResult, long latencyMs);
+
+    BlockingQueue<TaskHolder<ID, T>> requestWorkItem();
+
+    BlockingQueue<List<TaskHolder<ID, T>>> requestWorkItems();
+
+    void shutdown();
+}
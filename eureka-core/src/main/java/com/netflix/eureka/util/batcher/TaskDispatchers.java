@@ -18,32 +18,76 @@ public class TaskDispatchers {
                 id, maxBufferSize, 1, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs
         );
         final TaskExecutors<ID, T> taskExecutor = TaskExecutors.singleItemExecutors(id, workerCount, taskProcessor, acceptorExecutor);
-        return new TaskDispatcher<ID, T>() {
-            @Override
-            public void process(ID id, T task, long expiryTime) {
-                acceptorExecutor.process(id, task, expiryTime);
-            }
+        return newTaskDispatcher(acceptorExecutor, taskExecutor);
+    }
 
-            @Override
-            public void shutdown() {
-                acceptorExecutor.shutdown();
-                taskExecutor.shutdown();
-            }
-        };
+    public static <ID, T> TaskDispatcher<ID, T> createBatchingTaskDispatcher(String id,
+                                                                             int maxBufferSize,
+                                                                             int workloadSize,
+                                                                             int workerCount,
+                                                                             long maxBatchingDelay,
+                                                                             long congestionRetryDelayMs,
+                                                                             long networkFailureRetryMs,
+                                                                             TaskProcessor<T> taskProcessor) {
+        return createBatchingTaskDispatcher(id, maxBufferSize, workloadSize, workerCount, 1,
+                maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs, taskProcessor);
     }
 
+    /**
+     * Creates a batching dispatcher whose tasks are accepted by the given number of acceptor threads, each
+     * handling the tasks of a partition of the task ids. With a single acceptor, the dispatcher is the same as
+     * the one created by {@link #createBatchingTaskDispatcher(String, int, int, int, long, long, long, TaskProcessor)}.
+     */
     public static <ID, T> TaskDispatcher<ID, T> createBatchingTaskDispatcher(String id,
                                                                              int maxBufferSize,
                                                                              int workloadSize,
                                                                              int workerCount,
+                                                                             int acceptorCount,
                                                                              long maxBatchingDelay,
                                                                              long congestionRetryDelayMs,
                                                                              long networkFailureRetryMs,
                                                                              TaskProcessor<T> taskProcessor) {
-        final AcceptorExecutor<ID, T> acceptorExecutor = new AcceptorExecutor<>(
-                id, maxBufferSize, workloadSize, maxBatchingDelay, congestionRetryDelayMs, networkFailureRetryMs
-        );
+        return createBatchingTaskDispatcher(id, maxBufferSize, workloadSize, workerCount, acceptorCount,
+                maxBatchingDelay, 0, congestionRetryDelayMs, networkFailureRetryMs, taskProcessor);
+    }
+
+    /**
+     * Creates a batching dispatcher, which adapts the batch size and the batching delay to the observed processing
+     * latency and results if a target latency is given. The batch size then varies between 1 and the workload
+     * size, and the batching delay between a tenth of the max batching delay and the max batching delay.
+     *
+     * @param targetLatencyMs batch processing time above which batches are made smaller and less frequent,
+     *                        0 to keep the workload size and the batching delay fixed
+     */
+    public static <ID, T> TaskDispatcher<ID, T> createBatchingTaskDispatcher(String id,
+                                                                             int maxBufferSize,
+                                                                             int workloadSize,
+                                                                             int workerCount,
+                                                                             int acceptorCount,
+                                                                             long maxBatchingDelay,
+                                                                             long targetLatencyMs,
+                                                                             long congestionRetryDelayMs,
+                                                                             long networkFailureRetryMs,
+                                                                             TaskProcessor<T> taskProcessor) {
+        final BatchingWindow batchingWindow = targetLatencyMs > 0
+                ? BatchingWindow.adaptive(workloadSize, maxBatchingDelay, targetLatencyMs)
+                : BatchingWindow.fixed(workloadSize, maxBatchingDelay);
+        final TaskAcceptor<ID, T> acceptorExecutor;
+        if (acceptorCount > 1) {
+            acceptorExecutor = new ShardedAcceptorExecutor<>(
+                    id, acceptorCount, maxBufferSize, batchingWindow, congestionRetryDelayMs, networkFailureRetryMs
+            );
+        } else {
+            acceptorExecutor = new AcceptorExecutor<>(
+                    id, maxBufferSize, batchingWindow, congestionRetryDelayMs, networkFailureRetryMs
+            );
+        }
         final TaskExecutors<ID, T> taskExecutor = TaskExecutors.batchExecutors(id, workerCount, taskProcessor, acceptorExecutor);
+        return newTaskDispatcher(acceptorExecutor, taskExecutor);
+    }
+
+    private static <ID, T> TaskDispatcher<ID, T> newTaskDispatcher(final TaskAcceptor<ID, T> acceptorExecutor,
+                                                                   final TaskExecutors<ID, T> taskExecutor) {
         return new TaskDispatcher<ID, T>() {
             @Override
             public void process(ID id, T task, long expiryTime) {
@@ -21,8 +21,8 @@ import org.slf4j.LoggerFactory;
 import static com.netflix.eureka.Names.METRIC_REPLICATION_PREFIX;
 
 /**
- * {@link TaskExecutors} instance holds a number of worker threads that cooperate with {@link AcceptorExecutor}.
- * Each worker sends a job request to {@link AcceptorExecutor} whenever it is available, and processes it once
+ * {@link TaskExecutors} instance holds a number of worker threads that cooperate with {@link TaskAcceptor}.
+ * Each worker sends a job request to {@link TaskAcceptor} whenever it is available, and processes it once
  * provided with a task(s).
  *
  * @author Tomasz Bak
@@ -62,7 +62,7 @@ class TaskExecutors<ID, T> {
     static <ID, T> TaskExecutors<ID, T> singleItemExecutors(final String name,
                                                             int workerCount,
                                                             final TaskProcessor<T> processor,
-                                                            final AcceptorExecutor<ID, T> acceptorExecutor) {
+                                                            final TaskAcceptor<ID, T> acceptorExecutor) {
         final AtomicBoolean isShutdown = new AtomicBoolean();
         final TaskExecutorMetrics metrics = new TaskExecutorMetrics(name);
         registeredMonitors.put(name, metrics);
@@ -72,7 +72,7 @@ class TaskExecutors<ID, T> {
     static <ID, T> TaskExecutors<ID, T> batchExecutors(final String name,
                                                        int workerCount,
                                                        final TaskProcessor<T> processor,
-                                                       final AcceptorExecutor<ID, T> acceptorExecutor) {
+                                                       final TaskAcceptor<ID, T> acceptorExecutor) {
         final AtomicBoolean isShutdown = new AtomicBoolean();
         final TaskExecutorMetrics metrics = new TaskExecutorMetrics(name);
         registeredMonitors.put(name, metrics);
@@ -150,13 +150,13 @@ class TaskExecutors<ID, T> {
         final AtomicBoolean isShutdown;
         final TaskExecutorMetrics metrics;
         final TaskProcessor<T> processor;
-        final AcceptorExecutor<ID, T> taskDispatcher;
+        final TaskAcceptor<ID, T> taskDispatcher;
 
         WorkerRunnable(String workerName,
                        AtomicBoolean isShutdown,
                        TaskExecutorMetrics metrics,
                        TaskProcessor<T> processor,
-                       AcceptorExecutor<ID, T> taskDispatcher) {
+                       TaskAcceptor<ID, T> taskDispatcher) {
             this.workerName = workerName;
             this.isShutdown = isShutdown;
             this.metrics = metrics;
@@ -175,7 +175,7 @@ class TaskExecutors<ID, T> {
                             AtomicBoolean isShutdown,
                             TaskExecutorMetrics metrics,
                             TaskProcessor<T> processor,
-                            AcceptorExecutor<ID, T> acceptorExecutor) {
+                            TaskAcceptor<ID, T> acceptorExecutor) {
             super(workerName, isShutdown, metrics, processor, acceptorExecutor);
         }
 
@@ -187,7 +187,9 @@ class TaskExecutors<ID, T> {
                     metrics.registerExpiryTimes(holders);
 
                     List<T> tasks = getTasksOf(holders);
+                    long startTime = System.currentTimeMillis();
                     ProcessingResult result = processor.process(tasks);
+                    taskDispatcher.registerBatchResult(result, System.currentTimeMillis() - startTime);
                     switch (result) {
                         case Success:
                             break;
@@ -232,7 +234,7 @@ class TaskExecutors<ID, T> {
                                  AtomicBoolean isShutdown,
                                  TaskExecutorMetrics metrics,
                                  TaskProcessor<T> processor,
-                                 AcceptorExecutor<ID, T> acceptorExecutor) {
+                                 TaskAcceptor<ID, T> acceptorExecutor) {
             super(workerName, isShutdown, metrics, processor, acceptorExecutor);
         }
 
@@ -16,6 +16,8 @@
 
 package com.netflix.eureka;
 
+import java.util.List;
+
 import javax.servlet.FilterChain;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -25,14 +27,24 @@ import com.netflix.appinfo.ApplicationInfoManager;
 import com.netflix.appinfo.EurekaClientIdentity;
 import com.netflix.appinfo.MyDataCenterInstanceConfig;
 import com.netflix.config.ConfigurationManager;
+import com.netflix.discovery.shared.Pair;
+import com.netflix.eureka.registry.Key;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.netflix.eureka.registry.ResponseCache;
+import com.netflix.eureka.registry.ResponseCacheImpl;
 import com.netflix.eureka.util.EurekaMonitors;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -52,6 +64,9 @@ public class RateLimitingFilterTest {
     private static final String CUSTOM_CLIENT = "CustomClient";
     private static final String PYTHON_CLIENT = "PythonClient";
 
+    private static final String CLIENT_ID = "i-1";
+    private static final String OTHER_CLIENT_ID = "i-2";
+
     @Mock
     private HttpServletRequest request;
 
@@ -61,6 +76,8 @@ public class RateLimitingFilterTest {
     @Mock
     private FilterChain filterChain;
 
+    private EurekaServerContext mockServer;
+
     private RateLimitingFilter filter;
 
     @Before
@@ -73,10 +90,12 @@ public class RateLimitingFilterTest {
         ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.registryFetchAverageRate", 1);
         ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.fullFetchAverageRate", 1);
         ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.throttleStandardClients", false);
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.clientBurstSize", 100);
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.clientAverageRate", 1);
 
         ApplicationInfoManager applicationInfoManager = new ApplicationInfoManager(new MyDataCenterInstanceConfig());
         DefaultEurekaServerConfig config = new DefaultEurekaServerConfig();
-        EurekaServerContext mockServer = mock(EurekaServerContext.class);
+        mockServer = mock(EurekaServerContext.class);
         when(mockServer.getServerConfig()).thenReturn(config);
 
         filter = new RateLimitingFilter(mockServer);
@@ -154,9 +173,113 @@ public class RateLimitingFilterTest {
         verify(response, times(0)).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
     }
 
+    @Test
+    public void testClientOverItsLimitDoesNotThrottleOtherClients() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.burstSize", 10);
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.clientBurstSize", 2);
+
+        whenRequest(DELTA_FETCH, CUSTOM_CLIENT, CLIENT_ID);
+        filter.doFilter(request, response, filterChain);
+        filter.doFilter(request, response, filterChain);
+
+        long rateLimiterCounter = EurekaMonitors.RATE_LIMITED_BY_CLIENT.getCount();
+        filter.doFilter(request, response, filterChain);
+
+        assertEquals("Expected rate limiter counter increase", rateLimiterCounter + 1, EurekaMonitors.RATE_LIMITED_BY_CLIENT.getCount());
+        verify(response, times(1)).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        whenRequest(DELTA_FETCH, CUSTOM_CLIENT, OTHER_CLIENT_ID);
+        filter.doFilter(request, response, filterChain);
+        filter.doFilter(request, response, filterChain);
+
+        verify(filterChain, times(4)).doFilter(request, response);
+        verify(response, times(1)).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    public void testFetchesCostTheSizeOfTheirPayload() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.burstSize", 10);
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.clientBurstSize", 4);
+        whenPayloadSizes(3 * 1024, 100);
+
+        whenRequest(FULL_FETCH, CUSTOM_CLIENT, CLIENT_ID);
+        filter.doFilter(request, response, filterChain);
+        filter.doFilter(request, response, filterChain);
+
+        verify(filterChain, times(1)).doFilter(request, response);
+        verify(response, times(1)).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        // The remaining kilobyte is enough for a delta
+        whenRequest(DELTA_FETCH, CUSTOM_CLIENT, CLIENT_ID);
+        filter.doFilter(request, response, filterChain);
+
+        verify(filterChain, times(2)).doFilter(request, response);
+    }
+
+    @Test
+    public void testTopRateLimitedClients() throws Exception {
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.enabled", false);
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.burstSize", 10);
+        ConfigurationManager.getConfigInstance().setProperty("eureka.rateLimiter.clientBurstSize", 1);
+
+        whenRequest(APP_FETCH, CUSTOM_CLIENT, CLIENT_ID);
+        for (int i = 0; i < 2; i++) {
+            filter.doFilter(request, response, filterChain);
+        }
+        whenRequest(APP_FETCH, CUSTOM_CLIENT, OTHER_CLIENT_ID);
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(request, response, filterChain);
+        }
+
+        List<Pair<String, Long>> topClients = filter.getTopRateLimitedClients(1);
+        assertThat(topClients.size(), is(1));
+        assertThat(topClients.get(0).first(), is(CUSTOM_CLIENT + ':' + OTHER_CLIENT_ID));
+        assertThat(topClients.get(0).second(), is(2L));
+        assertThat(filter.getTopRateLimitedClients(10).size(), is(2));
+    }
+
+    @Test
+    public void testTargetMatching() throws Exception {
+        assertThat(RateLimitingFilter.getTarget("/eureka/v2/apps"), is(RateLimitingFilter.Target.FullFetch));
+        assertThat(RateLimitingFilter.getTarget("/eureka/v2/apps/"), is(RateLimitingFilter.Target.FullFetch));
+        assertThat(RateLimitingFilter.getTarget("/eureka/v2/apps/delta"), is(RateLimitingFilter.Target.DeltaFetch));
+        assertThat(RateLimitingFilter.getTarget("/eureka/v2/apps/myAppId"), is(RateLimitingFilter.Target.Application));
+        assertThat(RateLimitingFilter.getTarget("/eureka/v2/apps/myAppId/i-1"), is(RateLimitingFilter.Target.Other));
+        assertThat(RateLimitingFilter.getTarget("/eureka/v2/vips/myVip"), is(RateLimitingFilter.Target.Other));
+        assertThat(RateLimitingFilter.getTarget("/eureka/v2/myapps"), is(RateLimitingFilter.Target.Other));
+        assertThat(RateLimitingFilter.getTarget("apps"), is(RateLimitingFilter.Target.Other));
+    }
+
     private void whenRequest(String path, String client) {
         when(request.getMethod()).thenReturn("GET");
         when(request.getRequestURI()).thenReturn(path);
         when(request.getHeader(AbstractEurekaIdentity.AUTH_NAME_HEADER_KEY)).thenReturn(client);
     }
+
+    private void whenRequest(String path, String client, String clientId) {
+        whenRequest(path, client);
+        when(request.getHeader(AbstractEurekaIdentity.AUTH_ID_HEADER_KEY)).thenReturn(clientId);
+    }
+
+    private void whenPayloadSizes(int fullFetchSize, int deltaFetchSize) {
+        final ResponseCacheImpl.Value fullFetchPayload = mockPayload(fullFetchSize);
+        final ResponseCacheImpl.Value deltaFetchPayload = mockPayload(deltaFetchSize);
+        ResponseCache responseCache = mock(ResponseCache.class);
+        when(responseCache.getValue(any(Key.class))).thenAnswer(new Answer<ResponseCacheImpl.Value>() {
+            @Override
+            public ResponseCacheImpl.Value answer(InvocationOnMock invocation) throws Throwable {
+                Key key = (Key) invocation.getArguments()[0];
+                return ResponseCacheImpl.ALL_APPS.equals(key.getName()) ? fullFetchPayload : deltaFetchPayload;
+            }
+        });
+        PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
+        when(registry.getResponseCache()).thenReturn(responseCache);
+        when(mockServer.getRegistry()).thenReturn(registry);
+    }
+
+    private static ResponseCacheImpl.Value mockPayload(int size) {
+        ResponseCacheImpl.Value payload = mock(ResponseCacheImpl.Value.class);
+        when(payload.getRawPayload()).thenReturn(new byte[size]);
+        return payload;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.netflix.eureka.cluster.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.converters.EurekaJacksonCodec;
+import com.netflix.discovery.shared.transport.ClusterSampleData;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ReplicationBinaryCodecTest {
+
+    private final ReplicationBinaryCodec binaryCodec = new ReplicationBinaryCodec();
+
+    @Test
+    public void testReplicationListEncoding() throws Exception {
+        ReplicationList replicationList = new ReplicationList();
+        for (int i = 0; i < 3; i++) {
+            InstanceInfo instanceInfo = ClusterSampleData.newInstanceInfo(i);
+            for (Action action : Action.values()) {
+                replicationList.addReplicationInstance(ClusterSampleData.newReplicationInstanceOf(action, instanceInfo));
+            }
+        }
+        replicationList.addReplicationInstance(new ReplicationInstance(null, null, null, null, null, null, null));
+
+        ReplicationList decodedValue = binaryCodec.decodeReplicationList(
+                new ByteArrayInputStream(binaryCodec.encode(replicationList)));
+
+        assertThat(decodedValue, is(equalTo(replicationList)));
+    }
+
+    @Test
+    public void testReplicationListResponseEncoding() throws Exception {
+        ReplicationListResponse replicationListResponse = new ReplicationListResponse();
+        replicationListResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(false));
+        replicationListResponse.addResponse(ClusterSampleData.newReplicationInstanceResponse(true));
+        replicationListResponse.addResponse(new ReplicationInstanceResponse(404, null));
+
+        ReplicationListResponse decodedValue = binaryCodec.decodeReplicationListResponse(
+                new ByteArrayInputStream(binaryCodec.encode(replicationListResponse)));
+
+        assertThat(decodedValue, is(equalTo(replicationListResponse)));
+    }
+
+    @Test
+    public void testHeartbeatBatchIsMuchSmallerThanJson() throws Exception {
+        ReplicationList replicationList = new ReplicationList();
+        for (int i = 0; i < 250; i++) {
+            InstanceInfo instanceInfo = ClusterSampleData.newInstanceInfo(i % 10);
+            replicationList.addReplicationInstance(new ReplicationInstance(instanceInfo.getAppName(),
+                    instanceInfo.getId() + '-' + i, System.currentTimeMillis(), null,
+                    instanceInfo.getStatus().name(), null, Action.Heartbeat));
+        }
+        int binarySize = binaryCodec.encode(replicationList).length;
+        int jsonSize = new EurekaJacksonCodec().writeToString(replicationList).length();
+
+        assertThat("binary=" + binarySize + ", json=" + jsonSize, binarySize * 3 < jsonSize, is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownFormatVersionIsRejected() throws Exception {
+        byte[] encoded = binaryCodec.encode(new ReplicationList(ClusterSampleData.newReplicationInstance()));
+        encoded[0] = 99;
+        binaryCodec.decodeReplicationList(new ByteArrayInputStream(encoded));
+    }
+}
@@ -0,0 +1,95 @@
+package com.netflix.eureka.lease;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LeaseExpiryWheelTest {
+
+    private static final long TICK_MS = 1000;
+
+    private final long startTime = System.currentTimeMillis();
+    private final LeaseExpiryWheel<String> wheel = new LeaseExpiryWheel<>(TICK_MS, 8, startTime);
+
+    @Test
+    public void testLeasesArePolledOnceExpired() throws Exception {
+        Lease<String> lease = new Lease<>("instance", 2);
+        wheel.add(lease);
+
+        assertThat(wheel.pollExpired(startTime + 1500, 0).isEmpty(), is(true));
+        assertThat(wheel.pollExpired(startTime + 3500, 0), is(equalTo(Collections.singletonList(lease))));
+        assertThat(wheel.pollExpired(startTime + 4500, 0).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testAdditionalLeaseTimeDelaysTheExpiry() throws Exception {
+        Lease<String> lease = new Lease<>("instance", 2);
+        wheel.add(lease);
+
+        assertThat(wheel.pollExpired(startTime + 3500, 2000).isEmpty(), is(true));
+        assertThat(wheel.pollExpired(startTime + 5500, 2000), is(equalTo(Collections.singletonList(lease))));
+    }
+
+    @Test
+    public void testRenewedLeasesAreKeptUntilExpired() throws Exception {
+        Lease<String> lease = new Lease<>("instance", 2);
+        wheel.add(lease);
+        // Renewing sets the last update time to the current time plus the duration, see Lease#isExpired
+        lease.renew();
+
+        assertThat(wheel.pollExpired(startTime + 3500, 0).isEmpty(), is(true));
+        assertThat(wheel.pollExpired(startTime + 5500, 0), is(equalTo(Collections.singletonList(lease))));
+    }
+
+    @Test
+    public void testCancelledLeasesAreDropped() throws Exception {
+        Lease<String> lease = new Lease<>("instance", 2);
+        wheel.add(lease);
+        lease.cancel();
+
+        assertThat(wheel.pollExpired(startTime + 3500, 0).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testLeasesExpiringBeyondATurnOfTheWheelArePolledOnceExpired() throws Exception {
+        Lease<String> lease = new Lease<>("instance", 20);
+        wheel.add(lease);
+
+        for (long time = startTime + 1500; time < startTime + 20000; time += 1000) {
+            assertThat(wheel.pollExpired(time, 0).isEmpty(), is(true));
+        }
+        assertThat(wheel.pollExpired(startTime + 21500, 0), is(equalTo(Collections.singletonList(lease))));
+    }
+
+    @Test
+    public void testExpiredLeasesAddedAgainArePolledNext() throws Exception {
+        Lease<String> lease = new Lease<>("instance", 2);
+        wheel.add(lease);
+        List<Lease<String>> expired = wheel.pollExpired(startTime + 3500, 0);
+        wheel.add(expired.get(0));
+
+        assertThat(wheel.pollExpired(startTime + 3600, 0), is(equalTo(Collections.singletonList(lease))));
+        assertThat(wheel.pollExpired(startTime + 3700, 0).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testAllSlotsAreVisitedAfterALongPause() throws Exception {
+        Lease<String> first = new Lease<>("first", 2);
+        Lease<String> second = new Lease<>("second", 5);
+        wheel.add(first);
+        wheel.add(second);
+
+        List<Lease<String>> expired = wheel.pollExpired(startTime + 60000, 0);
+        assertThat(expired.size(), is(equalTo(2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSlotCountMustBeAPowerOfTwo() throws Exception {
+        new LeaseExpiryWheel<String>(TICK_MS, 10, startTime);
+    }
+}
@@ -0,0 +1,93 @@
+package com.netflix.eureka.registry;
+
+import java.io.ByteArrayOutputStream;
+
+import com.netflix.appinfo.EurekaAccept;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.util.InstanceInfoGenerator;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.Version;
+import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.resources.ServerCodecs;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ApplicationsPayloadAssemblerTest extends AbstractTester {
+
+    private ServerCodecs serverCodecs;
+    private ApplicationsPayloadAssembler assembler;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        InstanceInfoGenerator instanceInfos = InstanceInfoGenerator.newBuilder(20, 6).build();
+        for (Application application : instanceInfos.toApplications().getRegisteredApplications()) {
+            for (InstanceInfo instanceInfo : application.getInstances()) {
+                registry.register(instanceInfo, false);
+            }
+        }
+        serverCodecs = new DefaultServerCodecs(serverConfig);
+        assembler = new ApplicationsPayloadAssembler(serverCodecs, registry, 60 * 1000);
+    }
+
+    @Test
+    public void testAssembledPayloadMatchesFullEncoding() throws Exception {
+        for (Key.KeyType keyType : Key.KeyType.values()) {
+            for (EurekaAccept eurekaAccept : EurekaAccept.values()) {
+                verifyAssembledPayload(newKey(keyType, eurekaAccept));
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyInvalidatedApplicationIsReEncoded() throws Exception {
+        Key key = newKey(Key.KeyType.JSON, EurekaAccept.full);
+        verifyAssembledPayload(key);
+
+        // A change that is not reported to the assembler is not visible in the assembled payload
+        InstanceInfo instance = registry.getApplicationsFromLocalRegionOnly().getRegisteredApplications().get(0)
+                .getInstances().get(0);
+        registry.statusUpdate(instance.getAppName(), instance.getId(), InstanceStatus.OUT_OF_SERVICE,
+                String.valueOf(System.currentTimeMillis()), true);
+        assertThat(new String(assemble(key)).equals(new String(encodeFully(key))), is(false));
+
+        assembler.invalidate(instance.getAppName());
+        verifyAssembledPayload(key);
+
+        // New and removed applications
+        registerInstanceLocally(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME));
+        verifyAssembledPayload(key);
+
+        registry.cancel(LOCAL_REGION_APP_NAME, LOCAL_REGION_INSTANCE_1_HOSTNAME, true);
+        assembler.invalidate(LOCAL_REGION_APP_NAME);
+        verifyAssembledPayload(key);
+    }
+
+    private void verifyAssembledPayload(Key key) throws Exception {
+        assertThat(new String(assemble(key)), is(equalTo(new String(encodeFully(key)))));
+    }
+
+    private byte[] assemble(Key key) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat("Payload not assembled for " + key.toStringCompact(), assembler.assemble(key, out), is(true));
+        return out.toByteArray();
+    }
+
+    private byte[] encodeFully(Key key) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serverCodecs.getEncoder(key.getType(), key.getEurekaAccept())
+                .encode(registry.getApplicationsFromLocalRegionOnly(), out);
+        return out.toByteArray();
+    }
+
+    private static Key newKey(Key.KeyType keyType, EurekaAccept eurekaAccept) {
+        return new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS, keyType, Version.V2, eurekaAccept);
+    }
+}
@@ -39,6 +39,22 @@ public class AwsInstanceRegistryTest extends InstanceRegistryTest {
         verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.UP);
     }
 
+    @Test
+    public void testRenewAppliesAsgStatusChangedAfterTheLastRenew() {
+        InstanceInfo myInstance = createLocalUpInstanceWithAsg(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+        registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.UP);
+
+        ((AwsInstanceRegistry) registry).getAwsAsgUtil().setStatus(myInstance.getASGName(), false);
+        registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
+
+        ((AwsInstanceRegistry) registry).getAwsAsgUtil().setStatus(myInstance.getASGName(), true);
+        registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false);
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.UP);
+    }
+
     private static InstanceInfo createLocalUpInstanceWithAsg(String hostname) {
         InstanceInfo.Builder instanceBuilder = InstanceInfo.Builder.newBuilder();
         instanceBuilder.setAppName(LOCAL_REGION_APP_NAME);
@@ -0,0 +1,22 @@
+package com.netflix.eureka.registry;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CompressionCodecsTest {
+
+    @Test
+    public void testNegotiation() throws Exception {
+        assertThat(CompressionCodecs.forAcceptEncoding(null), is(nullValue()));
+        assertThat(CompressionCodecs.forAcceptEncoding(""), is(nullValue()));
+        assertThat(CompressionCodecs.forAcceptEncoding("identity"), is(nullValue()));
+        assertThat(CompressionCodecs.forAcceptEncoding("gzip"), is(CompressionCodecs.GZIP));
+        assertThat(CompressionCodecs.forAcceptEncoding("deflate"), is(CompressionCodecs.DEFLATE));
+        assertThat(CompressionCodecs.forAcceptEncoding("deflate, GZIP"), is(CompressionCodecs.GZIP));
+        assertThat(CompressionCodecs.forAcceptEncoding("gzip;q=0, deflate;q=0.5"), is(CompressionCodecs.DEFLATE));
+        assertThat(CompressionCodecs.forAcceptEncoding("gzip;q=0"), is(nullValue()));
+    }
+}
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
@@ -17,6 +19,7 @@ import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
@@ -89,6 +92,25 @@ public class InstanceRegistryTest extends AbstractTester {
         Thread.sleep(2000);
     }
 
+    @Test
+    public void testDeltaHashCodeCountsAnAppServedByTwoRemoteRegionsOnce() throws Exception {
+        Application otherRegionApp = new Application(REMOTE_REGION_APP_NAME);
+        otherRegionApp.addInstance(createRemoteInstance(REMOTE_REGION_INSTANCE_2_HOSTNAME));
+        Applications otherRegionApps = new Applications();
+        otherRegionApps.addApplication(otherRegionApp);
+        RemoteRegionRegistry otherRegion = mock(RemoteRegionRegistry.class);
+        when(otherRegion.getApplications()).thenReturn(otherRegionApps);
+        when(otherRegion.getApplicationDeltas()).thenReturn(new Applications());
+        registry.regionNameVSRemoteRegistry.put("us-west-2", otherRegion);
+        try {
+            // The full registry only takes the app from the first remote region serving it
+            Assert.assertEquals(registry.getApplications(true).getAppsHashCode(),
+                    registry.getApplicationDeltas().getAppsHashCode());
+        } finally {
+            registry.regionNameVSRemoteRegistry.remove("us-west-2");
+        }
+    }
+
     @Test
     public void testGetAppsFromLocalRegionOnly() throws Exception {
         registerInstanceLocally(createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME));
@@ -199,6 +221,24 @@ public class InstanceRegistryTest extends AbstractTester {
         verifyLocalInstanceStatus(seed.getId(), InstanceStatus.UP);
     }
 
+    @Test
+    public void testRenewAppliesStatusOverrideStoredAfterTheLastRenew() throws Exception {
+        InstanceInfo myInstance = createLocalInstance(LOCAL_REGION_INSTANCE_1_HOSTNAME);
+        registerInstanceLocally(myInstance);
+        assertThat(registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false), is(true));
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.UP);
+
+        // Stored without changing the instance status, as a replicated heartbeat does
+        registry.storeOverriddenStatusIfRequired(LOCAL_REGION_APP_NAME, myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.UP);
+        assertThat(registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false), is(true));
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
+
+        // Kept by the next renewals
+        assertThat(registry.renew(LOCAL_REGION_APP_NAME, myInstance.getId(), false), is(true));
+        verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
+    }
+
     @Test
     public void testStatusOverrideStartingStatus() throws Exception {
         // Regular registration first
@@ -256,6 +296,61 @@ public class InstanceRegistryTest extends AbstractTester {
         verifyLocalInstanceStatus(myInstance.getId(), InstanceStatus.OUT_OF_SERVICE);
     }
 
+    @Test
+    public void testRegisterUnderConcurrentDeltaGeneration() throws Exception {
+        final int instanceCount = 2000;
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger deltasGenerated = new AtomicInteger();
+        Thread deltaGenerator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    registry.getApplicationDeltasFromMultipleRegions(new String[0]);
+                    deltasGenerated.incrementAndGet();
+                }
+            }
+        });
+        deltaGenerator.start();
+
+        try {
+            for (int i = 0; i < instanceCount; i++) {
+                registerInstanceLocally(createLocalInstanceWithIdAndStatus(
+                        LOCAL_REGION_INSTANCE_1_HOSTNAME + i, "stress" + i, InstanceStatus.UP));
+            }
+        } finally {
+            done.set(true);
+            deltaGenerator.join();
+        }
+        Assert.assertTrue("Expected deltas generated while registering", deltasGenerated.get() > 0);
+
+        // Once quiescent, the delta hash must match the hash of the full registry
+        Applications delta = registry.getApplicationDeltasFromMultipleRegions(new String[0]);
+        Applications full = registry.getApplicationsFromLocalRegionOnly();
+        Assert.assertEquals("UP_" + instanceCount + "_", full.getAppsHashCode());
+        Assert.assertEquals(full.getAppsHashCode(), delta.getAppsHashCode());
+    }
+
+    @Test
+    public void testGetAppsDeltaSinceSequence() throws Exception {
+        registerInstanceLocally(createLocalInstanceWithIdAndStatus(
+                LOCAL_REGION_INSTANCE_1_HOSTNAME, "since1", InstanceStatus.UP));
+        long sinceSequence = registry.getPublishedRegistrySequence();
+        registerInstanceLocally(createLocalInstanceWithIdAndStatus(
+                LOCAL_REGION_INSTANCE_2_HOSTNAME, "since2", InstanceStatus.UP));
+
+        Applications delta = registry.getApplicationDeltasSince(sinceSequence, new String[0]);
+        Assert.assertNotNull("Delta not served for a retained sequence", delta);
+        List<InstanceInfo> instances = delta.getRegisteredApplications(LOCAL_REGION_APP_NAME).getInstances();
+        Assert.assertEquals(1, instances.size());
+        Assert.assertEquals(LOCAL_REGION_INSTANCE_2_HOSTNAME, instances.get(0).getHostName());
+        Assert.assertEquals("UP_2_", delta.getAppsHashCode());
+
+        Applications empty = registry.getApplicationDeltasSince(registry.getPublishedRegistrySequence(), new String[0]);
+        Assert.assertTrue(empty.getRegisteredApplications().isEmpty());
+        Assert.assertNull("Delta served for a sequence not yet assigned",
+                registry.getApplicationDeltasSince(registry.getPublishedRegistrySequence() + 1, new String[0]));
+    }
+
     @Test
     public void testEvictionTaskCompensationTime() throws Exception {
         long evictionTaskPeriodNanos = serverConfig.getEvictionIntervalTimerInMs() * 1000000;
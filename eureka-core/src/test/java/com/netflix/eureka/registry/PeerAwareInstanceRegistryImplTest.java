@@ -0,0 +1,238 @@
+package com.netflix.eureka.registry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.AbstractTester;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+public class PeerAwareInstanceRegistryImplTest extends AbstractTester {
+
+    private static final String OTHER_APP_NAME = "MYLOCAPP2";
+
+    @Test
+    public void testHeartbeatBatchAcrossApplications() throws Exception {
+        InstanceInfo first = registerLocally(LOCAL_REGION_APP_NAME, "id1");
+        InstanceInfo second = registerLocally(OTHER_APP_NAME, "id2");
+        InstanceInfo third = registerLocally(LOCAL_REGION_APP_NAME, "id3");
+
+        ReplicationListResponse response = apply(
+                heartbeat(first, first.getLastDirtyTimestamp()),
+                heartbeat(second, second.getLastDirtyTimestamp()),
+                heartbeat(newInstance(OTHER_APP_NAME, "unknown"), null),
+                heartbeat(third, null)
+        );
+
+        assertStatusCodes(response, 200, 200, 404, 200);
+    }
+
+    @Test
+    public void testHeartbeatWithDifferentDirtyTimestamps() throws Exception {
+        InstanceInfo instance = registerLocally(LOCAL_REGION_APP_NAME, "id1");
+        long registryDirtyTimestamp = instance.getLastDirtyTimestamp();
+
+        // Older copy on the replicating node, the registry copy is sent back
+        ReplicationListResponse response = apply(heartbeat(instance, registryDirtyTimestamp - 1));
+        assertStatusCodes(response, 409);
+        assertThat(response.getResponseList().get(0).getResponseEntity().getId(), is(equalTo("id1")));
+
+        // Newer copy on the replicating node, which is asked to register again
+        response = apply(heartbeat(instance, registryDirtyTimestamp + 1));
+        assertStatusCodes(response, 404);
+        assertThat(response.getResponseList().get(0).getResponseEntity(), is(nullValue()));
+        assertThat(registry.overriddenInstanceStatusesSnapshot().get("id1"), is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+    }
+
+    @Test
+    public void testConflictEntityCanBeDisabled() throws Exception {
+        InstanceInfo instance = registerLocally(LOCAL_REGION_APP_NAME, "id1");
+        doReturn("false").when(serverConfig).getExperimental("bugfix.934");
+
+        ReplicationListResponse response = apply(heartbeat(instance, instance.getLastDirtyTimestamp() - 1));
+
+        assertStatusCodes(response, 409);
+        assertThat(response.getResponseList().get(0).getResponseEntity(), is(nullValue()));
+    }
+
+    @Test
+    public void testEventsOfOneInstanceAreAppliedInBatchOrder() throws Exception {
+        InstanceInfo instance = newInstance(OTHER_APP_NAME, "id1");
+        InstanceInfo other = registerLocally(LOCAL_REGION_APP_NAME, "id2");
+
+        ReplicationListResponse response = apply(
+                event(Action.Register, instance, null, instance),
+                event(Action.Heartbeat, other, null, null),
+                event(Action.Heartbeat, instance, null, null),
+                event(Action.StatusUpdate, instance, InstanceStatus.OUT_OF_SERVICE.name(), null)
+        );
+        assertStatusCodes(response, 200, 200, 200, 200);
+        assertThat(registry.getInstanceByAppAndId(OTHER_APP_NAME, "id1").getStatus(), is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+
+        response = apply(
+                event(Action.DeleteStatusOverride, instance, InstanceStatus.UP.name(), null),
+                event(Action.Cancel, other, null, null),
+                event(Action.Cancel, instance, null, null),
+                event(Action.Heartbeat, instance, null, null),
+                event(Action.StatusUpdate, instance, InstanceStatus.UP.name(), null)
+        );
+        assertStatusCodes(response, 200, 200, 200, 404, 404);
+        assertThat(registry.getInstanceByAppAndId(OTHER_APP_NAME, "id1"), is(nullValue()));
+        assertThat(registry.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, "id2"), is(nullValue()));
+    }
+
+    @Test
+    public void testFailedEventDoesNotFailTheBatch() throws Exception {
+        InstanceInfo instance = registerLocally(LOCAL_REGION_APP_NAME, "id1");
+
+        ReplicationListResponse response = apply(
+                new ReplicationInstance(null, "id1", null, null, null, null, Action.Heartbeat),
+                event(Action.StatusUpdate, instance, "NOT_A_STATUS", null),
+                heartbeat(instance, null)
+        );
+
+        assertStatusCodes(response, 500, 500, 200);
+    }
+
+    @Test
+    public void testEvictionOfExpiredLeases() throws Exception {
+        doReturn(false).when(serverConfig).shouldEnableSelfPreservation();
+        registry.register(newInstance(LOCAL_REGION_APP_NAME, "expiring"), 1, false);
+        registry.register(newInstance(LOCAL_REGION_APP_NAME, "renewed"), 1, false);
+
+        Thread.sleep(1200);
+        registry.renew(LOCAL_REGION_APP_NAME, "renewed", false);
+        registry.evict();
+
+        assertThat(registry.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, "expiring"), is(nullValue()));
+        assertThat(registry.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, "renewed"), is(notNullValue()));
+    }
+
+    @Test
+    public void testRenewalsAreCountedByApplication() throws Exception {
+        registry.register(newInstance(LOCAL_REGION_APP_NAME, "id1"), false);
+        registry.register(newInstance(OTHER_APP_NAME, "id2"), false);
+        registry.renew(LOCAL_REGION_APP_NAME, "id1", false);
+        registry.renew(LOCAL_REGION_APP_NAME, "id1", false);
+        registry.renew(OTHER_APP_NAME, "id2", false);
+
+        // Counted once the application rates moved on to their next bucket
+        Thread.sleep(5500);
+        assertThat(registry.getNumOfRenewsInLastMin(LOCAL_REGION_APP_NAME), is(2L));
+        assertThat(registry.getNumOfRenewsInLastMin(OTHER_APP_NAME), is(1L));
+        assertThat(registry.getNumOfRenewsInLastMin("UNKNOWN_APP"), is(0L));
+        assertThat(registry.getNumOfRenewsInLastMin(), is(3L));
+
+        // The rate of an application is dropped with its last lease
+        registry.cancel(OTHER_APP_NAME, "id2", false);
+        assertThat(registry.getNumOfRenewsInLastMin(OTHER_APP_NAME), is(0L));
+        assertThat(registry.getNumOfRenewsInLastMin(LOCAL_REGION_APP_NAME), is(2L));
+    }
+
+    @Test
+    public void testLeasesKeptBySelfPreservationAreEvictedLater() throws Exception {
+        doReturn(false).when(serverConfig).shouldEnableSelfPreservation();
+        registry.register(newInstance(LOCAL_REGION_APP_NAME, "id1"), 1, false);
+        registry.register(newInstance(LOCAL_REGION_APP_NAME, "id2"), 1, false);
+
+        Thread.sleep(1200);
+        // With 2 instances, the renewal percent threshold lets one be evicted at a time
+        registry.evict();
+        assertThat(registry.getApplication(LOCAL_REGION_APP_NAME).size(), is(1));
+        registry.evict();
+        assertThat(registry.getApplication(LOCAL_REGION_APP_NAME), is(nullValue()));
+    }
+
+    @Test
+    public void testBulkLoadRegistersInstancesWithoutRecordingChanges() throws Exception {
+        long sequenceBeforeLoad = registry.getPublishedRegistrySequence();
+        InstanceInfo overridden = newInstance(LOCAL_REGION_APP_NAME, "id2");
+        overridden.setOverriddenStatus(InstanceStatus.OUT_OF_SERVICE);
+        Application app = new Application(LOCAL_REGION_APP_NAME);
+        app.addInstance(newInstance(LOCAL_REGION_APP_NAME, "id1"));
+        app.addInstance(overridden);
+        Application otherApp = new Application(OTHER_APP_NAME);
+        otherApp.addInstance(newInstance(OTHER_APP_NAME, "filtered"));
+        Applications apps = new Applications();
+        apps.addApplication(app);
+        apps.addApplication(otherApp);
+
+        int count = registry.bulkLoad(apps, new Predicate<InstanceInfo>() {
+            @Override
+            public boolean test(InstanceInfo instance) {
+                return !"filtered".equals(instance.getId());
+            }
+        }, 2);
+
+        assertThat(count, is(2));
+        assertThat(registry.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, "id1").getStatus(), is(equalTo(InstanceStatus.UP)));
+        assertThat(registry.getInstanceByAppAndId(LOCAL_REGION_APP_NAME, "id2").getStatus(), is(equalTo(InstanceStatus.OUT_OF_SERVICE)));
+        assertThat(registry.getInstanceByAppAndId(OTHER_APP_NAME, "filtered"), is(nullValue()));
+
+        // The clients must fetch the full registry after the load
+        assertThat(registry.getApplicationDeltas().getRegisteredApplications(LOCAL_REGION_APP_NAME), is(nullValue()));
+        assertThat(registry.getApplicationDeltasSince(sequenceBeforeLoad, null), is(nullValue()));
+        assertThat(registry.getApplicationDeltasSince(registry.getPublishedRegistrySequence(), null), is(notNullValue()));
+    }
+
+    private InstanceInfo registerLocally(String appName, String id) {
+        InstanceInfo instance = newInstance(appName, id);
+        registry.register(instance, 10000000, false);
+        return instance;
+    }
+
+    private ReplicationListResponse apply(ReplicationInstance... events) {
+        return registry.applyReplicationBatch(new ReplicationList(Arrays.asList(events)));
+    }
+
+    private static ReplicationInstance heartbeat(InstanceInfo instance, Long lastDirtyTimestamp) {
+        return new ReplicationInstance(instance.getAppName(), instance.getId(), lastDirtyTimestamp,
+                InstanceStatus.OUT_OF_SERVICE.name(), instance.getStatus().name(), null, Action.Heartbeat);
+    }
+
+    private static ReplicationInstance event(Action action, InstanceInfo instance, String status,
+                                             InstanceInfo instanceInfo) {
+        return new ReplicationInstance(instance.getAppName(), instance.getId(), instance.getLastDirtyTimestamp(),
+                null, status, instanceInfo, action);
+    }
+
+    private static InstanceInfo newInstance(String appName, String id) {
+        return InstanceInfo.Builder.newBuilder()
+                .setAppName(appName)
+                .setInstanceId(id)
+                .setHostName(id + ".host")
+                .setIPAddr("10.10.101.1")
+                .setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+                .setLeaseInfo(LeaseInfo.Builder.newBuilder().build())
+                .setStatus(InstanceStatus.UP)
+                .build();
+    }
+
+    private static void assertStatusCodes(ReplicationListResponse response, int... expectedStatusCodes) {
+        List<ReplicationInstanceResponse> responses = response.getResponseList();
+        assertThat(responses, is(notNullValue()));
+        assertThat(responses.size(), is(expectedStatusCodes.length));
+        for (int i = 0; i < expectedStatusCodes.length; i++) {
+            assertThat("Response " + i, responses.get(i).getStatusCode(), is(expectedStatusCodes[i]));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.netflix.eureka.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.registry.RegistryChangeLog.RecentlyChangedItem;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RegistryChangeLogTest {
+
+    private final RegistryChangeLog changeLog = new RegistryChangeLog();
+    private final Map<String, Lease<InstanceInfo>> leases = new ConcurrentHashMap<>();
+
+    @Test
+    public void testSequenceNumbersAreMonotonic() throws Exception {
+        Lease<InstanceInfo> lease = newLease("id1", InstanceStatus.UP);
+
+        long first = register(lease, null);
+        long second = changeLog.modified(lease);
+        long third = cancel(lease);
+
+        assertThat(second, is(first + 1));
+        assertThat(third, is(second + 1));
+        assertThat(changeLog.snapshot().getSequence(), is(third));
+
+        List<Long> sequences = new ArrayList<>();
+        for (RecentlyChangedItem item : changeLog) {
+            sequences.add(item.getSequence());
+        }
+        assertThat(sequences.toString(), is(equalTo("[" + first + ", " + second + ", " + third + "]")));
+    }
+
+    @Test
+    public void testInstanceCountsFollowRegistryChanges() throws Exception {
+        Lease<InstanceInfo> lease1 = newLease("id1", InstanceStatus.UP);
+        Lease<InstanceInfo> lease2 = newLease("id2", InstanceStatus.STARTING);
+        register(lease1, null);
+        register(lease2, null);
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("STARTING_1_UP_1_")));
+
+        // Status change
+        lease2.getHolder().setStatusWithoutDirty(InstanceStatus.UP);
+        changeLog.modified(lease2);
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("UP_2_")));
+
+        // Re-registration replacing an existing lease that holds the same InstanceInfo object
+        Lease<InstanceInfo> lease1Replacement = new Lease<>(lease1.getHolder(), 90);
+        lease1.getHolder().setStatusWithoutDirty(InstanceStatus.OUT_OF_SERVICE);
+        register(lease1Replacement, lease1);
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("OUT_OF_SERVICE_1_UP_1_")));
+
+        // A change reported for the replaced lease must not be accounted anymore
+        changeLog.modified(lease1);
+        changeLog.statusChanged(lease1);
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("OUT_OF_SERVICE_1_UP_1_")));
+
+        // Status change without a delta entry
+        lease2.getHolder().setStatusWithoutDirty(InstanceStatus.DOWN);
+        changeLog.statusChanged(lease2);
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("DOWN_1_OUT_OF_SERVICE_1_")));
+
+        cancel(lease1Replacement);
+        cancel(lease2);
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("")));
+    }
+
+    @Test
+    public void testLeaseCancelledBeforeItsRegistrationIsRecordedIsNotAccounted() throws Exception {
+        Lease<InstanceInfo> lease = newLease("id1", InstanceStatus.UP);
+        leases.put("id1", lease);
+        // A concurrent cancel removes the lease and records it first
+        cancel(lease);
+        changeLog.registered(leases, lease, null);
+
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("")));
+    }
+
+    @Test
+    public void testLeaseReplacedBeforeItsRegistrationIsRecordedIsNotAccounted() throws Exception {
+        Lease<InstanceInfo> lease = newLease("id1", InstanceStatus.STARTING);
+        Lease<InstanceInfo> replacement = newLease("id1", InstanceStatus.UP);
+        leases.put("id1", lease);
+        // A concurrent registration replaces the lease and records it first
+        register(replacement, lease);
+        changeLog.registered(leases, lease, null);
+
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("UP_1_")));
+    }
+
+    @Test
+    public void testRemoveOlderThan() throws Exception {
+        Lease<InstanceInfo> lease = newLease("id1", InstanceStatus.UP);
+        register(lease, null);
+        changeLog.modified(lease);
+        assertThat(changeLog.size(), is(2));
+
+        changeLog.removeOlderThan(System.currentTimeMillis() + 1);
+        assertThat(changeLog.size(), is(0));
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("UP_1_")));
+
+        changeLog.clear();
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("")));
+    }
+
+    @Test
+    public void testChangesAreRetainedSinceThePublishedSequence() throws Exception {
+        Lease<InstanceInfo> lease = newLease("id1", InstanceStatus.UP);
+        long first = register(lease, null);
+        changeLog.published(first);
+        long second = changeLog.modified(lease);
+        long third = changeLog.modified(lease);
+        assertThat(changeLog.getPublishedSequence(), is(first));
+
+        // Not published past a pending change
+        changeLog.published(third);
+        assertThat(changeLog.getPublishedSequence(), is(first));
+        assertThat(changeLog.retainsChangesSince(second), is(false));
+        changeLog.published(second);
+        assertThat(changeLog.getPublishedSequence(), is(third));
+        assertThat(changeLog.retainsChangesSince(0), is(true));
+        assertThat(changeLog.retainsChangesSince(third), is(true));
+
+        changeLog.removeOlderThan(System.currentTimeMillis() + 1);
+        assertThat(changeLog.retainsChangesSince(second), is(false));
+        assertThat(changeLog.retainsChangesSince(third), is(true));
+
+        changeLog.clear();
+        assertThat(changeLog.retainsChangesSince(third), is(true));
+        assertThat(changeLog.retainsChangesSince(first), is(false));
+    }
+
+    @Test
+    public void testRemovalOfOldChangesDoesNotUndoABulkLoad() throws Exception {
+        Lease<InstanceInfo> lease = newLease("id1", InstanceStatus.UP);
+        long registered = register(lease, null);
+        changeLog.published(registered);
+        changeLog.bulkLoaded();
+
+        // The change removed is older than the bulk load, which already evicted it
+        changeLog.removeOlderThan(System.currentTimeMillis() + 1);
+        assertThat(changeLog.retainsChangesSince(registered), is(false));
+        assertThat(changeLog.retainsChangesSince(changeLog.getPublishedSequence()), is(true));
+    }
+
+    @Test
+    public void testPublishedSequenceAdvancesWhileChangesOverlap() throws Exception {
+        Lease<InstanceInfo> lease = newLease("id1", InstanceStatus.UP);
+        long pending = register(lease, null);
+        // There is always a change in flight, but each one gets published eventually
+        for (int i = 0; i < 3; i++) {
+            long next = changeLog.modified(lease);
+            changeLog.published(pending);
+            assertThat(changeLog.getPublishedSequence(), is(next - 1));
+            pending = next;
+        }
+        changeLog.published(pending);
+        assertThat(changeLog.getPublishedSequence(), is(pending));
+    }
+
+    @Test
+    public void testConcurrentWritersKeepCountsConsistent() throws Exception {
+        final int writers = 8;
+        final int iterations = 10000;
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger snapshotsTaken = new AtomicInteger();
+        final AtomicBoolean monotonic = new AtomicBoolean(true);
+        final CountDownLatch writersDone = new CountDownLatch(writers);
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long lastSequence = 0;
+                while (!done.get()) {
+                    RegistryChangeLog.Snapshot snapshot = changeLog.snapshot();
+                    if (snapshot.getSequence() < lastSequence) {
+                        monotonic.set(false);
+                    }
+                    lastSequence = snapshot.getSequence();
+                    snapshotsTaken.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        final List<Lease<InstanceInfo>> finalLeases = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final int writerId = w;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Lease<InstanceInfo> previous = null;
+                    for (int i = 0; i < iterations; i++) {
+                        Lease<InstanceInfo> lease = newLease("id" + writerId, InstanceStatus.STARTING);
+                        register(lease, previous);
+                        lease.getHolder().setStatusWithoutDirty(InstanceStatus.UP);
+                        changeLog.modified(lease);
+                        if (i % 2 == 0) {
+                            cancel(lease);
+                            previous = null;
+                        } else {
+                            previous = lease;
+                        }
+                    }
+                    synchronized (finalLeases) {
+                        finalLeases.add(previous);
+                    }
+                    writersDone.countDown();
+                }
+            }).start();
+        }
+        writersDone.await();
+        done.set(true);
+        reader.join();
+
+        assertThat(snapshotsTaken.get() > 0, is(true));
+        assertThat(monotonic.get(), is(true));
+        assertThat(changeLog.snapshot().getSequence(), is((long) writers * iterations * 5 / 2));
+        assertThat(hashCodeOf(changeLog.snapshot()), is(equalTo("UP_" + finalLeases.size() + "_")));
+    }
+
+    private long register(Lease<InstanceInfo> lease, Lease<InstanceInfo> replacedLease) {
+        leases.put(lease.getHolder().getId(), lease);
+        return changeLog.registered(leases, lease, replacedLease);
+    }
+
+    private long cancel(Lease<InstanceInfo> lease) {
+        leases.remove(lease.getHolder().getId(), lease);
+        return changeLog.cancelled(lease);
+    }
+
+    private static String hashCodeOf(RegistryChangeLog.Snapshot snapshot) {
+        return Applications.getReconcileHashCode(snapshot.toInstanceCountMap());
+    }
+
+    private static Lease<InstanceInfo> newLease(String id, InstanceStatus status) {
+        InstanceInfo instanceInfo = InstanceInfo.Builder.newBuilder()
+                .setAppName("TESTAPP")
+                .setInstanceId(id)
+                .setHostName(id + ".test")
+                .setStatus(status)
+                .build();
+        return new Lease<>(instanceInfo, 90);
+    }
+}
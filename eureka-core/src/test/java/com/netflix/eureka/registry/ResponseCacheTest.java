@@ -1,12 +1,27 @@
 package com.netflix.eureka.registry;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
 import com.netflix.appinfo.EurekaAccept;
 import com.netflix.discovery.DefaultEurekaClientConfig;
+import com.netflix.discovery.converters.wrappers.EncoderWrapper;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.DefaultEurekaServerConfig;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.Version;
 import com.netflix.eureka.resources.DefaultServerCodecs;
+import com.netflix.eureka.resources.ServerCodecs;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -54,6 +69,21 @@ public class ResponseCacheTest extends AbstractTester {
         Assert.assertNull("Cache after invalidate did not return null for write view.", cache.get(key, true));
     }
 
+    @Test
+    public void testInvalidateAfterReloadOfAnInvalidatedKey() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                Key.KeyType.JSON, Version.V1, EurekaAccept.full);
+        Assert.assertNotNull("Cache get returned null.", cache.get(key, false));
+
+        // The removal of the first entry must not drop the key reloaded since from the index used by invalidate
+        cache.invalidate(key);
+        Assert.assertNotNull("Cache get returned null.", cache.get(key, false));
+
+        testRegistry.cancel(REMOTE_REGION_APP_NAME, REMOTE_REGION_INSTANCE_1_HOSTNAME, true);
+        Assert.assertNull("Cache after invalidate did not return null for write view.", cache.get(key, true));
+    }
+
     @Test
     public void testInvalidateWithRemoteRegion() throws Exception {
         ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
@@ -91,4 +121,211 @@ public class ResponseCacheTest extends AbstractTester {
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key1, true));
         Assert.assertNull("Cache after invalidate did not return null.", cache.get(key2, true));
     }
+
+    @Test
+    public void testStreamedPayloadMatchesEncodedEntity() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        ServerCodecs serverCodecs = new DefaultServerCodecs(new DefaultEurekaServerConfig());
+        for (Key.KeyType keyType : Key.KeyType.values()) {
+            for (EurekaAccept eurekaAccept : EurekaAccept.values()) {
+                Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME, keyType, Version.V2, eurekaAccept);
+                ResponseCacheImpl.Value value = cache.getValue(key, false);
+
+                EncoderWrapper encoder = serverCodecs.getEncoder(keyType, eurekaAccept);
+                String expected = encoder.encode(testRegistry.getApplication(REMOTE_REGION_APP_NAME));
+                Assert.assertEquals(expected, new String(value.getRawPayload(), StandardCharsets.UTF_8));
+                Assert.assertEquals(expected, value.getPayload());
+                Assert.assertArrayEquals(value.getRawPayload(), gunzip(value.getGzipped()));
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionIsComputedOnDemand() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        Key key = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME, Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+        ResponseCacheImpl.Value value = cache.getValue(key, false);
+
+        Assert.assertNotNull(cache.get(key, false));
+        Assert.assertNotNull(cache.getRaw(key));
+        Assert.assertEquals(2, value.getRawHits());
+        Assert.assertEquals(0, value.getCompressedHits());
+
+        byte[] gzipped = cache.getGZIP(key);
+        Assert.assertSame(gzipped, cache.getCompressed(key, CompressionCodecs.GZIP));
+        Assert.assertEquals(2, value.getCompressedHits());
+        Assert.assertArrayEquals(value.getRawPayload(), gunzip(gzipped));
+
+        byte[] deflated = cache.getCompressed(key, CompressionCodecs.DEFLATE);
+        Assert.assertArrayEquals(value.getRawPayload(), inflate(deflated));
+    }
+
+    @Test
+    public void testRegistryWidePayloadsAreRebuiltOncePerCoalescingWindow() throws Exception {
+        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(60 * 1000L).when(serverConfig).getResponseCacheCoalescingWindowMs();
+        ResponseCacheImpl cache = new ResponseCacheImpl(serverConfig, new DefaultServerCodecs(serverConfig),
+                (AbstractInstanceRegistry) testRegistry);
+        try {
+            Key allAppsKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+                    Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+            Key appKey = new Key(Key.EntityType.Application, REMOTE_REGION_APP_NAME,
+                    Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+            ResponseCacheImpl.Value allApps = cache.getValue(allAppsKey, false);
+            ResponseCacheImpl.Value app = cache.getValue(appKey, false);
+
+            for (int i = 0; i < 10; i++) {
+                cache.invalidate(REMOTE_REGION_APP_NAME, null, null);
+            }
+
+            // Application keys are evicted, the full registry is only marked as stale
+            Assert.assertNotSame(app, cache.getValue(appKey, false));
+            Assert.assertSame(allApps, cache.getValue(allAppsKey, false));
+        } finally {
+            cache.stop();
+        }
+
+        doReturn(0L).when(serverConfig).getResponseCacheCoalescingWindowMs();
+        cache = new ResponseCacheImpl(serverConfig, new DefaultServerCodecs(serverConfig),
+                (AbstractInstanceRegistry) testRegistry);
+        try {
+            Key allAppsKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS,
+                    Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+            ResponseCacheImpl.Value allApps = cache.getValue(allAppsKey, false);
+            Assert.assertSame(allApps, cache.getValue(allAppsKey, false));
+
+            cache.invalidate(REMOTE_REGION_APP_NAME, null, null);
+            cache.invalidate(REMOTE_REGION_APP_NAME, null, null);
+            ResponseCacheImpl.Value rebuilt = cache.getValue(allAppsKey, false);
+            Assert.assertNotSame(allApps, rebuilt);
+            Assert.assertSame(rebuilt, cache.getValue(allAppsKey, false));
+        } finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testAwaitChangeReturnsThePayloadOfTheNextGeneration() throws Exception {
+        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(0L).when(serverConfig).getResponseCacheCoalescingWindowMs();
+        final ResponseCacheImpl cache = new ResponseCacheImpl(serverConfig, new DefaultServerCodecs(serverConfig),
+                (AbstractInstanceRegistry) testRegistry);
+        try {
+            final Key deltaKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                    Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+            final long knownGeneration = cache.getValue(deltaKey, false).getGeneration();
+
+            // Nothing changes
+            Assert.assertNull(cache.awaitChange(deltaKey, knownGeneration, 50));
+
+            FutureTask<ResponseCacheImpl.Value> watch = new FutureTask<>(new Callable<ResponseCacheImpl.Value>() {
+                @Override
+                public ResponseCacheImpl.Value call() throws Exception {
+                    return cache.awaitChange(deltaKey, knownGeneration, 30 * 1000);
+                }
+            });
+            new Thread(watch).start();
+            Thread.sleep(100);
+            Assert.assertFalse(watch.isDone());
+
+            cache.invalidate(REMOTE_REGION_APP_NAME, null, null);
+            ResponseCacheImpl.Value changed = watch.get(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(changed);
+            Assert.assertTrue(changed.getGeneration() > knownGeneration);
+
+            // A caller that is behind gets the current payload right away
+            Assert.assertSame(changed, cache.awaitChange(deltaKey, knownGeneration, 30 * 1000));
+        } finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testRemoteRegistryChangeWakesUpWatchers() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        Key deltaKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full, new String[]{REMOTE_REGION_NAME});
+        long knownGeneration = cache.getValue(deltaKey, false).getGeneration();
+
+        // The remote registry is fetched every 5 seconds, and the mock remote server always returns a delta
+        ResponseCacheImpl.Value changed = cache.awaitChange(deltaKey, knownGeneration, 30 * 1000);
+        Assert.assertNotNull(changed);
+        Assert.assertTrue(changed.getGeneration() > knownGeneration);
+    }
+
+    @Test
+    public void testCursorAndInterestKeysAreBounded() throws Exception {
+        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(2).when(serverConfig).getMaxCursorAndInterestResponseCacheSize();
+        ResponseCacheImpl cache = new ResponseCacheImpl(serverConfig, new DefaultServerCodecs(serverConfig),
+                (AbstractInstanceRegistry) testRegistry);
+        try {
+            for (long sinceSequence = 0; sinceSequence < 10; sinceSequence++) {
+                Key deltaKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                        Key.KeyType.JSON, Version.V2, EurekaAccept.full, null, sinceSequence,
+                        RegistryInterest.of(null, REMOTE_REGION_APP_NAME));
+                Assert.assertNotNull(cache.getValue(deltaKey, true));
+            }
+            Assert.assertTrue(cache.getCurrentSize() <= 2);
+        } finally {
+            cache.stop();
+        }
+    }
+
+    @Test
+    public void testDeltaOfInterestIsFilteredFromTheSharedDelta() throws Exception {
+        ResponseCacheImpl cache = (ResponseCacheImpl) testRegistry.getResponseCache();
+        String[] regions = {REMOTE_REGION_NAME};
+        RegistryInterest interest = RegistryInterest.of(null, REMOTE_REGION_APP_NAME);
+        Key deltaKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full, regions);
+        Key deltaOfInterestKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                Key.KeyType.JSON, Version.V2, EurekaAccept.full, regions, -1, interest);
+
+        ResponseCacheImpl.Value deltaOfInterest = cache.getValue(deltaOfInterestKey, false);
+        ResponseCacheImpl.Value delta = cache.getValue(deltaKey, false);
+        Assert.assertEquals(delta.getGeneration(), deltaOfInterest.getGeneration());
+        Assert.assertEquals(delta.getRegistrySequence(), deltaOfInterest.getRegistrySequence());
+
+        Applications expected = interest.filter(delta.getDelta());
+        Applications decoded = new DefaultServerCodecs(new DefaultEurekaServerConfig()).getFullJsonCodec()
+                .decode(deltaOfInterest.getPayload(), Applications.class);
+        Assert.assertEquals(expected.size(), decoded.size());
+        Applications registryOfInterest =
+                interest.filter(((AbstractInstanceRegistry) testRegistry).getApplicationsFromMultipleRegions(regions));
+        Assert.assertEquals(registryOfInterest.getAppsHashCode(), decoded.getAppsHashCode());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testAwaitChangeIsBoundedByMaxConcurrentWatches() throws Exception {
+        EurekaServerConfig serverConfig = spy(new DefaultEurekaServerConfig());
+        doReturn(0).when(serverConfig).getMaxConcurrentRegistryWatches();
+        ResponseCacheImpl cache = new ResponseCacheImpl(serverConfig, new DefaultServerCodecs(serverConfig),
+                (AbstractInstanceRegistry) testRegistry);
+        try {
+            Key deltaKey = new Key(Key.EntityType.Application, ResponseCacheImpl.ALL_APPS_DELTA,
+                    Key.KeyType.JSON, Version.V2, EurekaAccept.full);
+            cache.awaitChange(deltaKey, 0, 50);
+        } finally {
+            cache.stop();
+        }
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws Exception {
+        return readFully(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed) throws Exception {
+        return readFully(new InflaterInputStream(new ByteArrayInputStream(compressed)));
+    }
 }
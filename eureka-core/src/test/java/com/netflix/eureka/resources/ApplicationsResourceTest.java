@@ -7,6 +7,7 @@ import com.netflix.discovery.converters.wrappers.CodecWrappers;
 import com.netflix.discovery.converters.wrappers.DecoderWrapper;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.util.InstanceInfoGenerator;
 import com.netflix.eureka.AbstractTester;
 import com.netflix.eureka.Version;
@@ -15,8 +16,10 @@ import org.junit.Test;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 /**
@@ -50,10 +53,12 @@ public class ApplicationsResourceTest extends AbstractTester {
                 null, // encoding
                 EurekaAccept.full.name(),
                 null,  // uriInfo
-                null  // remote regions
+                null, // remote regions
+                null, // VIP addresses of interest
+                null  // applications of interest
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decoded = decoder.decode(json, Applications.class);
@@ -72,7 +77,9 @@ public class ApplicationsResourceTest extends AbstractTester {
                 "gzip", // encoding
                 EurekaAccept.full.name(),
                 null,  // uriInfo
-                null  // remote regions
+                null, // remote regions
+                null, // VIP addresses of interest
+                null  // applications of interest
         );
 
         assertThat(response.getMetadata().getFirst("Content-Encoding").toString(), is("gzip"));
@@ -87,7 +94,9 @@ public class ApplicationsResourceTest extends AbstractTester {
                 "gzip", // encoding
                 EurekaAccept.full.name(),
                 null,  // uriInfo
-                null  // remote regions
+                null, // remote regions
+                null, // VIP addresses of interest
+                null  // applications of interest
         );
 
         assertThat(response.getMetadata().getFirst("Content-Encoding").toString(), is("gzip"));
@@ -102,10 +111,12 @@ public class ApplicationsResourceTest extends AbstractTester {
                 null, // encoding
                 EurekaAccept.compact.name(),
                 null,  // uriInfo
-                null  // remote regions
+                null, // remote regions
+                null, // VIP addresses of interest
+                null  // applications of interest
         );
 
-        String json = String.valueOf(response.getEntity());
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
         DecoderWrapper decoder = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class);
 
         Applications decoded = decoder.decode(json, Applications.class);
@@ -126,4 +137,153 @@ public class ApplicationsResourceTest extends AbstractTester {
             }
         }
     }
+
+    @Test
+    public void testDeltaWatch() throws Exception {
+        // Without a token, the current delta is returned right away
+        Response response = watchDelta(null, 30);
+        assertThat(response.getStatus(), is(200));
+        String token = (String) response.getMetadata().getFirst(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION);
+        assertThat(token, is(notNullValue()));
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+        Applications delta = CodecWrappers.getDecoder(CodecWrappers.LegacyJacksonJson.class).decode(json, Applications.class);
+        assertThat(delta.getRegisteredApplications().isEmpty(), is(false));
+
+        // Nothing changed since the token was issued
+        response = watchDelta(token, 0);
+        assertThat(response.getStatus(), is(304));
+        assertThat((String) response.getMetadata().getFirst(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION), is(token));
+
+        // A token issued by another server gets the current delta right away
+        response = watchDelta("another-server-" + Long.MAX_VALUE, 30);
+        assertThat(response.getStatus(), is(200));
+
+        InstanceInfo changed = testApplications.getRegisteredApplications().get(0).getInstances().get(0);
+        registry.statusUpdate(changed.getAppName(), changed.getId(), InstanceInfo.InstanceStatus.OUT_OF_SERVICE,
+                String.valueOf(System.currentTimeMillis()), false);
+        response = watchDelta(token, 30);
+        assertThat(response.getStatus(), is(200));
+        assertThat(response.getMetadata().getFirst(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_GENERATION).equals(token), is(false));
+    }
+
+    @Test
+    public void testDeltaSinceCursor() throws Exception {
+        Response response = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null, // remote regions
+                null, // VIP addresses of interest
+                null  // applications of interest
+        );
+        String cursor = (String) response.getMetadata().getFirst(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR);
+        assertThat(cursor, is(notNullValue()));
+
+        InstanceInfo changed = testApplications.getRegisteredApplications().get(0).getInstances().get(0);
+        registry.statusUpdate(changed.getAppName(), changed.getId(), InstanceInfo.InstanceStatus.OUT_OF_SERVICE,
+                String.valueOf(System.currentTimeMillis()), false);
+
+        // Only the change made after the full fetch is returned, besides the remote region delta
+        response = getDelta(cursor);
+        assertThat(response.getStatus(), is(200));
+        Applications delta = decode(response);
+        assertThat(countTestInstances(delta), is(1));
+        assertThat(delta.getRegisteredApplications(changed.getAppName()).getByInstanceId(changed.getId()).getStatus(),
+                is(InstanceInfo.InstanceStatus.OUT_OF_SERVICE));
+        String nextCursor = (String) response.getMetadata().getFirst(EurekaHttpClient.HTTP_X_EUREKA_REGISTRY_CURSOR);
+        assertThat(nextCursor.equals(cursor), is(false));
+        assertThat(countTestInstances(decode(getDelta(nextCursor))), is(0));
+
+        // A cursor issued by another server gets the regular delta, which holds all the registrations
+        response = getDelta("another-server-1");
+        assertThat(response.getStatus(), is(200));
+        assertThat(countTestInstances(decode(response)), is(testApplications.size()));
+
+        // A cursor ahead of the server cannot be served
+        response = getDelta(cursor.substring(0, cursor.lastIndexOf('-') + 1) + Long.MAX_VALUE);
+        assertThat(response.getStatus(), is(404));
+    }
+
+    @Test
+    public void testFullAppsAndDeltaOfInterest() throws Exception {
+        Application ofInterest = testApplications.getRegisteredApplications().get(0);
+        InstanceInfo vipInstance = testApplications.getRegisteredApplications().get(1).getInstances().get(0);
+        String vipAddresses = vipInstance.getVIPAddress();
+        int expectedCount = ofInterest.size() + testApplications.getRegisteredApplications().get(1).size();
+
+        Response response = applicationsResource.getContainers(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null, // uriInfo
+                null, // remote regions
+                vipAddresses,
+                ofInterest.getName()
+        );
+        Applications full = decode(response);
+        assertThat(full.size(), is(expectedCount));
+        assertThat(full.getAppsHashCode(), is("UP_" + expectedCount + "_"));
+
+        InstanceInfo changed = ofInterest.getInstances().get(0);
+        registry.statusUpdate(changed.getAppName(), changed.getId(), InstanceInfo.InstanceStatus.OUT_OF_SERVICE,
+                String.valueOf(System.currentTimeMillis()), false);
+        response = applicationsResource.getContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null,  // remote regions
+                null,  // cursor
+                vipAddresses,
+                ofInterest.getName()
+        );
+        Applications delta = decode(response);
+        assertThat(delta.size(), is(expectedCount));
+        assertThat(delta.getAppsHashCode(), is("OUT_OF_SERVICE_1_UP_" + (expectedCount - 1) + "_"));
+    }
+
+    private Response getDelta(String cursor) {
+        return applicationsResource.getContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null,  // remote regions
+                cursor,
+                null,  // VIP addresses of interest
+                null   // applications of interest
+        );
+    }
+
+    private int countTestInstances(Applications applications) {
+        int count = 0;
+        for (Application application : testApplications.getRegisteredApplications()) {
+            Application found = applications.getRegisteredApplications(application.getName());
+            count += found == null ? 0 : found.size();
+        }
+        return count;
+    }
+
+    private static Applications decode(Response response) throws Exception {
+        String json = new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+        return CodecWrappers.getDecoder(CodecWrappers.JacksonJson.class).decode(json, Applications.class);
+    }
+
+    private Response watchDelta(String generationToken, int timeoutSeconds) {
+        return applicationsResource.watchContainerDifferential(
+                Version.V2.name(),
+                MediaType.APPLICATION_JSON,
+                null, // encoding
+                EurekaAccept.full.name(),
+                null,  // uriInfo
+                null,  // remote regions
+                generationToken,
+                timeoutSeconds
+        );
+    }
 }
@@ -1,5 +1,7 @@
 package com.netflix.eureka.resources;
 
+import java.io.ByteArrayInputStream;
+
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
@@ -7,7 +9,9 @@ import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.shared.transport.ClusterSampleData;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import com.netflix.eureka.cluster.protocol.ReplicationBinaryCodec;
 import com.netflix.eureka.cluster.protocol.ReplicationInstance;
 import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
 import com.netflix.eureka.cluster.protocol.ReplicationList;
@@ -20,7 +24,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
-import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -31,8 +35,9 @@ import static org.mockito.Mockito.when;
  */
 public class PeerReplicationResourceTest {
 
-    private final ApplicationResource applicationResource = mock(ApplicationResource.class);
-    private final InstanceResource instanceResource = mock(InstanceResource.class);
+    private final PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
+
+    private final ServerCodecs serverCodecs = DefaultServerCodecs.builder().build();
 
     private EurekaServerContext serverContext;
     private PeerReplicationResource peerReplicationResource;
@@ -43,58 +48,25 @@ public class PeerReplicationResourceTest {
     public void setUp() {
         serverContext = mock(EurekaServerContext.class);
         when(serverContext.getServerConfig()).thenReturn(mock(EurekaServerConfig.class));
-        peerReplicationResource = new PeerReplicationResource(serverContext) {
-            @Override
-            ApplicationResource createApplicationResource(ReplicationInstance instanceInfo) {
-                return applicationResource;
-            }
-
-            @Override
-            InstanceResource createInstanceResource(ReplicationInstance instanceInfo, ApplicationResource applicationResource) {
-                return instanceResource;
-            }
-        };
-    }
-
-    @Test
-    public void testRegisterBatching() throws Exception {
-        ReplicationList replicationList = new ReplicationList(newReplicationInstanceOf(Action.Register, instanceInfo));
-        Response response = peerReplicationResource.batchReplication(replicationList);
-
-        assertStatusOkReply(response);
-        verify(applicationResource, times(1)).addInstance(instanceInfo, "true");
+        when(serverContext.getRegistry()).thenReturn(registry);
+        when(serverContext.getServerCodecs()).thenReturn(serverCodecs);
+        peerReplicationResource = new PeerReplicationResource(serverContext);
     }
 
     @Test
-    public void testCancelBatching() throws Exception {
-        when(instanceResource.cancelLease(anyString())).thenReturn(Response.ok().build());
+    public void testBatchIsAppliedToRegistry() throws Exception {
+        ReplicationList replicationList = new ReplicationList(newReplicationInstanceOf(Action.Heartbeat, instanceInfo));
+        replyWith(new ReplicationInstanceResponse(Status.OK.getStatusCode(), null));
 
-        ReplicationList replicationList = new ReplicationList(newReplicationInstanceOf(Action.Cancel, instanceInfo));
         Response response = peerReplicationResource.batchReplication(replicationList);
 
         assertStatusOkReply(response);
-        verify(instanceResource, times(1)).cancelLease("true");
+        verify(registry, times(1)).applyReplicationBatch(replicationList);
     }
 
-    @Test
-    public void testHeartbeat() throws Exception {
-        when(instanceResource.renewLease(anyString(), anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
-
-        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
-        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
-
-        assertStatusOkReply(response);
-        verify(instanceResource, times(1)).renewLease(
-                "true",
-                replicationInstance.getOverriddenStatus(),
-                instanceInfo.getStatus().name(),
-                Long.toString(replicationInstance.getLastDirtyTimestamp())
-        );
-    }
-    
     @Test
     public void testConflictResponseReturnsTheInstanceInfoInTheResponseEntity() throws Exception {
-        when(instanceResource.renewLease(anyString(), anyString(), anyString(), anyString())).thenReturn(Response.status(Status.CONFLICT).entity(instanceInfo).build());
+        replyWith(new ReplicationInstanceResponse(Status.CONFLICT.getStatusCode(), instanceInfo));
 
         ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
         Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
@@ -104,39 +76,47 @@ public class PeerReplicationResourceTest {
     }
 
     @Test
-    public void testStatusUpdate() throws Exception {
-        when(instanceResource.statusUpdate(anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
+    public void testRegistryFailureFailsTheWholeBatch() throws Exception {
+        when(registry.applyReplicationBatch(any(ReplicationList.class))).thenThrow(new RuntimeException("simulated"));
 
-        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.StatusUpdate, instanceInfo);
+        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Cancel, instanceInfo);
         Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
 
-        assertStatusOkReply(response);
-        verify(instanceResource, times(1)).statusUpdate(
-                replicationInstance.getStatus(),
-                "true",
-                Long.toString(replicationInstance.getLastDirtyTimestamp())
-        );
+        assertThat(response.getStatus(), is(equalTo(500)));
     }
 
     @Test
-    public void testDeleteStatusOverride() throws Exception {
-        when(instanceResource.deleteStatusUpdate(anyString(), anyString(), anyString())).thenReturn(Response.ok().build());
+    public void testBinaryBatchReplication() throws Exception {
+        replyWith(new ReplicationInstanceResponse(Status.CONFLICT.getStatusCode(), instanceInfo));
 
-        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.DeleteStatusOverride, instanceInfo);
-        Response response = peerReplicationResource.batchReplication(new ReplicationList(replicationInstance));
+        ReplicationBinaryCodec binaryCodec = new ReplicationBinaryCodec(serverCodecs.getFullJsonCodec());
+        ReplicationInstance replicationInstance = newReplicationInstanceOf(Action.Heartbeat, instanceInfo);
+        byte[] request = binaryCodec.encode(new ReplicationList(replicationInstance));
+        Response response = peerReplicationResource.batchReplicationBinary(new ByteArrayInputStream(request));
+
+        ReplicationListResponse entity = binaryCodec.decodeReplicationListResponse(
+                new ByteArrayInputStream((byte[]) response.getEntity()));
+        assertThat(entity.getResponseList().get(0).getStatusCode(), is(equalTo(409)));
+        assertThat(entity.getResponseList().get(0).getResponseEntity(), is(equalTo(instanceInfo)));
+        verify(registry, times(1)).applyReplicationBatch(new ReplicationList(replicationInstance));
+    }
 
-        assertStatusOkReply(response);
-        verify(instanceResource, times(1)).deleteStatusUpdate(
-                "true",
-                replicationInstance.getStatus(),
-                Long.toString(replicationInstance.getLastDirtyTimestamp())
-        );
+    @Test
+    public void testMalformedBinaryBatchIsRejected() throws Exception {
+        Response response = peerReplicationResource.batchReplicationBinary(new ByteArrayInputStream(new byte[]{1, 5}));
+        assertThat(response.getStatus(), is(equalTo(400)));
+    }
+
+    private void replyWith(ReplicationInstanceResponse singleResponse) {
+        ReplicationListResponse batchResponse = new ReplicationListResponse();
+        batchResponse.addResponse(singleResponse);
+        when(registry.applyReplicationBatch(any(ReplicationList.class))).thenReturn(batchResponse);
     }
 
     private static void assertStatusOkReply(Response httpResponse) {
         assertStatus(httpResponse, 200);
     }
-    
+
     private static void assertStatusIsConflict(Response httpResponse) {
         assertStatus(httpResponse, 409);
     }
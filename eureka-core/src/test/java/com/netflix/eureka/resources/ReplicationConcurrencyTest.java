@@ -145,6 +145,7 @@ public class ReplicationConcurrencyTest {
             EurekaServerContext serverContext = Mockito.mock(EurekaServerContext.class);
             Mockito.when(serverContext.getServerConfig()).thenReturn(serverConfig);
             Mockito.when(serverContext.getRegistry()).thenReturn(registry);
+            Mockito.when(serverContext.getServerCodecs()).thenReturn(serverCodecs);
             this.replicationResource = new PeerReplicationResource(serverContext);
         }
     }
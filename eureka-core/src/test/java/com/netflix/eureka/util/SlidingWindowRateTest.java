@@ -0,0 +1,81 @@
+package com.netflix.eureka.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SlidingWindowRateTest {
+
+    private final SlidingWindowRate rate = new SlidingWindowRate(4000, 4);
+
+    @Test
+    public void testIncrementsAreCountedOnceTheirBucketIsFilled() throws Exception {
+        rate.increment();
+        rate.increment();
+        assertThat(rate.getCount(), is(0L));
+
+        rate.rotate();
+        assertThat(rate.getCount(), is(2L));
+    }
+
+    @Test
+    public void testIncrementsAreCountedForTheLengthOfTheWindow() throws Exception {
+        rate.increment();
+        rate.rotate();
+        rate.increment();
+        rate.increment();
+        rate.rotate();
+        assertThat(rate.getCount(), is(3L));
+
+        rate.rotate();
+        rate.rotate();
+        assertThat(rate.getCount(), is(3L));
+        rate.rotate();
+        assertThat(rate.getCount(), is(2L));
+        rate.rotate();
+        assertThat(rate.getCount(), is(0L));
+    }
+
+    @Test
+    public void testConcurrentIncrementsAreAllCounted() throws Exception {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        rate.increment();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        rate.rotate();
+        assertThat(rate.getCount(), is(40000L));
+    }
+
+    @Test
+    public void testBucketsAreMovedOnOnceStarted() throws Exception {
+        SlidingWindowRate startedRate = new SlidingWindowRate(400, 4);
+        startedRate.start();
+        try {
+            startedRate.increment();
+            Thread.sleep(250);
+            assertThat(startedRate.getCount(), is(1L));
+            Thread.sleep(500);
+            assertThat(startedRate.getCount(), is(0L));
+        } finally {
+            startedRate.stop();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowMustBeSplitInWholeMilliseconds() throws Exception {
+        new SlidingWindowRate(1000, 3);
+    }
+}
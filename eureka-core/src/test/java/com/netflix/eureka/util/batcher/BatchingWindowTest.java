@@ -0,0 +1,58 @@
+package com.netflix.eureka.util.batcher;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BatchingWindowTest {
+
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final long MAX_BATCHING_DELAY_MS = 500;
+    private static final long TARGET_LATENCY_MS = 200;
+
+    @Test
+    public void testFixedWindowIgnoresResults() throws Exception {
+        BatchingWindow window = BatchingWindow.fixed(MAX_BATCH_SIZE, MAX_BATCHING_DELAY_MS);
+        window.registerResult(ProcessingResult.Congestion, 10 * TARGET_LATENCY_MS);
+
+        assertThat(window.getBatchSize(), is(equalTo(MAX_BATCH_SIZE)));
+        assertThat(window.getBatchingDelay(), is(equalTo(MAX_BATCHING_DELAY_MS)));
+    }
+
+    @Test
+    public void testWindowShrinksMultiplicativelyAndGrowsAdditively() throws Exception {
+        BatchingWindow window = BatchingWindow.adaptive(MAX_BATCH_SIZE, MAX_BATCHING_DELAY_MS, TARGET_LATENCY_MS);
+        assertThat(window.getBatchSize(), is(equalTo(MAX_BATCH_SIZE)));
+        assertThat(window.getBatchingDelay(), is(equalTo(MAX_BATCHING_DELAY_MS / 10)));
+
+        window.registerResult(ProcessingResult.Congestion, TARGET_LATENCY_MS);
+        assertThat(window.getBatchSize(), is(equalTo(50)));
+        window.registerResult(ProcessingResult.Success, 2 * TARGET_LATENCY_MS);
+        assertThat(window.getBatchSize(), is(equalTo(38)));
+        window.registerResult(ProcessingResult.PermanentError, 0);
+        assertThat(window.getBatchSize(), is(equalTo(38)));
+
+        // A struggling peer waits longer for bigger, but capped, batches
+        long congestedDelay = window.getBatchingDelay();
+        assertThat(congestedDelay > MAX_BATCHING_DELAY_MS / 10, is(true));
+
+        window.registerResult(ProcessingResult.Success, TARGET_LATENCY_MS);
+        assertThat(window.getBatchSize(), is(equalTo(43)));
+        assertThat(window.getBatchingDelay() < congestedDelay, is(true));
+
+        for (int i = 0; i < 100; i++) {
+            window.registerResult(ProcessingResult.TransientError, 0);
+        }
+        assertThat(window.getBatchSize(), is(equalTo(1)));
+        assertThat(window.getBatchingDelay(), is(equalTo(MAX_BATCHING_DELAY_MS)));
+
+        for (int i = 0; i < 100; i++) {
+            window.registerResult(ProcessingResult.Success, 0);
+        }
+        assertThat(window.getBatchSize(), is(equalTo(MAX_BATCH_SIZE)));
+        assertThat(window.getBatchingDelay(), is(equalTo(MAX_BATCHING_DELAY_MS / 10)));
+    }
+}
@@ -0,0 +1,82 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PendingTaskIndexTest {
+
+    @Test
+    public void testProcessingOrderIsKept() throws Exception {
+        PendingTaskIndex<String, String> index = new PendingTaskIndex<>(3);
+        assertThat(index.put(holder("a", "a1")), is(nullValue()));
+        assertThat(index.put(holder("b", "b1")), is(nullValue()));
+
+        // Replacing a task keeps its position
+        assertThat(index.put(holder("a", "a2")).getTask(), is(equalTo("a1")));
+        index.putFirst(holder("c", "c1"));
+        assertThat(index.isFull(), is(true));
+
+        assertThat(index.pollFirst().getTask(), is(equalTo("c1")));
+        assertThat(index.peekFirst().getTask(), is(equalTo("a2")));
+        assertThat(index.pollFirst().getTask(), is(equalTo("a2")));
+        assertThat(index.contains("a"), is(false));
+        assertThat(index.pollFirst().getTask(), is(equalTo("b1")));
+        assertThat(index.pollFirst(), is(nullValue()));
+        assertThat(index.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testMatchesReferenceImplementation() throws Exception {
+        int capacity = 100;
+        PendingTaskIndex<Integer, Integer> index = new PendingTaskIndex<>(capacity);
+        Map<Integer, Integer> referenceTasks = new HashMap<>();
+        Deque<Integer> referenceOrder = new ArrayDeque<>();
+
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            int id = random.nextInt(3 * capacity);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                if (index.isFull() && !index.contains(id)) {
+                    assertThat(index.pollFirst().getId(), is(equalTo(referenceOrder.peek())));
+                    referenceTasks.remove(referenceOrder.poll());
+                }
+                index.put(holder(id, i));
+                if (referenceTasks.put(id, i) == null) {
+                    referenceOrder.add(id);
+                }
+            } else if (operation < 7) {
+                if (!index.isFull() && !index.contains(id)) {
+                    index.putFirst(holder(id, i));
+                    referenceTasks.put(id, i);
+                    referenceOrder.addFirst(id);
+                }
+            } else {
+                TaskHolder<Integer, Integer> holder = index.pollFirst();
+                Integer expectedId = referenceOrder.poll();
+                if (expectedId == null) {
+                    assertThat(holder, is(nullValue()));
+                } else {
+                    assertThat(holder.getId(), is(equalTo(expectedId)));
+                    assertThat(holder.getTask(), is(equalTo(referenceTasks.remove(expectedId))));
+                }
+            }
+            assertThat(index.size(), is(equalTo(referenceTasks.size())));
+            assertThat(index.contains(id), is(equalTo(referenceTasks.containsKey(id))));
+        }
+    }
+
+    private static <ID, T> TaskHolder<ID, T> holder(ID id, T task) {
+        return new TaskHolder<>(id, task, Long.MAX_VALUE);
+    }
+}
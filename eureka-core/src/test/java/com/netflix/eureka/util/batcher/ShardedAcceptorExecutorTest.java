@@ -0,0 +1,111 @@
+package com.netflix.eureka.util.batcher;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.netflix.eureka.util.batcher.TaskProcessor.ProcessingResult;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class ShardedAcceptorExecutorTest {
+
+    private static final long SERVER_UNAVAILABLE_SLEEP_TIME_MS = 1000;
+    private static final long RETRY_SLEEP_TIME_MS = 100;
+    private static final long MAX_BATCHING_DELAY_MS = 10;
+
+    private ShardedAcceptorExecutor<Integer, String> acceptorExecutor;
+
+    @After
+    public void tearDown() throws Exception {
+        if (acceptorExecutor != null) {
+            acceptorExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSingleShardKeepsAcceptorExecutorSemantics() throws Exception {
+        acceptorExecutor = newAcceptorExecutor(1, 3, 2);
+
+        // Overflow drops the oldest task, and a newer copy overrides the pending one
+        for (int i = 0; i <= 3; i++) {
+            acceptorExecutor.process(i, "Task" + i, System.currentTimeMillis() + 60 * 1000);
+        }
+        acceptorExecutor.process(2, "Task2.1", System.currentTimeMillis() + 60 * 1000);
+
+        TaskHolder<Integer, String> first = acceptorExecutor.requestWorkItem().poll(5, TimeUnit.SECONDS);
+        verifyTaskHolder(first, 1, "Task1");
+
+        // Re-processed task goes first
+        acceptorExecutor.reprocess(first, ProcessingResult.TransientError);
+        Thread.sleep(RETRY_SLEEP_TIME_MS);
+        verifyTaskHolder(acceptorExecutor.requestWorkItem().poll(5, TimeUnit.SECONDS), 1, "Task1");
+
+        List<TaskHolder<Integer, String>> batch = acceptorExecutor.requestWorkItems().poll(5, TimeUnit.SECONDS);
+        assertThat(batch.size(), is(equalTo(2)));
+        verifyTaskHolder(batch.get(0), 2, "Task2.1");
+        verifyTaskHolder(batch.get(1), 3, "Task3");
+
+        assertThat(acceptorExecutor.getQueueOverflows(), is(equalTo(1L)));
+        assertThat(acceptorExecutor.getOverriddenTasks(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testTasksAreDelayToMaximizeBatchSize() throws Exception {
+        acceptorExecutor = newAcceptorExecutor(1, 3, 2);
+        BlockingQueue<List<TaskHolder<Integer, String>>> taskQueue = acceptorExecutor.requestWorkItems();
+
+        acceptorExecutor.process(1, "Task1", System.currentTimeMillis() + 60 * 1000);
+        Thread.sleep(MAX_BATCHING_DELAY_MS / 2);
+        acceptorExecutor.process(2, "Task2", System.currentTimeMillis() + 60 * 1000);
+
+        List<TaskHolder<Integer, String>> taskHolders = taskQueue.poll(5, TimeUnit.SECONDS);
+
+        assertThat(taskHolders.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testAllShardsDispatchLatestTaskVersions() throws Exception {
+        int taskCount = 1000;
+        acceptorExecutor = newAcceptorExecutor(4, 2 * taskCount, 50);
+        for (int version = 0; version < 3; version++) {
+            for (int i = 0; i < taskCount; i++) {
+                acceptorExecutor.process(i, "Task" + i + '.' + version, System.currentTimeMillis() + 60 * 1000);
+            }
+        }
+
+        Map<Integer, String> dispatched = new HashMap<>();
+        while (dispatched.size() < taskCount) {
+            List<TaskHolder<Integer, String>> batch = acceptorExecutor.requestWorkItems().poll(5, TimeUnit.SECONDS);
+            assertThat(batch, is(notNullValue()));
+            for (TaskHolder<Integer, String> holder : batch) {
+                assertThat(dispatched.put(holder.getId(), holder.getTask()), is(equalTo(null)));
+            }
+        }
+        for (int i = 0; i < taskCount; i++) {
+            assertThat(dispatched.get(i), is(equalTo("Task" + i + ".2")));
+        }
+        assertThat(acceptorExecutor.getAcceptedTasks(), is(equalTo(3L * taskCount)));
+        assertThat(acceptorExecutor.getQueueOverflows(), is(equalTo(0L)));
+    }
+
+    private static ShardedAcceptorExecutor<Integer, String> newAcceptorExecutor(int shards, int maxBufferSize, int workLoadSize) {
+        return new ShardedAcceptorExecutor<>(
+                "TEST", shards, maxBufferSize, workLoadSize, MAX_BATCHING_DELAY_MS,
+                SERVER_UNAVAILABLE_SLEEP_TIME_MS, RETRY_SLEEP_TIME_MS
+        );
+    }
+
+    private static void verifyTaskHolder(TaskHolder<Integer, String> taskHolder, int id, String task) {
+        assertThat(taskHolder, is(notNullValue()));
+        assertThat(taskHolder.getId(), is(equalTo(id)));
+        assertThat(taskHolder.getTask(), is(equalTo(task)));
+    }
+}
@@ -35,6 +35,7 @@ import com.netflix.discovery.converters.wrappers.CodecWrappers.JacksonJson;
 import com.netflix.discovery.converters.wrappers.DecoderWrapper;
 import com.netflix.discovery.converters.wrappers.EncoderWrapper;
 import com.netflix.discovery.shared.Applications;
+import com.netflix.discovery.shared.RegistryInterest;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -135,10 +136,33 @@ public class SimpleEurekaHttpServer {
         Matcher matcher;
         if (path.matches("/v2/apps[/]?")) {
             String regions = getQueryParam(httpExchange, "regions");
-            httpResponse = regions == null ? requestHandler.getApplications() : requestHandler.getApplications(regions);
+            RegistryInterest interest = getInterest(httpExchange);
+            if (interest != null) {
+                httpResponse = requestHandler.getApplicationsOfInterest(interest,
+                        regions == null ? new String[0] : new String[]{regions});
+            } else {
+                httpResponse = regions == null ? requestHandler.getApplications() : requestHandler.getApplications(regions);
+            }
         } else if (path.matches("/v2/apps/delta[/]?")) {
             String regions = getQueryParam(httpExchange, "regions");
-            httpResponse = regions == null ? requestHandler.getDelta() : requestHandler.getDelta(regions);
+            String cursor = getQueryParam(httpExchange, "since");
+            RegistryInterest interest = getInterest(httpExchange);
+            if (interest != null) {
+                httpResponse = requestHandler.getDeltaOfInterest(cursor, interest,
+                        regions == null ? new String[0] : new String[]{regions});
+            } else if (cursor != null) {
+                httpResponse = regions == null
+                        ? requestHandler.getDeltaSince(cursor)
+                        : requestHandler.getDeltaSince(cursor, regions);
+            } else {
+                httpResponse = regions == null ? requestHandler.getDelta() : requestHandler.getDelta(regions);
+            }
+        } else if (path.matches("/v2/apps/delta/watch[/]?")) {
+            String regions = getQueryParam(httpExchange, "regions");
+            String timeout = getQueryParam(httpExchange, "timeout");
+            httpResponse = requestHandler.watchDelta(getQueryParam(httpExchange, "generation"),
+                    timeout == null ? 30 : Integer.parseInt(timeout),
+                    regions == null ? new String[0] : new String[]{regions});
         } else if ((matcher = Pattern.compile("/v2/apps/([^/]+)/([^/]+)").matcher(path)).matches()) {
             httpResponse = requestHandler.getInstance(matcher.group(1), matcher.group(2));
         } else {
@@ -298,4 +322,9 @@ public class SimpleEurekaHttpServer {
         }
         return null;
     }
+
+    private static RegistryInterest getInterest(HttpExchange httpExchange) {
+        return RegistryInterest.of(getQueryParam(httpExchange, RegistryInterest.VIPS_PARAM),
+                getQueryParam(httpExchange, RegistryInterest.APPS_PARAM));
+    }
 }